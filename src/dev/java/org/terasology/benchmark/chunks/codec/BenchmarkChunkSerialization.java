@@ -0,0 +1,201 @@
+package org.terasology.benchmark.chunks.codec;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.terasology.benchmark.BasicBenchmarkResult;
+import org.terasology.benchmark.Benchmark;
+import org.terasology.benchmark.BenchmarkResult;
+import org.terasology.config.AdvancedConfig;
+import org.terasology.config.Config;
+import org.terasology.game.CoreRegistry;
+import org.terasology.math.Vector3i;
+import org.terasology.world.chunks.Chunk;
+import org.terasology.world.chunks.ChunkCodec;
+import org.terasology.world.chunks.blockdata.TeraArray;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * BenchmarkChunkSerialization measures the encoding or decoding throughput and the resulting size of chunks for
+ * one of the available chunk serialization formats.
+ */
+public class BenchmarkChunkSerialization extends Benchmark {
+
+    public static enum Format {
+        /** The format used by ChunkStoreGZip: java serialization wrapped into a gzip stream */
+        JavaSerializationGZip,
+        /** The binary format of ChunkCodec */
+        ChunkCodec
+    }
+
+    private static final int NUM_CHUNKS = 64;
+
+    private final Format format;
+    private final boolean decode;
+    private final ChunkCodec codec = new ChunkCodec();
+
+    private Chunk[] chunks;
+    private byte[][] encoded;
+    private long totalBytes;
+
+    public BenchmarkChunkSerialization(Format format, boolean decode) {
+        this.format = Preconditions.checkNotNull(format);
+        this.decode = decode;
+    }
+
+    @Override
+    public String getTitle() {
+        return format + (decode ? " decoding" : " encoding") + " of " + NUM_CHUNKS + " chunks";
+    }
+
+    @Override
+    public int getWarmupRepetitions() {
+        return 5;
+    }
+
+    @Override
+    public int[] getRepetitions() {
+        return new int[] {10, 20, 50};
+    }
+
+    @Override
+    public BenchmarkResult createResult() {
+        BasicBenchmarkResult result = new BasicBenchmarkResult(this);
+        result.addColumn(new BenchmarkResult.Column<BasicBenchmarkResult>(result, BenchmarkResult.Alignment.Right, "Chunks per second") {
+            @Override
+            protected String getValueInternal(int rep) {
+                long time = owner.getRunTime(rep);
+                return (time > 0) ? String.valueOf(1000L * owner.getRepetitions(rep) * NUM_CHUNKS / time) : "-";
+            }
+        });
+        result.addColumn(new BenchmarkResult.Column<BasicBenchmarkResult>(result, BenchmarkResult.Alignment.Right, "Bytes per chunk") {
+            @Override
+            protected String getValueInternal(int rep) {
+                return String.valueOf(totalBytes / NUM_CHUNKS);
+            }
+        });
+        return result;
+    }
+
+    @Override
+    public void setup() {
+        if (CoreRegistry.get(Config.class) == null) {
+            CoreRegistry.put(Config.class, new Config());
+        }
+        Random random = new Random(1234);
+        chunks = new Chunk[NUM_CHUNKS];
+        encoded = new byte[NUM_CHUNKS][];
+        totalBytes = 0;
+        for (int i = 0; i < NUM_CHUNKS; i++) {
+            chunks[i] = createTestChunk(new Vector3i(i, 0, 0), random);
+            encoded[i] = encode(chunks[i]);
+            totalBytes += encoded[i].length;
+        }
+    }
+
+    @Override
+    public void prerun(int index) {}
+
+    @Override
+    public int run(int index, int repetitions, BenchmarkResult result) {
+        int tmp = 0;
+        for (int rep = 0; rep < repetitions; rep++) {
+            for (int i = 0; i < NUM_CHUNKS; i++) {
+                if (decode) {
+                    tmp += decode(encoded[i]).getPos().x;
+                } else {
+                    tmp += encode(chunks[i]).length;
+                }
+            }
+        }
+        return tmp;
+    }
+
+    @Override
+    public void postrun(int index, BenchmarkResult result) {}
+
+    @Override
+    public void finish(boolean aborted) {}
+
+    private byte[] encode(Chunk chunk) {
+        switch (format) {
+            case JavaSerializationGZip:
+                try {
+                    ByteArrayOutputStream baos = new ByteArrayOutputStream();
+                    ObjectOutputStream objectOut = new ObjectOutputStream(new GZIPOutputStream(baos));
+                    objectOut.writeObject(chunk);
+                    objectOut.close();
+                    return baos.toByteArray();
+                } catch (IOException e) {
+                    throw new RuntimeException(e);
+                }
+            default:
+                ByteBuffer buffer = codec.encode(chunk);
+                byte[] result = new byte[buffer.remaining()];
+                buffer.get(result);
+                return result;
+        }
+    }
+
+    private Chunk decode(byte[] data) {
+        try {
+            switch (format) {
+                case JavaSerializationGZip:
+                    ObjectInputStream objectIn = new ObjectInputStream(new GZIPInputStream(new ByteArrayInputStream(data)));
+                    try {
+                        return (Chunk) objectIn.readObject();
+                    } finally {
+                        objectIn.close();
+                    }
+                default:
+                    return ChunkCodec.decode(ByteBuffer.wrap(data));
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        } catch (ClassNotFoundException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Creates a chunk resembling generated terrain: a noisy surface with a few different block types below it,
+     * sunlight above it and some scattered light sources.
+     */
+    private static Chunk createTestChunk(Vector3i pos, Random random) {
+        AdvancedConfig config = CoreRegistry.get(Config.class).getAdvancedConfig();
+        TeraArray blocks = config.getBlocksFactory().create(Chunk.SIZE_X, Chunk.SIZE_Y, Chunk.SIZE_Z);
+        TeraArray sunlight = config.getSunlightFactory().create(Chunk.SIZE_X, Chunk.SIZE_Y, Chunk.SIZE_Z);
+        TeraArray light = config.getLightFactory().create(Chunk.SIZE_X, Chunk.SIZE_Y, Chunk.SIZE_Z);
+        TeraArray liquid = config.getLiquidFactory().create(Chunk.SIZE_X, Chunk.SIZE_Y, Chunk.SIZE_Z);
+        for (int x = 0; x < Chunk.SIZE_X; x++) {
+            for (int z = 0; z < Chunk.SIZE_Z; z++) {
+                int height = 60 + random.nextInt(8);
+                for (int y = 0; y < Chunk.SIZE_Y; y++) {
+                    if (y < height - 4) {
+                        blocks.set(x, y, z, (random.nextInt(20) == 0) ? 4 + random.nextInt(4) : 1);
+                    } else if (y < height) {
+                        blocks.set(x, y, z, 2);
+                    } else if (y == height) {
+                        blocks.set(x, y, z, 3);
+                    } else {
+                        sunlight.set(x, y, z, Chunk.MAX_LIGHT);
+                    }
+                    if (y < height && random.nextInt(500) == 0) {
+                        light.set(x, y, z, random.nextInt(Chunk.MAX_LIGHT + 1));
+                    }
+                }
+            }
+        }
+        Chunk chunk = new Chunk(pos, blocks, sunlight, light, liquid);
+        chunk.setChunkState(Chunk.State.COMPLETE);
+        return chunk;
+    }
+}
@@ -0,0 +1,29 @@
+package org.terasology.benchmark.chunks.codec;
+
+import java.util.LinkedList;
+import java.util.List;
+
+import org.terasology.benchmark.Benchmark;
+import org.terasology.benchmark.Benchmarks;
+import org.terasology.benchmark.PrintToConsoleCallback;
+import org.terasology.benchmark.chunks.codec.BenchmarkChunkSerialization.Format;
+
+/**
+ * Compares the size and throughput of java serialization of chunks with the binary chunk codec.
+ */
+public final class ChunkCodecBenchmark {
+
+    private ChunkCodecBenchmark() {}
+
+    public static void main(String[] args) {
+
+        final List<Benchmark> benchmarks = new LinkedList<Benchmark>();
+
+        for (Format format : Format.values()) {
+            benchmarks.add(new BenchmarkChunkSerialization(format, false));
+            benchmarks.add(new BenchmarkChunkSerialization(format, true));
+        }
+
+        Benchmarks.execute(benchmarks, new PrintToConsoleCallback());
+    }
+}
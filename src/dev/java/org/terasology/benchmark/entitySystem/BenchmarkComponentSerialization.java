@@ -0,0 +1,185 @@
+package org.terasology.benchmark.entitySystem;
+
+import java.util.List;
+
+import javax.vecmath.Quat4f;
+import javax.vecmath.Vector3f;
+
+import org.terasology.benchmark.BasicBenchmarkResult;
+import org.terasology.benchmark.Benchmark;
+import org.terasology.benchmark.BenchmarkResult;
+import org.terasology.components.HealthComponent;
+import org.terasology.entitySystem.Component;
+import org.terasology.entitySystem.metadata.ComponentLibrary;
+import org.terasology.entitySystem.metadata.ComponentLibraryImpl;
+import org.terasology.entitySystem.metadata.extension.Quat4fTypeHandler;
+import org.terasology.entitySystem.metadata.extension.Vector3fTypeHandler;
+import org.terasology.entitySystem.persistence.EntityPersisterHelper;
+import org.terasology.entitySystem.persistence.EntityPersisterHelperImpl;
+import org.terasology.protobuf.EntityData;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
+
+/**
+ * BenchmarkComponentSerialization measures how many components per second the component library clones, and the
+ * entity persister helper serializes and deserializes, with either generated or reflection based field accessors.
+ */
+public class BenchmarkComponentSerialization extends Benchmark {
+
+    public static enum Operation {
+        Clone,
+        Serialize,
+        Deserialize
+    }
+
+    private static final int COMPONENTS = 3000;
+
+    private final Operation operation;
+    private final boolean generateAccessors;
+
+    private ComponentLibrary componentLibrary;
+    private EntityPersisterHelper persisterHelper;
+    private List<Component> components;
+    private List<EntityData.Component> componentData;
+
+    public BenchmarkComponentSerialization(Operation operation, boolean generateAccessors) {
+        this.operation = Preconditions.checkNotNull(operation);
+        this.generateAccessors = generateAccessors;
+    }
+
+    @Override
+    public String getTitle() {
+        return operation + " of " + COMPONENTS + " components with " + (generateAccessors ? "generated" : "reflection based") + " accessors";
+    }
+
+    @Override
+    public int getWarmupRepetitions() {
+        return 50;
+    }
+
+    @Override
+    public int[] getRepetitions() {
+        return new int[] {50, 100, 200};
+    }
+
+    @Override
+    public BenchmarkResult createResult() {
+        BasicBenchmarkResult result = new BasicBenchmarkResult(this);
+        result.addColumn(new BenchmarkResult.Column<BasicBenchmarkResult>(result, BenchmarkResult.Alignment.Right, "Components per second") {
+            @Override
+            protected String getValueInternal(int rep) {
+                long time = owner.getRunTime(rep);
+                return (time > 0) ? String.valueOf(1000L * owner.getRepetitions(rep) * COMPONENTS / time) : "-";
+            }
+        });
+        return result;
+    }
+
+    @Override
+    public void setup() {
+        componentLibrary = new ComponentLibraryImpl(generateAccessors);
+        componentLibrary.registerTypeHandler(Vector3f.class, new Vector3fTypeHandler());
+        componentLibrary.registerTypeHandler(Quat4f.class, new Quat4fTypeHandler());
+        componentLibrary.registerComponentClass(HealthComponent.class);
+        componentLibrary.registerComponentClass(TransformComponent.class);
+        componentLibrary.registerComponentClass(LabelComponent.class);
+        persisterHelper = new EntityPersisterHelperImpl(componentLibrary);
+
+        components = Lists.newArrayListWithCapacity(COMPONENTS);
+        componentData = Lists.newArrayListWithCapacity(COMPONENTS);
+        for (int i = 0; i < COMPONENTS; ++i) {
+            Component component;
+            switch (i % 3) {
+                case 0:
+                    HealthComponent health = new HealthComponent();
+                    health.currentHealth = i % 20;
+                    component = health;
+                    break;
+                case 1:
+                    TransformComponent transform = new TransformComponent();
+                    transform.setPosition(new Vector3f(i, i + 1, i + 2));
+                    component = transform;
+                    break;
+                default:
+                    LabelComponent label = new LabelComponent();
+                    label.text = "Label " + i;
+                    label.tags.add("tag" + (i % 10));
+                    component = label;
+                    break;
+            }
+            components.add(component);
+            componentData.add(persisterHelper.serializeComponent(component));
+        }
+    }
+
+    @Override
+    public void prerun(int index) {}
+
+    @Override
+    public int run(int index, int repetitions, BenchmarkResult result) {
+        int tmp = 0;
+        for (int rep = 0; rep < repetitions; rep++) {
+            switch (operation) {
+                case Clone:
+                    for (Component component : components) {
+                        tmp += (componentLibrary.copy(component) != null) ? 1 : 0;
+                    }
+                    break;
+                case Serialize:
+                    for (Component component : components) {
+                        tmp += persisterHelper.serializeComponent(component).getFieldCount();
+                    }
+                    break;
+                default:
+                    for (EntityData.Component data : componentData) {
+                        tmp += (persisterHelper.deserializeComponent(data) != null) ? 1 : 0;
+                    }
+                    break;
+            }
+        }
+        return tmp;
+    }
+
+    @Override
+    public void postrun(int index, BenchmarkResult result) {}
+
+    @Override
+    public void finish(boolean aborted) {}
+
+    public static final class TransformComponent implements Component {
+        private Vector3f position = new Vector3f();
+        private Quat4f rotation = new Quat4f(0, 0, 0, 1);
+        private float scale = 1.0f;
+
+        public Vector3f getPosition() {
+            return position;
+        }
+
+        public void setPosition(Vector3f position) {
+            this.position = position;
+        }
+
+        public Quat4f getRotation() {
+            return rotation;
+        }
+
+        public void setRotation(Quat4f rotation) {
+            this.rotation = rotation;
+        }
+
+        public float getScale() {
+            return scale;
+        }
+
+        public void setScale(float scale) {
+            this.scale = scale;
+        }
+    }
+
+    public static final class LabelComponent implements Component {
+        public String text = "";
+        public boolean visible = true;
+        public List<String> tags = Lists.newArrayList();
+    }
+}
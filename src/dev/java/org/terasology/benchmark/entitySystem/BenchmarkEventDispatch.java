@@ -0,0 +1,157 @@
+package org.terasology.benchmark.entitySystem;
+
+import java.util.List;
+
+import org.terasology.benchmark.BasicBenchmarkResult;
+import org.terasology.benchmark.Benchmark;
+import org.terasology.benchmark.BenchmarkResult;
+import org.terasology.entitySystem.AbstractEvent;
+import org.terasology.entitySystem.Component;
+import org.terasology.entitySystem.EntityRef;
+import org.terasology.entitySystem.EventHandlerSystem;
+import org.terasology.entitySystem.EventPriority;
+import org.terasology.entitySystem.ReceiveEvent;
+import org.terasology.entitySystem.metadata.ComponentLibrary;
+import org.terasology.entitySystem.metadata.ComponentLibraryImpl;
+import org.terasology.entitySystem.pojo.PojoEntityManager;
+import org.terasology.entitySystem.pojo.PojoEventSystem;
+import org.terasology.entitySystem.pojo.PojoPrefabManager;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
+
+/**
+ * BenchmarkEventDispatch measures how many events per second the event system delivers to entities, depending on how
+ * many of the components with event handlers each entity has.
+ */
+public class BenchmarkEventDispatch extends Benchmark {
+
+    private static final int ENTITIES = 1000;
+
+    private final int componentsPerEntity;
+
+    private List<EntityRef> entities;
+    private PojoEventSystem eventSystem;
+    private CountingHandler handler;
+
+    public BenchmarkEventDispatch(int componentsPerEntity) {
+        Preconditions.checkArgument(componentsPerEntity >= 1 && componentsPerEntity <= 4, "Components per entity must be between 1 and 4");
+        this.componentsPerEntity = componentsPerEntity;
+    }
+
+    @Override
+    public String getTitle() {
+        return "Sending events to " + ENTITIES + " entities with " + componentsPerEntity + " handled components";
+    }
+
+    @Override
+    public int getWarmupRepetitions() {
+        return 100;
+    }
+
+    @Override
+    public int[] getRepetitions() {
+        return new int[] {100, 500, 1000};
+    }
+
+    @Override
+    public BenchmarkResult createResult() {
+        BasicBenchmarkResult result = new BasicBenchmarkResult(this);
+        result.addColumn(new BenchmarkResult.Column<BasicBenchmarkResult>(result, BenchmarkResult.Alignment.Right, "Events per second") {
+            @Override
+            protected String getValueInternal(int rep) {
+                long time = owner.getRunTime(rep);
+                return (time > 0) ? String.valueOf(1000L * owner.getRepetitions(rep) * ENTITIES / time) : "-";
+            }
+        });
+        return result;
+    }
+
+    @Override
+    public void setup() {
+        ComponentLibrary componentLibrary = new ComponentLibraryImpl();
+        PojoEntityManager entityManager = new PojoEntityManager(componentLibrary, new PojoPrefabManager(componentLibrary));
+        eventSystem = new PojoEventSystem();
+        entityManager.setEventSystem(eventSystem);
+        handler = new CountingHandler();
+        eventSystem.registerEventHandler(handler);
+
+        Component[] components = new Component[] {new FirstComponent(), new SecondComponent(), new ThirdComponent(), new FourthComponent()};
+        entities = Lists.newArrayListWithCapacity(ENTITIES);
+        for (int i = 0; i < ENTITIES; ++i) {
+            EntityRef entity = entityManager.create();
+            for (int c = 0; c < componentsPerEntity; ++c) {
+                // Spread the entities over a few different component sets
+                entity.addComponent(components[(i + c) % components.length]);
+            }
+            entities.add(entity);
+        }
+    }
+
+    @Override
+    public void prerun(int index) {}
+
+    @Override
+    public int run(int index, int repetitions, BenchmarkResult result) {
+        for (int rep = 0; rep < repetitions; rep++) {
+            for (EntityRef entity : entities) {
+                eventSystem.send(entity, new BenchmarkEvent());
+            }
+        }
+        return handler.count;
+    }
+
+    @Override
+    public void postrun(int index, BenchmarkResult result) {}
+
+    @Override
+    public void finish(boolean aborted) {}
+
+    public static class BenchmarkEvent extends AbstractEvent {
+    }
+
+    public static final class FirstComponent implements Component {
+    }
+
+    public static final class SecondComponent implements Component {
+    }
+
+    public static final class ThirdComponent implements Component {
+    }
+
+    public static final class FourthComponent implements Component {
+    }
+
+    public static class CountingHandler implements EventHandlerSystem {
+
+        private int count;
+
+        @ReceiveEvent(components = FirstComponent.class, priority = EventPriority.PRIORITY_HIGH)
+        public void onFirst(BenchmarkEvent event, EntityRef entity) {
+            count++;
+        }
+
+        @ReceiveEvent(components = SecondComponent.class)
+        public void onSecond(BenchmarkEvent event, EntityRef entity) {
+            count++;
+        }
+
+        @ReceiveEvent(components = ThirdComponent.class, priority = EventPriority.PRIORITY_LOW)
+        public void onThird(BenchmarkEvent event, EntityRef entity) {
+            count++;
+        }
+
+        @ReceiveEvent(components = {FirstComponent.class, FourthComponent.class})
+        public void onFirstAndFourth(BenchmarkEvent event, EntityRef entity) {
+            count++;
+        }
+
+        @Override
+        public void initialise() {
+        }
+
+        @Override
+        public void shutdown() {
+        }
+    }
+}
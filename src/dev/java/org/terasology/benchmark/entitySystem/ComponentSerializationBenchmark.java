@@ -0,0 +1,30 @@
+package org.terasology.benchmark.entitySystem;
+
+import java.util.LinkedList;
+import java.util.List;
+
+import org.terasology.benchmark.Benchmark;
+import org.terasology.benchmark.Benchmarks;
+import org.terasology.benchmark.PrintToConsoleCallback;
+import org.terasology.benchmark.entitySystem.BenchmarkComponentSerialization.Operation;
+
+/**
+ * Compares cloning, serializing and deserializing components through generated field accessors with doing so through
+ * reflection.
+ */
+public final class ComponentSerializationBenchmark {
+
+    private ComponentSerializationBenchmark() {}
+
+    public static void main(String[] args) {
+
+        final List<Benchmark> benchmarks = new LinkedList<Benchmark>();
+
+        for (Operation operation : Operation.values()) {
+            benchmarks.add(new BenchmarkComponentSerialization(operation, false));
+            benchmarks.add(new BenchmarkComponentSerialization(operation, true));
+        }
+
+        Benchmarks.execute(benchmarks, new PrintToConsoleCallback());
+    }
+}
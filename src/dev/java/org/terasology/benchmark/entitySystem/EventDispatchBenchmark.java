@@ -0,0 +1,27 @@
+package org.terasology.benchmark.entitySystem;
+
+import java.util.LinkedList;
+import java.util.List;
+
+import org.terasology.benchmark.Benchmark;
+import org.terasology.benchmark.Benchmarks;
+import org.terasology.benchmark.PrintToConsoleCallback;
+
+/**
+ * Measures the throughput of event dispatch for entities with an increasing number of handled components.
+ */
+public final class EventDispatchBenchmark {
+
+    private EventDispatchBenchmark() {}
+
+    public static void main(String[] args) {
+
+        final List<Benchmark> benchmarks = new LinkedList<Benchmark>();
+
+        for (int components = 1; components <= 4; components++) {
+            benchmarks.add(new BenchmarkEventDispatch(components));
+        }
+
+        Benchmarks.execute(benchmarks, new PrintToConsoleCallback());
+    }
+}
@@ -0,0 +1,165 @@
+package org.terasology.benchmark.lighting;
+
+import java.util.List;
+
+import org.terasology.benchmark.BasicBenchmarkResult;
+import org.terasology.benchmark.Benchmark;
+import org.terasology.benchmark.BenchmarkResult;
+import org.terasology.config.Config;
+import org.terasology.game.CoreRegistry;
+import org.terasology.math.Region3i;
+import org.terasology.math.Side;
+import org.terasology.math.Vector3i;
+import org.terasology.world.WorldView;
+import org.terasology.world.block.Block;
+import org.terasology.world.block.BlockUri;
+import org.terasology.world.block.family.SymmetricFamily;
+import org.terasology.world.block.management.BlockManager;
+import org.terasology.world.chunks.Chunk;
+import org.terasology.world.lighting.BatchLightPropagator;
+import org.terasology.world.lighting.LightPropagator;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
+
+/**
+ * BenchmarkLightPropagation measures how many block changes per second the lighting can be updated for, by digging a
+ * crater into lit terrain and filling it again.
+ */
+public class BenchmarkLightPropagation extends Benchmark {
+
+    public static enum Propagator {
+        /** Updates the lighting for one block change after another */
+        LightPropagator,
+        /** Updates the lighting for all block changes of a crater at once */
+        BatchLightPropagator
+    }
+
+    private static final Region3i CHUNK_REGION = Region3i.createFromCenterExtents(new Vector3i(0, 0, 0), new Vector3i(1, 0, 1));
+    private static final Vector3i OFFSET = new Vector3i(1, 0, 1);
+    private static final int SURFACE = 64;
+
+    private final Propagator propagator;
+    private final int radius;
+
+    private WorldView view;
+    private Block air;
+    private Block dirt;
+    private List<Vector3i> crater;
+
+    public BenchmarkLightPropagation(Propagator propagator, int radius) {
+        this.propagator = Preconditions.checkNotNull(propagator);
+        Preconditions.checkArgument(radius > 0 && radius < Chunk.SIZE_X, "Radius must be between 1 and %s", Chunk.SIZE_X - 1);
+        this.radius = radius;
+    }
+
+    @Override
+    public String getTitle() {
+        return propagator + " digging and filling a crater of radius " + radius;
+    }
+
+    @Override
+    public int getWarmupRepetitions() {
+        return 5;
+    }
+
+    @Override
+    public int[] getRepetitions() {
+        return new int[] {5, 10, 20};
+    }
+
+    @Override
+    public BenchmarkResult createResult() {
+        BasicBenchmarkResult result = new BasicBenchmarkResult(this);
+        result.addColumn(new BenchmarkResult.Column<BasicBenchmarkResult>(result, BenchmarkResult.Alignment.Right, "Blocks per second") {
+            @Override
+            protected String getValueInternal(int rep) {
+                long time = owner.getRunTime(rep);
+                return (time > 0) ? String.valueOf(1000L * owner.getRepetitions(rep) * 2 * crater.size() / time) : "-";
+            }
+        });
+        return result;
+    }
+
+    @Override
+    public void setup() {
+        if (CoreRegistry.get(Config.class) == null) {
+            CoreRegistry.put(Config.class, new Config());
+        }
+        air = BlockManager.getInstance().getAir();
+        dirt = createBlock("engine:dirt", true, (byte) 0);
+        Block torch = createBlock("engine:torch", false, Chunk.MAX_LIGHT);
+
+        Chunk[] chunks = new Chunk[CHUNK_REGION.size().x * CHUNK_REGION.size().z];
+        for (Vector3i chunkPos : CHUNK_REGION) {
+            chunks[(chunkPos.x + OFFSET.x) + CHUNK_REGION.size().x * (chunkPos.z + OFFSET.z)] = new Chunk(chunkPos);
+        }
+        view = new WorldView(chunks, CHUNK_REGION, OFFSET);
+
+        Region3i blockRegion = view.getBlockRegion();
+        for (Vector3i pos : Region3i.createFromMinAndSize(blockRegion.min(), new Vector3i(blockRegion.size().x, SURFACE, blockRegion.size().z))) {
+            boolean lamp = pos.y > SURFACE - 16 && (pos.x & 7) == 0 && (pos.z & 7) == 0 && (pos.y & 7) == 0;
+            view.setBlock(pos, lamp ? torch : dirt, air);
+        }
+        new BatchLightPropagator(view).generateLighting();
+
+        crater = Lists.newArrayList();
+        Vector3i center = new Vector3i(Chunk.SIZE_X / 2, SURFACE - 1, Chunk.SIZE_Z / 2);
+        for (Vector3i pos : Region3i.createFromCenterExtents(center, radius)) {
+            if (pos.y < SURFACE && pos.distanceSquared(center) <= radius * radius && view.getBlock(pos) == dirt) {
+                crater.add(pos);
+            }
+        }
+    }
+
+    @Override
+    public void prerun(int index) {}
+
+    @Override
+    public int run(int index, int repetitions, BenchmarkResult result) {
+        int tmp = 0;
+        for (int rep = 0; rep < repetitions; rep++) {
+            tmp += update(air, dirt);
+            tmp += update(dirt, air);
+        }
+        return tmp;
+    }
+
+    @Override
+    public void postrun(int index, BenchmarkResult result) {}
+
+    @Override
+    public void finish(boolean aborted) {}
+
+    private int update(Block type, Block oldType) {
+        switch (propagator) {
+            case LightPropagator:
+                LightPropagator lightPropagator = new LightPropagator(view);
+                int affected = 0;
+                for (Vector3i pos : crater) {
+                    view.setBlock(pos, type, oldType);
+                    affected += lightPropagator.update(pos, type, oldType).size().y;
+                }
+                return affected;
+            default:
+                BatchLightPropagator batchPropagator = new BatchLightPropagator(view);
+                for (Vector3i pos : crater) {
+                    view.setBlock(pos, type, oldType);
+                    batchPropagator.addChange(pos.x, pos.y, pos.z, type, oldType);
+                }
+                return batchPropagator.process().size().y;
+        }
+    }
+
+    private static Block createBlock(String uri, boolean fullSides, byte luminance) {
+        Block block = new Block();
+        block.setDisplayName(uri);
+        block.setUri(new BlockUri(uri));
+        for (Side side : Side.values()) {
+            block.setFullSide(side, fullSides);
+        }
+        block.setLuminance(luminance);
+        BlockManager.getInstance().addBlockFamily(new SymmetricFamily(block.getURI(), block), true);
+        return block;
+    }
+}
@@ -0,0 +1,30 @@
+package org.terasology.benchmark.lighting;
+
+import java.util.LinkedList;
+import java.util.List;
+
+import org.terasology.benchmark.Benchmark;
+import org.terasology.benchmark.Benchmarks;
+import org.terasology.benchmark.PrintToConsoleCallback;
+import org.terasology.benchmark.lighting.BenchmarkLightPropagation.Propagator;
+
+/**
+ * Compares the throughput of the wave based light propagator with the batched light propagator.
+ */
+public final class LightPropagationBenchmark {
+
+    private LightPropagationBenchmark() {}
+
+    public static void main(String[] args) {
+
+        final List<Benchmark> benchmarks = new LinkedList<Benchmark>();
+
+        for (int radius : new int[] {1, 3, 6}) {
+            for (Propagator propagator : Propagator.values()) {
+                benchmarks.add(new BenchmarkLightPropagation(propagator, radius));
+            }
+        }
+
+        Benchmarks.execute(benchmarks, new PrintToConsoleCallback());
+    }
+}
@@ -0,0 +1,107 @@
+package org.terasology.benchmark.rendering;
+
+import org.terasology.benchmark.BasicBenchmarkResult;
+import org.terasology.benchmark.Benchmark;
+import org.terasology.benchmark.BenchmarkResult;
+import org.terasology.math.Vector3i;
+import org.terasology.rendering.primitives.ChunkMesh;
+import org.terasology.rendering.primitives.ChunkTessellator;
+import org.terasology.rendering.primitives.ChunkVertexFormat;
+import org.terasology.world.WorldView;
+import org.terasology.world.chunks.Chunk;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * BenchmarkChunkTessellation measures how many meshes per second the chunk tessellator generates for the center chunk
+ * of a lit 3x3 chunk view of generated hills, and how many vertices and triangles the meshes consist of.
+ */
+public class BenchmarkChunkTessellation extends Benchmark {
+
+    private final boolean greedyMeshing;
+    private final ChunkVertexFormat vertexFormat;
+
+    private WorldView view;
+    private ChunkTessellator tessellator;
+    private int vertices;
+    private int triangles;
+
+    public BenchmarkChunkTessellation(boolean greedyMeshing, ChunkVertexFormat vertexFormat) {
+        this.greedyMeshing = greedyMeshing;
+        this.vertexFormat = Preconditions.checkNotNull(vertexFormat);
+    }
+
+    @Override
+    public String getTitle() {
+        return (greedyMeshing ? "Greedy" : "Default") + " tessellation of a generated chunk into " + vertexFormat + " vertices";
+    }
+
+    @Override
+    public int getWarmupRepetitions() {
+        return 20;
+    }
+
+    @Override
+    public int[] getRepetitions() {
+        return new int[] {20, 50, 100};
+    }
+
+    @Override
+    public BenchmarkResult createResult() {
+        BasicBenchmarkResult result = new BasicBenchmarkResult(this);
+        result.addColumn(new BenchmarkResult.Column<BasicBenchmarkResult>(result, BenchmarkResult.Alignment.Right, "Meshes per second") {
+            @Override
+            protected String getValueInternal(int rep) {
+                long time = owner.getRunTime(rep);
+                return (time > 0) ? String.valueOf(1000L * owner.getRepetitions(rep) / time) : "-";
+            }
+        });
+        result.addColumn(new BenchmarkResult.Column<BasicBenchmarkResult>(result, BenchmarkResult.Alignment.Right, "Vertices") {
+            @Override
+            protected String getValueInternal(int rep) {
+                return String.valueOf(vertices);
+            }
+        });
+        result.addColumn(new BenchmarkResult.Column<BasicBenchmarkResult>(result, BenchmarkResult.Alignment.Right, "Triangles") {
+            @Override
+            protected String getValueInternal(int rep) {
+                return String.valueOf(triangles);
+            }
+        });
+        return result;
+    }
+
+    @Override
+    public void setup() {
+        GeneratedTerrain terrain = new GeneratedTerrain(42);
+        view = terrain.createView(Vector3i.zero());
+        tessellator = new ChunkTessellator(terrain.getBiomeProvider(), greedyMeshing, vertexFormat);
+    }
+
+    @Override
+    public void prerun(int index) {}
+
+    @Override
+    public int run(int index, int repetitions, BenchmarkResult result) {
+        int tmp = 0;
+        for (int rep = 0; rep < repetitions; rep++) {
+            ChunkMesh mesh = tessellator.generateMesh(view, Vector3i.zero(), Chunk.SIZE_Y, 0);
+            vertices = 0;
+            triangles = 0;
+            for (ChunkMesh.VertexElements elements : mesh._vertexElements) {
+                if (elements.finalVertices != null) {
+                    vertices += elements.finalVertices.limit() / vertexFormat.getVertexSize();
+                    triangles += elements.finalIndices.limit() / 3;
+                }
+            }
+            tmp += vertices;
+        }
+        return tmp;
+    }
+
+    @Override
+    public void postrun(int index, BenchmarkResult result) {}
+
+    @Override
+    public void finish(boolean aborted) {}
+}
@@ -0,0 +1,77 @@
+package org.terasology.benchmark.rendering;
+
+import java.util.List;
+
+import org.terasology.math.Region3i;
+import org.terasology.math.Vector3i;
+import org.terasology.rendering.primitives.ChunkMesh;
+import org.terasology.rendering.primitives.ChunkTessellator;
+import org.terasology.rendering.primitives.ChunkVertexFormat;
+import org.terasology.world.WorldView;
+import org.terasology.world.chunks.Chunk;
+
+import com.google.common.collect.Lists;
+
+/**
+ * Reports the memory taken by the vertex and index buffers of chunk meshes, for each chunk vertex format with and
+ * without greedy meshing, over the chunks of a generated test world. Runs headless.
+ */
+public final class ChunkMeshMemoryReport {
+
+    private static final Region3i WORLD = Region3i.createFromMinAndSize(Vector3i.zero(), new Vector3i(8, 1, 8));
+
+    private ChunkMeshMemoryReport() {}
+
+    public static void main(String[] args) {
+        GeneratedTerrain terrain = new GeneratedTerrain(42);
+
+        List<Entry> entries = Lists.newArrayList();
+        for (ChunkVertexFormat vertexFormat : ChunkVertexFormat.values()) {
+            entries.add(new Entry(new ChunkTessellator(terrain.getBiomeProvider(), false, vertexFormat)));
+            entries.add(new Entry(new ChunkTessellator(terrain.getBiomeProvider(), true, vertexFormat)));
+        }
+
+        int chunks = 0;
+        for (Vector3i chunkPos : WORLD) {
+            WorldView view = terrain.createView(chunkPos);
+            for (Entry entry : entries) {
+                entry.add(entry.tessellator.generateMesh(view, chunkPos, Chunk.SIZE_Y, 0));
+            }
+            chunks++;
+        }
+
+        System.out.println("Chunk mesh memory over " + chunks + " generated chunks");
+        System.out.println();
+        System.out.println(String.format("%-8s %-7s %14s %14s %14s %14s %9s", "Format", "Greedy", "Vertices/chunk", "Vertex bytes", "Index bytes", "Total bytes", "Relative"));
+        double baseline = entries.get(0).getTotalBytes();
+        for (Entry entry : entries) {
+            System.out.println(String.format("%-8s %-7s %14d %14d %14d %14d %8.1f%%",
+                    entry.tessellator.getVertexFormat(), entry.tessellator.isGreedyMeshing() ? "yes" : "no",
+                    entry.vertices / chunks, entry.vertexBytes / chunks, entry.indexBytes / chunks, entry.getTotalBytes() / chunks,
+                    100.0 * entry.getTotalBytes() / baseline));
+        }
+    }
+
+    private static class Entry {
+        private final ChunkTessellator tessellator;
+        private long vertices;
+        private long vertexBytes;
+        private long indexBytes;
+
+        public Entry(ChunkTessellator tessellator) {
+            this.tessellator = tessellator;
+        }
+
+        public void add(ChunkMesh mesh) {
+            for (ChunkMesh.VertexElements elements : mesh._vertexElements) {
+                vertices += elements.finalVertices.limit() / tessellator.getVertexFormat().getVertexSize();
+                vertexBytes += elements.finalVertices.limit();
+                indexBytes += elements.finalIndices.limit() * 4L;
+            }
+        }
+
+        public long getTotalBytes() {
+            return vertexBytes + indexBytes;
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package org.terasology.benchmark.rendering;
+
+import java.util.LinkedList;
+import java.util.List;
+
+import org.terasology.benchmark.Benchmark;
+import org.terasology.benchmark.Benchmarks;
+import org.terasology.benchmark.PrintToConsoleCallback;
+import org.terasology.rendering.primitives.ChunkVertexFormat;
+
+/**
+ * Compares the throughput and the vertex counts of the default chunk tessellator with the greedy meshing tessellator,
+ * for each chunk vertex format.
+ */
+public final class ChunkTessellationBenchmark {
+
+    private ChunkTessellationBenchmark() {}
+
+    public static void main(String[] args) {
+
+        final List<Benchmark> benchmarks = new LinkedList<Benchmark>();
+
+        for (ChunkVertexFormat vertexFormat : ChunkVertexFormat.values()) {
+            benchmarks.add(new BenchmarkChunkTessellation(false, vertexFormat));
+            benchmarks.add(new BenchmarkChunkTessellation(true, vertexFormat));
+        }
+
+        Benchmarks.execute(benchmarks, new PrintToConsoleCallback());
+    }
+}
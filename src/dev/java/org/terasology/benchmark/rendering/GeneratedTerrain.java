@@ -0,0 +1,174 @@
+package org.terasology.benchmark.rendering;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.Collections;
+
+import javax.vecmath.Vector2f;
+
+import org.terasology.asset.AssetType;
+import org.terasology.asset.AssetUri;
+import org.terasology.config.Config;
+import org.terasology.game.CoreRegistry;
+import org.terasology.math.Region3i;
+import org.terasology.math.Side;
+import org.terasology.math.Vector3i;
+import org.terasology.utilities.PerlinNoise;
+import org.terasology.world.ChunkClimate;
+import org.terasology.world.WorldBiomeProvider;
+import org.terasology.world.WorldView;
+import org.terasology.world.block.Block;
+import org.terasology.world.block.BlockPart;
+import org.terasology.world.block.BlockUri;
+import org.terasology.world.block.family.SymmetricFamily;
+import org.terasology.world.block.management.BlockManager;
+import org.terasology.world.block.shapes.BlockShape;
+import org.terasology.world.block.shapes.JsonBlockShapeLoader;
+import org.terasology.world.chunks.Chunk;
+import org.terasology.world.lighting.BatchLightPropagator;
+
+import com.google.common.io.Closeables;
+
+/**
+ * Generates lit chunk views of hills of stone and dirt, covered with grass and tall grass, for the rendering
+ * benchmarks. The terrain only depends on the world position, so neighbouring views fit together.
+ */
+final class GeneratedTerrain {
+
+    private static final Vector3i VIEW_EXTENTS = new Vector3i(1, 0, 1);
+    private static final int SEA_LEVEL = 64;
+
+    private final PerlinNoise noise;
+    private final Block air;
+    private final Block stone;
+    private final Block dirt;
+    private final Block grass;
+    private final Block tallGrass;
+
+    GeneratedTerrain(int seed) {
+        if (CoreRegistry.get(Config.class) == null) {
+            CoreRegistry.put(Config.class, new Config());
+        }
+        noise = new PerlinNoise(seed);
+        BlockShape cube = loadShape("cube");
+        air = BlockManager.getInstance().getAir();
+        stone = createBlock("engine:stone", cube, 1);
+        dirt = createBlock("engine:dirt", cube, 2);
+        grass = createBlock("engine:grass", cube, 3);
+        tallGrass = createBlock("engine:tallgrass", loadShape("billboard"), 4);
+        tallGrass.setDoubleSided(true);
+        tallGrass.setTranslucent(true);
+        tallGrass.setShadowCasting(false);
+        tallGrass.setPenetrable(true);
+    }
+
+    /**
+     * Creates a lit view of the given chunk and its eight neighbours, in the coordinates of the given chunk.
+     */
+    WorldView createView(Vector3i chunkPos) {
+        Region3i chunkRegion = Region3i.createFromCenterExtents(chunkPos, VIEW_EXTENTS);
+        Chunk[] chunks = new Chunk[chunkRegion.size().x * chunkRegion.size().z];
+        for (Vector3i pos : chunkRegion) {
+            chunks[(pos.x - chunkRegion.min().x) + chunkRegion.size().x * (pos.z - chunkRegion.min().z)] = new Chunk(pos);
+        }
+        WorldView view = new WorldView(chunks, chunkRegion, VIEW_EXTENTS);
+
+        Region3i blockRegion = view.getBlockRegion();
+        for (int x = blockRegion.min().x; x <= blockRegion.max().x; ++x) {
+            for (int z = blockRegion.min().z; z <= blockRegion.max().z; ++z) {
+                int worldX = x + chunkPos.x * Chunk.SIZE_X;
+                int worldZ = z + chunkPos.z * Chunk.SIZE_Z;
+                int height = SEA_LEVEL + (int) (noise.fBm(worldX * 0.02, 0, worldZ * 0.02) * 24);
+                for (int y = 0; y <= height; ++y) {
+                    Block block = (y == height) ? grass : (y > height - 4) ? dirt : stone;
+                    view.setBlock(x, y, z, block, air);
+                }
+                if (noise.noise(worldX * 0.7, 0, worldZ * 0.7) > 0.3) {
+                    view.setBlock(x, height + 1, z, tallGrass, air);
+                }
+            }
+        }
+        new BatchLightPropagator(view).generateLighting();
+        return view;
+    }
+
+    WorldBiomeProvider getBiomeProvider() {
+        float[] columns = new float[Chunk.SIZE_X * Chunk.SIZE_Z];
+        Arrays.fill(columns, 0.5f);
+        WorldBiomeProvider.Biome[] biomes = new WorldBiomeProvider.Biome[columns.length];
+        Arrays.fill(biomes, WorldBiomeProvider.Biome.PLAINS);
+        final ChunkClimate climate = new ChunkClimate(columns, columns, biomes);
+
+        return new WorldBiomeProvider() {
+            @Override
+            public float getHumidityAt(int x, int z) {
+                return 0.5f;
+            }
+
+            @Override
+            public float getTemperatureAt(int x, int z) {
+                return 0.5f;
+            }
+
+            @Override
+            public void getHumidities(float[] result, int[] xs, int[] zs) {
+                Arrays.fill(result, 0, xs.length * zs.length, 0.5f);
+            }
+
+            @Override
+            public void getTemperatures(float[] result, int[] xs, int[] zs) {
+                Arrays.fill(result, 0, xs.length * zs.length, 0.5f);
+            }
+
+            @Override
+            public float getFog(float time) {
+                return 0;
+            }
+
+            @Override
+            public Biome getBiomeAt(int x, int z) {
+                return Biome.PLAINS;
+            }
+
+            @Override
+            public Biome getBiomeAt(float x, float z) {
+                return Biome.PLAINS;
+            }
+
+            @Override
+            public ChunkClimate getChunkClimate(int chunkX, int chunkZ) {
+                return climate;
+            }
+        };
+    }
+
+    private BlockShape loadShape(String name) {
+        InputStream stream = getClass().getResourceAsStream("/assets/shapes/" + name + ".json");
+        try {
+            return new JsonBlockShapeLoader().load(new AssetUri(AssetType.SHAPE, "engine:" + name), stream, Collections.<URL>emptyList());
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to load the " + name + " shape", e);
+        } finally {
+            Closeables.closeQuietly(stream);
+        }
+    }
+
+    private static Block createBlock(String uri, BlockShape shape, int tileIndex) {
+        Block block = new Block();
+        block.setDisplayName(uri);
+        block.setUri(new BlockUri(uri));
+        Vector2f atlasPos = new Vector2f((tileIndex % 16) * Block.TEXTURE_OFFSET, (tileIndex / 16) * Block.TEXTURE_OFFSET);
+        for (BlockPart part : BlockPart.values()) {
+            if (shape.getMeshPart(part) != null) {
+                block.setMeshPart(part, shape.getMeshPart(part).mapTexCoords(atlasPos, Block.TEXTURE_OFFSET_WIDTH));
+            }
+        }
+        for (Side side : Side.values()) {
+            block.setFullSide(side, shape.isBlockingSide(side));
+        }
+        BlockManager.getInstance().addBlockFamily(new SymmetricFamily(block.getURI(), block), true);
+        return block;
+    }
+}
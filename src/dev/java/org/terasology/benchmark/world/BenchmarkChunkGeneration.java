@@ -0,0 +1,163 @@
+package org.terasology.benchmark.world;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.terasology.benchmark.BasicBenchmarkResult;
+import org.terasology.benchmark.Benchmark;
+import org.terasology.benchmark.BenchmarkResult;
+import org.terasology.config.Config;
+import org.terasology.game.CoreRegistry;
+import org.terasology.math.Side;
+import org.terasology.world.WorldBiomeProviderImpl;
+import org.terasology.world.block.Block;
+import org.terasology.world.block.BlockUri;
+import org.terasology.world.block.family.SymmetricFamily;
+import org.terasology.world.block.management.BlockManager;
+import org.terasology.world.chunks.Chunk;
+import org.terasology.world.generator.ChunkGenerator;
+import org.terasology.world.generator.core.MultiTerrainGenerator;
+import org.terasology.world.generator.core.PerlinTerrainGenerator;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * BenchmarkChunkGeneration measures how many chunks per second a terrain generator fills, using one or more threads
+ * that share the generator like the chunk generation threads do.
+ */
+public class BenchmarkChunkGeneration extends Benchmark {
+
+    public static enum Generator {
+        Perlin, Multi
+    }
+
+    private static final String SEED = "Terasology";
+    private static final int CHUNKS_PER_THREAD = 4;
+
+    private final Generator generator;
+    private final int threads;
+
+    private ChunkGenerator chunkGenerator;
+    private ExecutorService executor;
+    private int nextChunk;
+
+    public BenchmarkChunkGeneration(Generator generator, int threads) {
+        this.generator = Preconditions.checkNotNull(generator);
+        Preconditions.checkArgument(threads > 0, "Threads must be positive");
+        this.threads = threads;
+    }
+
+    @Override
+    public String getTitle() {
+        return generator + " terrain generator on " + threads + " thread(s)";
+    }
+
+    @Override
+    public int getWarmupRepetitions() {
+        return 10;
+    }
+
+    @Override
+    public int[] getRepetitions() {
+        return new int[] {10, 20, 50};
+    }
+
+    @Override
+    public BenchmarkResult createResult() {
+        BasicBenchmarkResult result = new BasicBenchmarkResult(this);
+        result.addColumn(new BenchmarkResult.Column<BasicBenchmarkResult>(result, BenchmarkResult.Alignment.Right, "Chunks per second") {
+            @Override
+            protected String getValueInternal(int rep) {
+                long time = owner.getRunTime(rep);
+                return (time > 0) ? String.valueOf(1000L * owner.getRepetitions(rep) * threads * CHUNKS_PER_THREAD / time) : "-";
+            }
+        });
+        return result;
+    }
+
+    @Override
+    public void setup() {
+        if (CoreRegistry.get(Config.class) == null) {
+            CoreRegistry.put(Config.class, new Config());
+        }
+        for (String uri : new String[] {"engine:MantleStone", "engine:Water", "engine:Ice", "engine:Stone", "engine:Sand", "engine:Grass", "engine:Snow", "engine:Dirt"}) {
+            createBlock(uri);
+        }
+
+        switch (generator) {
+            case Perlin:
+                chunkGenerator = new PerlinTerrainGenerator();
+                break;
+            default:
+                chunkGenerator = new MultiTerrainGenerator();
+                break;
+        }
+        chunkGenerator.setWorldSeed(SEED);
+        chunkGenerator.setWorldBiomeProvider(new WorldBiomeProviderImpl(SEED));
+
+        executor = Executors.newFixedThreadPool(threads, new ThreadFactoryBuilder().setNameFormat("Chunk-Generator-%d").setDaemon(true).build());
+    }
+
+    @Override
+    public void prerun(int index) {}
+
+    @Override
+    public int run(int index, int repetitions, BenchmarkResult result) {
+        int tmp = 0;
+        for (int rep = 0; rep < repetitions; rep++) {
+            List<Callable<Integer>> tasks = Lists.newArrayListWithCapacity(threads);
+            for (int i = 0; i < threads; i++) {
+                final int firstChunk = nextChunk;
+                nextChunk += CHUNKS_PER_THREAD;
+                tasks.add(new Callable<Integer>() {
+                    @Override
+                    public Integer call() {
+                        int blocks = 0;
+                        for (int chunk = firstChunk; chunk < firstChunk + CHUNKS_PER_THREAD; chunk++) {
+                            Chunk c = new Chunk(chunk % 64, 0, chunk / 64);
+                            chunkGenerator.generateChunk(c);
+                            blocks += c.getBlock(Chunk.SIZE_X / 2, Chunk.SIZE_Y / 4, Chunk.SIZE_Z / 2).getId();
+                        }
+                        return blocks;
+                    }
+                });
+            }
+            try {
+                for (Future<Integer> future : executor.invokeAll(tasks)) {
+                    tmp += future.get();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException(e);
+            } catch (ExecutionException e) {
+                throw new RuntimeException(e.getCause());
+            }
+        }
+        return tmp;
+    }
+
+    @Override
+    public void postrun(int index, BenchmarkResult result) {}
+
+    @Override
+    public void finish(boolean aborted) {
+        executor.shutdownNow();
+    }
+
+    private static Block createBlock(String uri) {
+        Block block = new Block();
+        block.setDisplayName(uri);
+        block.setUri(new BlockUri(uri));
+        for (Side side : Side.values()) {
+            block.setFullSide(side, true);
+        }
+        BlockManager.getInstance().addBlockFamily(new SymmetricFamily(block.getURI(), block), true);
+        return block;
+    }
+}
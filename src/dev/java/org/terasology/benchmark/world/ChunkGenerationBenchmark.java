@@ -0,0 +1,30 @@
+package org.terasology.benchmark.world;
+
+import java.util.LinkedList;
+import java.util.List;
+
+import org.terasology.benchmark.Benchmark;
+import org.terasology.benchmark.Benchmarks;
+import org.terasology.benchmark.PrintToConsoleCallback;
+import org.terasology.benchmark.world.BenchmarkChunkGeneration.Generator;
+
+/**
+ * Measures the throughput of the density based terrain generators, on a single thread and on all available cores.
+ */
+public final class ChunkGenerationBenchmark {
+
+    private ChunkGenerationBenchmark() {}
+
+    public static void main(String[] args) {
+
+        final List<Benchmark> benchmarks = new LinkedList<Benchmark>();
+
+        for (int threads : new int[] {1, Runtime.getRuntime().availableProcessors()}) {
+            for (Generator generator : Generator.values()) {
+                benchmarks.add(new BenchmarkChunkGeneration(generator, threads));
+            }
+        }
+
+        Benchmarks.execute(benchmarks, new PrintToConsoleCallback());
+    }
+}
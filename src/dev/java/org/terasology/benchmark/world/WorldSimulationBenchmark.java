@@ -0,0 +1,172 @@
+package org.terasology.benchmark.world;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.vecmath.Vector3f;
+
+import org.terasology.components.world.LocationComponent;
+import org.terasology.config.Config;
+import org.terasology.entitySystem.EntityRef;
+import org.terasology.game.CoreRegistry;
+import org.terasology.game.GameEngine;
+import org.terasology.game.HeadlessEngine;
+import org.terasology.game.modes.GameState;
+import org.terasology.game.modes.StateHeadless;
+import org.terasology.logic.manager.PathManager;
+import org.terasology.math.Vector3i;
+import org.terasology.performanceMonitor.PerformanceMonitor;
+import org.terasology.physics.character.CharacterMovementComponent;
+import org.terasology.world.WorldInfo;
+import org.terasology.world.chunks.Chunk;
+import org.terasology.world.chunks.ChunkListener;
+import org.terasology.world.generator.core.FloraGenerator;
+import org.terasology.world.generator.core.ForestGenerator;
+import org.terasology.world.generator.core.PerlinTerrainGenerator;
+import org.terasology.world.liquid.LiquidsGenerator;
+
+/**
+ * Soaks the world simulation in the headless engine: chunk generation, lighting, liquids and the entity systems, with
+ * a player flying an outward square spiral so new chunks keep being generated. Ticks are fixed and unthrottled.
+ * Reports the ticks per second and the chunks becoming ready per second, in wall time.
+ * <p/>
+ * If a trace file is given, the performance monitor is enabled and the activities of the last seconds of all threads
+ * are written to it, to be opened in chrome://tracing.
+ * <p/>
+ * Arguments: [ticks] [viewing distance in chunks] [trace file]
+ */
+public final class WorldSimulationBenchmark {
+
+    private static final String SEED = "Terasology";
+    private static final long TICK_DELTA_MS = 16;
+    private static final int REPORT_INTERVAL_TICKS = 500;
+
+    private static final float PLAYER_SPEED = 2 * Chunk.SIZE_X;
+    private static final int SPIRAL_LEG_TICKS = 250;
+    private static final Vector3f[] SPIRAL_DIRECTIONS = {new Vector3f(1, 0, 0), new Vector3f(0, 0, 1), new Vector3f(-1, 0, 0), new Vector3f(0, 0, -1)};
+
+    private WorldSimulationBenchmark() {}
+
+    public static void main(String[] args) throws IOException {
+        int ticks = (args.length > 0) ? Integer.parseInt(args[0]) : 5000;
+        int viewingDistance = (args.length > 1) ? Integer.parseInt(args[1]) : 8;
+        File traceFile = (args.length > 2) ? new File(args[2]) : null;
+
+        PathManager.getInstance().determineRootPath(true);
+        HeadlessEngine engine = new HeadlessEngine(TICK_DELTA_MS);
+        engine.init();
+
+        String[] chunkGenerators = {PerlinTerrainGenerator.class.getName(), FloraGenerator.class.getName(), LiquidsGenerator.class.getName(), ForestGenerator.class.getName()};
+        WorldInfo worldInfo = new WorldInfo("Headless", SEED, 0, chunkGenerators, null, CoreRegistry.get(Config.class).getDefaultModConfig());
+
+        System.out.println("World simulation over " + ticks + " ticks of " + TICK_DELTA_MS + "ms, viewing distance " + viewingDistance);
+        System.out.println();
+        System.out.println(String.format("%8s %10s %12s %14s %14s %12s", "Ticks", "Seconds", "Ticks/s", "Chunks ready", "Chunks/s", "Player chunk"));
+        PerformanceMonitor.setEnabled(traceFile != null);
+        engine.run(new ScriptedState(new StateHeadless(worldInfo, viewingDistance), ticks));
+        if (traceFile != null) {
+            PerformanceMonitor.writeTrace(traceFile);
+            System.out.println();
+            System.out.println("Trace written to " + traceFile.getAbsolutePath());
+        }
+        engine.dispose();
+        System.exit(0);
+    }
+
+    private static class ScriptedState implements GameState, ChunkListener {
+        private final StateHeadless world;
+        private final int totalTicks;
+        private final AtomicInteger chunksReady = new AtomicInteger();
+
+        private GameEngine engine;
+        private int ticks;
+        private int leg;
+        private int legTicks;
+        private long startTime;
+        private long reportTime;
+        private int reportTicks;
+        private int reportChunks;
+
+        public ScriptedState(StateHeadless world, int totalTicks) {
+            this.world = world;
+            this.totalTicks = totalTicks;
+        }
+
+        @Override
+        public void init(GameEngine engine) {
+            this.engine = engine;
+            world.init(engine);
+            CharacterMovementComponent movement = world.getPlayer().getComponent(CharacterMovementComponent.class);
+            movement.maxGhostSpeed = PLAYER_SPEED;
+            world.getPlayer().saveComponent(movement);
+            world.getChunkProvider().addChunkListener(this);
+            startTime = System.nanoTime();
+            reportTime = startTime;
+        }
+
+        @Override
+        public void dispose() {
+            world.getChunkProvider().removeChunkListener(this);
+            world.dispose();
+        }
+
+        @Override
+        public void handleInput(float delta) {
+        }
+
+        @Override
+        public void update(float delta) {
+            steer();
+            world.update(delta);
+            ticks++;
+            if (ticks % REPORT_INTERVAL_TICKS == 0 || ticks == totalTicks) {
+                report();
+            }
+            if (ticks >= totalTicks) {
+                engine.shutdown();
+            }
+        }
+
+        @Override
+        public void render() {
+        }
+
+        /**
+         * Flies the legs of a square spiral, each pair of legs one leg length longer than the one before
+         */
+        private void steer() {
+            if (legTicks == 0) {
+                EntityRef player = world.getPlayer();
+                CharacterMovementComponent movement = player.getComponent(CharacterMovementComponent.class);
+                movement.setDrive(SPIRAL_DIRECTIONS[leg % SPIRAL_DIRECTIONS.length]);
+                player.saveComponent(movement);
+                legTicks = (leg / 2 + 1) * SPIRAL_LEG_TICKS;
+                leg++;
+            }
+            legTicks--;
+        }
+
+        private void report() {
+            long now = System.nanoTime();
+            int chunks = chunksReady.get();
+            double seconds = (now - reportTime) / 1000000000.0;
+            Vector3f position = world.getPlayer().getComponent(LocationComponent.class).getWorldPosition();
+            System.out.println(String.format("%8d %10.1f %12.1f %14d %14.1f %12s", ticks, (now - startTime) / 1000000000.0,
+                    (ticks - reportTicks) / seconds, chunks, (chunks - reportChunks) / seconds,
+                    (int) Math.floor(position.x / Chunk.SIZE_X) + ", " + (int) Math.floor(position.z / Chunk.SIZE_Z)));
+            reportTime = now;
+            reportTicks = ticks;
+            reportChunks = chunks;
+        }
+
+        @Override
+        public void onChunkReady(Vector3i pos, Chunk chunk) {
+            chunksReady.incrementAndGet();
+        }
+
+        @Override
+        public void onChunkUnloaded(Vector3i pos) {
+        }
+    }
+}
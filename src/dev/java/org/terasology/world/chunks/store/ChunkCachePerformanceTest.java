@@ -23,6 +23,7 @@ public final class ChunkCachePerformanceTest {
         benchmarkCache(new ChunkStoreUncompressed());
         benchmarkCache(new ChunkStoreDeflate());
         benchmarkCache(new ChunkStoreFileSystem(TerasologyDevelopment.getOutputFolder(SUB_FOLDER)));
+        benchmarkCache(new ChunkStoreRegion(TerasologyDevelopment.getOutputFolder(SUB_FOLDER + "/regions")));
     }
 
     private void benchmarkCache(final ChunkStore chunkStore) {
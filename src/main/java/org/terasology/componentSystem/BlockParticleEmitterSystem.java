@@ -206,7 +206,7 @@ public class BlockParticleEmitterSystem implements UpdateSubscriberSystem, Rende
         GL11.glLoadMatrix(model);
     }
 
-    protected void renderParticle(Particle particle, byte blockType, float temperature, float humidity, float light) {
+    protected void renderParticle(Particle particle, short blockType, float temperature, float humidity, float light) {
         int displayList = displayLists.get(BlockManager.getInstance().getBlock(blockType).getBlockFamily());
         if (displayList == 0) {
             displayList = glGenLists(1);
@@ -227,7 +227,7 @@ public class BlockParticleEmitterSystem implements UpdateSubscriberSystem, Rende
         glCallList(displayList);
     }
 
-    private void drawParticle(byte blockType) {
+    private void drawParticle(short blockType) {
         Block b = BlockManager.getInstance().getBlock(blockType);
 
         glBegin(GL_QUADS);
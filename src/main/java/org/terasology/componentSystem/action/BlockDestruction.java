@@ -0,0 +1,116 @@
+/*
+ * Copyright 2012 Benjamin Glatzel <benjamin.glatzel@me.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terasology.componentSystem.action;
+
+import java.util.List;
+import java.util.Map;
+
+import javax.vecmath.Vector3f;
+
+import org.terasology.entityFactory.DroppedBlockFactory;
+import org.terasology.entitySystem.EntityRef;
+import org.terasology.math.Vector3i;
+import org.terasology.physics.ImpulseEvent;
+import org.terasology.world.BlockEntityRegistry;
+import org.terasology.world.BlockUpdate;
+import org.terasology.world.WorldProvider;
+import org.terasology.world.block.Block;
+import org.terasology.world.block.management.BlockManager;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+/**
+ * Collects the blocks destroyed by an action, and destroys them all at once so the lighting and chunk meshes are only
+ * updated once.
+ */
+class BlockDestruction {
+
+    private final WorldProvider worldProvider;
+    private final BlockEntityRegistry blockEntityRegistry;
+    private final DroppedBlockFactory droppedBlockFactory;
+
+    private final Map<Vector3i, BlockUpdate> updates = Maps.newLinkedHashMap();
+    private final List<DroppedBlock> droppedBlocks = Lists.newArrayList();
+
+    BlockDestruction(WorldProvider worldProvider, BlockEntityRegistry blockEntityRegistry, DroppedBlockFactory droppedBlockFactory) {
+        this.worldProvider = worldProvider;
+        this.blockEntityRegistry = blockEntityRegistry;
+        this.droppedBlockFactory = droppedBlockFactory;
+    }
+
+    /**
+     * @return Whether the block at the given position is already going to be destroyed
+     */
+    boolean contains(Vector3i blockPos) {
+        return updates.containsKey(blockPos);
+    }
+
+    /**
+     * Adds a block to destroy, replacing it with air.
+     *
+     * @param blockPos     The position of the block
+     * @param currentBlock The block currently at the position
+     */
+    void destroy(Vector3i blockPos, Block currentBlock) {
+        Vector3i pos = new Vector3i(blockPos);
+        updates.put(pos, new BlockUpdate(pos, BlockManager.getInstance().getAir(), currentBlock));
+    }
+
+    /**
+     * Adds a block to drop once the blocks have been destroyed.
+     */
+    void drop(Vector3f position, Block block, Vector3f impulse) {
+        droppedBlocks.add(new DroppedBlock(new Vector3f(position), block, new Vector3f(impulse)));
+    }
+
+    int size() {
+        return updates.size();
+    }
+
+    /**
+     * Destroys all collected blocks and their entities and drops the blocks, unless any of the blocks has been changed
+     * since it was added.
+     *
+     * @return Whether the blocks were destroyed
+     */
+    boolean apply() {
+        if (updates.isEmpty() || !worldProvider.setBlocks(updates.values())) {
+            return false;
+        }
+        for (Vector3i blockPos : updates.keySet()) {
+            EntityRef blockEntity = blockEntityRegistry.getEntityAt(blockPos);
+            blockEntity.destroy();
+        }
+        for (DroppedBlock droppedBlock : droppedBlocks) {
+            EntityRef block = droppedBlockFactory.newInstance(droppedBlock.position, droppedBlock.block.getBlockFamily(), 5);
+            block.send(new ImpulseEvent(droppedBlock.impulse));
+        }
+        return true;
+    }
+
+    private static final class DroppedBlock {
+        private final Vector3f position;
+        private final Block block;
+        private final Vector3f impulse;
+
+        private DroppedBlock(Vector3f position, Block block, Vector3f impulse) {
+            this.position = position;
+            this.block = block;
+            this.impulse = impulse;
+        }
+    }
+}
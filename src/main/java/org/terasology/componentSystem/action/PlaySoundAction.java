@@ -31,7 +31,7 @@ import org.terasology.utilities.FastRandom;
 /**
  * @author Immortius <immortius@gmail.com>
  */
-@RegisterComponentSystem
+@RegisterComponentSystem(headedOnly = true)
 public class PlaySoundAction implements EventHandlerSystem {
 
     private FastRandom random = new FastRandom();
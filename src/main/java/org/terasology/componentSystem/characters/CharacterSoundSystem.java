@@ -34,7 +34,7 @@ import org.terasology.utilities.FastRandom;
 /**
  * @author Immortius <immortius@gmail.com>
  */
-@RegisterComponentSystem
+@RegisterComponentSystem(headedOnly = true)
 public class CharacterSoundSystem implements EventHandlerSystem {
 
     private FastRandom random = new FastRandom();
@@ -38,7 +38,7 @@ import org.terasology.world.WorldProvider;
  * @author Benjamin Glatzel <benjamin.glatzel@me.com>
  * @author Immortius
  */
-@RegisterComponentSystem
+@RegisterComponentSystem(headedOnly = true)
 public class DebugControlSystem implements EventHandlerSystem {
 
     private UIScreenMetrics metrics;
@@ -35,7 +35,7 @@ import org.terasology.rendering.world.WorldRenderer;
 /**
  * @author Immortius
  */
-@RegisterComponentSystem
+@RegisterComponentSystem(headedOnly = true)
 public class MenuControlSystem implements EventHandlerSystem {
 
     public static final String PAUSE_MENU = "pause";
@@ -1,6 +1,7 @@
 package org.terasology.config;
 
 import java.lang.reflect.Type;
+import java.util.List;
 import java.util.Map;
 
 import org.slf4j.Logger;
@@ -8,11 +9,13 @@ import org.slf4j.LoggerFactory;
 import org.terasology.world.chunks.blockdata.TeraArray;
 import org.terasology.world.chunks.blockdata.TeraDenseArray4Bit;
 import org.terasology.world.chunks.blockdata.TeraDenseArray8Bit;
+import org.terasology.world.chunks.blockdata.TeraPaletteArray;
 import org.terasology.world.chunks.blockdata.TeraSparseArray4Bit;
 import org.terasology.world.chunks.blockdata.TeraSparseArray8Bit;
 import org.terasology.world.chunks.blockdata.TeraArray.Factory;
 
 import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.gson.JsonDeserializationContext;
 import com.google.gson.JsonDeserializer;
@@ -26,9 +29,18 @@ public final class AdvancedConfig {
     
     private static final Logger logger = LoggerFactory.getLogger(AdvancedConfig.class);
     private static final Map<String, TeraArray.Factory> teraArrayRegistry; 
+    
+    /**
+     * Block ids are 16 bit values, so block data requires arrays with at least 16 bits per element.
+     */
+    public static final int BLOCK_ID_BITS = 16;
 
     private String blocksFactory, sunlightFactory, lightFactory, liquidFactory;
     private boolean chunkDeflationEnabled, chunkDeflationLoggingEnabled;
+    private boolean liquidAutomatonEnabled;
+    private boolean greedyMeshingEnabled;
+    private boolean compactChunkVerticesEnabled;
+    private boolean deltaEntitySavesEnabled;
     
     private AdvancedConfig() {}
     
@@ -42,15 +54,18 @@ public final class AdvancedConfig {
     
     public AdvancedConfig setBlocksFactory(String factory) {
         checkContainsTeraArrayFactory(factory);
+        Preconditions.checkArgument(getElementSizeInBits(factory) >= BLOCK_ID_BITS, "Factory does not support " + BLOCK_ID_BITS + " bit block ids: '" + factory + "'");
         blocksFactory = factory;
         return this;
     }
     
     public AdvancedConfig setBlocksFactoryDontThrow(String factory) {
-        if (containsTeraArrayFactory(factory)) {
-            blocksFactory = factory;
-        } else {
+        if (!containsTeraArrayFactory(factory)) {
             logger.warn("TeraArray factory does not exist: '{}'", factory);
+        } else if (getElementSizeInBits(factory) < BLOCK_ID_BITS) {
+            logger.warn("TeraArray factory does not support {} bit block ids: '{}'", BLOCK_ID_BITS, factory);
+        } else {
+            blocksFactory = factory;
         }
         return this;
     }
@@ -142,14 +157,58 @@ public final class AdvancedConfig {
         return this;
     }
     
+    public boolean isLiquidAutomatonEnabled() {
+        return liquidAutomatonEnabled;
+    }
+    
+    public AdvancedConfig setLiquidAutomatonEnabled(boolean enabled) {
+        liquidAutomatonEnabled = enabled;
+        return this;
+    }
+    
+    public boolean isGreedyMeshingEnabled() {
+        return greedyMeshingEnabled;
+    }
+    
+    public AdvancedConfig setGreedyMeshingEnabled(boolean enabled) {
+        greedyMeshingEnabled = enabled;
+        return this;
+    }
+    
+    public boolean isCompactChunkVerticesEnabled() {
+        return compactChunkVerticesEnabled;
+    }
+    
+    public AdvancedConfig setCompactChunkVerticesEnabled(boolean enabled) {
+        compactChunkVerticesEnabled = enabled;
+        return this;
+    }
+    
+    /**
+     * @return Whether leaving a world only saves the entities changed since it was loaded. Components changed in place
+     *         without being saved to their entity are then lost, so this is off by default.
+     */
+    public boolean isDeltaEntitySavesEnabled() {
+        return deltaEntitySavesEnabled;
+    }
+    
+    public AdvancedConfig setDeltaEntitySavesEnabled(boolean enabled) {
+        deltaEntitySavesEnabled = enabled;
+        return this;
+    }
+    
     public static AdvancedConfig createDefault() {
         return new AdvancedConfig()
-        .setBlocksFactory(TeraDenseArray8Bit.class.getName())
+        .setBlocksFactory(TeraPaletteArray.class.getName())
         .setSunlightFactory(TeraDenseArray8Bit.class.getName())
         .setLightFactory(TeraDenseArray8Bit.class.getName())
         .setLiquidFactory(TeraDenseArray8Bit.class.getName())
         .setChunkDeflationEnabled(true)
-        .setChunkDeflationLoggingEnabled(false);
+        .setChunkDeflationLoggingEnabled(false)
+        .setLiquidAutomatonEnabled(false)
+        .setGreedyMeshingEnabled(false)
+        .setCompactChunkVerticesEnabled(false)
+        .setDeltaEntitySavesEnabled(false);
     }
 
     public static class Handler implements JsonSerializer<AdvancedConfig>, JsonDeserializer<AdvancedConfig> {
@@ -164,6 +223,18 @@ public final class AdvancedConfig {
             .setLiquidFactoryDontThrow(input.get("liquidFactory").getAsString())
             .setChunkDeflationEnabled(input.get("chunkDeflationEnabled").getAsBoolean())
             .setChunkDeflationLoggingEnabled(input.get("chunkDeflationLoggingEnabled").getAsBoolean());
+            if (input.has("liquidAutomatonEnabled")) {
+                config.setLiquidAutomatonEnabled(input.get("liquidAutomatonEnabled").getAsBoolean());
+            }
+            if (input.has("greedyMeshingEnabled")) {
+                config.setGreedyMeshingEnabled(input.get("greedyMeshingEnabled").getAsBoolean());
+            }
+            if (input.has("compactChunkVerticesEnabled")) {
+                config.setCompactChunkVerticesEnabled(input.get("compactChunkVerticesEnabled").getAsBoolean());
+            }
+            if (input.has("deltaEntitySavesEnabled")) {
+                config.setDeltaEntitySavesEnabled(input.get("deltaEntitySavesEnabled").getAsBoolean());
+            }
             return config;
         }
 
@@ -176,6 +247,10 @@ public final class AdvancedConfig {
             result.addProperty("liquidFactory", src.liquidFactory);
             result.addProperty("chunkDeflationEnabled", src.chunkDeflationEnabled);
             result.addProperty("chunkDeflationLoggingEnabled", src.chunkDeflationLoggingEnabled);
+            result.addProperty("liquidAutomatonEnabled", src.liquidAutomatonEnabled);
+            result.addProperty("greedyMeshingEnabled", src.greedyMeshingEnabled);
+            result.addProperty("compactChunkVerticesEnabled", src.compactChunkVerticesEnabled);
+            result.addProperty("deltaEntitySavesEnabled", src.deltaEntitySavesEnabled);
             return result;
         }
         
@@ -199,6 +274,14 @@ public final class AdvancedConfig {
                 return new TeraDenseArray8Bit(sizeX, sizeY, sizeZ);
             }
         });
+        registerTeraArrayFactory(new Factory() {
+            @Override
+            public String getName() {return TeraPaletteArray.class.getName();}
+            @Override
+            public TeraArray create(int sizeX, int sizeY, int sizeZ) {
+                return new TeraPaletteArray(sizeX, sizeY, sizeZ);
+            }
+        });
         registerTeraArrayFactory(new Factory() {
             @Override
             public String getName() {return TeraSparseArray4Bit.class.getName();}
@@ -246,6 +329,24 @@ public final class AdvancedConfig {
         return factories;
     }
     
+    /**
+     * @return The names of all factories creating arrays with at least the given number of bits per element
+     */
+    public static String[] getTeraArrayFactories(int minElementSizeInBits) {
+        List<String> factories = Lists.newArrayList();
+        for (String factory : teraArrayRegistry.keySet()) {
+            if (getElementSizeInBits(factory) >= minElementSizeInBits) {
+                factories.add(factory);
+            }
+        }
+        return factories.toArray(new String[factories.size()]);
+    }
+    
+    private static int getElementSizeInBits(String factory) {
+        // The smallest array allowed, tera arrays require an even size along x/z and in total
+        return requireTeraArrayFactory(factory).create(2, 1, 1).getElementSizeInBits();
+    }
+    
     public static void registerTeraArrayFactory(TeraArray.Factory factory) {
         Preconditions.checkNotNull(factory, "Parameter 'factory' must not be null");
         final String name = factory.getName();
@@ -0,0 +1,37 @@
+/*
+ * Copyright 2012 Benjamin Glatzel <benjamin.glatzel@me.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terasology.entitySystem;
+
+/**
+ * An event which can be merged with an earlier event of the same type. When events sent from other threads are waiting
+ * to be processed on the main thread, events sent to the same entity with equal coalescing keys are merged into one.
+ *
+ * @param <T> The type of the event
+ */
+public interface CoalescableEvent<T extends CoalescableEvent<T>> extends Event {
+
+    /**
+     * @return The key deciding which events are merged
+     */
+    Object getCoalescingKey();
+
+    /**
+     * @param later An event with the same type and coalescing key, sent after this one
+     * @return An event with the combined effect of this event followed by the later one, or null if the later event
+     *         undoes this one, in which case neither is processed
+     */
+    T coalesce(T later);
+}
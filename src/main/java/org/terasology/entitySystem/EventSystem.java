@@ -23,7 +23,8 @@ package org.terasology.entitySystem;
 public interface EventSystem {
 
     /**
-     * Process all pending events
+     * Process pending events sent from other threads. The time spent per call may be limited, in which case the
+     * remaining events are processed by later calls.
      */
     public void process();
 
@@ -77,4 +78,9 @@ public interface EventSystem {
      * @param component
      */
     void send(EntityRef entity, Event event, Component component);
+
+    /**
+     * Stops the threads used by the event system. Events sent from other threads afterwards are no longer processed.
+     */
+    void dispose();
 }
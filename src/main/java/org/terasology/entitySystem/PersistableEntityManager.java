@@ -16,6 +16,7 @@
 package org.terasology.entitySystem;
 
 import gnu.trove.list.TIntList;
+import gnu.trove.set.TIntSet;
 
 /**
  * @author Immortius <immortius@gmail.com>
@@ -31,4 +32,11 @@ public interface PersistableEntityManager extends EntityManager {
     void setNextId(int id);
 
     TIntList getFreedIds();
+
+    /**
+     * Changes to the fields of a component are only noticed once the component is saved.
+     *
+     * @return The ids of the entities created, destroyed or with components added, saved or removed since the last call
+     */
+    TIntSet takeChangedIds();
 }
@@ -37,4 +37,12 @@ public @interface ReceiveEvent {
     Class<? extends Component>[] components();
 
     int priority() default EventPriority.PRIORITY_NORMAL;
+
+    /**
+     * Whether this method can be invoked on a worker thread. Events sent from other threads than the main thread are
+     * then passed to this method on a worker thread after all other handlers have run, unless the event was cancelled.
+     * Such a method cannot cancel the event for other handlers. It receives a read only snapshot of the entity, holding
+     * copies of the listed components taken on the main thread, and cannot modify the entity.
+     */
+    boolean threadSafe() default false;
 }
@@ -0,0 +1,288 @@
+/*
+ * Copyright 2012 Benjamin Glatzel <benjamin.glatzel@me.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terasology.entitySystem.metadata;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javassist.CannotCompileException;
+import javassist.ClassPool;
+import javassist.CtClass;
+import javassist.CtField;
+import javassist.CtNewMethod;
+import javassist.LoaderClassPath;
+import javassist.NotFoundException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.terasology.entitySystem.Component;
+import org.terasology.utilities.GeneratedClassCache;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+
+/**
+ * Generates classes that access the fields of a component or mapped type, and that create and copy components, with
+ * plain field accesses and method calls instead of reflection.
+ * <p/>
+ * The generated classes are defined in the package and class loader of the type they access, so they can use any field,
+ * getter, setter and constructor that is not private. Where this is not possible, e.g. for private fields without a
+ * public getter and setter, the reflection based implementation is returned instead.
+ */
+final class AccessorGenerator {
+    private static final Logger logger = LoggerFactory.getLogger(AccessorGenerator.class);
+
+    private static final ImmutableMap<Class<?>, Class<?>> BOXED_TYPES = ImmutableMap.<Class<?>, Class<?>>builder()
+            .put(Boolean.TYPE, Boolean.class)
+            .put(Byte.TYPE, Byte.class)
+            .put(Character.TYPE, Character.class)
+            .put(Short.TYPE, Short.class)
+            .put(Integer.TYPE, Integer.class)
+            .put(Long.TYPE, Long.class)
+            .put(Float.TYPE, Float.class)
+            .put(Double.TYPE, Double.class)
+            .build();
+
+    /** Keeps the names of generated classes unique, as a type may get differing classes of the same kind */
+    private static final AtomicInteger nextClassId = new AtomicInteger();
+
+    /**
+     * Generated classes by the type they access and their source, so that building another component library from the
+     * same types, e.g. for each game started, reuses the classes instead of defining new ones that are never unloaded
+     */
+    private static final GeneratedClassCache generatedClasses = new GeneratedClassCache();
+
+    private AccessorGenerator() {
+    }
+
+    /**
+     * @param field The field to access
+     * @param type  The type declaring the field, or a subtype of it
+     * @return A generated accessor for the field, or a reflection based one if the field cannot be accessed directly
+     */
+    public static FieldAccessor createFieldAccessor(Field field, Class<?> type) {
+        ReflectionFieldAccessor reflectionAccessor = new ReflectionFieldAccessor(field, type);
+        if (!canGenerateFor(type) || !isVisible(field.getType(), type)) {
+            return reflectionAccessor;
+        }
+        String typeName = getSourceName(type);
+        String read = readExpression(field, reflectionAccessor, "((" + typeName + ") target)");
+        String write = writeStatement(field, reflectionAccessor, "((" + typeName + ") target)", unbox(field.getType(), "value"));
+        if (read == null || write == null) {
+            return reflectionAccessor;
+        }
+
+        String getValue = "public Object getValue(Object target) { return " + box(field.getType(), read) + "; }";
+        String setValue = "public void setValue(Object target, Object value) { " + write + " }";
+        String key = getValue + setValue;
+        try {
+            Class<?> generatedClass = generatedClasses.get(type, key);
+            if (generatedClass == null) {
+                ClassPool pool = createPool(type);
+                CtClass accessorClass = pool.makeClass(generateClassName(type, "Accessor"));
+                try {
+                    accessorClass.addInterface(pool.get(FieldAccessor.class.getName()));
+                    accessorClass.addMethod(CtNewMethod.make(getValue, accessorClass));
+                    accessorClass.addMethod(CtNewMethod.make(setValue, accessorClass));
+                    generatedClass = accessorClass.toClass(type.getClassLoader(), type.getProtectionDomain());
+                } finally {
+                    accessorClass.detach();
+                }
+                generatedClasses.put(type, key, generatedClass);
+            }
+            return (FieldAccessor) generatedClass.newInstance();
+        } catch (NotFoundException e) {
+            logger.warn("Unable to generate accessor for {}.{}, using reflection", type.getSimpleName(), field.getName(), e);
+        } catch (CannotCompileException e) {
+            logger.warn("Unable to generate accessor for {}.{}, using reflection", type.getSimpleName(), field.getName(), e);
+        } catch (InstantiationException e) {
+            logger.warn("Unable to generate accessor for {}.{}, using reflection", type.getSimpleName(), field.getName(), e);
+        } catch (IllegalAccessException e) {
+            logger.warn("Unable to generate accessor for {}.{}, using reflection", type.getSimpleName(), field.getName(), e);
+        }
+        return reflectionAccessor;
+    }
+
+    /**
+     * Generates a copier that creates the component with its default constructor and copies each field of the metadata.
+     * Primitive fields are assigned directly, all others are copied through their type handler.
+     *
+     * @param metadata The complete metadata of the component type
+     * @return A generated copier, or the reflection based one if the component type cannot be accessed directly
+     */
+    public static <T extends Component> ComponentCopier<T> createCopier(ComponentMetadata<T> metadata) {
+        Class<T> type = metadata.getType();
+        ReflectionComponentCopier<T> reflectionCopier = new ReflectionComponentCopier<T>(metadata);
+        if (!canGenerateFor(type)) {
+            return reflectionCopier;
+        }
+        String typeName = getSourceName(type);
+
+        List<TypeHandler> handlers = Lists.newArrayList();
+        StringBuilder copyBody = new StringBuilder();
+        copyBody.append("public Object copy(Object component) { ");
+        copyBody.append(typeName).append(" source = (").append(typeName).append(") component; ");
+        copyBody.append(typeName).append(" result = new ").append(typeName).append("(); ");
+        for (FieldMetadata fieldMetadata : metadata.iterateFields()) {
+            Field field = fieldMetadata.getField();
+            if (!isVisible(field.getType(), type)) {
+                return reflectionCopier;
+            }
+            ReflectionFieldAccessor fieldAccessor = new ReflectionFieldAccessor(field, type);
+            String read = readExpression(field, fieldAccessor, "source");
+            if (read == null) {
+                return reflectionCopier;
+            }
+            String copy;
+            if (field.getType().isPrimitive()) {
+                copy = read;
+            } else {
+                copy = "(" + getSourceName(field.getType()) + ") handlers[" + handlers.size() + "].copy(" + read + ")";
+                handlers.add(fieldMetadata.getSerializationHandler());
+            }
+            String write = writeStatement(field, fieldAccessor, "result", copy);
+            if (write == null) {
+                return reflectionCopier;
+            }
+            copyBody.append(write).append(' ');
+        }
+        copyBody.append("return result; }");
+
+        String newInstance = "public Object newInstance() { return new " + typeName + "(); }";
+        String key = newInstance + copyBody;
+        try {
+            Class<?> generatedClass = generatedClasses.get(type, key);
+            if (generatedClass == null) {
+                ClassPool pool = createPool(type);
+                CtClass copierClass = pool.makeClass(generateClassName(type, "Copier"));
+                try {
+                    copierClass.addInterface(pool.get(ComponentCopier.class.getName()));
+                    copierClass.addField(CtField.make("public " + TypeHandler.class.getName() + "[] handlers;", copierClass));
+                    copierClass.addMethod(CtNewMethod.make(newInstance, copierClass));
+                    copierClass.addMethod(CtNewMethod.make(copyBody.toString(), copierClass));
+                    generatedClass = copierClass.toClass(type.getClassLoader(), type.getProtectionDomain());
+                } finally {
+                    copierClass.detach();
+                }
+                generatedClasses.put(type, key, generatedClass);
+            }
+            Object copier = generatedClass.newInstance();
+            generatedClass.getField("handlers").set(copier, handlers.toArray(new TypeHandler[handlers.size()]));
+            return (ComponentCopier<T>) copier;
+        } catch (NotFoundException e) {
+            logger.warn("Unable to generate copier for {}, using reflection", type.getSimpleName(), e);
+        } catch (CannotCompileException e) {
+            logger.warn("Unable to generate copier for {}, using reflection", type.getSimpleName(), e);
+        } catch (InstantiationException e) {
+            logger.warn("Unable to generate copier for {}, using reflection", type.getSimpleName(), e);
+        } catch (IllegalAccessException e) {
+            logger.warn("Unable to generate copier for {}, using reflection", type.getSimpleName(), e);
+        } catch (NoSuchFieldException e) {
+            logger.warn("Unable to generate copier for {}, using reflection", type.getSimpleName(), e);
+        }
+        return reflectionCopier;
+    }
+
+    private static ClassPool createPool(Class<?> type) {
+        ClassPool pool = new ClassPool(true);
+        pool.appendClassPath(new LoaderClassPath(type.getClassLoader()));
+        pool.appendClassPath(new LoaderClassPath(AccessorGenerator.class.getClassLoader()));
+        return pool;
+    }
+
+    private static String generateClassName(Class<?> type, String kind) {
+        return type.getName() + "$$" + kind + nextClassId.incrementAndGet();
+    }
+
+    /**
+     * @return Whether a class generated next to the given type can refer to it
+     */
+    private static boolean canGenerateFor(Class<?> type) {
+        return type.getClassLoader() != null && isVisible(type, type);
+    }
+
+    /**
+     * @return Whether a class in the package of the neighbour can refer to the type
+     */
+    private static boolean isVisible(Class<?> type, Class<?> neighbour) {
+        if (type.isArray()) {
+            return isVisible(type.getComponentType(), neighbour);
+        }
+        for (Class<?> current = type; current != null; current = current.getEnclosingClass()) {
+            if (Modifier.isPrivate(current.getModifiers()) || current.isAnonymousClass() || current.isLocalClass()) {
+                return false;
+            }
+            if (!Modifier.isPublic(current.getModifiers()) && !getPackageName(current).equals(getPackageName(neighbour))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String readExpression(Field field, ReflectionFieldAccessor accessor, String target) {
+        Method getter = accessor.getGetter();
+        if (getter != null) {
+            return target + "." + getter.getName() + "()";
+        }
+        if (!Modifier.isPrivate(field.getModifiers())) {
+            return target + "." + field.getName();
+        }
+        return null;
+    }
+
+    private static String writeStatement(Field field, ReflectionFieldAccessor accessor, String target, String value) {
+        Method setter = accessor.getSetter();
+        if (setter != null) {
+            return target + "." + setter.getName() + "(" + value + ");";
+        }
+        if (!Modifier.isPrivate(field.getModifiers()) && !Modifier.isFinal(field.getModifiers())) {
+            return target + "." + field.getName() + " = " + value + ";";
+        }
+        return null;
+    }
+
+    private static String box(Class<?> type, String value) {
+        Class<?> boxedType = BOXED_TYPES.get(type);
+        if (boxedType != null) {
+            return boxedType.getName() + ".valueOf(" + value + ")";
+        }
+        return value;
+    }
+
+    private static String unbox(Class<?> type, String value) {
+        Class<?> boxedType = BOXED_TYPES.get(type);
+        if (boxedType != null) {
+            return "((" + boxedType.getName() + ") " + value + ")." + type.getName() + "Value()";
+        }
+        return "(" + getSourceName(type) + ") " + value;
+    }
+
+    private static String getPackageName(Class<?> type) {
+        String name = type.getName();
+        int lastDot = name.lastIndexOf('.');
+        return (lastDot < 0) ? "" : name.substring(0, lastDot);
+    }
+
+    private static String getSourceName(Class<?> type) {
+        if (type.isArray()) {
+            return getSourceName(type.getComponentType()) + "[]";
+        }
+        return type.getName();
+    }
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2012
+ * Copyright 2012 Benjamin Glatzel <benjamin.glatzel@me.com>
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -13,13 +13,17 @@
  * See the License for the specific language governing permissions and
  * limitations under the License.
  */
-
-package org.terasology.world.liquid;
+package org.terasology.entitySystem.metadata;
 
 /**
- * @author Immortius
+ * Creates and copies instances of one component type.
  */
-public interface LiquidSimulationTask {
-    boolean shutdownThread();
-    void run();
+public interface ComponentCopier<T> {
+
+    public T newInstance();
+
+    /**
+     * @return A new instance with a copy of each field of the given component
+     */
+    public T copy(T component);
 }
@@ -55,8 +55,18 @@ public final class ComponentLibraryImpl implements ComponentLibrary {
     private Map<Class<? extends Component>, ComponentMetadata> componentSerializationLookup = Maps.newHashMap();
     private Map<String, Class<? extends Component>> componentTypeLookup = Maps.newHashMap();
     private Map<Class<?>, TypeHandler<?>> typeHandlers = Maps.newHashMap();
+    private final boolean generateAccessors;
 
     public ComponentLibraryImpl() {
+        this(true);
+    }
+
+    /**
+     * @param generateAccessors Whether to generate classes that access fields and copy components directly, rather
+     *                          than doing so through reflection
+     */
+    public ComponentLibraryImpl(boolean generateAccessors) {
+        this.generateAccessors = generateAccessors;
         registerTypeHandler(Boolean.class, new BooleanTypeHandler());
         registerTypeHandler(Boolean.TYPE, new BooleanTypeHandler());
         registerTypeHandler(Byte.class, new ByteTypeHandler());
@@ -95,9 +105,12 @@ public final class ComponentLibraryImpl implements ComponentLibrary {
             if (typeHandler == null) {
                 logger.error("Unsupported field type in component type {}, {} : {}", componentClass.getSimpleName(), field.getName(), field.getGenericType());
             } else {
-                info.addField(new FieldMetadata(field, componentClass, typeHandler));
+                info.addField(createFieldMetadata(field, componentClass, typeHandler));
             }
         }
+        if (generateAccessors) {
+            info.setCopier(AccessorGenerator.createCopier(info));
+        }
         componentSerializationLookup.put(componentClass, info);
         componentTypeLookup.put(ComponentUtil.getComponentClassName(componentClass).toLowerCase(Locale.ENGLISH), componentClass);
     }
@@ -131,6 +144,13 @@ public final class ComponentLibraryImpl implements ComponentLibrary {
         return componentSerializationLookup.values().iterator();
     }
 
+    private FieldMetadata createFieldMetadata(Field field, Class<?> type, TypeHandler handler) {
+        if (generateAccessors) {
+            return new FieldMetadata(field, handler, AccessorGenerator.createFieldAccessor(field, type));
+        }
+        return new FieldMetadata(field, type, handler);
+    }
+
     // TODO: Refactor
     private TypeHandler getHandlerFor(Type type, int depth) {
         Class typeClass;
@@ -207,7 +227,7 @@ public final class ComponentLibraryImpl implements ComponentLibrary {
                 if (handler == null) {
                     logger.error("Unsupported field type in component type {}, {} : {}", typeClass.getSimpleName(), field.getName(), field.getGenericType());
                 } else {
-                    mappedHandler.addField(new FieldMetadata(field, typeClass, handler));
+                    mappedHandler.addField(createFieldMetadata(field, typeClass, handler));
                 }
             }
             return mappedHandler;
@@ -15,12 +15,9 @@
  */
 package org.terasology.entitySystem.metadata;
 
-import java.lang.reflect.InvocationTargetException;
 import java.util.Locale;
 import java.util.Map;
 
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 import org.terasology.entitySystem.Component;
 
 import com.google.common.collect.Maps;
@@ -29,13 +26,13 @@ import com.google.common.collect.Maps;
  * @author Immortius <immortius@gmail.com>
  */
 public final class ComponentMetadata<T extends Component> {
-    private static final Logger logger = LoggerFactory.getLogger(ComponentMetadata.class);
-
     private Map<String, FieldMetadata> fields = Maps.newHashMap();
     private Class<T> clazz;
+    private ComponentCopier<T> copier;
 
     public ComponentMetadata(Class<T> componentClass) {
         this.clazz = componentClass;
+        this.copier = new ReflectionComponentCopier<T>(this);
     }
 
     public Class<T> getType() {
@@ -54,33 +51,19 @@ public final class ComponentMetadata<T extends Component> {
         return fields.values();
     }
 
+    /**
+     * Replaces how instances of this component type are created and copied, e.g. with a copier generated for the type.
+     * The copier must cover all fields of this metadata.
+     */
+    public void setCopier(ComponentCopier<T> copier) {
+        this.copier = copier;
+    }
+
     public T newInstance() {
-        try {
-            return clazz.newInstance();
-        } catch (InstantiationException e) {
-            logger.error("Exception instantiating component type: {}", clazz, e);
-        } catch (IllegalAccessException e) {
-            logger.error("Exception instantiating component type: {}", clazz, e);
-        }
-        return null;
+        return copier.newInstance();
     }
 
     public T clone(T component) {
-        try {
-            T result = clazz.newInstance();
-            for (FieldMetadata field : fields.values()) {
-                field.setValue(result, field.copy(field.getValue(component)));
-            }
-            return result;
-        } catch (InstantiationException e) {
-            logger.error("Exception during serializing component type: {}", clazz, e);
-        } catch (IllegalAccessException e) {
-            logger.error("Exception during serializing component type: {}", clazz, e);
-        } catch (InvocationTargetException e) {
-            logger.error("Exception during serializing component type: {}", clazz, e);
-        }
-        return null;
+        return copier.copy(component);
     }
-
-
 }
@@ -0,0 +1,28 @@
+/*
+ * Copyright 2012 Benjamin Glatzel <benjamin.glatzel@me.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terasology.entitySystem.metadata;
+
+import java.lang.reflect.InvocationTargetException;
+
+/**
+ * Reads and writes a single field of a component or mapped type.
+ */
+public interface FieldAccessor {
+
+    public Object getValue(Object target) throws IllegalAccessException, InvocationTargetException;
+
+    public void setValue(Object target, Object value) throws IllegalAccessException, InvocationTargetException;
+}
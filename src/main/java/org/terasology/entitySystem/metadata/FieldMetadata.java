@@ -17,8 +17,6 @@ package org.terasology.entitySystem.metadata;
 
 import java.lang.reflect.Field;
 import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
-import java.util.Locale;
 
 import org.terasology.protobuf.EntityData;
 
@@ -27,15 +25,17 @@ import org.terasology.protobuf.EntityData;
  */
 public final class FieldMetadata {
     private Field field;
-    private Method getter;
-    private Method setter;
+    private FieldAccessor accessor;
     private TypeHandler serializationHandler;
 
     public FieldMetadata(Field field, Class type, TypeHandler handler) {
+        this(field, handler, new ReflectionFieldAccessor(field, type));
+    }
+
+    public FieldMetadata(Field field, TypeHandler handler, FieldAccessor accessor) {
         this.field = field;
         this.serializationHandler = handler;
-        getter = findGetter(type, field);
-        setter = findSetter(type, field);
+        this.accessor = accessor;
     }
 
     public EntityData.Value serialize(Object field) {
@@ -55,42 +55,18 @@ public final class FieldMetadata {
     }
 
     public Object getValue(Object obj) throws IllegalAccessException, InvocationTargetException {
-        if (getter != null) {
-            return getter.invoke(obj);
-        }
-        return field.get(obj);
+        return accessor.getValue(obj);
     }
 
     public void setValue(Object target, Object value) throws IllegalAccessException, InvocationTargetException {
-        if (setter != null) {
-            setter.invoke(target, value);
-        } else {
-            field.set(target, value);
-        }
-    }
-
-    private Method findGetter(Class type, Field field) {
-        Method result = findMethod(type, "get" + field.getName().substring(0, 1).toUpperCase(Locale.ENGLISH) + field.getName().substring(1));
-        if (result != null && field.getType().equals(result.getReturnType())) {
-            return result;
-        }
-        result = findMethod(type, "is" + field.getName().substring(0, 1).toUpperCase(Locale.ENGLISH) + field.getName().substring(1));
-        if (result != null && field.getType().equals(result.getReturnType())) {
-            return result;
-        }
-        return null;
+        accessor.setValue(target, value);
     }
 
-    private Method findSetter(Class type, Field field) {
-        return findMethod(type, "set" + field.getName().substring(0, 1).toUpperCase(Locale.ENGLISH) + field.getName().substring(1), field.getType());
+    Field getField() {
+        return field;
     }
 
-    private Method findMethod(Class type, String methodName, Class<?>... parameters) {
-        try {
-            return type.getMethod(methodName, parameters);
-        } catch (NoSuchMethodException nsme) {
-            // Not really that exceptional
-        }
-        return null;
+    TypeHandler getSerializationHandler() {
+        return serializationHandler;
     }
 }
@@ -0,0 +1,66 @@
+/*
+ * Copyright 2012 Benjamin Glatzel <benjamin.glatzel@me.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terasology.entitySystem.metadata;
+
+import java.lang.reflect.InvocationTargetException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.terasology.entitySystem.Component;
+
+/**
+ * Creates components through their default constructor and copies them field by field through their metadata. Fields
+ * added to the metadata later are picked up.
+ */
+final class ReflectionComponentCopier<T extends Component> implements ComponentCopier<T> {
+    private static final Logger logger = LoggerFactory.getLogger(ReflectionComponentCopier.class);
+
+    private final ComponentMetadata<T> metadata;
+
+    public ReflectionComponentCopier(ComponentMetadata<T> metadata) {
+        this.metadata = metadata;
+    }
+
+    @Override
+    public T newInstance() {
+        try {
+            return metadata.getType().newInstance();
+        } catch (InstantiationException e) {
+            logger.error("Exception instantiating component type: {}", metadata.getType(), e);
+        } catch (IllegalAccessException e) {
+            logger.error("Exception instantiating component type: {}", metadata.getType(), e);
+        }
+        return null;
+    }
+
+    @Override
+    public T copy(T component) {
+        try {
+            T result = metadata.getType().newInstance();
+            for (FieldMetadata field : metadata.iterateFields()) {
+                field.setValue(result, field.copy(field.getValue(component)));
+            }
+            return result;
+        } catch (InstantiationException e) {
+            logger.error("Exception during serializing component type: {}", metadata.getType(), e);
+        } catch (IllegalAccessException e) {
+            logger.error("Exception during serializing component type: {}", metadata.getType(), e);
+        } catch (InvocationTargetException e) {
+            logger.error("Exception during serializing component type: {}", metadata.getType(), e);
+        }
+        return null;
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2012 Benjamin Glatzel <benjamin.glatzel@me.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terasology.entitySystem.metadata;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.Locale;
+
+/**
+ * Accesses a field through its public getter and setter if they exist, and through reflection on the field otherwise.
+ */
+final class ReflectionFieldAccessor implements FieldAccessor {
+    private final Field field;
+    private final Method getter;
+    private final Method setter;
+
+    public ReflectionFieldAccessor(Field field, Class type) {
+        this.field = field;
+        getter = findGetter(type, field);
+        setter = findSetter(type, field);
+    }
+
+    public Method getGetter() {
+        return getter;
+    }
+
+    public Method getSetter() {
+        return setter;
+    }
+
+    @Override
+    public Object getValue(Object target) throws IllegalAccessException, InvocationTargetException {
+        if (getter != null) {
+            return getter.invoke(target);
+        }
+        return field.get(target);
+    }
+
+    @Override
+    public void setValue(Object target, Object value) throws IllegalAccessException, InvocationTargetException {
+        if (setter != null) {
+            setter.invoke(target, value);
+        } else {
+            field.set(target, value);
+        }
+    }
+
+    private static Method findGetter(Class type, Field field) {
+        Method result = findMethod(type, "get" + field.getName().substring(0, 1).toUpperCase(Locale.ENGLISH) + field.getName().substring(1));
+        if (result != null && field.getType().equals(result.getReturnType())) {
+            return result;
+        }
+        result = findMethod(type, "is" + field.getName().substring(0, 1).toUpperCase(Locale.ENGLISH) + field.getName().substring(1));
+        if (result != null && field.getType().equals(result.getReturnType())) {
+            return result;
+        }
+        return null;
+    }
+
+    private static Method findSetter(Class type, Field field) {
+        return findMethod(type, "set" + field.getName().substring(0, 1).toUpperCase(Locale.ENGLISH) + field.getName().substring(1), field.getType());
+    }
+
+    private static Method findMethod(Class type, String methodName, Class<?>... parameters) {
+        try {
+            return type.getMethod(methodName, parameters);
+        } catch (NoSuchMethodException nsme) {
+            // Not really that exceptional
+        }
+        return null;
+    }
+}
@@ -45,6 +45,16 @@ public interface EntityPersisterHelper {
      */
     EntityData.Entity serializeEntity(EntityRef entity);
 
+    /**
+     * Serializes an entity from a set of its components, such as a copy taken earlier. This does not access the
+     * entity itself.
+     *
+     * @param id         The id of the entity
+     * @param components All components of the entity, including its EntityInfoComponent if it has one
+     * @return The message for a single Entity
+     */
+    EntityData.Entity serializeEntity(int id, Iterable<Component> components);
+
     /**
      * @param prefab
      * @return The message for a single Prefab
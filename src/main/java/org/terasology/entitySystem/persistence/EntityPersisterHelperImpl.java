@@ -19,6 +19,7 @@ import com.google.common.base.Objects;
 import com.google.common.collect.BiMap;
 import com.google.common.collect.HashBiMap;
 import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
 import gnu.trove.list.TIntList;
 import gnu.trove.list.array.TIntArrayList;
 import gnu.trove.procedure.TIntProcedure;
@@ -27,6 +28,7 @@ import java.lang.reflect.InvocationTargetException;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -103,13 +105,20 @@ public class EntityPersisterHelperImpl implements EntityPersisterHelper {
 
     @Override
     public EntityData.Entity serializeEntity(EntityRef entityRef) {
-        EntityInfoComponent entityInfo = entityRef.getComponent(EntityInfoComponent.class);
-        if (entityInfo != null) {
-            if (entityInfo.parentPrefab != null && prefabManager.exists(entityInfo.parentPrefab)) {
-                return serializeEntityDelta(entityRef, prefabManager.getPrefab(entityInfo.parentPrefab));
+        return serializeEntity(entityRef.getId(), entityRef.iterateComponents());
+    }
+
+    @Override
+    public EntityData.Entity serializeEntity(int id, Iterable<Component> components) {
+        for (Component component : components) {
+            if (component instanceof EntityInfoComponent) {
+                EntityInfoComponent entityInfo = (EntityInfoComponent) component;
+                if (entityInfo.parentPrefab != null && prefabManager.exists(entityInfo.parentPrefab)) {
+                    return serializeEntityDelta(id, components, prefabManager.getPrefab(entityInfo.parentPrefab));
+                }
             }
         }
-        return serializeEntityFull(entityRef);
+        return serializeEntityFull(id, components);
     }
 
     @Override
@@ -375,10 +384,10 @@ public class EntityPersisterHelperImpl implements EntityPersisterHelper {
         return null;
     }
 
-    private EntityData.Entity serializeEntityFull(EntityRef entityRef) {
+    private EntityData.Entity serializeEntityFull(int id, Iterable<Component> components) {
         EntityData.Entity.Builder entity = EntityData.Entity.newBuilder();
-        entity.setId(entityRef.getId());
-        for (Component component : entityRef.iterateComponents()) {
+        entity.setId(id);
+        for (Component component : components) {
             if (component.getClass().equals(EntityInfoComponent.class))
                 continue;
 
@@ -390,11 +399,13 @@ public class EntityPersisterHelperImpl implements EntityPersisterHelper {
         return entity.build();
     }
 
-    private EntityData.Entity serializeEntityDelta(EntityRef entityRef, Prefab prefab) {
+    private EntityData.Entity serializeEntityDelta(int id, Iterable<Component> components, Prefab prefab) {
         EntityData.Entity.Builder entity = EntityData.Entity.newBuilder();
-        entity.setId(entityRef.getId());
+        entity.setId(id);
         entity.setParentPrefab(prefab.getName());
-        for (Component component : entityRef.iterateComponents()) {
+        Set<Class<? extends Component>> componentClasses = Sets.newHashSet();
+        for (Component component : components) {
+            componentClasses.add(component.getClass());
             if (component.getClass().equals(EntityInfoComponent.class))
                 continue;
 
@@ -411,7 +422,7 @@ public class EntityPersisterHelperImpl implements EntityPersisterHelper {
             }
         }
         for (Component prefabComponent : prefab.listComponents()) {
-            if (!entityRef.hasComponent(prefabComponent.getClass())) {
+            if (!componentClasses.contains(prefabComponent.getClass())) {
                 entity.addRemovedComponent(ComponentUtil.getComponentClassName(prefabComponent.getClass()));
             }
         }
@@ -0,0 +1,70 @@
+/*
+ * Copyright 2012 Benjamin Glatzel <benjamin.glatzel@me.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terasology.entitySystem.persistence;
+
+import gnu.trove.map.TIntIntMap;
+import gnu.trove.map.TIntLongMap;
+import gnu.trove.map.hash.TIntIntHashMap;
+import gnu.trove.map.hash.TIntLongHashMap;
+
+import java.io.File;
+import java.util.List;
+
+import com.google.common.collect.ImmutableList;
+
+/**
+ * Records where each entity is stored in an entity stream file, and the component type table of the file, so that a
+ * later save to the same file can copy the records of unchanged entities.
+ */
+final class EntityStreamIndex {
+    private final File file;
+    private final List<String> componentClasses;
+    private final TIntLongMap offsets = new TIntLongHashMap();
+    private final TIntIntMap lengths = new TIntIntHashMap();
+
+    public EntityStreamIndex(File file, List<String> componentClasses) {
+        this.file = file;
+        this.componentClasses = ImmutableList.copyOf(componentClasses);
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * @return The component class names of the file, the index of which is the type index used by its components
+     */
+    public List<String> getComponentClasses() {
+        return componentClasses;
+    }
+
+    public void put(int entityId, long offset, int length) {
+        offsets.put(entityId, offset);
+        lengths.put(entityId, length);
+    }
+
+    public boolean contains(int entityId) {
+        return offsets.containsKey(entityId);
+    }
+
+    public long getOffset(int entityId) {
+        return offsets.get(entityId);
+    }
+
+    public int getLength(int entityId) {
+        return lengths.get(entityId);
+    }
+}
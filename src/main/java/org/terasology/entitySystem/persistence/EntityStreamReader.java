@@ -0,0 +1,95 @@
+/*
+ * Copyright 2012 Benjamin Glatzel <benjamin.glatzel@me.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terasology.entitySystem.persistence;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+
+import org.terasology.protobuf.EntityData;
+
+import com.google.common.io.CountingInputStream;
+
+/**
+ * Reads an entity stream: a length-delimited World message holding the prefabs, the component type table and the
+ * entity id information, followed by one length-delimited Entity message per entity. Entities are read one at a time.
+ *
+ * @see EntityStreamWriter
+ */
+final class EntityStreamReader implements Closeable {
+    private final CountingInputStream in;
+    private final EntityData.World header;
+    private long lastOffset;
+    private int lastLength;
+
+    public EntityStreamReader(File file) throws IOException {
+        in = new CountingInputStream(new BufferedInputStream(new FileInputStream(file)));
+        EntityData.World world;
+        try {
+            world = EntityData.World.parseDelimitedFrom(in);
+        } catch (IOException e) {
+            in.close();
+            throw e;
+        }
+        if (world == null) {
+            in.close();
+            throw new IOException("Entity stream " + file + " has no header");
+        }
+        header = world;
+    }
+
+    /**
+     * @return The world message heading the stream, which holds no entities
+     */
+    public EntityData.World getHeader() {
+        return header;
+    }
+
+    /**
+     * @return The next entity of the stream, or null if there are no more
+     * @throws IOException
+     */
+    public EntityData.Entity next() throws IOException {
+        long offset = in.getCount();
+        EntityData.Entity entity = EntityData.Entity.parseDelimitedFrom(in);
+        if (entity != null) {
+            lastOffset = offset;
+            lastLength = (int) (in.getCount() - offset);
+        }
+        return entity;
+    }
+
+    /**
+     * @return The position in the file of the record of the entity last returned by next
+     */
+    public long getLastOffset() {
+        return lastOffset;
+    }
+
+    /**
+     * @return The length in bytes of the record of the entity last returned by next, including its length prefix
+     */
+    public int getLastLength() {
+        return lastLength;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
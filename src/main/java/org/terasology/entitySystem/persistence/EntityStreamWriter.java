@@ -0,0 +1,85 @@
+/*
+ * Copyright 2012 Benjamin Glatzel <benjamin.glatzel@me.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terasology.entitySystem.persistence;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import org.terasology.protobuf.EntityData;
+
+import com.google.common.io.CountingOutputStream;
+
+/**
+ * Writes an entity stream, one entity at a time, and records where each entity is stored.
+ *
+ * @see EntityStreamReader
+ */
+final class EntityStreamWriter implements Closeable {
+    private final CountingOutputStream out;
+    private final EntityStreamIndex index;
+    private byte[] copyBuffer = new byte[0];
+
+    /**
+     * @param file   The file to write
+     * @param header The world message heading the stream, which should hold no entities
+     * @param index  The index to record the position of each entity in
+     * @throws IOException
+     */
+    public EntityStreamWriter(File file, EntityData.World header, EntityStreamIndex index) throws IOException {
+        this.out = new CountingOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+        this.index = index;
+        try {
+            header.writeDelimitedTo(out);
+        } catch (IOException e) {
+            out.close();
+            throw e;
+        }
+    }
+
+    public void write(EntityData.Entity entity) throws IOException {
+        long offset = out.getCount();
+        entity.writeDelimitedTo(out);
+        index.put(entity.getId(), offset, (int) (out.getCount() - offset));
+    }
+
+    /**
+     * Copies the record of an entity from another entity stream without decoding it
+     *
+     * @param entityId The id of the entity
+     * @param source   The entity stream holding the record
+     * @param offset   The position of the record in the source
+     * @param length   The length of the record
+     * @throws IOException
+     */
+    public void copy(int entityId, RandomAccessFile source, long offset, int length) throws IOException {
+        if (copyBuffer.length < length) {
+            copyBuffer = new byte[Math.max(length, 2 * copyBuffer.length)];
+        }
+        source.seek(offset);
+        source.readFully(copyBuffer, 0, length);
+        index.put(entityId, out.getCount(), length);
+        out.write(copyBuffer, 0, length);
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+}
@@ -15,6 +15,9 @@
  */
 package org.terasology.entitySystem.persistence;
 
+import gnu.trove.iterator.TIntIterator;
+import gnu.trove.set.TIntSet;
+
 import java.io.BufferedReader;
 import java.io.BufferedWriter;
 import java.io.File;
@@ -25,16 +28,42 @@ import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.terasology.entitySystem.Component;
 import org.terasology.entitySystem.EntityManager;
+import org.terasology.entitySystem.EntityRef;
 import org.terasology.entitySystem.PersistableEntityManager;
+import org.terasology.entitySystem.Prefab;
+import org.terasology.entitySystem.PrefabManager;
+import org.terasology.entitySystem.metadata.ComponentLibrary;
+import org.terasology.entitySystem.metadata.ComponentMetadata;
+import org.terasology.entitySystem.metadata.ComponentUtil;
 import org.terasology.protobuf.EntityData;
 
+import com.google.common.collect.BiMap;
+import com.google.common.collect.HashBiMap;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.protobuf.TextFormat;
 
 /**
+ * Saves and loads the entity world.
+ * <p/>
+ * Besides the whole-world formats, the world can be saved as an entity stream: a header with the prefabs, the component
+ * type table and the entity id information, followed by one record per persisted entity. Stream saves copy the
+ * entities on the calling thread and encode and write them on a background thread, and stream loads can be spread
+ * over several steps. A delta save only encodes the entities that changed since the file was last saved or loaded,
+ * and copies the records of all others from the previous file.
+ *
  * @author Immortius <immortius@gmail.com>
  */
 public class WorldPersister {
@@ -92,6 +121,10 @@ public class WorldPersister {
     private EntityManager entityManager;
     private EntityPersisterHelper persisterHelper;
 
+    private final ExecutorService saveThread = Executors.newSingleThreadExecutor(new ThreadFactoryBuilder().setNameFormat("Entity-Saver-%d").setDaemon(true).build());
+    private Future<EntityStreamIndex> pendingSave;
+    private EntityStreamIndex streamIndex;
+
     public WorldPersister(EntityManager entityManager) {
         this.entityManager = entityManager;
         this.persisterHelper = new EntityPersisterHelperImpl((PersistableEntityManager) entityManager);
@@ -140,4 +173,263 @@ public class WorldPersister {
             persisterHelper.deserializeWorld(world);
         }
     }
+
+    /**
+     * Saves the persisted entities as an entity stream. The components of the entities are copied before this returns,
+     * so the entities may change while the stream is written.
+     *
+     * @param file  The file to write
+     * @param delta Whether to only encode the entities changed since the file was last saved or loaded. This falls back
+     *              to a full save if the file was not saved or loaded by this persister. Entities only count as changed
+     *              when components are added, removed or saved to them, so components modified in place without being
+     *              saved are not written.
+     * @return A future that completes once the file has been written
+     */
+    public Future<?> saveStream(final File file, boolean delta) {
+        waitForPendingSave();
+        PersistableEntityManager persistableEntityManager = (PersistableEntityManager) entityManager;
+        ComponentLibrary componentLibrary = persistableEntityManager.getComponentLibrary();
+        PrefabManager prefabManager = persistableEntityManager.getPrefabManager();
+
+        TIntSet changedIds = persistableEntityManager.takeChangedIds();
+        final EntityStreamIndex previous = (delta && streamIndex != null && streamIndex.getFile().equals(file)) ? streamIndex : null;
+        streamIndex = null;
+
+        // Records copied from the previous file refer to its component type table, so keep it and append to it
+        final List<String> componentClasses = (previous != null) ? Lists.newArrayList(previous.getComponentClasses()) : Lists.<String>newArrayList();
+        BiMap<Integer, Class<? extends Component>> componentIdTable = HashBiMap.create();
+        for (int index = 0; index < componentClasses.size(); ++index) {
+            ComponentMetadata<?> metadata = componentLibrary.getMetadata(componentClasses.get(index));
+            if (metadata != null) {
+                componentIdTable.put(index, metadata.getType());
+            }
+        }
+        for (ComponentMetadata<?> metadata : componentLibrary) {
+            if (!componentIdTable.containsValue(metadata.getType())) {
+                componentIdTable.put(componentClasses.size(), metadata.getType());
+                componentClasses.add(ComponentUtil.getComponentClassName(metadata.getType()));
+            }
+        }
+        final EntityPersisterHelper streamHelper = new EntityPersisterHelperImpl(persistableEntityManager);
+        streamHelper.setUsingLookupTables(true);
+        streamHelper.setComponentTypeIdTable(componentIdTable);
+
+        final EntityData.World.Builder header = EntityData.World.newBuilder();
+        header.addAllComponentClass(componentClasses);
+        for (Prefab prefab : prefabManager.listPrefabs()) {
+            header.addPrefab(streamHelper.serializePrefab(prefab));
+        }
+
+        final List<EntitySnapshot> entities = Lists.newArrayList();
+        for (EntityRef entity : entityManager.iteratorEntities()) {
+            if (!entity.isPersisted()) {
+                header.addFreedEntityId(entity.getId());
+            } else if (previous != null && previous.contains(entity.getId()) && !changedIds.contains(entity.getId())) {
+                entities.add(new EntitySnapshot(entity.getId(), null));
+            } else {
+                List<Component> components = Lists.newArrayList();
+                for (Component component : entity.iterateComponents()) {
+                    Component copy = componentLibrary.copy(component);
+                    // Components unknown to the library are not serialized, except for the entity info
+                    components.add((copy != null) ? copy : component);
+                }
+                entities.add(new EntitySnapshot(entity.getId(), components));
+            }
+        }
+        header.setNextEntityId(persistableEntityManager.getNextId());
+        TIntIterator freedIds = persistableEntityManager.getFreedIds().iterator();
+        while (freedIds.hasNext()) {
+            header.addFreedEntityId(freedIds.next());
+        }
+
+        pendingSave = saveThread.submit(new Callable<EntityStreamIndex>() {
+            @Override
+            public EntityStreamIndex call() throws IOException {
+                return writeStream(file, header.build(), entities, componentClasses, streamHelper, previous);
+            }
+        });
+        return pendingSave;
+    }
+
+    /**
+     * Clears the entity manager and starts loading an entity stream. The prefabs and entity id information are loaded
+     * immediately, the entities through the returned load.
+     *
+     * @param file The entity stream to load
+     * @return The load of the entities of the stream
+     * @throws IOException
+     */
+    public StreamLoad beginStreamLoad(File file) throws IOException {
+        waitForPendingSave();
+        streamIndex = null;
+        entityManager.clear();
+        return new StreamLoad(file, new EntityStreamReader(file));
+    }
+
+    /**
+     * Clears the entity manager and loads an entity stream.
+     *
+     * @param file The entity stream to load
+     * @throws IOException
+     */
+    public void loadStream(File file) throws IOException {
+        StreamLoad load = beginStreamLoad(file);
+        try {
+            while (!load.loadEntities(Integer.MAX_VALUE)) {
+                // Loads everything at once
+            }
+        } finally {
+            load.close();
+        }
+    }
+
+    private void waitForPendingSave() {
+        if (pendingSave != null) {
+            try {
+                streamIndex = pendingSave.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                logger.error("Interrupted while waiting for entities to be saved", e);
+            } catch (ExecutionException e) {
+                logger.error("Failed to save entities", e.getCause());
+            }
+            pendingSave = null;
+        }
+    }
+
+    private EntityStreamIndex writeStream(File file, EntityData.World header, List<EntitySnapshot> entities, List<String> componentClasses,
+                                          EntityPersisterHelper streamHelper, EntityStreamIndex previous) throws IOException {
+        File parentFile = file.getParentFile();
+        if (parentFile != null && !parentFile.exists()) {
+            if (!parentFile.mkdirs()) {
+                logger.error("Failed to create world save directory {}", parentFile);
+            }
+        }
+        File tempFile = new File(file.getPath() + ".tmp");
+        EntityStreamIndex index = new EntityStreamIndex(file, componentClasses);
+
+        EntityStreamWriter writer = new EntityStreamWriter(tempFile, header, index);
+        RandomAccessFile previousFile = null;
+        try {
+            if (previous != null) {
+                previousFile = new RandomAccessFile(file, "r");
+            }
+            for (int i = 0; i < entities.size(); ++i) {
+                // Release each snapshot once it is written
+                EntitySnapshot entity = entities.set(i, null);
+                if (entity.components == null) {
+                    writer.copy(entity.id, previousFile, previous.getOffset(entity.id), previous.getLength(entity.id));
+                } else {
+                    writer.write(streamHelper.serializeEntity(entity.id, entity.components));
+                }
+            }
+        } finally {
+            // JAVA7 : Replace with improved resource handling
+            try {
+                writer.close();
+            } catch (IOException e) {
+                logger.error("Failed to close file", e);
+            }
+            if (previousFile != null) {
+                try {
+                    previousFile.close();
+                } catch (IOException e) {
+                    logger.error("Failed to close file", e);
+                }
+            }
+        }
+
+        if (file.exists() && !file.delete()) {
+            throw new IOException("Failed to replace " + file);
+        }
+        if (!tempFile.renameTo(file)) {
+            throw new IOException("Failed to rename " + tempFile + " to " + file);
+        }
+        return index;
+    }
+
+    /**
+     * Loads the entities of an entity stream, a number at a time.
+     */
+    public final class StreamLoad {
+        private final EntityStreamReader reader;
+        private final EntityPersisterHelper streamHelper;
+        private final EntityStreamIndex index;
+        private final int expectedEntities;
+        private boolean finished;
+
+        private StreamLoad(File file, EntityStreamReader reader) {
+            this.reader = reader;
+            EntityData.World header = reader.getHeader();
+            PersistableEntityManager persistableEntityManager = (PersistableEntityManager) entityManager;
+            ComponentLibrary componentLibrary = persistableEntityManager.getComponentLibrary();
+            PrefabManager prefabManager = persistableEntityManager.getPrefabManager();
+
+            BiMap<Integer, Class<? extends Component>> componentIdTable = HashBiMap.create();
+            for (int i = 0; i < header.getComponentClassCount(); ++i) {
+                ComponentMetadata<?> metadata = componentLibrary.getMetadata(header.getComponentClass(i));
+                if (metadata != null) {
+                    componentIdTable.put(i, metadata.getType());
+                }
+            }
+            streamHelper = new EntityPersisterHelperImpl(persistableEntityManager);
+            streamHelper.setComponentTypeIdTable(componentIdTable);
+
+            persistableEntityManager.setNextId(header.getNextEntityId());
+            for (Integer freedId : header.getFreedEntityIdList()) {
+                persistableEntityManager.getFreedIds().add(freedId);
+            }
+            for (EntityData.Prefab prefabData : header.getPrefabList()) {
+                if (!prefabManager.exists(prefabData.getName())) {
+                    streamHelper.deserializePrefab(prefabData);
+                }
+            }
+            index = new EntityStreamIndex(file, header.getComponentClassList());
+            expectedEntities = Math.max(0, header.getNextEntityId() - 1 - header.getFreedEntityIdCount());
+        }
+
+        /**
+         * @return An estimate of the number of entities in the stream
+         */
+        public int getExpectedEntities() {
+            return expectedEntities;
+        }
+
+        /**
+         * @param count The maximum number of entities to load
+         * @return Whether all entities have been loaded
+         * @throws IOException
+         */
+        public boolean loadEntities(int count) throws IOException {
+            for (int i = 0; i < count && !finished; ++i) {
+                EntityData.Entity entityData = reader.next();
+                if (entityData == null) {
+                    finished = true;
+                    close();
+                    // Loading is not a change to save
+                    ((PersistableEntityManager) entityManager).takeChangedIds();
+                    streamIndex = index;
+                } else {
+                    streamHelper.deserializeEntity(entityData);
+                    index.put(entityData.getId(), reader.getLastOffset(), reader.getLastLength());
+                }
+            }
+            return finished;
+        }
+
+        public void close() throws IOException {
+            reader.close();
+        }
+    }
+
+    private static final class EntitySnapshot {
+        private final int id;
+        /** Copies of the components of the entity, or null to copy its record from the previous file */
+        private final List<Component> components;
+
+        private EntitySnapshot(int id, List<Component> components) {
+            this.id = id;
+            this.components = components;
+        }
+    }
 }
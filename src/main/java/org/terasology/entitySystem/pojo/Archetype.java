@@ -0,0 +1,145 @@
+/*
+ * Copyright 2012 Benjamin Glatzel <benjamin.glatzel@me.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terasology.entitySystem.pojo;
+
+import gnu.trove.list.TIntList;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Set;
+
+import org.terasology.entitySystem.Component;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Maps;
+
+/**
+ * All entities which have exactly the same set of component classes. The entities and their components are stored in
+ * dense parallel arrays, with one column of components per component class, so all entities of an archetype can be
+ * visited with a linear scan.
+ * <p/>
+ * Rows are not stable: removing an entity moves the last entity into the freed row.
+ */
+final class Archetype {
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final Set<Class<? extends Component>> componentClasses;
+    private final Map<Class<? extends Component>, Integer> columnIndices = Maps.newHashMap();
+    private final Map<Class<? extends Component>, Archetype> addTransitions = Maps.newHashMap();
+    private final Map<Class<? extends Component>, Archetype> removeTransitions = Maps.newHashMap();
+
+    private int[] entityIds = new int[INITIAL_CAPACITY];
+    private Component[][] columns;
+    private int size;
+
+    Archetype(Set<Class<? extends Component>> componentClasses) {
+        this.componentClasses = ImmutableSet.copyOf(componentClasses);
+        this.columns = new Component[componentClasses.size()][INITIAL_CAPACITY];
+        int column = 0;
+        for (Class<? extends Component> componentClass : this.componentClasses) {
+            columnIndices.put(componentClass, column++);
+        }
+    }
+
+    Set<Class<? extends Component>> getComponentClasses() {
+        return componentClasses;
+    }
+
+    boolean hasAll(Class<? extends Component>... classes) {
+        for (Class<? extends Component> componentClass : classes) {
+            if (!columnIndices.containsKey(componentClass)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return The column holding the components of the given class, or -1 if this archetype does not contain the class
+     */
+    int getColumn(Class<? extends Component> componentClass) {
+        Integer column = columnIndices.get(componentClass);
+        return (column == null) ? -1 : column;
+    }
+
+    int size() {
+        return size;
+    }
+
+    int getEntityId(int row) {
+        return entityIds[row];
+    }
+
+    Component getComponent(int row, int column) {
+        return columns[column][row];
+    }
+
+    void setComponent(int row, int column, Component component) {
+        columns[column][row] = component;
+    }
+
+    /**
+     * Appends an entity, with all its components null.
+     *
+     * @return The row of the new entity
+     */
+    int add(int entityId) {
+        if (size == entityIds.length) {
+            int newCapacity = entityIds.length * 2;
+            entityIds = Arrays.copyOf(entityIds, newCapacity);
+            for (int i = 0; i < columns.length; ++i) {
+                columns[i] = Arrays.copyOf(columns[i], newCapacity);
+            }
+        }
+        entityIds[size] = entityId;
+        return size++;
+    }
+
+    /**
+     * Removes the entity in the given row. If it was not the last entity, the last entity is moved into its row.
+     */
+    void remove(int row) {
+        int last = --size;
+        entityIds[row] = entityIds[last];
+        for (Component[] column : columns) {
+            column[row] = column[last];
+            column[last] = null;
+        }
+    }
+
+    /**
+     * Appends the ids of all entities of this archetype to the given list.
+     */
+    void addEntityIdsTo(TIntList list) {
+        list.add(entityIds, 0, size);
+    }
+
+    Archetype getAddTransition(Class<? extends Component> componentClass) {
+        return addTransitions.get(componentClass);
+    }
+
+    void setAddTransition(Class<? extends Component> componentClass, Archetype target) {
+        addTransitions.put(componentClass, target);
+    }
+
+    Archetype getRemoveTransition(Class<? extends Component> componentClass) {
+        return removeTransitions.get(componentClass);
+    }
+
+    void setRemoveTransition(Class<? extends Component> componentClass, Archetype target) {
+        removeTransitions.put(componentClass, target);
+    }
+}
@@ -17,88 +17,165 @@ package org.terasology.entitySystem.pojo;
 
 import gnu.trove.iterator.TIntIterator;
 import gnu.trove.iterator.TIntObjectIterator;
-import gnu.trove.map.TIntObjectMap;
-import gnu.trove.map.hash.TIntObjectHashMap;
-import gnu.trove.set.TIntSet;
-import gnu.trove.set.hash.TIntHashSet;
+import gnu.trove.list.TIntList;
+import gnu.trove.list.array.TIntArrayList;
 
-import java.util.HashMap;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
 
 import org.terasology.entitySystem.Component;
 
+import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
 
 /**
  * A table for storing entities and components. Focused on allowing iteration across a components of a given type
+ * <p/>
+ * Entities are grouped into archetypes by their set of component classes, and each archetype stores its entities and
+ * components in dense arrays. Iterating over the entities with a set of components scans the matching archetypes
+ * without looking up individual entities, and the location of each entity is held in arrays indexed by entity id.
  *
  * @author Immortius <immortius@gmail.com>
  */
 class ComponentTable {
-    private Map<Class, TIntObjectMap<Component>> store = new HashMap<Class, TIntObjectMap<Component>>();
+    private static final int INITIAL_ENTITY_CAPACITY = 1024;
+
+    private Map<Set<Class<? extends Component>>, Archetype> archetypes = Maps.newHashMap();
+    private Map<Class<? extends Component>, List<Archetype>> archetypesByComponent = Maps.newHashMap();
+
+    private Archetype[] entityArchetypes = new Archetype[INITIAL_ENTITY_CAPACITY];
+    private int[] entityRows = new int[INITIAL_ENTITY_CAPACITY];
+    private int entityCount;
 
     public <T extends Component> T get(int entityId, Class<T> componentClass) {
-        TIntObjectMap<Component> entityMap = store.get(componentClass);
-        if (entityMap != null) {
-            return componentClass.cast(entityMap.get(entityId));
+        Archetype archetype = getArchetype(entityId);
+        if (archetype != null) {
+            int column = archetype.getColumn(componentClass);
+            if (column != -1) {
+                return componentClass.cast(archetype.getComponent(entityRows[entityId], column));
+            }
         }
         return null;
     }
 
     public Component put(int entityId, Component component) {
-        TIntObjectMap<Component> entityMap = store.get(component.getClass());
-        if (entityMap == null) {
-            entityMap = new TIntObjectHashMap<Component>();
-            store.put(component.getClass(), entityMap);
+        Class<? extends Component> componentClass = component.getClass();
+        Archetype archetype = getArchetype(entityId);
+        if (archetype != null) {
+            int column = archetype.getColumn(componentClass);
+            if (column != -1) {
+                int row = entityRows[entityId];
+                Component oldComponent = archetype.getComponent(row, column);
+                archetype.setComponent(row, column, component);
+                return oldComponent;
+            }
         }
-        return entityMap.put(entityId, component);
+        Archetype target = getArchetypeWith(archetype, componentClass);
+        int row = move(entityId, archetype, target);
+        target.setComponent(row, target.getColumn(componentClass), component);
+        return null;
     }
 
     public <T extends Component> Component remove(int entityId, Class<T> componentClass) {
-        TIntObjectMap<Component> entityMap = store.get(componentClass);
-        if (entityMap != null) {
-            return entityMap.remove(entityId);
+        Archetype archetype = getArchetype(entityId);
+        if (archetype != null) {
+            int column = archetype.getColumn(componentClass);
+            if (column != -1) {
+                Component component = archetype.getComponent(entityRows[entityId], column);
+                move(entityId, archetype, getArchetypeWithout(archetype, componentClass));
+                return component;
+            }
         }
         return null;
     }
 
     public void remove(int entityId) {
-        for (TIntObjectMap<Component> entityMap : store.values()) {
-            entityMap.remove(entityId);
+        Archetype archetype = getArchetype(entityId);
+        if (archetype != null) {
+            move(entityId, archetype, null);
         }
     }
 
     public void clear() {
-        store.clear();
+        archetypes.clear();
+        archetypesByComponent.clear();
+        entityArchetypes = new Archetype[INITIAL_ENTITY_CAPACITY];
+        entityRows = new int[INITIAL_ENTITY_CAPACITY];
+        entityCount = 0;
     }
 
     public int getComponentCount(Class<? extends Component> componentClass) {
-        TIntObjectMap<Component> map = store.get(componentClass);
-        if (map == null)
-            return 0;
-        return map.size();
+        int count = 0;
+        for (Archetype archetype : getArchetypesWith(componentClass)) {
+            count += archetype.size();
+        }
+        return count;
     }
 
     public Iterable<Component> iterateComponents(int entityId) {
-        List<Component> components = Lists.newArrayList();
-        for (TIntObjectMap<Component> componentMap : store.values()) {
-            Component comp = componentMap.get(entityId);
-            if (comp != null) {
-                components.add(comp);
-            }
+        Archetype archetype = getArchetype(entityId);
+        if (archetype == null) {
+            return Collections.emptyList();
+        }
+        int row = entityRows[entityId];
+        List<Component> components = Lists.newArrayListWithCapacity(archetype.getComponentClasses().size());
+        for (int column = 0; column < archetype.getComponentClasses().size(); ++column) {
+            components.add(archetype.getComponent(row, column));
         }
         return components;
     }
 
+    /**
+     * Produces an iterator over all entities with a component of the given class, and those components.
+     * <p/>
+     * The iterator does not support modification of the table while iterating.
+     *
+     * @return An iterator, or null if no entity has ever had the component
+     */
     public <T extends Component> TIntObjectIterator<T> componentIterator(Class<T> componentClass) {
-        TIntObjectMap<T> entityMap = (TIntObjectMap<T>) store.get(componentClass);
-        if (entityMap != null) {
-            return entityMap.iterator();
+        List<Archetype> matches = archetypesByComponent.get(componentClass);
+        if (matches != null) {
+            return new ComponentIterator<T>(matches, componentClass);
         }
         return null;
     }
 
+    /**
+     * Lists the entities which have all of the given components. The list is a copy, so the table can be modified while
+     * iterating over it.
+     *
+     * @return The ids of all entities with all of the given components
+     */
+    public TIntList getEntityIdsWith(Class<? extends Component>... componentClasses) {
+        List<Archetype> smallest = getArchetypesWith(componentClasses[0]);
+        for (int i = 1; i < componentClasses.length; ++i) {
+            List<Archetype> candidates = getArchetypesWith(componentClasses[i]);
+            if (candidates.size() < smallest.size()) {
+                smallest = candidates;
+            }
+        }
+
+        int count = 0;
+        List<Archetype> matches = Lists.newArrayListWithCapacity(smallest.size());
+        for (Archetype archetype : smallest) {
+            if (archetype.size() > 0 && archetype.hasAll(componentClasses)) {
+                matches.add(archetype);
+                count += archetype.size();
+            }
+        }
+        TIntList result = new TIntArrayList(count);
+        for (Archetype archetype : matches) {
+            archetype.addEntityIdsTo(result);
+        }
+        return result;
+    }
+
     /**
      * Produces an iterator for iterating over all entities
      * <p/>
@@ -107,19 +184,200 @@ class ComponentTable {
      * @return An iterator over all entity ids.
      */
     public TIntIterator entityIdIterator() {
-        TIntSet idSet = new TIntHashSet();
-        for (TIntObjectMap<Component> componentMap : store.values()) {
-            idSet.addAll(componentMap.keys());
+        TIntList ids = new TIntArrayList(entityCount);
+        for (Archetype archetype : archetypes.values()) {
+            archetype.addEntityIdsTo(ids);
         }
-        return idSet.iterator();
+        return ids.iterator();
     }
 
     public int numEntities() {
-        TIntSet idSet = new TIntHashSet();
-        for (TIntObjectMap<Component> componentMap : store.values()) {
-            idSet.addAll(componentMap.keys());
+        return entityCount;
+    }
+
+    /**
+     * Entities with the same component classes share the same set instance, so the set can be used as an identity key
+     * for the component layout of an entity.
+     *
+     * @return The classes of the components of the entity
+     */
+    public Set<Class<? extends Component>> getComponentClasses(int entityId) {
+        Archetype archetype = getArchetype(entityId);
+        if (archetype != null) {
+            return archetype.getComponentClasses();
+        }
+        return Collections.emptySet();
+    }
+
+    private Archetype getArchetype(int entityId) {
+        if (entityId >= 0 && entityId < entityArchetypes.length) {
+            return entityArchetypes[entityId];
+        }
+        return null;
+    }
+
+    private List<Archetype> getArchetypesWith(Class<? extends Component> componentClass) {
+        List<Archetype> result = archetypesByComponent.get(componentClass);
+        return (result == null) ? Collections.<Archetype>emptyList() : result;
+    }
+
+    /**
+     * Moves an entity between archetypes, carrying over the components both archetypes have in common.
+     *
+     * @param from The current archetype of the entity, or null if it is not in the table
+     * @param to   The new archetype of the entity, or null to remove it from the table
+     * @return The row of the entity in its new archetype
+     */
+    private int move(int entityId, Archetype from, Archetype to) {
+        int newRow = -1;
+        if (to != null) {
+            newRow = to.add(entityId);
         }
-        return idSet.size();
+        if (from != null) {
+            int oldRow = entityRows[entityId];
+            if (to != null) {
+                for (Class<? extends Component> componentClass : from.getComponentClasses()) {
+                    int column = to.getColumn(componentClass);
+                    if (column != -1) {
+                        to.setComponent(newRow, column, from.getComponent(oldRow, from.getColumn(componentClass)));
+                    }
+                }
+            }
+            from.remove(oldRow);
+            if (oldRow < from.size()) {
+                entityRows[from.getEntityId(oldRow)] = oldRow;
+            }
+        }
+
+        if (to == null) {
+            entityArchetypes[entityId] = null;
+            entityCount--;
+        } else {
+            if (entityId >= entityArchetypes.length) {
+                int newCapacity = Math.max(entityArchetypes.length * 2, entityId + 1);
+                entityArchetypes = Arrays.copyOf(entityArchetypes, newCapacity);
+                entityRows = Arrays.copyOf(entityRows, newCapacity);
+            }
+            if (from == null) {
+                entityCount++;
+            }
+            entityArchetypes[entityId] = to;
+            entityRows[entityId] = newRow;
+        }
+        return newRow;
+    }
+
+    private Archetype getArchetypeWith(Archetype archetype, Class<? extends Component> componentClass) {
+        if (archetype == null) {
+            return getOrCreateArchetype(ImmutableSet.<Class<? extends Component>>of(componentClass));
+        }
+        Archetype result = archetype.getAddTransition(componentClass);
+        if (result == null) {
+            Set<Class<? extends Component>> classes = Sets.newHashSet(archetype.getComponentClasses());
+            classes.add(componentClass);
+            result = getOrCreateArchetype(classes);
+            archetype.setAddTransition(componentClass, result);
+        }
+        return result;
+    }
+
+    /**
+     * @return The archetype without the given component class, or null if it would have no components
+     */
+    private Archetype getArchetypeWithout(Archetype archetype, Class<? extends Component> componentClass) {
+        if (archetype.getComponentClasses().size() == 1) {
+            return null;
+        }
+        Archetype result = archetype.getRemoveTransition(componentClass);
+        if (result == null) {
+            Set<Class<? extends Component>> classes = Sets.newHashSet(archetype.getComponentClasses());
+            classes.remove(componentClass);
+            result = getOrCreateArchetype(classes);
+            archetype.setRemoveTransition(componentClass, result);
+        }
+        return result;
+    }
+
+    private Archetype getOrCreateArchetype(Set<Class<? extends Component>> componentClasses) {
+        Archetype archetype = archetypes.get(componentClasses);
+        if (archetype == null) {
+            archetype = new Archetype(componentClasses);
+            archetypes.put(archetype.getComponentClasses(), archetype);
+            for (Class<? extends Component> componentClass : componentClasses) {
+                List<Archetype> list = archetypesByComponent.get(componentClass);
+                if (list == null) {
+                    list = Lists.newArrayList();
+                    archetypesByComponent.put(componentClass, list);
+                }
+                list.add(archetype);
+            }
+        }
+        return archetype;
     }
 
+    /**
+     * Iterates over a component class by scanning each archetype containing it in turn.
+     */
+    private static class ComponentIterator<T extends Component> implements TIntObjectIterator<T> {
+        private final List<Archetype> archetypes;
+        private final Class<T> componentClass;
+        private Archetype current;
+        private int archetypeIndex = -1;
+        private int column;
+        private int row;
+
+        public ComponentIterator(List<Archetype> archetypes, Class<T> componentClass) {
+            this.archetypes = archetypes;
+            this.componentClass = componentClass;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (current != null && row + 1 < current.size()) {
+                return true;
+            }
+            for (int i = archetypeIndex + 1; i < archetypes.size(); ++i) {
+                if (archetypes.get(i).size() > 0) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public void advance() {
+            row++;
+            while (current == null || row >= current.size()) {
+                archetypeIndex++;
+                if (archetypeIndex >= archetypes.size()) {
+                    throw new NoSuchElementException();
+                }
+                current = archetypes.get(archetypeIndex);
+                column = current.getColumn(componentClass);
+                row = 0;
+            }
+        }
+
+        @Override
+        public int key() {
+            return current.getEntityId(row);
+        }
+
+        @Override
+        public T value() {
+            return componentClass.cast(current.getComponent(row, column));
+        }
+
+        @Override
+        public T setValue(T val) {
+            T old = value();
+            current.setComponent(row, column, val);
+            return old;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
 }
@@ -0,0 +1,155 @@
+/*
+ * Copyright 2012 Benjamin Glatzel <benjamin.glatzel@me.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terasology.entitySystem.pojo;
+
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.terasology.entitySystem.Component;
+import org.terasology.entitySystem.EntityInfoComponent;
+import org.terasology.entitySystem.EntityRef;
+import org.terasology.entitySystem.Event;
+
+import com.google.common.collect.ImmutableMap;
+
+/**
+ * A read only view of an entity, holding copies of some of its components taken on the main thread. Passed to thread
+ * safe event handlers running on a worker thread, so they never read the component stores of the entity manager while
+ * the main thread changes them.
+ * <p/>
+ * Only the components copied are visible. Changes to the copies are not applied to the entity, and methods that would
+ * modify the entity throw an UnsupportedOperationException. Events sent to the snapshot are sent to the entity.
+ */
+final class EntitySnapshot extends EntityRef {
+    private static final Logger logger = LoggerFactory.getLogger(EntitySnapshot.class);
+
+    private final PojoEntityRef entity;
+    private final int id;
+    private final Map<Class<? extends Component>, Component> components;
+
+    /**
+     * Copies the given components of the entity. Must be called on the main thread.
+     *
+     * @param entity         The entity to take a snapshot of
+     * @param componentTypes The components to copy, those the entity does not have are skipped
+     */
+    EntitySnapshot(PojoEntityRef entity, Iterable<Class<? extends Component>> componentTypes) {
+        this.entity = entity;
+        this.id = entity.getId();
+        ImmutableMap.Builder<Class<? extends Component>, Component> builder = ImmutableMap.builder();
+        for (Class<? extends Component> componentType : componentTypes) {
+            Component component = entity.getComponent(componentType);
+            if (component != null) {
+                Component copy = entity.entityManager.getComponentLibrary().copy(component);
+                if (copy != null) {
+                    builder.put(componentType, copy);
+                } else {
+                    logger.error("Cannot copy unregistered component {} for a thread safe event handler", componentType.getSimpleName());
+                }
+            }
+        }
+        this.components = builder.build();
+    }
+
+    @Override
+    public boolean exists() {
+        return id != PojoEntityManager.NULL_ID;
+    }
+
+    @Override
+    public boolean hasComponent(Class<? extends Component> component) {
+        return components.containsKey(component);
+    }
+
+    @Override
+    public <T extends Component> T getComponent(Class<T> componentClass) {
+        return componentClass.cast(components.get(componentClass));
+    }
+
+    @Override
+    public <T extends Component> T addComponent(T component) {
+        throw new UnsupportedOperationException("Entities cannot be modified by thread safe event handlers");
+    }
+
+    @Override
+    public void removeComponent(Class<? extends Component> componentClass) {
+        throw new UnsupportedOperationException("Entities cannot be modified by thread safe event handlers");
+    }
+
+    @Override
+    public void saveComponent(Component component) {
+        throw new UnsupportedOperationException("Entities cannot be modified by thread safe event handlers");
+    }
+
+    @Override
+    public Iterable<Component> iterateComponents() {
+        return components.values();
+    }
+
+    @Override
+    public void destroy() {
+        throw new UnsupportedOperationException("Entities cannot be modified by thread safe event handlers");
+    }
+
+    @Override
+    public void send(Event event) {
+        entity.send(event);
+    }
+
+    @Override
+    public int getId() {
+        return id;
+    }
+
+    @Override
+    public boolean isPersisted() {
+        EntityInfoComponent info = getComponent(EntityInfoComponent.class);
+        return exists() && (info == null || info.persisted);
+    }
+
+    @Override
+    public void setPersisted(boolean persisted) {
+        throw new UnsupportedOperationException("Entities cannot be modified by thread safe event handlers");
+    }
+
+    @Override
+    public String getParentPrefab() {
+        EntityInfoComponent info = getComponent(EntityInfoComponent.class);
+        return (info != null) ? info.parentPrefab : "";
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (o instanceof EntitySnapshot) {
+            return entity.equals(((EntitySnapshot) o).entity);
+        }
+        return entity.equals(o);
+    }
+
+    @Override
+    public int hashCode() {
+        return entity.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return "EntitySnapshot{" +
+                "id=" + id +
+                '}';
+    }
+}
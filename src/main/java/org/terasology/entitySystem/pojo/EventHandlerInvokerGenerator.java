@@ -0,0 +1,129 @@
+/*
+ * Copyright 2012 Benjamin Glatzel <benjamin.glatzel@me.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terasology.entitySystem.pojo;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javassist.CannotCompileException;
+import javassist.ClassPool;
+import javassist.CtClass;
+import javassist.CtField;
+import javassist.CtNewMethod;
+import javassist.LoaderClassPath;
+import javassist.NotFoundException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.terasology.entitySystem.EntityRef;
+import org.terasology.entitySystem.Event;
+import org.terasology.entitySystem.EventHandlerSystem;
+import org.terasology.entitySystem.EventReceiver;
+import org.terasology.utilities.GeneratedClassCache;
+
+/**
+ * Generates event receivers that call an event handler method of an event handler system directly, instead of through
+ * reflection.
+ * <p/>
+ * The generated classes are defined in the package and class loader of the event handler system, so they can call its
+ * public methods. Where this is not possible, e.g. for handler systems nested in a private class, or events only
+ * visible within their own package, no receiver is generated and the method has to be invoked by reflection.
+ */
+final class EventHandlerInvokerGenerator {
+    private static final Logger logger = LoggerFactory.getLogger(EventHandlerInvokerGenerator.class);
+
+    /** Keeps the names of generated classes unique, as a handler system type gets a class per handler method */
+    private static final AtomicInteger nextClassId = new AtomicInteger();
+
+    /**
+     * Generated classes by handler system type and the call they make, so that registering a handler system again, e.g.
+     * for each game started, only creates new instances instead of defining classes that are never unloaded
+     */
+    private static final GeneratedClassCache generatedClasses = new GeneratedClassCache();
+
+    private EventHandlerInvokerGenerator() {
+    }
+
+    /**
+     * @param handler The event handler system
+     * @param method  A public event handler method of the system, taking the event and the entity
+     * @return A generated receiver calling the method, or null if the method cannot be called directly
+     */
+    public static EventReceiver<Event> createInvoker(EventHandlerSystem handler, Method method) {
+        Class<?> type = handler.getClass();
+        Class<?>[] parameterTypes = method.getParameterTypes();
+        if (type.getClassLoader() == null || !isVisible(type, type) || !isVisible(parameterTypes[0], type) || !isVisible(parameterTypes[1], type)) {
+            return null;
+        }
+        String typeName = type.getName();
+        String call = "((" + typeName + ") handler)." + method.getName() + "((" + parameterTypes[0].getName() + ") event, (" + parameterTypes[1].getName() + ") entity);";
+
+        try {
+            Class<?> generatedClass = generatedClasses.get(type, call);
+            if (generatedClass == null) {
+                ClassPool pool = new ClassPool(true);
+                pool.appendClassPath(new LoaderClassPath(type.getClassLoader()));
+                pool.appendClassPath(new LoaderClassPath(EventHandlerInvokerGenerator.class.getClassLoader()));
+                CtClass invokerClass = pool.makeClass(typeName + "$$EventInvoker" + nextClassId.incrementAndGet());
+                try {
+                    invokerClass.addInterface(pool.get(EventReceiver.class.getName()));
+                    invokerClass.addField(CtField.make("public Object handler;", invokerClass));
+                    invokerClass.addMethod(CtNewMethod.make("public void onEvent(" + Event.class.getName() + " event, " + EntityRef.class.getName() + " entity) { " + call + " }", invokerClass));
+                    generatedClass = invokerClass.toClass(type.getClassLoader(), type.getProtectionDomain());
+                } finally {
+                    invokerClass.detach();
+                }
+                generatedClasses.put(type, call, generatedClass);
+            }
+            Object invoker = generatedClass.newInstance();
+            generatedClass.getField("handler").set(invoker, handler);
+            return (EventReceiver<Event>) invoker;
+        } catch (NotFoundException e) {
+            logger.warn("Unable to generate invoker for {}.{}, using reflection", type.getSimpleName(), method.getName(), e);
+        } catch (CannotCompileException e) {
+            logger.warn("Unable to generate invoker for {}.{}, using reflection", type.getSimpleName(), method.getName(), e);
+        } catch (InstantiationException e) {
+            logger.warn("Unable to generate invoker for {}.{}, using reflection", type.getSimpleName(), method.getName(), e);
+        } catch (IllegalAccessException e) {
+            logger.warn("Unable to generate invoker for {}.{}, using reflection", type.getSimpleName(), method.getName(), e);
+        } catch (NoSuchFieldException e) {
+            logger.warn("Unable to generate invoker for {}.{}, using reflection", type.getSimpleName(), method.getName(), e);
+        }
+        return null;
+    }
+
+    /**
+     * @return Whether a class in the package of the neighbour can refer to the type
+     */
+    private static boolean isVisible(Class<?> type, Class<?> neighbour) {
+        for (Class<?> current = type; current != null; current = current.getEnclosingClass()) {
+            if (Modifier.isPrivate(current.getModifiers()) || current.isAnonymousClass() || current.isLocalClass()) {
+                return false;
+            }
+            if (!Modifier.isPublic(current.getModifiers()) && !getPackageName(current).equals(getPackageName(neighbour))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String getPackageName(Class<?> type) {
+        String name = type.getName();
+        int lastDot = name.lastIndexOf('.');
+        return (lastDot < 0) ? "" : name.substring(0, lastDot);
+    }
+}
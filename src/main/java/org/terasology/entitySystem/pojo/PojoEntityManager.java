@@ -21,6 +21,8 @@ import gnu.trove.iterator.TIntIterator;
 import gnu.trove.iterator.TIntObjectIterator;
 import gnu.trove.list.TIntList;
 import gnu.trove.list.array.TIntArrayList;
+import gnu.trove.set.TIntSet;
+import gnu.trove.set.hash.TIntHashSet;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.terasology.components.world.LocationComponent;
@@ -47,6 +49,7 @@ import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * Prototype entity manager. Not intended for final use, but a stand in for experimentation.
@@ -60,6 +63,7 @@ public class PojoEntityManager implements EntityManager, PersistableEntityManage
 
     private int nextEntityId = 1;
     private TIntList freedIds = new TIntArrayList();
+    private TIntSet changedIds = new TIntHashSet();
     private Map<Integer, EntityRef> entityCache = new MapMaker().concurrencyLevel(4).weakValues().makeMap();
 
     private ComponentTable store = new ComponentTable();
@@ -79,15 +83,19 @@ public class PojoEntityManager implements EntityManager, PersistableEntityManage
         store.clear();
         nextEntityId = 1;
         freedIds.clear();
+        changedIds.clear();
         entityCache.clear();
     }
 
     @Override
     public EntityRef create() {
         if (!freedIds.isEmpty()) {
-            return createEntityRef(freedIds.removeAt(freedIds.size() - 1));
+            int id = freedIds.removeAt(freedIds.size() - 1);
+            changedIds.add(id);
+            return createEntityRef(id);
         }
         if (nextEntityId == NULL_ID) nextEntityId++;
+        changedIds.add(nextEntityId);
         return createEntityRef(nextEntityId++);
     }
 
@@ -234,27 +242,7 @@ public class PojoEntityManager implements EntityManager, PersistableEntityManage
         if (componentClasses.length == 0) {
             return iteratorEntities();
         }
-        TIntList idList = new TIntArrayList();
-        TIntObjectIterator<? extends Component> primeIterator = store.componentIterator(componentClasses[0]);
-        if (primeIterator == null) {
-            return NullIterator.newInstance();
-        }
-
-        while (primeIterator.hasNext()) {
-            primeIterator.advance();
-            int id = primeIterator.key();
-            boolean discard = false;
-            for (int i = 1; i < componentClasses.length; ++i) {
-                if (store.get(id, componentClasses[i]) == null) {
-                    discard = true;
-                    break;
-                }
-            }
-            if (!discard) {
-                idList.add(primeIterator.key());
-            }
-        }
-        return new EntityIterable(idList);
+        return new EntityIterable(store.getEntityIdsWith(componentClasses));
     }
 
     boolean hasComponent(int entityId, Class<? extends Component> componentClass) {
@@ -265,6 +253,10 @@ public class PojoEntityManager implements EntityManager, PersistableEntityManage
         return store.iterateComponents(entityId);
     }
 
+    Set<Class<? extends Component>> getComponentClasses(int entityId) {
+        return store.getComponentClasses(entityId);
+    }
+
     void destroy(int entityId) {
         EntityRef ref = createEntityRef(entityId);
         if (eventSystem != null) {
@@ -272,6 +264,7 @@ public class PojoEntityManager implements EntityManager, PersistableEntityManage
         }
         entityCache.remove(entityId);
         freedIds.add(entityId);
+        changedIds.add(entityId);
         if (ref instanceof PojoEntityRef) {
             ((PojoEntityRef) ref).invalidate();
         }
@@ -285,6 +278,7 @@ public class PojoEntityManager implements EntityManager, PersistableEntityManage
 
     <T extends Component> T addComponent(int entityId, T component) {
         Component oldComponent = store.put(entityId, component);
+        changedIds.add(entityId);
         if (eventSystem != null) {
             if (oldComponent == null) {
                 eventSystem.send(createEntityRef(entityId), AddComponentEvent.newInstance(), component);
@@ -302,6 +296,7 @@ public class PojoEntityManager implements EntityManager, PersistableEntityManage
                 eventSystem.send(createEntityRef(entityId), RemovedComponentEvent.newInstance(), component);
             }
             store.remove(entityId, componentClass);
+            changedIds.add(entityId);
         }
     }
 
@@ -324,6 +319,7 @@ public class PojoEntityManager implements EntityManager, PersistableEntityManage
             for (Component c : components) {
                 store.put(id, c);
             }
+            changedIds.add(id);
             if (eventSystem != null) {
                 eventSystem.send(entity, AddComponentEvent.newInstance());
             }
@@ -357,6 +353,13 @@ public class PojoEntityManager implements EntityManager, PersistableEntityManage
         return freedIds;
     }
 
+    @Override
+    public TIntSet takeChangedIds() {
+        TIntSet result = changedIds;
+        changedIds = new TIntHashSet();
+        return result;
+    }
+
     public int getActiveEntities() {
         return entityCache.size();
     }
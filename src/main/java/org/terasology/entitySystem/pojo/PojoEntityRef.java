@@ -15,6 +15,9 @@
  */
 package org.terasology.entitySystem.pojo;
 
+import java.util.Collections;
+import java.util.Set;
+
 import org.terasology.entitySystem.Component;
 import org.terasology.entitySystem.EntityInfoComponent;
 import org.terasology.entitySystem.EntityRef;
@@ -163,6 +166,13 @@ public class PojoEntityRef extends EntityRef {
                 '}';
     }
 
+    Set<Class<? extends Component>> getComponentClasses() {
+        if (exists()) {
+            return entityManager.getComponentClasses(id);
+        }
+        return Collections.emptySet();
+    }
+
     void invalidate() {
         id = PojoEntityManager.NULL_ID;
     }
@@ -24,13 +24,17 @@ import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 import org.reflections.Reflections;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.terasology.entitySystem.AbstractEvent;
+import org.terasology.entitySystem.CoalescableEvent;
 import org.terasology.entitySystem.Component;
+import org.terasology.entitySystem.EntityInfoComponent;
 import org.terasology.entitySystem.EntityManager;
 import org.terasology.entitySystem.EntityRef;
 import org.terasology.entitySystem.Event;
@@ -39,16 +43,18 @@ import org.terasology.entitySystem.EventPriority;
 import org.terasology.entitySystem.EventReceiver;
 import org.terasology.entitySystem.EventSystem;
 import org.terasology.entitySystem.ReceiveEvent;
+import org.terasology.utilities.concurrency.CoalescingBatchQueue;
 
 import com.google.common.base.Predicates;
 import com.google.common.collect.BiMap;
 import com.google.common.collect.HashBiMap;
 import com.google.common.collect.HashMultimap;
 import com.google.common.collect.Lists;
+import com.google.common.collect.MapMaker;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Multimap;
-import com.google.common.collect.Queues;
 import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
 /**
  * @author Immortius <immortius@gmail.com>
@@ -57,26 +63,55 @@ public class PojoEventSystem implements EventSystem {
 
     private static final Logger logger = LoggerFactory.getLogger(PojoEventSystem.class);
 
+    private static final long PROCESS_BUDGET_NANOS = 2000000;
+    private static final int WORKER_THREADS = 2;
+
     private Map<Class<? extends Event>, Multimap<Class<? extends Component>, EventHandlerInfo>> componentSpecificHandlers = Maps.newHashMap();
     private Comparator<EventHandlerInfo> priorityComparator = new EventHandlerPriorityComparator();
 
+    // Handlers for each event type and entity component set, sorted by priority. Cleared when handlers are added.
+    private Map<Class<? extends Event>, Map<Set<Class<? extends Component>>, EventHandlerInfo[]>> dispatchTables = Maps.newHashMap();
+
     // Event metadata
     private BiMap<String, Class<? extends Event>> eventIdMap = HashBiMap.create();
     private Multimap<Class<? extends Event>, Class<? extends Event>> childEvents = HashMultimap.create();
 
     private Thread mainThread;
-    private BlockingQueue<PendingEvent>  pendingEvents = Queues.newLinkedBlockingQueue();
+    private CoalescingBatchQueue<PendingEvent> pendingEvents = new CoalescingBatchQueue<PendingEvent>(new PendingEventCoalescer());
+    private ExecutorService workers;
+    private final long processBudgetNanos;
 
     public PojoEventSystem() {
+        this(PROCESS_BUDGET_NANOS);
+    }
+
+    /**
+     * @param processBudgetNanos The time {@link #process()} may spend per call on events sent from other threads
+     */
+    public PojoEventSystem(long processBudgetNanos) {
         this.mainThread = Thread.currentThread();
+        this.processBudgetNanos = processBudgetNanos;
     }
 
+    /**
+     * Processes the events sent from other threads, until the time budget for a frame is used up. Events left over are
+     * processed by the next call.
+     */
     public void process() {
-        for (PendingEvent event = pendingEvents.poll(); event != null; event = pendingEvents.poll()) {
-            if (event.getComponent() != null) {
-                send(event.getEntity(), event.getEvent(), event.getComponent());
+        long deadline = System.nanoTime() + processBudgetNanos;
+        pendingEvents.collect();
+        for (PendingEvent pending = pendingEvents.poll(); pending != null; pending = pendingEvents.poll()) {
+            List<EventHandlerInfo> deferred = Lists.newArrayList();
+            if (pending.getComponent() != null) {
+                dispatch(pending.getEntity(), pending.getEvent(), pending.getComponent(), deferred);
             } else {
-                send(event.getEntity(), event.getEvent());
+                dispatch(pending.getEntity(), pending.getEvent(), deferred);
+            }
+            if (!deferred.isEmpty() && !pending.getEvent().isCancelled()) {
+                invokeOnWorker(deferred, pending.getEntity(), pending.getEvent());
+            }
+            if (System.nanoTime() >= deadline) {
+                break;
             }
         }
     }
@@ -107,14 +142,13 @@ public class PojoEventSystem implements EventSystem {
         for (Method method : handlerClass.getMethods()) {
             ReceiveEvent receiveEventAnnotation = method.getAnnotation(ReceiveEvent.class);
             if (receiveEventAnnotation != null) {
-                if (!Modifier.isPublic(method.getModifiers())) {
-                    method.setAccessible(true);
-                }
+                // Skips the access check on every invocation
+                method.setAccessible(true);
                 Class<?>[] types = method.getParameterTypes();
 
                 if (types.length == 2 && Event.class.isAssignableFrom(types[0]) && EntityRef.class.isAssignableFrom(types[1])) {
                     logger.debug("Found method: " + method.toString());
-                    ReflectedEventHandlerInfo handlerInfo = new ReflectedEventHandlerInfo(handler, method, receiveEventAnnotation.priority(), receiveEventAnnotation.components());
+                    ReflectedEventHandlerInfo handlerInfo = new ReflectedEventHandlerInfo(handler, method, receiveEventAnnotation.priority(), receiveEventAnnotation.threadSafe(), receiveEventAnnotation.components());
                     for (Class<? extends Component> c : receiveEventAnnotation.components()) {
                         addEventHandler((Class<? extends Event>) types[0], handlerInfo, c);
                         for (Class<? extends Event> childType : childEvents.get((Class<? extends Event>) types[0])) {
@@ -135,6 +169,7 @@ public class PojoEventSystem implements EventSystem {
             componentSpecificHandlers.put(type, componentMap);
         }
         componentMap.put(c, handlerInfo);
+        dispatchTables.clear();
     }
 
     @Override
@@ -156,19 +191,43 @@ public class PojoEventSystem implements EventSystem {
     @Override
     public void send(EntityRef entity, Event event) {
         if (Thread.currentThread() != mainThread) {
-            pendingEvents.offer(new PendingEvent(entity, event));
+            pendingEvents.add(new PendingEvent(entity, event));
         } else {
-            Set<EventHandlerInfo> selectedHandlersSet = selectEventHandlers(event.getClass(), entity);
-            List<EventHandlerInfo> selectedHandlers = Lists.newArrayList(selectedHandlersSet);
-            Collections.sort(selectedHandlers, priorityComparator);
-
-            for (EventHandlerInfo handler : selectedHandlers) {
-                // Check isValid at each stage in case components were removed.
-                if (handler.isValidFor(entity)) {
-                    handler.invoke(entity, event);
-                    if (event.isCancelled())
-                        return;
-                }
+            dispatch(entity, event, null);
+        }
+    }
+
+    /**
+     * @param deferred If not null, thread safe handlers are added to this list instead of being invoked
+     */
+    private void dispatch(EntityRef entity, Event event, List<EventHandlerInfo> deferred) {
+        if (entity instanceof PojoEntityRef) {
+            dispatchToPojoEntity((PojoEntityRef) entity, event, deferred);
+            return;
+        }
+        Set<EventHandlerInfo> selectedHandlersSet = selectEventHandlers(event.getClass(), entity);
+        List<EventHandlerInfo> selectedHandlers = Lists.newArrayList(selectedHandlersSet);
+        Collections.sort(selectedHandlers, priorityComparator);
+
+        for (EventHandlerInfo handler : selectedHandlers) {
+            // Check isValid at each stage in case components were removed.
+            if (handler.isValidFor(entity)) {
+                invoke(handler, entity, event, deferred);
+                if (event.isCancelled())
+                    return;
+            }
+        }
+    }
+
+    private void dispatchToPojoEntity(PojoEntityRef entity, Event event, List<EventHandlerInfo> deferred) {
+        Set<Class<? extends Component>> componentClasses = entity.getComponentClasses();
+        for (EventHandlerInfo handler : getDispatchTable(event.getClass(), componentClasses)) {
+            // Entities with the same components share the component set, so a handler only needs checking if an
+            // earlier handler changed the components of the entity.
+            if (entity.getComponentClasses() == componentClasses || handler.isValidFor(entity)) {
+                invoke(handler, entity, event, deferred);
+                if (event.isCancelled())
+                    return;
             }
         }
     }
@@ -176,17 +235,100 @@ public class PojoEventSystem implements EventSystem {
     @Override
     public void send(EntityRef entity, Event event, Component component) {
         if (Thread.currentThread() != mainThread) {
-            pendingEvents.offer(new PendingEvent(entity, event, component));
+            pendingEvents.add(new PendingEvent(entity, event, component));
         } else {
-            Multimap<Class<? extends Component>, EventHandlerInfo> handlers = componentSpecificHandlers.get(event.getClass());
-            if (handlers != null) {
-                for (EventHandlerInfo eventHandler : handlers.get(component.getClass())) {
-                    if (eventHandler.isValidFor(entity)) {
-                        eventHandler.invoke(entity, event);
+            dispatch(entity, event, component, null);
+        }
+    }
+
+    private void dispatch(EntityRef entity, Event event, Component component, List<EventHandlerInfo> deferred) {
+        Multimap<Class<? extends Component>, EventHandlerInfo> handlers = componentSpecificHandlers.get(event.getClass());
+        if (handlers != null) {
+            for (EventHandlerInfo eventHandler : handlers.get(component.getClass())) {
+                if (eventHandler.isValidFor(entity)) {
+                    invoke(eventHandler, entity, event, deferred);
+                }
+            }
+        }
+    }
+
+    private void invoke(EventHandlerInfo handler, EntityRef entity, Event event, List<EventHandlerInfo> deferred) {
+        if (deferred != null && handler.isThreadSafe() && entity instanceof PojoEntityRef) {
+            deferred.add(handler);
+        } else {
+            handler.invoke(entity, event);
+        }
+    }
+
+    /**
+     * Invokes the handlers on a worker thread, passing them a snapshot of the components they need instead of the
+     * entity itself, as the component stores are not safe to read while the main thread changes them.
+     */
+    private void invokeOnWorker(final List<EventHandlerInfo> handlers, EntityRef entity, final Event event) {
+        Set<Class<? extends Component>> componentTypes = Sets.newLinkedHashSet();
+        componentTypes.add(EntityInfoComponent.class);
+        for (EventHandlerInfo handler : handlers) {
+            componentTypes.addAll(handler.getComponents());
+        }
+        final EntityRef snapshot = new EntitySnapshot((PojoEntityRef) entity, componentTypes);
+        if (workers == null) {
+            workers = Executors.newFixedThreadPool(WORKER_THREADS, new ThreadFactoryBuilder().setNameFormat("Event-Worker-%d").setDaemon(true).build());
+        }
+        workers.execute(new Runnable() {
+            @Override
+            public void run() {
+                for (EventHandlerInfo handler : handlers) {
+                    handler.invoke(snapshot, event);
+                }
+            }
+        });
+    }
+
+    @Override
+    public void dispose() {
+        if (workers != null) {
+            workers.shutdown();
+            try {
+                if (!workers.awaitTermination(10, TimeUnit.SECONDS)) {
+                    logger.warn("Timed out awaiting event worker termination");
+                }
+            } catch (InterruptedException e) {
+                logger.error("Interrupted while awaiting event worker termination");
+            }
+            workers = null;
+        }
+    }
+
+    private EventHandlerInfo[] getDispatchTable(Class<? extends Event> eventType, Set<Class<? extends Component>> componentClasses) {
+        Map<Set<Class<? extends Component>>, EventHandlerInfo[]> tables = dispatchTables.get(eventType);
+        if (tables == null) {
+            // Component sets are shared by all entities with the same components, and dropped along with them
+            tables = new MapMaker().weakKeys().makeMap();
+            dispatchTables.put(eventType, tables);
+        }
+        EventHandlerInfo[] table = tables.get(componentClasses);
+        if (table == null) {
+            table = createDispatchTable(eventType, componentClasses);
+            tables.put(componentClasses, table);
+        }
+        return table;
+    }
+
+    private EventHandlerInfo[] createDispatchTable(Class<? extends Event> eventType, Set<Class<? extends Component>> componentClasses) {
+        Set<EventHandlerInfo> result = Sets.newLinkedHashSet();
+        Multimap<Class<? extends Component>, EventHandlerInfo> handlers = componentSpecificHandlers.get(eventType);
+        if (handlers != null) {
+            for (Class<? extends Component> compClass : componentClasses) {
+                for (EventHandlerInfo eventHandler : handlers.get(compClass)) {
+                    if (eventHandler.isValidFor(componentClasses)) {
+                        result.add(eventHandler);
                     }
                 }
             }
         }
+        EventHandlerInfo[] table = result.toArray(new EventHandlerInfo[result.size()]);
+        Arrays.sort(table, priorityComparator);
+        return table;
     }
 
     private Set<EventHandlerInfo> selectEventHandlers(Class<? extends Event> eventType, EntityRef entity) {
@@ -218,23 +360,37 @@ public class PojoEventSystem implements EventSystem {
     private interface EventHandlerInfo {
         public boolean isValidFor(EntityRef entity);
 
+        public boolean isValidFor(Set<Class<? extends Component>> componentClasses);
+
         public void invoke(EntityRef entity, Event event);
 
         public int getPriority();
+
+        public boolean isThreadSafe();
+
+        /**
+         * @return The components an entity must have for this handler to be invoked
+         */
+        public List<Class<? extends Component>> getComponents();
     }
 
 
     private class ReflectedEventHandlerInfo implements EventHandlerInfo {
         private EventHandlerSystem handler;
         private Method method;
+        // Calls the method directly, null if it has to be invoked by reflection
+        private EventReceiver<Event> invoker;
         private Class<? extends Component>[] components;
         private int priority;
+        private boolean threadSafe;
 
-        public ReflectedEventHandlerInfo(EventHandlerSystem handler, Method method, int priority, Class<? extends Component>... components) {
+        public ReflectedEventHandlerInfo(EventHandlerSystem handler, Method method, int priority, boolean threadSafe, Class<? extends Component>... components) {
             this.handler = handler;
             this.method = method;
+            this.invoker = EventHandlerInvokerGenerator.createInvoker(handler, method);
             this.components = Arrays.copyOf(components, components.length);
             this.priority = priority;
+            this.threadSafe = threadSafe;
         }
 
         public boolean isValidFor(EntityRef entity) {
@@ -246,7 +402,24 @@ public class PojoEventSystem implements EventSystem {
             return true;
         }
 
+        public boolean isValidFor(Set<Class<? extends Component>> componentClasses) {
+            for (Class<? extends Component> component : components) {
+                if (!componentClasses.contains(component)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
         public void invoke(EntityRef entity, Event event) {
+            if (invoker != null) {
+                try {
+                    invoker.onEvent(event, entity);
+                } catch (Exception ex) {
+                    logger.error("Failed to invoke event", ex);
+                }
+                return;
+            }
             try {
                 method.invoke(handler, event, entity);
             } catch (IllegalAccessException ex) {
@@ -254,13 +427,21 @@ public class PojoEventSystem implements EventSystem {
             } catch (IllegalArgumentException ex) {
                 logger.error("Failed to invoke event", ex);
             } catch (InvocationTargetException ex) {
-                logger.error("Failed to invoke event", ex);
+                logger.error("Failed to invoke event", ex.getCause());
             }
         }
 
         public int getPriority() {
             return priority;
         }
+
+        public boolean isThreadSafe() {
+            return threadSafe;
+        }
+
+        public List<Class<? extends Component>> getComponents() {
+            return Arrays.asList(components);
+        }
     }
 
     private class ReceiverEventHandlerInfo<T extends Event> implements EventHandlerInfo {
@@ -284,6 +465,16 @@ public class PojoEventSystem implements EventSystem {
             return true;
         }
 
+        @Override
+        public boolean isValidFor(Set<Class<? extends Component>> componentClasses) {
+            for (Class<? extends Component> component : components) {
+                if (!componentClasses.contains(component)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
         @Override
         public void invoke(EntityRef entity, Event event) {
             receiver.onEvent((T) event, entity);
@@ -293,5 +484,36 @@ public class PojoEventSystem implements EventSystem {
         public int getPriority() {
             return priority;
         }
+
+        @Override
+        public boolean isThreadSafe() {
+            return false;
+        }
+
+        @Override
+        public List<Class<? extends Component>> getComponents() {
+            return Arrays.asList(components);
+        }
+    }
+
+    /**
+     * Merges pending coalescable events of the same type and key, sent to the same entity and component.
+     */
+    private static class PendingEventCoalescer implements CoalescingBatchQueue.Coalescer<PendingEvent> {
+
+        @Override
+        public Object getKey(PendingEvent pending) {
+            if (pending.getEvent() instanceof CoalescableEvent) {
+                CoalescableEvent event = (CoalescableEvent) pending.getEvent();
+                return Arrays.asList(pending.getEntity(), pending.getComponent(), event.getClass(), event.getCoalescingKey());
+            }
+            return null;
+        }
+
+        @Override
+        public PendingEvent merge(PendingEvent earlier, PendingEvent later) {
+            Event merged = ((CoalescableEvent) earlier.getEvent()).coalesce((CoalescableEvent) later.getEvent());
+            return (merged != null) ? new PendingEvent(earlier.getEntity(), merged, earlier.getComponent()) : null;
+        }
     }
 }
@@ -15,8 +15,10 @@
  */
 package org.terasology.game;
 
+import com.google.common.collect.HashMultimap;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
+import com.google.common.collect.SetMultimap;
 import org.reflections.Reflections;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -27,8 +29,11 @@ import org.terasology.entitySystem.EntityManager;
 import org.terasology.entitySystem.EventHandlerSystem;
 import org.terasology.entitySystem.In;
 import org.terasology.entitySystem.RegisterComponentSystem;
+import org.terasology.logic.mod.ModManager;
 
 import java.lang.reflect.Field;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -52,6 +57,14 @@ public class ComponentSystemManager {
     }
 
     public void loadSystems(String packageName, Reflections reflections) {
+        loadSystems(packageName, reflections, false);
+    }
+
+    /**
+     * @param headless Whether the game runs without a display, in which case systems registered as headed only are
+     *                 skipped. Otherwise systems registered as headless only are skipped.
+     */
+    public void loadSystems(String packageName, Reflections reflections, boolean headless) {
         Set<Class<?>> systems = reflections.getTypesAnnotatedWith(RegisterComponentSystem.class);
         for (Class<?> system : systems) {
             if (!ComponentSystem.class.isAssignableFrom(system)) {
@@ -60,8 +73,12 @@ public class ComponentSystemManager {
             }
 
             RegisterComponentSystem registerInfo = system.getAnnotation(RegisterComponentSystem.class);
-            // TODO: filter registrations
+            // TODO: filter authorative and multiplayer only registrations
             String id = packageName + ":" + system.getSimpleName();
+            if (headless ? registerInfo.headedOnly() : registerInfo.headlessOnly()) {
+                logger.debug("Skipped system {}", id);
+                continue;
+            }
             try {
                 ComponentSystem newSystem = (ComponentSystem) system.newInstance();
                 register(newSystem, id);
@@ -90,8 +107,19 @@ public class ComponentSystemManager {
     }
 
     public void initialise() {
+        Set<Class<?>> indexedSystems = Collections.emptySet();
+        SetMultimap<Class<?>, Field> indexedFields = HashMultimap.create();
+        ModManager modManager = CoreRegistry.get(ModManager.class);
+        if (modManager != null) {
+            Reflections reflections = modManager.getActiveModReflections();
+            indexedSystems = reflections.getTypesAnnotatedWith(RegisterComponentSystem.class);
+            for (Field field : reflections.getFieldsAnnotatedWith(In.class)) {
+                indexedFields.put(field.getDeclaringClass(), field);
+            }
+        }
+
         for (ComponentSystem system : iterateAll()) {
-            for (Field field : Reflections.getAllFields(system.getClass(), Reflections.withAnnotation(In.class))) {
+            for (Field field : getInjectedFields(system.getClass(), indexedSystems, indexedFields)) {
                 Object value = CoreRegistry.get(field.getType());
                 if (value != null) {
                     try {
@@ -106,6 +134,21 @@ public class ComponentSystemManager {
         }
     }
 
+    /**
+     * Systems found through the mod reflections have their @In fields in the same index, so only systems registered
+     * by hand need their fields reflected over.
+     */
+    static Collection<Field> getInjectedFields(Class<?> systemClass, Set<Class<?>> indexedSystems, SetMultimap<Class<?>, Field> indexedFields) {
+        if (!indexedSystems.contains(systemClass)) {
+            return Reflections.getAllFields(systemClass, Reflections.withAnnotation(In.class));
+        }
+        List<Field> fields = Lists.newArrayList();
+        for (Class<?> type = systemClass; type != null; type = type.getSuperclass()) {
+            fields.addAll(indexedFields.get(type));
+        }
+        return fields;
+    }
+
     // TODO: unregister?
 
     public ComponentSystem get(String name) {
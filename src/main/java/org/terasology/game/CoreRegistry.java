@@ -15,6 +15,7 @@
  */
 package org.terasology.game;
 
+import java.util.Collections;
 import java.util.Map;
 
 import com.google.common.collect.Maps;
@@ -25,7 +26,8 @@ import com.google.common.collect.Maps;
  * @author Immortius <immortius@gmail.com>
  */
 public class CoreRegistry {
-    private static Map<Class<? extends Object>, Object> store = Maps.newHashMap();
+    // Synchronized, as load processes may register systems from worker threads
+    private static Map<Class<? extends Object>, Object> store = Collections.synchronizedMap(Maps.<Class<? extends Object>, Object>newHashMap());
 
     /**
      * Registers a core system
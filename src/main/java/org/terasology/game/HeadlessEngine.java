@@ -0,0 +1,233 @@
+/*
+ * Copyright 2012 Benjamin Glatzel <benjamin.glatzel@me.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.terasology.game;
+
+import java.io.File;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.terasology.asset.AssetManager;
+import org.terasology.asset.AssetSource;
+import org.terasology.asset.AssetType;
+import org.terasology.asset.sources.ClasspathSource;
+import org.terasology.asset.sources.DirectorySource;
+import org.terasology.config.Config;
+import org.terasology.game.modes.GameState;
+import org.terasology.logic.mod.ModManager;
+import org.terasology.performanceMonitor.PerformanceMonitor;
+import org.terasology.physics.CollisionGroupManager;
+
+/**
+ * An engine without display, input or audio. Game states are updated with fixed ticks, as fast as they can be
+ * processed, and never rendered. Meant for running the world simulation on machines without a GPU, such as for soak
+ * tests and benchmarks.
+ * <p/>
+ * The user's config is not loaded, so runs don't depend on the machine they're on.
+ */
+public class HeadlessEngine implements GameEngine {
+
+    private static final Logger logger = LoggerFactory.getLogger(HeadlessEngine.class);
+
+    private static final int MAIN_UPDATE_ACTIVITY = PerformanceMonitor.registerActivity("Main Update");
+
+    private GameState currentState;
+    private boolean initialised;
+    private boolean running;
+    private boolean disposed;
+    private GameState pendingState;
+
+    private final Timer timer;
+    private long ticks;
+    private final ThreadPoolExecutor threadPool = (ThreadPoolExecutor) Executors.newCachedThreadPool();
+
+    /**
+     * @param tickDeltaInMs The game time passing on each tick
+     */
+    public HeadlessEngine(long tickDeltaInMs) {
+        timer = new Timer(tickDeltaInMs);
+    }
+
+    @Override
+    public void init() {
+        if (initialised) {
+            return;
+        }
+        logger.info("Initializing headless Terasology...");
+
+        Config config = new Config();
+        config.getDefaultModConfig().addMod("core");
+        CoreRegistry.put(Config.class, config);
+
+        CoreRegistry.put(CollisionGroupManager.class, new CollisionGroupManager());
+        CoreRegistry.put(ModManager.class, new ModManager());
+        CoreRegistry.put(ComponentSystemManager.class, new ComponentSystemManager());
+        AssetType.registerAssetTypes();
+        AssetManager.getInstance().addAssetSource(createEngineAssetSource());
+
+        CoreRegistry.put(Timer.class, timer);
+        CoreRegistry.put(GameEngine.class, this);
+        initialised = true;
+    }
+
+    /**
+     * @return The source of the engine assets. When run from the build output rather than the jar, the assets are on the
+     *         classpath, but not next to the classes.
+     */
+    private AssetSource createEngineAssetSource() {
+        URL assetsUrl = getClass().getResource("/" + ModManager.ASSETS_SUBDIRECTORY);
+        if (assetsUrl != null && "file".equals(assetsUrl.getProtocol())) {
+            try {
+                return new DirectorySource(ModManager.ENGINE_PACKAGE, new File(assetsUrl.toURI()));
+            } catch (URISyntaxException e) {
+                logger.warn("Failed to locate engine assets at {}", assetsUrl, e);
+            }
+        }
+        return new ClasspathSource(ModManager.ENGINE_PACKAGE, getClass().getProtectionDomain().getCodeSource(), ModManager.ASSETS_SUBDIRECTORY);
+    }
+
+    @Override
+    public void run(GameState initialState) {
+        if (!initialised) {
+            init();
+        }
+        changeState(initialState);
+        running = true;
+
+        mainLoop();
+
+        cleanup();
+    }
+
+    @Override
+    public void shutdown() {
+        running = false;
+    }
+
+    @Override
+    public void dispose() {
+        if (!running) {
+            disposed = true;
+            initialised = false;
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public boolean isDisposed() {
+        return disposed;
+    }
+
+    @Override
+    public void changeState(GameState newState) {
+        if (running) {
+            pendingState = newState;
+        } else {
+            switchState(newState);
+        }
+    }
+
+    @Override
+    public void submitTask(final String name, final Runnable task) {
+        try {
+            threadPool.execute(new Runnable() {
+                @Override
+                public void run() {
+                    Thread.currentThread().setPriority(Thread.MIN_PRIORITY);
+                    PerformanceMonitor.startThread(name);
+                    try {
+                        task.run();
+                    } finally {
+                        PerformanceMonitor.endThread(name);
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            logger.error("Thread submitted after shutdown requested: {}", name);
+        }
+    }
+
+    @Override
+    public int getActiveTaskCount() {
+        return threadPool.getActiveCount();
+    }
+
+    /**
+     * @return The number of ticks run so far
+     */
+    public long getTickCount() {
+        return ticks;
+    }
+
+    private void cleanup() {
+        logger.info("Shutting down headless Terasology after {} ticks...", ticks);
+        if (currentState != null) {
+            currentState.dispose();
+            currentState = null;
+        }
+        threadPool.shutdown();
+        try {
+            threadPool.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            logger.error("Error terminating thread pool.", e);
+        }
+    }
+
+    private void mainLoop() {
+        while (running) {
+            processStateChanges();
+            if (currentState == null) {
+                shutdown();
+                break;
+            }
+
+            timer.tick();
+
+            PerformanceMonitor.startActivity(MAIN_UPDATE_ACTIVITY);
+            currentState.update(timer.getDelta());
+            PerformanceMonitor.endActivity();
+
+            ticks++;
+            PerformanceMonitor.rollCycle();
+        }
+        running = false;
+    }
+
+    private void processStateChanges() {
+        if (pendingState != null) {
+            switchState(pendingState);
+            pendingState = null;
+        }
+    }
+
+    private void switchState(GameState newState) {
+        if (currentState != null) {
+            currentState.dispose();
+        }
+        currentState = newState;
+        newState.init(this);
+    }
+}
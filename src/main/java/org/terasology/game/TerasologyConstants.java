@@ -21,6 +21,7 @@ package org.terasology.game;
  */
 public final class TerasologyConstants {
     public static final String ENTITY_DATA_FILE = "entity.dat";
+    public static final String ENTITY_STREAM_FILE = "entities.dat";
 
     private TerasologyConstants() {}
 }
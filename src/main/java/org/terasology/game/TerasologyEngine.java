@@ -77,6 +77,12 @@ public class TerasologyEngine implements GameEngine {
 
     private static final Logger logger = LoggerFactory.getLogger(TerasologyEngine.class);
 
+    private static final int OTHER_ACTIVITY = PerformanceMonitor.registerActivity("Other");
+    private static final int MAIN_UPDATE_ACTIVITY = PerformanceMonitor.registerActivity("Main Update");
+    private static final int RENDER_ACTIVITY = PerformanceMonitor.registerActivity("Render");
+    private static final int INPUT_ACTIVITY = PerformanceMonitor.registerActivity("Input");
+    private static final int AUDIO_ACTIVITY = PerformanceMonitor.registerActivity("Audio");
+
     private GameState currentState;
     private boolean initialised;
     private boolean running;
@@ -456,7 +462,7 @@ public class TerasologyEngine implements GameEngine {
     }
 
     private void mainLoop() {
-        PerformanceMonitor.startActivity("Other");
+        PerformanceMonitor.startActivity(OTHER_ACTIVITY);
         // MAIN GAME LOOP
         while (running && !Display.isCloseRequested()) {
 
@@ -481,27 +487,28 @@ public class TerasologyEngine implements GameEngine {
             }
 
             timer.tick();
+            PerformanceMonitor.endActivity();
 
-            PerformanceMonitor.startActivity("Main Update");
+            PerformanceMonitor.startActivity(MAIN_UPDATE_ACTIVITY);
             currentState.update(timer.getDelta());
             PerformanceMonitor.endActivity();
 
-            PerformanceMonitor.startActivity("Render");
+            PerformanceMonitor.startActivity(RENDER_ACTIVITY);
             currentState.render();
             Display.update();
             Display.sync(60);
             PerformanceMonitor.endActivity();
 
-            PerformanceMonitor.startActivity("Input");
+            PerformanceMonitor.startActivity(INPUT_ACTIVITY);
             currentState.handleInput(timer.getDelta());
             PerformanceMonitor.endActivity();
 
-            PerformanceMonitor.startActivity("Audio");
+            PerformanceMonitor.startActivity(AUDIO_ACTIVITY);
             AudioManager.getInstance().update();
             PerformanceMonitor.endActivity();
 
             PerformanceMonitor.rollCycle();
-            PerformanceMonitor.startActivity("Other");
+            PerformanceMonitor.startActivity(OTHER_ACTIVITY);
 
             if (Display.wasResized()) {
                 resizeViewport();
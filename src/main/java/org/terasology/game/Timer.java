@@ -20,14 +20,33 @@ import org.lwjgl.Sys;
 public final class Timer {
     private final float decayRate = 0.95f;
     private final float oneMinusDecayRate = 1.0f - decayRate;
+    private final long fixedDelta;
+    private long fixedTime = 0;
     private long last = 0;
     private long delta = 0;
     private float avgDelta = 0;
 
     public Timer() {
+        this.fixedDelta = 0;
+    }
+
+    /**
+     * Creates a timer which advances by a fixed step on each tick, regardless of how much time has actually passed.
+     * The time starts at 0 and is only advanced by ticking, so runs using it are reproducible.
+     *
+     * @param fixedDeltaInMs The time passing on each tick
+     */
+    public Timer(long fixedDeltaInMs) {
+        if (fixedDeltaInMs <= 0) {
+            throw new IllegalArgumentException("Fixed delta must be positive");
+        }
+        this.fixedDelta = fixedDeltaInMs;
     }
 
     public void tick() {
+        if (fixedDelta > 0) {
+            fixedTime += fixedDelta;
+        }
         long now = getTimeInMs();
         delta = now - last;
         last = now;
@@ -47,6 +66,9 @@ public final class Timer {
     }
 
     public long getTimeInMs() {
+        if (fixedDelta > 0) {
+            return fixedTime;
+        }
         return (Sys.getTime() * 1000) / Sys.getTimerResolution();
     }
 }
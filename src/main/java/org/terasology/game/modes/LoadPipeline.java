@@ -0,0 +1,322 @@
+/*
+ * Copyright 2012 Benjamin Glatzel <benjamin.glatzel@me.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terasology.game.modes;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Runs load processes in dependency order, as declared with {@link LoadProcessInfo}.
+ * <p/>
+ * Processes which require the GL thread are stepped on the main thread, within a time budget per frame, so the loading
+ * screen keeps rendering. Only one of them is in progress at a time, the first one in insertion order whose
+ * dependencies have finished. All other processes are run on a small worker pool as soon as their dependencies have
+ * finished.
+ * <p/>
+ * The time spent in each process is recorded, see {@link #writeProfile(File)}.
+ */
+final class LoadPipeline {
+    private static final Logger logger = LoggerFactory.getLogger(LoadPipeline.class);
+
+    private static final int MAX_WORKERS = 2;
+
+    private final List<Entry> entries = Lists.newArrayList();
+    private final ExecutorService workers;
+    private long startTime = -1;
+    private long endTime;
+    private Entry current;
+
+    LoadPipeline() {
+        int workerCount = Math.max(1, Math.min(MAX_WORKERS, Runtime.getRuntime().availableProcessors() - 1));
+        workers = Executors.newFixedThreadPool(workerCount, new ThreadFactoryBuilder().setNameFormat("Loader-%d").setDaemon(true).build());
+    }
+
+    /**
+     * Adds a process. Dependencies are resolved against the processes added so far.
+     *
+     * @throws IllegalArgumentException If a declared dependency has not been added yet
+     */
+    void add(LoadProcess process) {
+        Entry entry = new Entry(process);
+        LoadProcessInfo info = process.getClass().getAnnotation(LoadProcessInfo.class);
+        if (info == null) {
+            entry.dependencies.addAll(entries);
+        } else {
+            entry.glThread = info.requiresGLThread();
+            for (Class<? extends LoadProcess> dependency : info.dependsOn()) {
+                Entry dependencyEntry = find(dependency);
+                if (dependencyEntry == null) {
+                    throw new IllegalArgumentException(process.getClass().getSimpleName() + " depends on " + dependency.getSimpleName() + ", which has not been added");
+                }
+                entry.dependencies.add(dependencyEntry);
+            }
+        }
+        entries.add(entry);
+    }
+
+    private Entry find(Class<? extends LoadProcess> processClass) {
+        for (Entry entry : entries) {
+            if (processClass.isInstance(entry.process)) {
+                return entry;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Starts the processes which have become ready and steps the GL thread processes until the time budget is used up,
+     * or none of them is ready. Must be called from the main thread.
+     *
+     * @throws RuntimeException If a process failed on a worker thread
+     */
+    void update(long budgetMillis) {
+        long now = System.nanoTime();
+        if (startTime < 0) {
+            startTime = now;
+        }
+        long deadline = now + TimeUnit.MILLISECONDS.toNanos(budgetMillis);
+
+        collectWorkers();
+        startWorkers();
+        while (System.nanoTime() < deadline) {
+            if (current == null) {
+                current = beginNextGLProcess();
+                if (current == null) {
+                    break;
+                }
+                continue;
+            }
+            long stepStart = System.nanoTime();
+            boolean done = current.process.step();
+            current.busyTime += System.nanoTime() - stepStart;
+            if (done) {
+                finish(current);
+                current = null;
+                startWorkers();
+            } else {
+                current.completedSteps.incrementAndGet();
+            }
+        }
+        if (endTime == 0 && isFinished()) {
+            endTime = System.nanoTime();
+        }
+    }
+
+    private Entry beginNextGLProcess() {
+        for (Entry entry : entries) {
+            if (entry.glThread && entry.state == State.WAITING && entry.isReady()) {
+                logger.debug(entry.process.getMessage());
+                entry.start(Thread.currentThread().getName());
+                long beginStart = System.nanoTime();
+                entry.expectedSteps = entry.process.begin();
+                entry.busyTime += System.nanoTime() - beginStart;
+                if (entry.expectedSteps == 0) {
+                    finish(entry);
+                    startWorkers();
+                    continue;
+                }
+                return entry;
+            }
+        }
+        return null;
+    }
+
+    private void startWorkers() {
+        for (final Entry entry : entries) {
+            if (!entry.glThread && entry.state == State.WAITING && entry.isReady()) {
+                logger.debug(entry.process.getMessage());
+                entry.start(null);
+                entry.future = workers.submit(new Runnable() {
+                    @Override
+                    public void run() {
+                        entry.threadName = Thread.currentThread().getName();
+                        entry.expectedSteps = entry.process.begin();
+                        if (entry.expectedSteps != 0) {
+                            while (!entry.process.step()) {
+                                entry.completedSteps.incrementAndGet();
+                            }
+                        }
+                        entry.busyTime = System.nanoTime() - entry.startTime;
+                    }
+                });
+            }
+        }
+    }
+
+    private void collectWorkers() {
+        boolean finishedAny = false;
+        for (Entry entry : entries) {
+            if (!entry.glThread && entry.state == State.RUNNING && entry.future.isDone()) {
+                try {
+                    entry.future.get();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                } catch (ExecutionException e) {
+                    throw new RuntimeException("Load process failed: " + entry.process.getMessage(), e.getCause());
+                }
+                finish(entry);
+                finishedAny = true;
+            }
+        }
+        if (finishedAny) {
+            startWorkers();
+        }
+    }
+
+    private void finish(Entry entry) {
+        entry.endTime = System.nanoTime();
+        entry.state = State.FINISHED;
+    }
+
+    boolean isFinished() {
+        for (Entry entry : entries) {
+            if (entry.state != State.FINISHED) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return The message of the process in progress on the main thread, or else of a process running on a worker
+     */
+    String getMessage() {
+        Entry entry = getDisplayedEntry();
+        return (entry != null) ? entry.process.getMessage() : "";
+    }
+
+    /**
+     * @return The progress of the process described by {@link #getMessage()}, in percent
+     */
+    float getProgress() {
+        Entry entry = getDisplayedEntry();
+        if (entry == null || entry.expectedSteps <= 0) {
+            return 0;
+        }
+        return Math.min(100f, 100f * entry.completedSteps.get() / entry.expectedSteps);
+    }
+
+    private Entry getDisplayedEntry() {
+        if (current != null) {
+            return current;
+        }
+        for (Entry entry : entries) {
+            if (entry.state == State.RUNNING) {
+                return entry;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Writes the start and duration of each finished process. For processes on the main thread the busy time excludes
+     * the frames rendered in between its steps.
+     */
+    void writeProfile(File file) {
+        PrintWriter writer = null;
+        try {
+            writer = new PrintWriter(new BufferedWriter(new FileWriter(file)));
+            writer.println(String.format("%-40s %-12s %10s %10s %10s %8s", "Process", "Thread", "Start ms", "Wall ms", "Busy ms", "Steps"));
+            for (Entry entry : entries) {
+                if (entry.state == State.FINISHED) {
+                    writer.println(String.format("%-40s %-12s %10.1f %10.1f %10.1f %8d", entry.process.getClass().getSimpleName(), entry.threadName,
+                            millis(entry.startTime - startTime), millis(entry.endTime - entry.startTime), millis(entry.busyTime), entry.completedSteps.get()));
+                }
+            }
+            writer.println(String.format("%-40s %-12s %10.1f %10.1f", "Total", "", 0f, millis(getTotalTime())));
+        } catch (IOException e) {
+            logger.warn("Failed to write startup profile {}", file, e);
+        } finally {
+            if (writer != null) {
+                writer.close();
+            }
+        }
+    }
+
+    /**
+     * @return The time from the first update until all processes had finished, in nanoseconds
+     */
+    long getTotalTime() {
+        return (endTime == 0) ? System.nanoTime() - startTime : endTime - startTime;
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1000000.0;
+    }
+
+    void dispose() {
+        workers.shutdownNow();
+    }
+
+    private static enum State {
+        WAITING,
+        RUNNING,
+        FINISHED
+    }
+
+    private static final class Entry {
+        private final LoadProcess process;
+        private final List<Entry> dependencies = Lists.newArrayList();
+        private boolean glThread = true;
+        private State state = State.WAITING;
+        private Future<?> future;
+
+        // Written by the thread running the process
+        private volatile String threadName;
+        private volatile int expectedSteps;
+        private volatile long busyTime;
+        private final AtomicInteger completedSteps = new AtomicInteger();
+
+        private long startTime;
+        private long endTime;
+
+        private Entry(LoadProcess process) {
+            this.process = process;
+        }
+
+        private boolean isReady() {
+            for (Entry dependency : dependencies) {
+                if (dependency.state != State.FINISHED) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private void start(String thread) {
+            state = State.RUNNING;
+            startTime = System.nanoTime();
+            threadName = thread;
+        }
+    }
+}
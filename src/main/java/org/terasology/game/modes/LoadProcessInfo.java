@@ -0,0 +1,41 @@
+/*
+ * Copyright 2012 Benjamin Glatzel <benjamin.glatzel@me.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terasology.game.modes;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Declares when and where a {@link LoadProcess} can run. A load process without this annotation waits for all load
+ * processes added before it, and runs on the main thread.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface LoadProcessInfo {
+
+    /**
+     * @return The load processes which must have finished before this one begins. They have to be added before it.
+     */
+    Class<? extends LoadProcess>[] dependsOn() default {};
+
+    /**
+     * @return Whether the process needs the main thread, which owns the OpenGL context. Other processes run on a worker
+     *         thread from begin to their last step.
+     */
+    boolean requiresGLThread() default true;
+}
@@ -0,0 +1,208 @@
+/*
+ * Copyright 2012 Benjamin Glatzel <benjamin.glatzel@me.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terasology.game.modes;
+
+import java.util.Arrays;
+
+import javax.vecmath.Vector3f;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.terasology.componentSystem.UpdateSubscriberSystem;
+import org.terasology.components.world.LocationComponent;
+import org.terasology.components.world.WorldComponent;
+import org.terasology.entitySystem.ComponentSystem;
+import org.terasology.entitySystem.EntityManager;
+import org.terasology.entitySystem.EntityRef;
+import org.terasology.entitySystem.EventSystem;
+import org.terasology.game.ComponentSystemManager;
+import org.terasology.game.CoreRegistry;
+import org.terasology.game.GameEngine;
+import org.terasology.game.modes.loadProcesses.InitialiseEntitySystem;
+import org.terasology.game.modes.loadProcesses.InitialiseSystems;
+import org.terasology.game.modes.loadProcesses.RegisterBlocks;
+import org.terasology.game.modes.loadProcesses.RegisterMods;
+import org.terasology.game.modes.loadProcesses.RegisterSystems;
+import org.terasology.game.modes.loadProcesses.ScanMods;
+import org.terasology.logic.LocalPlayer;
+import org.terasology.performanceMonitor.PerformanceMonitor;
+import org.terasology.physics.BulletPhysics;
+import org.terasology.physics.character.CharacterMovementComponent;
+import org.terasology.utilities.FastRandom;
+import org.terasology.world.BlockEntityRegistry;
+import org.terasology.world.EntityAwareWorldProvider;
+import org.terasology.world.WorldInfo;
+import org.terasology.world.WorldProvider;
+import org.terasology.world.WorldProviderCoreImpl;
+import org.terasology.world.WorldProviderWrapper;
+import org.terasology.world.chunks.Chunk;
+import org.terasology.world.chunks.ChunkProvider;
+import org.terasology.world.chunks.LocalChunkProvider;
+import org.terasology.world.chunks.store.NullChunkStore;
+import org.terasology.world.generator.core.ChunkGeneratorManager;
+import org.terasology.world.generator.core.ChunkGeneratorManagerImpl;
+
+/**
+ * Simulates a new world without display, for use with the {@link org.terasology.game.HeadlessEngine}. Chunks are
+ * generated, lit and simulated, and the entity systems which are not headed only are updated, the same as in
+ * {@link StateSinglePlayer}.
+ * <p/>
+ * Nothing is loaded from or saved to disk: prefabs are not loaded as they may reference meshes and materials, which
+ * need a GL context, and unloaded chunks are discarded. The player is a ghosting character without input, moved by
+ * setting the drive of its {@link CharacterMovementComponent}.
+ */
+public class StateHeadless implements GameState {
+
+    private static final Logger logger = LoggerFactory.getLogger(StateHeadless.class);
+
+    private static final int UPDATE_CHUNK_CACHE_ACTIVITY = PerformanceMonitor.registerActivity("Update Chunk Cache");
+    private static final int PHYSICS_ACTIVITY = PerformanceMonitor.registerActivity("Physics");
+
+    private final WorldInfo worldInfo;
+    private final int viewingDistance;
+
+    private ComponentSystemManager componentSystemManager;
+    private EventSystem eventSystem;
+    private EntityManager entityManager;
+    private ChunkProvider chunkProvider;
+    private WorldProvider worldProvider;
+    private BulletPhysics bulletPhysics;
+    private EntityRef player = EntityRef.NULL;
+
+    /**
+     * @param worldInfo       The world to create
+     * @param viewingDistance The width of the area kept loaded around the player, in chunks
+     */
+    public StateHeadless(WorldInfo worldInfo, int viewingDistance) {
+        this.worldInfo = worldInfo;
+        this.viewingDistance = viewingDistance;
+    }
+
+    @Override
+    public void init(GameEngine engine) {
+        long start = System.nanoTime();
+        load(new RegisterMods(worldInfo));
+        load(new ScanMods());
+        load(new RegisterBlocks(worldInfo, true));
+        load(new InitialiseEntitySystem());
+        load(new RegisterSystems(true));
+
+        componentSystemManager = CoreRegistry.get(ComponentSystemManager.class);
+        eventSystem = CoreRegistry.get(EventSystem.class);
+        entityManager = CoreRegistry.get(EntityManager.class);
+        initWorld();
+
+        load(new InitialiseSystems());
+        initPlayer();
+        logger.info("Loading finished in {}ms", (System.nanoTime() - start) / 1000000);
+    }
+
+    private void load(LoadProcess process) {
+        logger.debug(process.getMessage());
+        boolean done = process.begin() == 0;
+        while (!done) {
+            done = process.step();
+        }
+    }
+
+    private void initWorld() {
+        if (worldInfo.getSeed() == null || worldInfo.getSeed().isEmpty()) {
+            worldInfo.setSeed(new FastRandom().randomCharacterString(16));
+        }
+        logger.info("World seed: \"{}\"", worldInfo.getSeed());
+
+        ChunkGeneratorManager chunkGeneratorManager = ChunkGeneratorManagerImpl.buildChunkGenerator(Arrays.asList(worldInfo.getChunkGenerators()));
+        chunkGeneratorManager.setWorldSeed(worldInfo.getSeed());
+
+        chunkProvider = new LocalChunkProvider(new NullChunkStore(), chunkGeneratorManager);
+        EntityAwareWorldProvider entityWorldProvider = new EntityAwareWorldProvider(new WorldProviderCoreImpl(worldInfo, chunkProvider));
+        chunkGeneratorManager.setWorldBiomeProvider(entityWorldProvider.getBiomeProvider());
+        CoreRegistry.put(BlockEntityRegistry.class, entityWorldProvider);
+        componentSystemManager.register(entityWorldProvider, "engine:BlockEntityRegistry");
+        worldProvider = new WorldProviderWrapper(entityWorldProvider);
+        CoreRegistry.put(WorldProvider.class, worldProvider);
+        worldProvider.setTime(worldInfo.getTime());
+
+        bulletPhysics = new BulletPhysics(worldProvider);
+        CoreRegistry.put(BulletPhysics.class, bulletPhysics);
+        CoreRegistry.put(LocalPlayer.class, new LocalPlayer(EntityRef.NULL));
+
+        EntityRef worldEntity = entityManager.create();
+        worldEntity.addComponent(new WorldComponent());
+        chunkProvider.setWorldEntity(worldEntity);
+    }
+
+    private void initPlayer() {
+        player = entityManager.create();
+        player.addComponent(new LocationComponent(new Vector3f(Chunk.SIZE_X / 2, Chunk.SIZE_Y / 2, Chunk.SIZE_Z / 2)));
+        CharacterMovementComponent movement = new CharacterMovementComponent();
+        movement.isGhosting = true;
+        player.addComponent(movement);
+        CoreRegistry.get(LocalPlayer.class).setEntity(player);
+        chunkProvider.addRegionEntity(player, viewingDistance);
+    }
+
+    @Override
+    public void dispose() {
+        eventSystem.process();
+        for (ComponentSystem system : componentSystemManager.iterateAll()) {
+            system.shutdown();
+        }
+        componentSystemManager.clear();
+        eventSystem.dispose();
+        entityManager.clear();
+        worldProvider.dispose();
+    }
+
+    @Override
+    public void handleInput(float delta) {
+    }
+
+    @Override
+    public void update(float delta) {
+        eventSystem.process();
+
+        for (UpdateSubscriberSystem updater : componentSystemManager.iterateUpdateSubscribers()) {
+            PerformanceMonitor.startActivity(updater.getClass().getSimpleName());
+            updater.update(delta);
+            PerformanceMonitor.endActivity();
+        }
+
+        PerformanceMonitor.startActivity(UPDATE_CHUNK_CACHE_ACTIVITY);
+        chunkProvider.update();
+        PerformanceMonitor.endActivity();
+
+        PerformanceMonitor.startActivity(PHYSICS_ACTIVITY);
+        bulletPhysics.update(delta);
+        PerformanceMonitor.endActivity();
+    }
+
+    @Override
+    public void render() {
+    }
+
+    public EntityRef getPlayer() {
+        return player;
+    }
+
+    public ChunkProvider getChunkProvider() {
+        return chunkProvider;
+    }
+
+    public WorldProvider getWorldProvider() {
+        return worldProvider;
+    }
+}
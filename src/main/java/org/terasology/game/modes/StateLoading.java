@@ -16,8 +16,6 @@
 
 package org.terasology.game.modes;
 
-import com.google.common.collect.Queues;
-import org.lwjgl.Sys;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.terasology.game.CoreRegistry;
@@ -31,6 +29,7 @@ import org.terasology.game.modes.loadProcesses.InitialiseSystems;
 import org.terasology.game.modes.loadProcesses.InitialiseWorld;
 import org.terasology.game.modes.loadProcesses.LoadEntities;
 import org.terasology.game.modes.loadProcesses.LoadPrefabs;
+import org.terasology.game.modes.loadProcesses.ParsePrefabs;
 import org.terasology.game.modes.loadProcesses.PrepareLocalWorld;
 import org.terasology.game.modes.loadProcesses.PrepareWorld;
 import org.terasology.game.modes.loadProcesses.RegisterBlocks;
@@ -38,11 +37,13 @@ import org.terasology.game.modes.loadProcesses.RegisterInputSystem;
 import org.terasology.game.modes.loadProcesses.RegisterMods;
 import org.terasology.game.modes.loadProcesses.RegisterSystems;
 import org.terasology.game.modes.loadProcesses.RespawnPlayer;
+import org.terasology.game.modes.loadProcesses.ScanMods;
 import org.terasology.logic.manager.GUIManager;
+import org.terasology.logic.manager.PathManager;
 import org.terasology.rendering.gui.windows.UIScreenLoading;
 import org.terasology.world.WorldInfo;
 
-import java.util.Queue;
+import java.io.File;
 
 /**
  * @author Immortius
@@ -51,11 +52,12 @@ public class StateLoading implements GameState {
 
     private static final Logger logger = LoggerFactory.getLogger(StateLoading.class);
 
+    // Time per frame spent on load processes which run on the main thread
+    private static final long FRAME_BUDGET_MILLIS = 20;
+    private static final String PROFILE_FILE = "startup-profile.txt";
+
     private WorldInfo worldInfo;
-    private Queue<LoadProcess> loadProcesses = Queues.newArrayDeque();
-    private LoadProcess current;
-    private int currentExpectedSteps = 0;
-    private int completedSteps = 0;
+    private LoadPipeline pipeline;
 
     private GUIManager guiManager;
 
@@ -68,42 +70,36 @@ public class StateLoading implements GameState {
 
     @Override
     public void init(GameEngine engine) {
-        loadProcesses.add(new RegisterMods(worldInfo));
-        loadProcesses.add(new CacheTextures());
-        loadProcesses.add(new RegisterBlocks(worldInfo));
-        loadProcesses.add(new CacheBlocks());
-        loadProcesses.add(new InitialiseEntitySystem());
-        loadProcesses.add(new LoadPrefabs());
-        loadProcesses.add(new RegisterInputSystem());
-        loadProcesses.add(new RegisterSystems());
-        loadProcesses.add(new InitialiseCommandSystem());
-        loadProcesses.add(new InitialiseWorld(worldInfo));
-        loadProcesses.add(new InitialiseSystems());
-        loadProcesses.add(new LoadEntities(worldInfo));
-        loadProcesses.add(new CreateWorldEntity());
-        loadProcesses.add(new PrepareLocalWorld());
-        loadProcesses.add(new PrepareWorld());
-        loadProcesses.add(new RespawnPlayer());
-
-        popStep();
+        ParsePrefabs parsePrefabs = new ParsePrefabs();
+
+        pipeline = new LoadPipeline();
+        pipeline.add(new RegisterMods(worldInfo));
+        pipeline.add(new ScanMods());
+        pipeline.add(new CacheTextures());
+        pipeline.add(new RegisterBlocks(worldInfo));
+        pipeline.add(new CacheBlocks());
+        pipeline.add(new InitialiseEntitySystem());
+        pipeline.add(parsePrefabs);
+        pipeline.add(new LoadPrefabs(parsePrefabs));
+        pipeline.add(new RegisterInputSystem());
+        pipeline.add(new RegisterSystems());
+        pipeline.add(new InitialiseCommandSystem());
+        pipeline.add(new InitialiseWorld(worldInfo));
+        pipeline.add(new InitialiseSystems());
+        pipeline.add(new LoadEntities(worldInfo));
+        pipeline.add(new CreateWorldEntity());
+        pipeline.add(new PrepareLocalWorld());
+        pipeline.add(new PrepareWorld());
+        pipeline.add(new RespawnPlayer());
+
         GUIManager guiManager = CoreRegistry.get(GUIManager.class);
         loadingScreen = (UIScreenLoading) guiManager.openWindow("loading");
-        loadingScreen.updateStatus(current.getMessage(), completedSteps / (currentExpectedSteps * 100f));
-    }
-
-    private void popStep() {
-        current = null;
-        currentExpectedSteps = 0;
-        while (currentExpectedSteps == 0 && !loadProcesses.isEmpty()) {
-            current = loadProcesses.remove();
-            logger.debug(current.getMessage());
-            currentExpectedSteps = current.begin();
-        }
-        completedSteps = 0;
+        loadingScreen.updateStatus(pipeline.getMessage(), 0);
     }
 
     @Override
     public void dispose() {
+        pipeline.dispose();
     }
 
     @Override
@@ -112,24 +108,15 @@ public class StateLoading implements GameState {
 
     @Override
     public void update(float delta) {
-        long startTime = 1000 * Sys.getTime() / Sys.getTimerResolution();
-
-        while (current != null && 1000 * Sys.getTime() / Sys.getTimerResolution() - startTime < 20) {
-            if (current.step()) {
-                popStep();
-            } else {
-                completedSteps++;
-            }
-        }
-        if (current == null) {
+        pipeline.update(FRAME_BUDGET_MILLIS);
+
+        if (pipeline.isFinished()) {
+            logger.info("Loading finished in {}ms", pipeline.getTotalTime() / 1000000);
+            pipeline.writeProfile(new File(PathManager.getInstance().getLogPath(), PROFILE_FILE));
             CoreRegistry.get(GUIManager.class).closeAllWindows();
             CoreRegistry.get(GameEngine.class).changeState(new StateSinglePlayer());
         } else {
-            if (currentExpectedSteps > 0) {
-                loadingScreen.updateStatus(current.getMessage(), 100f * completedSteps / currentExpectedSteps);
-            } else {
-                loadingScreen.updateStatus(current.getMessage(), 0);
-            }
+            loadingScreen.updateStatus(pipeline.getMessage(), pipeline.getProgress());
             guiManager.update();
         }
     }
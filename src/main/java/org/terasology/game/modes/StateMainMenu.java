@@ -110,6 +110,7 @@ public class StateMainMenu implements GameState {
         stopBackgroundMusic();
         guiManager.closeAllWindows();
 
+        eventSystem.dispose();
         entityManager.clear();
     }
 
@@ -19,6 +19,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.terasology.componentSystem.UpdateSubscriberSystem;
 import org.terasology.componentSystem.controllers.MenuControlSystem;
+import org.terasology.config.Config;
 import org.terasology.entitySystem.ComponentSystem;
 import org.terasology.entitySystem.EntityManager;
 import org.terasology.entitySystem.EventSystem;
@@ -36,7 +37,8 @@ import org.terasology.rendering.world.WorldRenderer;
 import org.terasology.world.WorldProvider;
 
 import java.io.File;
-import java.io.IOException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 import static org.lwjgl.opengl.GL11.GL_COLOR_BUFFER_BIT;
 import static org.lwjgl.opengl.GL11.GL_DEPTH_BUFFER_BIT;
@@ -54,6 +56,8 @@ public class StateSinglePlayer implements GameState {
 
     private static final Logger logger = LoggerFactory.getLogger(StateSinglePlayer.class);
 
+    private static final int RENDER_AND_UPDATE_UI_ACTIVITY = PerformanceMonitor.registerActivity("Render and Update UI");
+
     private ComponentSystemManager componentSystemManager;
     private EventSystem eventSystem;
     private GUIManager guiManager;
@@ -90,16 +94,24 @@ public class StateSinglePlayer implements GameState {
         }
         componentSystemManager.clear();
         guiManager.closeAllWindows();
-        try {
-            CoreRegistry.get(WorldPersister.class).save(new File(PathManager.getInstance().getWorldSavePath(CoreRegistry.get(WorldProvider.class).getTitle()), TerasologyConstants.ENTITY_DATA_FILE), WorldPersister.SaveFormat.Binary);
-        } catch (IOException e) {
-            logger.error("Failed to save entities", e);
-        }
+        eventSystem.dispose();
+        // The entities are copied before saving returns, so they can be cleared while the file is written. Delta saves
+        // miss components changed in place without being saved to their entity, so they have to be enabled explicitly.
+        boolean delta = CoreRegistry.get(Config.class).getAdvancedConfig().isDeltaEntitySavesEnabled();
+        Future<?> entitySave = CoreRegistry.get(WorldPersister.class).saveStream(new File(PathManager.getInstance().getWorldSavePath(CoreRegistry.get(WorldProvider.class).getTitle()), TerasologyConstants.ENTITY_STREAM_FILE), delta);
         entityManager.clear();
         if (worldRenderer != null) {
             worldRenderer.dispose();
             worldRenderer = null;
         }
+        try {
+            entitySave.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.error("Interrupted while saving entities", e);
+        } catch (ExecutionException e) {
+            logger.error("Failed to save entities", e.getCause());
+        }
     }
 
     @Override
@@ -112,6 +124,7 @@ public class StateSinglePlayer implements GameState {
         for (UpdateSubscriberSystem updater : componentSystemManager.iterateUpdateSubscribers()) {
             PerformanceMonitor.startActivity(updater.getClass().getSimpleName());
             updater.update(delta);
+            PerformanceMonitor.endActivity();
         }
 
         if (worldRenderer != null && shouldUpdateWorld()) {
@@ -138,7 +151,7 @@ public class StateSinglePlayer implements GameState {
         }
 
         /* UI */
-        PerformanceMonitor.startActivity("Render and Update UI");
+        PerformanceMonitor.startActivity(RENDER_AND_UPDATE_UI_ACTIVITY);
         renderUserInterface();
         PerformanceMonitor.endActivity();
     }
@@ -17,6 +17,7 @@
 package org.terasology.game.modes.loadProcesses;
 
 import org.terasology.game.modes.LoadProcess;
+import org.terasology.game.modes.LoadProcessInfo;
 import org.terasology.world.block.family.BlockFamily;
 import org.terasology.world.block.management.BlockManager;
 
@@ -25,6 +26,7 @@ import java.util.Iterator;
 /**
  * @author Immortius
  */
+@LoadProcessInfo(dependsOn = RegisterBlocks.class)
 public class CacheBlocks implements LoadProcess {
 
     private Iterator<BlockFamily> blockFamilyIterator;
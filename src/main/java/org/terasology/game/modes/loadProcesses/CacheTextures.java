@@ -21,12 +21,14 @@ import org.terasology.asset.AssetType;
 import org.terasology.asset.AssetUri;
 import org.terasology.asset.Assets;
 import org.terasology.game.modes.LoadProcess;
+import org.terasology.game.modes.LoadProcessInfo;
 
 import java.util.Iterator;
 
 /**
  * @author Immortius
  */
+@LoadProcessInfo(dependsOn = RegisterMods.class)
 public class CacheTextures implements LoadProcess {
     private Iterator<AssetUri> uris;
 
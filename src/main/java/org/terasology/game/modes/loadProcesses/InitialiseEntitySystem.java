@@ -19,11 +19,16 @@ package org.terasology.game.modes.loadProcesses;
 import org.terasology.game.CoreRegistry;
 import org.terasology.game.bootstrap.EntitySystemBuilder;
 import org.terasology.game.modes.LoadProcess;
+import org.terasology.game.modes.LoadProcessInfo;
 import org.terasology.logic.mod.ModManager;
 
 /**
+ * Runs on the main thread, as the event system treats the thread it is created on as the one events are dispatched on
+ * directly.
+ *
  * @author Immortius
  */
+@LoadProcessInfo(dependsOn = ScanMods.class)
 public class InitialiseEntitySystem implements LoadProcess {
     @Override
     public String getMessage() {
@@ -28,7 +28,6 @@ import org.terasology.physics.BulletPhysics;
 import org.terasology.rendering.cameras.Camera;
 import org.terasology.rendering.world.WorldRenderer;
 import org.terasology.utilities.FastRandom;
-import org.terasology.world.WorldBiomeProviderImpl;
 import org.terasology.world.WorldInfo;
 import org.terasology.world.WorldProvider;
 import org.terasology.world.generator.core.ChunkGeneratorManager;
@@ -67,7 +66,6 @@ public class InitialiseWorld implements LoadProcess {
         // Init ChunkGeneratorManager
         ChunkGeneratorManager chunkGeneratorManager = ChunkGeneratorManagerImpl.buildChunkGenerator(Arrays.asList(worldInfo.getChunkGenerators()));
         chunkGeneratorManager.setWorldSeed(worldInfo.getSeed());
-        chunkGeneratorManager.setWorldBiomeProvider(new WorldBiomeProviderImpl(worldInfo.getSeed()));
 
         // Init. a new world
         WorldRenderer worldRenderer = new WorldRenderer(worldInfo, chunkGeneratorManager, CoreRegistry.get(EntityManager.class), CoreRegistry.get(LocalPlayerSystem.class));
@@ -36,7 +36,10 @@ public class LoadEntities implements LoadProcess {
 
     private static final Logger logger = LoggerFactory.getLogger(LoadEntities.class);
 
+    private static final int ENTITIES_PER_STEP = 1000;
+
     private WorldInfo worldInfo;
+    private WorldPersister.StreamLoad streamLoad;
 
     public LoadEntities(WorldInfo worldInfo) {
         this.worldInfo = worldInfo;
@@ -49,22 +52,55 @@ public class LoadEntities implements LoadProcess {
 
     @Override
     public boolean step() {
-        CoreRegistry.put(WorldPersister.class, new WorldPersister(CoreRegistry.get(EntityManager.class)));
+        if (streamLoad == null) {
+            return true;
+        }
+        try {
+            if (streamLoad.loadEntities(ENTITIES_PER_STEP)) {
+                streamLoad = null;
+                return true;
+            }
+            return false;
+        } catch (IOException e) {
+            logger.error("Failed to load entity data", e);
+            closeStreamLoad();
+            return true;
+        }
+    }
+
+    @Override
+    public int begin() {
+        WorldPersister worldPersister = new WorldPersister(CoreRegistry.get(EntityManager.class));
+        CoreRegistry.put(WorldPersister.class, worldPersister);
 
         // TODO: Should probably not use the world title as a path?
-        File entityDataFile = new File(PathManager.getInstance().getWorldSavePath(worldInfo.getTitle()), TerasologyConstants.ENTITY_DATA_FILE);
-        if (entityDataFile.exists()) {
+        File worldPath = PathManager.getInstance().getWorldSavePath(worldInfo.getTitle());
+        File entityStreamFile = new File(worldPath, TerasologyConstants.ENTITY_STREAM_FILE);
+        File entityDataFile = new File(worldPath, TerasologyConstants.ENTITY_DATA_FILE);
+        if (entityStreamFile.exists()) {
             try {
-                CoreRegistry.get(WorldPersister.class).load(entityDataFile, WorldPersister.SaveFormat.Binary);
+                streamLoad = worldPersister.beginStreamLoad(entityStreamFile);
+                return 1 + streamLoad.getExpectedEntities() / ENTITIES_PER_STEP;
+            } catch (IOException e) {
+                logger.error("Failed to load entity data", e);
+            }
+        } else if (entityDataFile.exists()) {
+            // Saved before entity streams
+            try {
+                worldPersister.load(entityDataFile, WorldPersister.SaveFormat.Binary);
             } catch (IOException e) {
                 logger.error("Failed to load entity data", e);
             }
         }
-        return true;
+        return 1;
     }
 
-    @Override
-    public int begin() {
-        return 1;
+    private void closeStreamLoad() {
+        try {
+            streamLoad.close();
+        } catch (IOException e) {
+            logger.error("Failed to close file", e);
+        }
+        streamLoad = null;
     }
 }
@@ -16,37 +16,36 @@
 
 package org.terasology.game.modes.loadProcesses;
 
-import com.google.common.collect.Lists;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.terasology.asset.AssetManager;
-import org.terasology.asset.AssetType;
 import org.terasology.asset.AssetUri;
-import org.terasology.asset.Assets;
 import org.terasology.entitySystem.PrefabManager;
 import org.terasology.entitySystem.metadata.ComponentLibrary;
-import org.terasology.entitySystem.persistence.EntityDataJSONFormat;
 import org.terasology.entitySystem.persistence.EntityPersisterHelper;
 import org.terasology.entitySystem.persistence.EntityPersisterHelperImpl;
 import org.terasology.game.CoreRegistry;
 import org.terasology.game.modes.LoadProcess;
+import org.terasology.game.modes.LoadProcessInfo;
 import org.terasology.protobuf.EntityData;
 
-import java.io.BufferedReader;
-import java.io.IOException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.util.Iterator;
+import java.util.Map;
 
 /**
  * @author Immortius
  */
+@LoadProcessInfo(dependsOn = {RegisterBlocks.class, InitialiseEntitySystem.class, ParsePrefabs.class})
 public class LoadPrefabs implements LoadProcess {
     private static final Logger logger = LoggerFactory.getLogger(LoadPrefabs.class);
 
-    private Iterator<AssetUri> prefabs;
+    private final ParsePrefabs parsePrefabs;
+    private Iterator<Map.Entry<AssetUri, EntityData.Prefab>> prefabs;
     private EntityPersisterHelper persisterHelper;
 
+    public LoadPrefabs(ParsePrefabs parsePrefabs) {
+        this.parsePrefabs = parsePrefabs;
+    }
+
     @Override
     public String getMessage() {
         return "Loading Prefabs...";
@@ -54,30 +53,17 @@ public class LoadPrefabs implements LoadProcess {
 
     @Override
     public boolean step() {
-        AssetUri prefabURI = prefabs.next();
-        logger.debug("Loading prefab " + prefabURI);
-        try {
-            InputStream stream = AssetManager.assetStream(prefabURI);
-            if (stream != null) {
-                BufferedReader reader = new BufferedReader(new InputStreamReader(stream));
-                EntityData.Prefab prefabData = EntityDataJSONFormat.readPrefab(reader);
-                stream.close();
-                if (prefabData != null) {
-                    persisterHelper.deserializePrefab(prefabData, prefabURI);
-                }
-            } else {
-                logger.warn("Failed to load prefab '{}'", prefabURI);
-            }
-        } catch (IOException e) {
-            logger.error("Failed to load prefab '{}'", prefabURI, e);
-        }
+        // Deserializing may load assets such as meshes and materials, so this stays on the GL thread
+        Map.Entry<AssetUri, EntityData.Prefab> prefab = prefabs.next();
+        logger.debug("Loading prefab " + prefab.getKey());
+        persisterHelper.deserializePrefab(prefab.getValue(), prefab.getKey());
         return !prefabs.hasNext();
     }
 
     @Override
     public int begin() {
         persisterHelper = new EntityPersisterHelperImpl(CoreRegistry.get(ComponentLibrary.class), CoreRegistry.get(PrefabManager.class));
-        prefabs = Assets.list(AssetType.PREFAB).iterator();
-        return Lists.newArrayList(Assets.list(AssetType.PREFAB)).size();
+        prefabs = parsePrefabs.getPrefabData().entrySet().iterator();
+        return parsePrefabs.getPrefabData().size();
     }
 }
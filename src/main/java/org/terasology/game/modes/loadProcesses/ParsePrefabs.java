@@ -0,0 +1,89 @@
+/*
+ * Copyright 2012 Benjamin Glatzel <benjamin.glatzel@me.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.terasology.game.modes.loadProcesses;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.terasology.asset.AssetManager;
+import org.terasology.asset.AssetType;
+import org.terasology.asset.AssetUri;
+import org.terasology.asset.Assets;
+import org.terasology.entitySystem.persistence.EntityDataJSONFormat;
+import org.terasology.game.modes.LoadProcess;
+import org.terasology.game.modes.LoadProcessInfo;
+import org.terasology.protobuf.EntityData;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Reads the json of all prefabs. This does not need the entity system, so it runs on a worker thread while the
+ * other systems are set up. The prefabs are then created by {@link LoadPrefabs}.
+ */
+@LoadProcessInfo(dependsOn = RegisterMods.class, requiresGLThread = false)
+public class ParsePrefabs implements LoadProcess {
+    private static final Logger logger = LoggerFactory.getLogger(ParsePrefabs.class);
+
+    private Iterator<AssetUri> prefabs;
+    private final Map<AssetUri, EntityData.Prefab> prefabData = Maps.newLinkedHashMap();
+
+    @Override
+    public String getMessage() {
+        return "Reading Prefabs...";
+    }
+
+    @Override
+    public boolean step() {
+        AssetUri prefabURI = prefabs.next();
+        logger.debug("Reading prefab {}", prefabURI);
+        try {
+            InputStream stream = AssetManager.assetStream(prefabURI);
+            if (stream != null) {
+                BufferedReader reader = new BufferedReader(new InputStreamReader(stream));
+                EntityData.Prefab data = EntityDataJSONFormat.readPrefab(reader);
+                stream.close();
+                if (data != null) {
+                    prefabData.put(prefabURI, data);
+                }
+            } else {
+                logger.warn("Failed to load prefab '{}'", prefabURI);
+            }
+        } catch (IOException e) {
+            logger.error("Failed to load prefab '{}'", prefabURI, e);
+        }
+        return !prefabs.hasNext();
+    }
+
+    @Override
+    public int begin() {
+        prefabs = Assets.list(AssetType.PREFAB).iterator();
+        return Lists.newArrayList(Assets.list(AssetType.PREFAB)).size();
+    }
+
+    /**
+     * @return The prefabs read, by uri
+     */
+    public Map<AssetUri, EntityData.Prefab> getPrefabData() {
+        return prefabData;
+    }
+}
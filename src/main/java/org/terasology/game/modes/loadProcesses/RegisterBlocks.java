@@ -17,18 +17,26 @@
 package org.terasology.game.modes.loadProcesses;
 
 import org.terasology.game.modes.LoadProcess;
+import org.terasology.game.modes.LoadProcessInfo;
 import org.terasology.world.WorldInfo;
 import org.terasology.world.block.management.BlockManager;
 
 /**
  * @author Immortius
  */
+@LoadProcessInfo(dependsOn = RegisterMods.class)
 public class RegisterBlocks implements LoadProcess {
 
     private WorldInfo worldInfo;
+    private boolean headless;
 
     public RegisterBlocks(WorldInfo worldInfo) {
+        this(worldInfo, false);
+    }
+
+    public RegisterBlocks(WorldInfo worldInfo, boolean headless) {
         this.worldInfo = worldInfo;
+        this.headless = headless;
     }
 
     @Override
@@ -38,7 +46,7 @@ public class RegisterBlocks implements LoadProcess {
 
     @Override
     public boolean step() {
-        BlockManager.getInstance().load(worldInfo.getBlockIdMap());
+        BlockManager.getInstance().load(worldInfo.getBlockIdMap(), headless);
         return true;
     }
 
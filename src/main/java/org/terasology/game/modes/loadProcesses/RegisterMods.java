@@ -50,7 +50,6 @@ public class RegisterMods implements LoadProcess {
                 mod.setEnabled(true);
             }
         }
-        modManager.applyActiveMods();
         return true;
     }
 
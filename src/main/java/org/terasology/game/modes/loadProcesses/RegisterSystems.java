@@ -26,6 +26,16 @@ import org.terasology.logic.mod.ModManager;
  * @author Immortius
  */
 public class RegisterSystems implements LoadProcess {
+    private boolean headless;
+
+    public RegisterSystems() {
+        this(false);
+    }
+
+    public RegisterSystems(boolean headless) {
+        this.headless = headless;
+    }
+
     @Override
     public String getMessage() {
         return "Registering systems...";
@@ -36,10 +46,10 @@ public class RegisterSystems implements LoadProcess {
         ComponentSystemManager componentSystemManager = CoreRegistry.get(ComponentSystemManager.class);
         ModManager modManager = CoreRegistry.get(ModManager.class);
 
-        componentSystemManager.loadSystems(ModManager.ENGINE_PACKAGE, modManager.getEngineReflections());
+        componentSystemManager.loadSystems(ModManager.ENGINE_PACKAGE, modManager.getEngineReflections(), headless);
         for (Mod mod : modManager.getActiveMods()) {
             if (mod.isCodeMod()) {
-                componentSystemManager.loadSystems(mod.getModInfo().getId(), mod.getReflections());
+                componentSystemManager.loadSystems(mod.getModInfo().getId(), mod.getReflections(), headless);
             }
         }
         return true;
@@ -0,0 +1,46 @@
+/*
+ * Copyright 2012 Benjamin Glatzel <benjamin.glatzel@me.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.terasology.game.modes.loadProcesses;
+
+import org.terasology.game.CoreRegistry;
+import org.terasology.game.modes.LoadProcess;
+import org.terasology.game.modes.LoadProcessInfo;
+import org.terasology.logic.mod.ModManager;
+
+/**
+ * Sets up the class loader of the mods enabled by {@link RegisterMods} and scans their code. Scanning only needs the
+ * mod classpath, so it runs on a worker thread while textures and blocks are loaded.
+ */
+@LoadProcessInfo(dependsOn = RegisterMods.class, requiresGLThread = false)
+public class ScanMods implements LoadProcess {
+
+    @Override
+    public String getMessage() {
+        return "Scanning Mods...";
+    }
+
+    @Override
+    public boolean step() {
+        CoreRegistry.get(ModManager.class).applyActiveMods();
+        return true;
+    }
+
+    @Override
+    public int begin() {
+        return 1;
+    }
+}
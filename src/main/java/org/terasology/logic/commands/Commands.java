@@ -42,6 +42,7 @@ import org.terasology.logic.manager.CommandManager.CommandInfo;
 import org.terasology.logic.manager.MessageManager;
 import org.terasology.logic.manager.MessageManager.EMessageScope;
 import org.terasology.logic.manager.PathManager;
+import org.terasology.performanceMonitor.PerformanceMonitor;
 import org.terasology.physics.character.CharacterMovementComponent;
 import org.terasology.rendering.cameras.Camera;
 import org.terasology.rendering.logic.MeshComponent;
@@ -533,6 +534,15 @@ public class Commands implements CommandProvider {
         CoreRegistry.get(WorldPersister.class).save(new File(PathManager.getInstance().getDataPath(), "entityDump.txt"), WorldPersister.SaveFormat.JSON);
     }
 
+    @Command(shortDescription = "Writes out the recent activities of all threads to a trace file",
+            helpText = "Writes the activities recorded by the performance monitor into a file named \"trace.json\", " +
+                    "which can be opened in chrome://tracing. The performance monitor must be enabled in the metrics screen.")
+    public void dumpTrace() throws IOException {
+        File file = new File(PathManager.getInstance().getDataPath(), "trace.json");
+        PerformanceMonitor.writeTrace(file);
+        MessageManager.getInstance().addMessage("Trace written to " + file.getAbsolutePath(), EMessageScope.PRIVATE);
+    }
+
     @Command(shortDescription = "Maps a key to a function")
     public void bindKey(@CommandParam(name = "key") String key, @CommandParam(name = "function") String bind) {
         InputSystem input = CoreRegistry.get(InputSystem.class);
@@ -28,6 +28,7 @@ public final class PathManager {
     private static final String LOG_DIR = "logs";
     private static final String MOD_DIR = "mods";
     private static final String SCREENS_DIR = "screens";
+    private static final String CACHE_DIR = "cache";
 
     private static PathManager instance;
     private File rootPath;
@@ -35,6 +36,7 @@ public final class PathManager {
     private File logPath;
     private File modPath;
     private File screenPath;
+    private File cachePath;
 
     private PathManager() {
         determineRootPath(false);
@@ -95,6 +97,10 @@ public final class PathManager {
         return screenPath;
     }
 
+    public File getCachePath() {
+        return cachePath;
+    }
+
 
     private void updateDirs() {
         rootPath.mkdirs();
@@ -106,5 +112,7 @@ public final class PathManager {
         modPath.mkdirs();
         screenPath = new File(rootPath, SCREENS_DIR);
         screenPath.mkdirs();
+        cachePath = new File(rootPath, CACHE_DIR);
+        cachePath.mkdirs();
     }
 }
@@ -19,12 +19,9 @@ package org.terasology.logic.mod;
 import java.io.File;
 import java.net.MalformedURLException;
 import java.net.URL;
-import java.net.URLClassLoader;
+import java.util.Collections;
 
 import org.reflections.Reflections;
-import org.reflections.scanners.SubTypesScanner;
-import org.reflections.scanners.TypeAnnotationsScanner;
-import org.reflections.util.ConfigurationBuilder;
 import org.terasology.asset.AssetManager;
 import org.terasology.asset.AssetSource;
 
@@ -87,13 +84,8 @@ public class Mod {
         if (reflections == null) {
             URL url = getModClasspathUrl();
             if (url != null) {
-                ConfigurationBuilder configurationBuilder = new ConfigurationBuilder().addUrls(url).setScanners(new TypeAnnotationsScanner(), new SubTypesScanner());
-                if (activeClassLoader != null) {
-                    configurationBuilder.addClassLoader(activeClassLoader);
-                } else {
-                    configurationBuilder.addClassLoader(inactiveClassLoader);
-                }
-                reflections = new Reflections(configurationBuilder);
+                ClassLoader classLoader = (activeClassLoader != null) ? activeClassLoader : inactiveClassLoader;
+                reflections = ReflectionsIndex.forRoots(Collections.singleton(url), classLoader);
             }
         }
         return reflections;
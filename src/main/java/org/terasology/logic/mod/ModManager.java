@@ -21,8 +21,6 @@ import com.google.common.collect.Maps;
 import com.google.gson.Gson;
 import com.google.gson.JsonIOException;
 import org.reflections.Reflections;
-import org.reflections.scanners.SubTypesScanner;
-import org.reflections.scanners.TypeAnnotationsScanner;
 import org.reflections.util.ClasspathHelper;
 import org.reflections.util.ConfigurationBuilder;
 import org.slf4j.Logger;
@@ -70,11 +68,7 @@ public class ModManager {
     private Reflections activeModReflections;
 
     public ModManager() {
-        engineReflections = new Reflections(
-                new ConfigurationBuilder()
-                        .addClassLoader(getClass().getClassLoader())
-                        .addUrls(ClasspathHelper.forPackage("org.terasology", getClass().getClassLoader()))
-                        .setScanners(new TypeAnnotationsScanner(), new SubTypesScanner()));
+        engineReflections = ReflectionsIndex.forRoots(ClasspathHelper.forPackage("org.terasology", getClass().getClassLoader()), getClass().getClassLoader());
         refresh();
     }
 
@@ -98,15 +92,8 @@ public class ModManager {
      */
     public Reflections getAllReflections() {
         if (allReflections == null) {
-            List<URL> urls = Lists.newArrayList();
-            for (Mod mod : getMods()) {
-                if (mod.isCodeMod()) {
-                    urls.add(mod.getModClasspathUrl());
-                }
-            }
+            // Everything is merged in from the engine and mod reflections, so nothing needs to be scanned here
             allReflections = new Reflections(new ConfigurationBuilder()
-                    .addUrls(urls)
-                    .addUrls(ClasspathHelper.forPackage("org.terasology", getClass().getClassLoader()))
                     .addClassLoader(allModClassLoader)
                     .addClassLoader(getClass().getClassLoader()));
             allReflections.merge(getEngineReflections());
@@ -0,0 +1,181 @@
+/*
+ * Copyright 2012 Benjamin Glatzel <benjamin.glatzel@me.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terasology.logic.mod;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.util.Collection;
+
+import org.reflections.Reflections;
+import org.reflections.scanners.FieldAnnotationsScanner;
+import org.reflections.scanners.Scanner;
+import org.reflections.scanners.SubTypesScanner;
+import org.reflections.scanners.TypeAnnotationsScanner;
+import org.reflections.util.ConfigurationBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Reflections over the engine or a mod, read from an index generated at build time where available.
+ * <p/>
+ * The index holds the type annotations, sub types and field annotations of all classes in a classpath root, so
+ * component systems, components, events and {@code @In} fields are found without scanning the classpath. It is
+ * generated by the reflectionsIndex build task, which runs {@link #main(String[])}, and is stored as
+ * {@link #INDEX_FILE} in the root it describes. Roots without an index, or with an index older than their classes, are
+ * scanned as before.
+ */
+public final class ReflectionsIndex {
+    public static final String INDEX_FILE = "META-INF/terasology/reflections.xml";
+
+    private static final Logger logger = LoggerFactory.getLogger(ReflectionsIndex.class);
+
+    private ReflectionsIndex() {
+    }
+
+    /**
+     * @return New instances of the scanners used both for the index and when scanning
+     */
+    public static Scanner[] createScanners() {
+        return new Scanner[]{new TypeAnnotationsScanner(), new SubTypesScanner(), new FieldAnnotationsScanner()};
+    }
+
+    /**
+     * Provides reflections over the given classpath roots, from their indexes if all of them have one.
+     *
+     * @param roots       The classpath roots, directories or jars
+     * @param classLoader The class loader used to load the classes found
+     */
+    public static Reflections forRoots(Collection<URL> roots, ClassLoader classLoader) {
+        Reflections reflections = new Reflections(new ConfigurationBuilder().addClassLoader(classLoader));
+        for (URL root : roots) {
+            if (!collectIndex(reflections, root)) {
+                logger.info("No up to date reflections index in {}, scanning", roots);
+                return new Reflections(new ConfigurationBuilder()
+                        .addClassLoader(classLoader)
+                        .addUrls(roots)
+                        .setScanners(createScanners()));
+            }
+        }
+        return reflections;
+    }
+
+    private static boolean collectIndex(Reflections reflections, URL root) {
+        try {
+            URL indexUrl = getIndexUrl(root);
+            if (isStale(root)) {
+                return false;
+            }
+            URLConnection connection = indexUrl.openConnection();
+            // Do not keep mod jars open
+            connection.setUseCaches(false);
+            InputStream stream = connection.getInputStream();
+            try {
+                reflections.collect(stream);
+            } finally {
+                stream.close();
+            }
+            return true;
+        } catch (FileNotFoundException e) {
+            return false;
+        } catch (IOException e) {
+            logger.warn("Failed to read reflections index of {}", root, e);
+            return false;
+        } catch (RuntimeException e) {
+            // The index is read with a third party serializer, treat anything it throws as a broken index
+            logger.warn("Invalid reflections index in {}", root, e);
+            return false;
+        }
+    }
+
+    private static URL getIndexUrl(URL root) throws MalformedURLException {
+        String path = root.toExternalForm();
+        if ("file".equals(root.getProtocol()) && path.endsWith(".jar")) {
+            return new URL("jar:" + path + "!/" + INDEX_FILE);
+        }
+        if (!path.endsWith("/")) {
+            path += "/";
+        }
+        return new URL(new URL(path), INDEX_FILE);
+    }
+
+    /**
+     * Classes compiled into a directory, for instance by an IDE, do not regenerate the index. Such an index is ignored
+     * if any class file is newer than it.
+     */
+    static boolean isStale(URL root) {
+        if (!"file".equals(root.getProtocol())) {
+            return false;
+        }
+        File rootDir;
+        try {
+            rootDir = new File(root.toURI());
+        } catch (Exception e) {
+            return false;
+        }
+        if (!rootDir.isDirectory()) {
+            return false;
+        }
+        File indexFile = new File(rootDir, INDEX_FILE);
+        return !indexFile.isFile() || hasNewerClass(rootDir, indexFile.lastModified());
+    }
+
+    private static boolean hasNewerClass(File dir, long time) {
+        File[] files = dir.listFiles();
+        if (files == null) {
+            return false;
+        }
+        for (File file : files) {
+            if (file.isDirectory()) {
+                if (hasNewerClass(file, time)) {
+                    return true;
+                }
+            } else if (file.getName().endsWith(".class") && file.lastModified() > time) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Generates the index of a directory of compiled classes.
+     *
+     * @param args The directory of classes to index, and optionally the directory to write the index to. The index is
+     *             written to the classes directory by default.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1 || args.length > 2) {
+            System.err.println("Usage: ReflectionsIndex <classes dir> [<output dir>]");
+            System.exit(1);
+        }
+        File classesDir = new File(args[0]);
+        File outputDir = (args.length > 1) ? new File(args[1]) : classesDir;
+        File indexFile = new File(outputDir, INDEX_FILE);
+        if (!indexFile.getParentFile().isDirectory() && !indexFile.getParentFile().mkdirs()) {
+            throw new IOException("Failed to create " + indexFile.getParentFile());
+        }
+
+        Reflections reflections = new Reflections(new ConfigurationBuilder()
+                .addUrls(classesDir.toURI().toURL())
+                .setScanners(createScanners()));
+        reflections.save(indexFile.getPath());
+        logger.info("Indexed {} into {}", classesDir, indexFile);
+    }
+}
@@ -138,10 +138,12 @@ public class BlockCollection {
             int z = position.z + pos.z - _attachPos.z;
             //System.out.println("This block is being placed at " + x + "," + y + "," + z);
 
-            // TODO: Fix this up for concurrency
-            provider.setBlock(x, y, z, buildingBlocks.getBlocks().get(pos), provider.getBlock(x, y, z));
+            updates.add(new BlockUpdate(new Vector3i(x, y, z), buildingBlocks.getBlocks().get(pos), provider.getBlock(x, y, z)));
             result.add(new BlockPosition(x, y, z));
         }
+        if (!provider.setBlocks(updates)) {
+            logger.warn("Failed to build collection at {}, the world changed while building", position);
+        }
         return result;
     }
 
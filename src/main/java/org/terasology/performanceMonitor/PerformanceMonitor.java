@@ -18,10 +18,18 @@ package org.terasology.performanceMonitor;
 import gnu.trove.map.TObjectDoubleMap;
 import gnu.trove.map.TObjectIntMap;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+
+import org.terasology.performanceMonitor.impl.ActivityRegistry;
 import org.terasology.performanceMonitor.impl.IPerformanceMonitor;
 import org.terasology.performanceMonitor.impl.NullPerformanceMonitor;
 import org.terasology.performanceMonitor.impl.PerformanceMonitorImpl;
 
+import com.google.common.base.Charsets;
+import com.google.common.io.Files;
+
 /**
  * Maintains a running average of time taken by different activities. Activities call to denote when they
  * start and stop.
@@ -29,13 +37,16 @@ import org.terasology.performanceMonitor.impl.PerformanceMonitorImpl;
  * Activities may be nested, and while a nested activity is running the out activities are paused and time passing
  * is not assigned to them.
  * <p/>
- * Performance monitor is intended only for use by the main thread of Terasology, and does not handle
- * activities being started and ended on other threads at this time.
+ * Activities may be started and ended on any thread, each thread having its own activities. The time taken by an
+ * activity is summed over all threads running it. Frequently run activities should be registered once with
+ * registerActivity() and started by their id, which saves looking up their name each time they start.
+ * <p/>
+ * The recent activities of all threads can be written out as a trace, to see what each thread did over time.
  *
  * @author Immortius <immortius@gmail.com>
  */
 public class PerformanceMonitor {
-    private static IPerformanceMonitor _instance;
+    private static volatile IPerformanceMonitor _instance;
 
     static {
         _instance = new NullPerformanceMonitor();
@@ -51,6 +62,26 @@ public class PerformanceMonitor {
         _instance.startActivity(activity);
     }
 
+    /**
+     * Indicates the start of an activity registered with registerActivity(). All started activities must be ended with
+     * endActivity(). Activities may be nested.
+     *
+     * @param activity The id of the activity starting.
+     */
+    public static void startActivity(int activity) {
+        _instance.startActivity(activity);
+    }
+
+    /**
+     * Registers the name of an activity, whether or not the performance monitor is enabled.
+     *
+     * @param activity The name of the activity
+     * @return The id of the activity, to start it with. The same for every call with the same name.
+     */
+    public static int registerActivity(String activity) {
+        return ActivityRegistry.register(activity);
+    }
+
     /**
      * Indicates the end of the last started activity.
      */
@@ -92,6 +123,22 @@ public class PerformanceMonitor {
         return _instance.getDecayingSpikes();
     }
 
+    /**
+     * Writes the recent activities of all threads to a file in the Chrome trace event format, which can be viewed in
+     * chrome://tracing. The trace is empty while the performance monitor is disabled.
+     *
+     * @param file The file to write to
+     * @throws IOException
+     */
+    public static void writeTrace(File file) throws IOException {
+        Writer writer = Files.newWriter(file, Charsets.UTF_8);
+        try {
+            _instance.writeTrace(writer);
+        } finally {
+            writer.close();
+        }
+    }
+
     /**
      * Allows the enabling/deactivation of the Performance Monitoring system.
      * When disabled calls to startActivity()/endActivity() and rollCycle() are ignored
@@ -0,0 +1,75 @@
+/*
+ * Copyright 2012 Benjamin Glatzel <benjamin.glatzel@me.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terasology.performanceMonitor.impl;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentMap;
+
+import com.google.common.collect.Maps;
+
+/**
+ * Assigns each activity name a small id, shared by all performance monitor implementations so ids registered while
+ * monitoring is disabled stay valid once it is enabled. Ids are never released.
+ */
+public final class ActivityRegistry {
+    public static final int MAX_ACTIVITIES = 1024;
+
+    private static final ConcurrentMap<String, Integer> ids = Maps.newConcurrentMap();
+    private static volatile String[] names = new String[0];
+
+    private ActivityRegistry() {
+    }
+
+    /**
+     * @param name The name of the activity
+     * @return The id of the activity, the same for every call with the same name
+     * @throws IllegalStateException if MAX_ACTIVITIES activities are already registered
+     */
+    public static int register(String name) {
+        Integer id = ids.get(name);
+        if (id != null) {
+            return id;
+        }
+        synchronized (ActivityRegistry.class) {
+            id = ids.get(name);
+            if (id == null) {
+                if (names.length == MAX_ACTIVITIES) {
+                    throw new IllegalStateException("Too many activities registered, can't register " + name);
+                }
+                id = names.length;
+                String[] newNames = Arrays.copyOf(names, id + 1);
+                newNames[id] = name;
+                names = newNames;
+                ids.put(name, id);
+            }
+            return id;
+        }
+    }
+
+    /**
+     * @return The name the activity was registered with
+     */
+    public static String getName(int id) {
+        return names[id];
+    }
+
+    /**
+     * @return The number of activities registered, all ids are below this
+     */
+    public static int size() {
+        return names.length;
+    }
+}
@@ -18,6 +18,9 @@ package org.terasology.performanceMonitor.impl;
 import gnu.trove.map.TObjectDoubleMap;
 import gnu.trove.map.TObjectIntMap;
 
+import java.io.IOException;
+import java.io.Writer;
+
 /**
  * Base interface for performance monitor implementations.
  *
@@ -28,6 +31,8 @@ public interface IPerformanceMonitor {
 
     void startActivity(String activity);
 
+    void startActivity(int activity);
+
     void endActivity();
 
     void startThread(String name);
@@ -39,4 +44,6 @@ public interface IPerformanceMonitor {
     TObjectDoubleMap<String> getRunningMean();
 
     TObjectDoubleMap<String> getDecayingSpikes();
+
+    void writeTrace(Writer writer) throws IOException;
 }
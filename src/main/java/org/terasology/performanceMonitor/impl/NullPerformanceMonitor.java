@@ -20,6 +20,9 @@ import gnu.trove.map.TObjectIntMap;
 import gnu.trove.map.hash.TObjectDoubleHashMap;
 import gnu.trove.map.hash.TObjectIntHashMap;
 
+import java.io.IOException;
+import java.io.Writer;
+
 /**
  * @author Immortius <immortius@gmail.com>
  */
@@ -39,6 +42,9 @@ public class NullPerformanceMonitor implements IPerformanceMonitor {
     public void startActivity(String activity) {
     }
 
+    public void startActivity(int activity) {
+    }
+
     public void endActivity() {
     }
 
@@ -54,4 +60,8 @@ public class NullPerformanceMonitor implements IPerformanceMonitor {
         return _threads;
     }
 
+    public void writeTrace(Writer writer) throws IOException {
+        writer.write("{\"traceEvents\":[]}");
+    }
+
 }
@@ -18,90 +18,111 @@ package org.terasology.performanceMonitor.impl;
 import gnu.trove.TCollections;
 import gnu.trove.map.TObjectDoubleMap;
 import gnu.trove.map.TObjectIntMap;
-import gnu.trove.map.TObjectLongMap;
 import gnu.trove.map.hash.TObjectDoubleHashMap;
 import gnu.trove.map.hash.TObjectIntHashMap;
-import gnu.trove.map.hash.TObjectLongHashMap;
-import gnu.trove.procedure.TObjectDoubleProcedure;
 import gnu.trove.procedure.TObjectIntProcedure;
-import gnu.trove.procedure.TObjectLongProcedure;
 
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.Stack;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
 
-import org.lwjgl.Sys;
+import com.google.gson.stream.JsonWriter;
 
 /**
- * Active implementation of Performance Monitor
+ * Active implementation of Performance Monitor.
+ * <p/>
+ * Each thread records its activities on its own timeline: the stack of its running activities, the time spent in each
+ * activity (excluding nested activities) since the last cycle, and a ring buffer of its most recent activity start and
+ * end events. Recording takes no locks, so the activities of worker threads are monitored as well as the main thread's.
+ * On each cycle the main thread adds up the times of all timelines, so the running means and spikes of activities run
+ * on several threads are their summed cost.
  *
  * @author Immortius <immortius@gmail.com>
- *         TODO: Check to ensure activities are being started and stopped correctly
- *         TODO: Remove activities with 0 time
  */
 public class PerformanceMonitorImpl implements IPerformanceMonitor {
     private static final int RETAINED_CYCLES = 60;
     private static final double DECAY_RATE = 0.98;
+    private static final double NANOS_PER_MS = 1000000.0;
+    private static final double NANOS_PER_MICROSECOND = 1000.0;
+
+    /**
+     * The number of events kept per timeline, a power of two. Several seconds of frames for the main thread.
+     */
+    private static final int EVENT_CAPACITY = 1 << 15;
+
+    /**
+     * The number of timelines of threads which have ended kept for traces.
+     */
+    private static final int RETAINED_FINISHED_TIMELINES = 16;
+
+    private final long _startTime;
+    private final Thread _mainThread;
+    private final ThreadTimeline _mainTimeline;
+    private final AtomicInteger _nextTimelineId = new AtomicInteger(1);
+    private final List<ThreadTimeline> _timelines = new CopyOnWriteArrayList<ThreadTimeline>();
+    private final LinkedList<ThreadTimeline> _finishedTimelines = new LinkedList<ThreadTimeline>();
+    private final ThreadLocal<ThreadTimeline> _threadTimeline = new ThreadLocal<ThreadTimeline>() {
+        @Override
+        protected ThreadTimeline initialValue() {
+            return createTimeline();
+        }
+    };
+
+    private final LinkedList<long[]> _metricData;
+    private final long[] _runningTotals;
+    private final double[] _spikeData;
 
-    private Stack<Activity> _activityStack;
-    private List<TObjectLongMap<String>> _metricData;
-    private TObjectLongMap<String> _currentData;
-    private TObjectLongMap<String> _runningTotals;
     private TObjectIntMap<String> _runningThreads;
     private TObjectIntMap<String> _stoppedThreads;
-    private long _timerTicksPerSecond;
-    private TObjectDoubleMap<String> _spikeData;
-    private double _timeFactor;
     private TObjectIntMap<String> _lastRunningThreads;
 
-    private Thread _mainThread;
-
     public PerformanceMonitorImpl() {
-        _activityStack = new Stack<Activity>();
-        _metricData = new LinkedList<TObjectLongMap<String>>();
-        _runningTotals = new TObjectLongHashMap<String>();
-        _timerTicksPerSecond = Sys.getTimerResolution();
-        _currentData = new TObjectLongHashMap<String>();
-        _spikeData = new TObjectDoubleHashMap<String>();
+        _startTime = System.nanoTime();
+        _mainThread = Thread.currentThread();
+        _mainTimeline = createTimeline();
+        _metricData = new LinkedList<long[]>();
+        _runningTotals = new long[ActivityRegistry.MAX_ACTIVITIES];
+        _spikeData = new double[ActivityRegistry.MAX_ACTIVITIES];
         _runningThreads = TCollections.synchronizedMap(new TObjectIntHashMap<String>());
         _stoppedThreads = TCollections.synchronizedMap(new TObjectIntHashMap<String>());
         _lastRunningThreads = new TObjectIntHashMap<String>();
-        _timeFactor = 1000.0 / _timerTicksPerSecond;
-        _mainThread = Thread.currentThread();
-
     }
 
     public void rollCycle() {
-        _metricData.add(_currentData);
-        _spikeData.forEachEntry(new TObjectDoubleProcedure<String>() {
-            public boolean execute(String s, double v) {
-                _spikeData.put(s, v * DECAY_RATE);
-                return true;
+        long[] cycleData;
+        if (_metricData.size() >= RETAINED_CYCLES) {
+            cycleData = _metricData.removeFirst();
+            for (int i = 0; i < cycleData.length; ++i) {
+                _runningTotals[i] -= cycleData[i];
             }
-        });
+            Arrays.fill(cycleData, 0);
+        } else {
+            cycleData = new long[ActivityRegistry.MAX_ACTIVITIES];
+        }
 
-        _currentData.forEachEntry(new TObjectLongProcedure<String>() {
-            public boolean execute(String s, long v) {
-                _runningTotals.adjustOrPutValue(s, v, v);
-                double time = v * _timeFactor;
-                double prev = _spikeData.get(s);
-                if (time > prev) {
-                    _spikeData.put(s, time);
-                }
-                return true;
+        int activities = ActivityRegistry.size();
+        for (ThreadTimeline timeline : _timelines) {
+            boolean ended = !timeline.thread.isAlive();
+            timeline.collectTimes(cycleData, activities);
+            if (ended && !timeline.finished) {
+                timeline.finished = true;
+                _finishedTimelines.add(timeline);
             }
-        });
+        }
+        while (_finishedTimelines.size() > RETAINED_FINISHED_TIMELINES) {
+            _timelines.remove(_finishedTimelines.removeFirst());
+        }
 
-        while (_metricData.size() > RETAINED_CYCLES) {
-            _metricData.get(0).forEachEntry(new TObjectLongProcedure<String>() {
-                public boolean execute(String s, long v) {
-                    _runningTotals.adjustValue(s, -v);
-                    return true;
-                }
-            });
-            _metricData.remove(0);
+        _metricData.add(cycleData);
+        for (int i = 0; i < activities; ++i) {
+            _runningTotals[i] += cycleData[i];
+            _spikeData[i] = Math.max(_spikeData[i] * DECAY_RATE, cycleData[i] / NANOS_PER_MS);
         }
-        _currentData = new TObjectLongHashMap<String>();
 
         _runningThreads.forEachEntry(new TObjectIntProcedure<String>() {
             public boolean execute(String s, int i) {
@@ -118,58 +139,49 @@ public class PerformanceMonitorImpl implements IPerformanceMonitor {
                 return i > 0;
             }
         });
-
     }
 
     public void startActivity(String activity) {
-        if (Thread.currentThread() != _mainThread)
-            return;
-        Activity newActivity = new Activity();
-        newActivity.name = activity;
-        newActivity.startTime = Sys.getTime();
-        if (!_activityStack.isEmpty()) {
-            Activity currentActivity = _activityStack.peek();
-            currentActivity.ownTime += newActivity.startTime - ((currentActivity.resumeTime > 0) ? currentActivity.resumeTime : currentActivity.startTime);
-        }
+        startActivity(ActivityRegistry.register(activity));
+    }
 
-        _activityStack.push(newActivity);
+    public void startActivity(int activity) {
+        currentTimeline().start(activity);
     }
 
     public void endActivity() {
-        if (Thread.currentThread() != _mainThread || _activityStack.empty())
-            return;
-
-        Activity oldActivity = _activityStack.pop();
-        long time = Sys.getTime();
-        long total = (oldActivity.resumeTime > 0) ? oldActivity.ownTime + time - oldActivity.resumeTime : time - oldActivity.startTime;
-        _currentData.adjustOrPutValue(oldActivity.name, total, total);
-
-        if (!_activityStack.isEmpty()) {
-            Activity currentActivity = _activityStack.peek();
-            currentActivity.resumeTime = time;
-        }
+        currentTimeline().end();
     }
 
     public TObjectDoubleMap<String> getRunningMean() {
-        final TObjectDoubleMap<String> result = new TObjectDoubleHashMap<String>();
-        final double factor = _timeFactor / _metricData.size();
-        _runningTotals.forEachEntry(new TObjectLongProcedure<String>() {
-            public boolean execute(String s, long l) {
-                if (l > 0) {
-                    result.put(s, l * factor);
-                }
-                return true;
+        TObjectDoubleMap<String> result = new TObjectDoubleHashMap<String>();
+        if (_metricData.isEmpty()) {
+            return result;
+        }
+        double factor = 1.0 / (NANOS_PER_MS * _metricData.size());
+        int activities = ActivityRegistry.size();
+        for (int i = 0; i < activities; ++i) {
+            if (_runningTotals[i] > 0) {
+                result.put(ActivityRegistry.getName(i), _runningTotals[i] * factor);
             }
-        });
+        }
         return result;
     }
 
     public TObjectDoubleMap<String> getDecayingSpikes() {
-        return _spikeData;
+        TObjectDoubleMap<String> result = new TObjectDoubleHashMap<String>();
+        int activities = ActivityRegistry.size();
+        for (int i = 0; i < activities; ++i) {
+            if (_spikeData[i] > 0) {
+                result.put(ActivityRegistry.getName(i), _spikeData[i]);
+            }
+        }
+        return result;
     }
 
     public void startThread(String name) {
         _runningThreads.adjustOrPutValue(name, 1, 1);
+        currentTimeline().taskName = name;
     }
 
     public void endThread(String name) {
@@ -180,10 +192,153 @@ public class PerformanceMonitorImpl implements IPerformanceMonitor {
         return _lastRunningThreads;
     }
 
-    private static class Activity {
-        public String name;
-        public long startTime;
-        public long resumeTime;
-        public long ownTime;
+    /**
+     * Writes the recent events of all timelines in the Chrome trace event format, viewable in chrome://tracing. Each
+     * timeline is a thread of the trace, named after the last task started on it with startThread().
+     */
+    public void writeTrace(Writer writer) throws IOException {
+        JsonWriter json = new JsonWriter(writer);
+        json.beginObject();
+        json.name("displayTimeUnit").value("ms");
+        json.name("traceEvents").beginArray();
+        for (ThreadTimeline timeline : _timelines) {
+            timeline.writeEvents(json, _startTime);
+        }
+        json.endArray();
+        json.endObject();
+        json.flush();
+    }
+
+    private ThreadTimeline currentTimeline() {
+        if (Thread.currentThread() == _mainThread) {
+            return _mainTimeline;
+        }
+        return _threadTimeline.get();
+    }
+
+    private ThreadTimeline createTimeline() {
+        ThreadTimeline timeline = new ThreadTimeline(Thread.currentThread(), _nextTimelineId.getAndIncrement());
+        _timelines.add(timeline);
+        return timeline;
+    }
+
+    /**
+     * The activities of a single thread. Only that thread starts and ends activities, other threads only read the
+     * times and events it publishes.
+     */
+    private static final class ThreadTimeline {
+        private final Thread thread;
+        private final int id;
+        private volatile String taskName;
+        private boolean finished;
+
+        private int depth;
+        private int[] stackActivities = new int[16];
+        private long[] stackStartTimes = new long[16];
+        private long[] stackNestedTimes = new long[16];
+        private final AtomicLongArray times = new AtomicLongArray(ActivityRegistry.MAX_ACTIVITIES);
+
+        // Starts are recorded as the activity id, ends as its complement
+        private final int[] eventCodes = new int[EVENT_CAPACITY];
+        private final long[] eventTimes = new long[EVENT_CAPACITY];
+        private volatile long eventCount;
+
+        private ThreadTimeline(Thread thread, int id) {
+            this.thread = thread;
+            this.id = id;
+        }
+
+        private void start(int activity) {
+            long time = System.nanoTime();
+            if (depth == stackActivities.length) {
+                stackActivities = Arrays.copyOf(stackActivities, 2 * depth);
+                stackStartTimes = Arrays.copyOf(stackStartTimes, 2 * depth);
+                stackNestedTimes = Arrays.copyOf(stackNestedTimes, 2 * depth);
+            }
+            stackActivities[depth] = activity;
+            stackStartTimes[depth] = time;
+            stackNestedTimes[depth] = 0;
+            depth++;
+            record(activity, time);
+        }
+
+        private void end() {
+            if (depth == 0) {
+                return;
+            }
+            long time = System.nanoTime();
+            depth--;
+            long elapsed = time - stackStartTimes[depth];
+            times.addAndGet(stackActivities[depth], elapsed - stackNestedTimes[depth]);
+            if (depth > 0) {
+                stackNestedTimes[depth - 1] += elapsed;
+            }
+            record(~stackActivities[depth], time);
+        }
+
+        private void record(int code, long time) {
+            long count = eventCount;
+            int index = (int) count & (EVENT_CAPACITY - 1);
+            eventCodes[index] = code;
+            eventTimes[index] = time;
+            eventCount = count + 1;
+        }
+
+        /**
+         * Adds the times spent in each activity since the last call to the given times, in nanoseconds.
+         */
+        private void collectTimes(long[] result, int activities) {
+            for (int i = 0; i < activities; ++i) {
+                if (times.get(i) != 0) {
+                    result[i] += times.getAndSet(i, 0);
+                }
+            }
+        }
+
+        private void writeEvents(JsonWriter json, long startTime) throws IOException {
+            long count = eventCount;
+            long first = Math.max(0, count - EVENT_CAPACITY);
+            int size = (int) (count - first);
+            int[] codes = new int[size];
+            long[] stamps = new long[size];
+            for (int i = 0; i < size; ++i) {
+                int index = (int) (first + i) & (EVENT_CAPACITY - 1);
+                codes[i] = eventCodes[index];
+                stamps[i] = eventTimes[index];
+            }
+            // The thread may have overwritten the oldest events while they were copied, including the one it is
+            // recording right now
+            int valid = (int) Math.max(0, eventCount - EVENT_CAPACITY + 1 - first);
+
+            String name = (taskName == null) ? thread.getName() : taskName + " (" + thread.getName() + ")";
+            json.beginObject();
+            json.name("name").value("thread_name");
+            json.name("ph").value("M");
+            json.name("pid").value(1);
+            json.name("tid").value(id);
+            json.name("args").beginObject().name("name").value(name).endObject();
+            json.endObject();
+
+            int open = 0;
+            for (int i = valid; i < size; ++i) {
+                boolean start = codes[i] >= 0;
+                if (!start) {
+                    if (open == 0) {
+                        // Started before the oldest event kept
+                        continue;
+                    }
+                    open--;
+                } else {
+                    open++;
+                }
+                json.beginObject();
+                json.name("name").value(ActivityRegistry.getName(start ? codes[i] : ~codes[i]));
+                json.name("ph").value(start ? "B" : "E");
+                json.name("pid").value(1);
+                json.name("tid").value(id);
+                json.name("ts").value((stamps[i] - startTime) / NANOS_PER_MICROSECOND);
+                json.endObject();
+            }
+        }
     }
 }
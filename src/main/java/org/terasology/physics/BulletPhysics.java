@@ -72,6 +72,8 @@ import com.google.common.collect.Lists;
 public class BulletPhysics implements EventReceiver<BlockChangedEvent> {
 
     private static final Logger logger = LoggerFactory.getLogger(BulletPhysics.class);
+
+    private static final int STEP_SIMULATION_ACTIVITY = PerformanceMonitor.registerActivity("Step Simulation");
     
     private final Deque<RigidBodyRequest> _insertionQueue = new LinkedList<RigidBodyRequest>();
     private final Deque<RigidBody> _removalQueue = new LinkedList<RigidBody>();
@@ -230,7 +232,7 @@ public class BulletPhysics implements EventReceiver<BlockChangedEvent> {
     public void update(float delta) {
         processQueuedBodies();
         try {
-            PerformanceMonitor.startActivity("Step Simulation");
+            PerformanceMonitor.startActivity(STEP_SIMULATION_ACTIVITY);
             _discreteDynamicsWorld.stepSimulation(delta, 8);
             PerformanceMonitor.endActivity();
         } catch (Exception e) {
@@ -35,6 +35,7 @@ import org.terasology.logic.manager.Config;
 import org.terasology.rendering.assets.metadata.ParamMetadata;
 import org.terasology.rendering.assets.metadata.ParamType;
 import org.terasology.rendering.assets.metadata.ShaderMetadata;
+import org.terasology.rendering.primitives.ChunkVertexFormat;
 import org.terasology.world.block.Block;
 
 import com.google.common.collect.Maps;
@@ -44,7 +45,10 @@ import com.google.common.io.CharStreams;
  * @author Immortius
  */
 public class Shader implements Asset {
-    private static final String PreProcessorPreamble = "#version 120 \n float TEXTURE_OFFSET = " + Block.TEXTURE_OFFSET + "; \n";
+    // Texture gradients are used where available, e.g. for the repeated tiles of merged chunk faces
+    private static final String PreProcessorPreamble = "#version 120 \n #extension GL_ARB_shader_texture_lod : enable \n float TEXTURE_OFFSET = " + Block.TEXTURE_OFFSET + "; \n float TEXTURE_OFFSET_WIDTH = " + Block.TEXTURE_OFFSET_WIDTH + "; \n"
+            + " float COMPACT_POSITION_SCALE = " + ChunkVertexFormat.POSITION_SCALE + "; \n float COMPACT_TEX_COORD_SCALE = " + ChunkVertexFormat.TEX_COORD_SCALE + "; \n"
+            + " float COMPACT_NORMAL_STEPS = " + ChunkVertexFormat.NORMAL_STEPS + ".0; \n";
     private static String IncludedFunctionsVertex = "", IncludedFunctionsFragment = "";
 
     private static final Logger logger = LoggerFactory.getLogger(Shader.class);
@@ -41,6 +41,8 @@ import static org.lwjgl.opengl.GL11.glDisable;
  */
 public class UILabel extends UIDisplayContainer {
 
+    private static final int RENDER_UI_TEXT_ACTIVITY = PerformanceMonitor.registerActivity("Render UIText");
+
     private final ArrayList<ChangedListener> changedListeners = new ArrayList<ChangedListener>();
 
     protected StringBuilder text = new StringBuilder();
@@ -75,7 +77,7 @@ public class UILabel extends UIDisplayContainer {
     public void render() {
         super.render();
 
-        PerformanceMonitor.startActivity("Render UIText");
+        PerformanceMonitor.startActivity(RENDER_UI_TEXT_ACTIVITY);
 
         ShaderManager.getInstance().enableDefaultTextured();
 
@@ -33,6 +33,10 @@ public class UIMenuConfigAdvanced extends UIWindow {
     private final AdvancedConfig config; 
     
     protected UIComposite initFactoryCombo(String title, String id, String selectedFactory, SelectionListener listener) {
+        return initFactoryCombo(title, id, selectedFactory, AdvancedConfig.getTeraArrayFactories(), listener);
+    }
+    
+    protected UIComposite initFactoryCombo(String title, String id, String selectedFactory, String[] factories, SelectionListener listener) {
         final GridLayout layout = new GridLayout(1);
         layout.setCellPadding(new Vector4f(2f, 2f, 2f, 2f));
         
@@ -49,7 +53,6 @@ public class UIMenuConfigAdvanced extends UIWindow {
         final UIComboBox combo = new UIComboBox(new Vector2f(256f, 32f), new Vector2f(256f, 96f));
         combo.setVisible(true);
         combo.setId(id+":combo");
-        String[] factories = AdvancedConfig.getTeraArrayFactories();
         for (String factory : factories) {
             String name = factory.substring(factory.lastIndexOf('.')+1);
             UIListItem item = new UIListItem(name, factory);
@@ -107,7 +110,7 @@ public class UIMenuConfigAdvanced extends UIWindow {
         comp.setLayout(layout);
         comp.setVisible(true);
         
-        comp.addDisplayElement(initFactoryCombo("Default class for block data", "block", config.getBlocksFactoryName(), new SelectionListener() {
+        comp.addDisplayElement(initFactoryCombo("Default class for block data", "block", config.getBlocksFactoryName(), AdvancedConfig.getTeraArrayFactories(AdvancedConfig.BLOCK_ID_BITS), new SelectionListener() {
             @Override
             public void changed(UIDisplayElement element) {
                 config.setBlocksFactory((String)((UIComboBox)element).getSelection().getValue());
@@ -149,6 +152,38 @@ public class UIMenuConfigAdvanced extends UIWindow {
             }
         }));
         
+        comp.addDisplayElement(initOnOffButton("Cellular Liquid Solver", "liquidAutomaton", config.isLiquidAutomatonEnabled(), new ChangedListener() {
+            @Override
+            public void changed(UIDisplayElement element) {
+                UIButton b = (UIButton) element;
+                config.setLiquidAutomatonEnabled(b.getToggleState());
+            }
+        }));
+        
+        comp.addDisplayElement(initOnOffButton("Greedy Chunk Meshing", "greedyMeshing", config.isGreedyMeshingEnabled(), new ChangedListener() {
+            @Override
+            public void changed(UIDisplayElement element) {
+                UIButton b = (UIButton) element;
+                config.setGreedyMeshingEnabled(b.getToggleState());
+            }
+        }));
+        
+        comp.addDisplayElement(initOnOffButton("Compact Chunk Vertices", "compactChunkVertices", config.isCompactChunkVerticesEnabled(), new ChangedListener() {
+            @Override
+            public void changed(UIDisplayElement element) {
+                UIButton b = (UIButton) element;
+                config.setCompactChunkVerticesEnabled(b.getToggleState());
+            }
+        }));
+        
+        comp.addDisplayElement(initOnOffButton("Delta Entity Saves", "deltaEntitySaves", config.isDeltaEntitySavesEnabled(), new ChangedListener() {
+            @Override
+            public void changed(UIDisplayElement element) {
+                UIButton b = (UIButton) element;
+                config.setDeltaEntitySavesEnabled(b.getToggleState());
+            }
+        }));
+        
         
         comp.orderDisplayElementTop(comp.getElementById("liquid"));
         comp.orderDisplayElementTop(comp.getElementById("light"));
@@ -26,9 +26,19 @@ import java.util.TreeSet;
 
 import javax.vecmath.Vector2f;
 
+import org.terasology.entitySystem.ComponentSystem;
+import org.terasology.game.ComponentSystemManager;
+import org.terasology.game.CoreRegistry;
 import org.terasology.performanceMonitor.PerformanceMonitor;
 import org.terasology.rendering.gui.widgets.UILabel;
 import org.terasology.rendering.gui.widgets.UIWindow;
+import org.terasology.rendering.world.ChunkUpdateManager;
+import org.terasology.rendering.world.WorldRenderer;
+import org.terasology.world.chunks.LocalChunkProvider;
+import org.terasology.world.liquid.LiquidSimulationMetrics;
+import org.terasology.world.liquid.LiquidSimulator;
+import org.terasology.world.localChunkProvider.ChunkCacheMetrics;
+import org.terasology.world.localChunkProvider.ChunkTaskMetrics;
 
 /**
  * UI element that graphs performance metrics
@@ -134,6 +144,45 @@ public class UIScreenMetrics extends UIWindow {
                     lines.get(line).setVisible(false);
                 }
             }
+        },
+        ChunkTasks("Chunk Tasks", true) {
+            @Override
+            public void updateLines(List<UILabel> lines) {
+                List<String> text = new ArrayList<String>();
+                WorldRenderer worldRenderer = CoreRegistry.get(WorldRenderer.class);
+                if (worldRenderer != null && worldRenderer.getChunkProvider() instanceof LocalChunkProvider) {
+                    LocalChunkProvider chunkProvider = (LocalChunkProvider) worldRenderer.getChunkProvider();
+                    ChunkCacheMetrics cacheMetrics = chunkProvider.getCacheMetrics();
+                    text.add(String.format("Cache: %.1f%% hits, %d evictions, %.1fMb of %.1fMb", 100 * cacheMetrics.getHitRate(), cacheMetrics.getEvictions(), cacheMetrics.getResidentBytes() / 1048576.0, cacheMetrics.getMaxBytes() / 1048576.0));
+                    ChunkTaskMetrics metrics = chunkProvider.getMetrics();
+                    text.add(String.format("Queued: %d (peak: %d)", metrics.getQueueDepth(), metrics.getPeakQueueDepth()));
+                    ComponentSystem liquidSimulator = CoreRegistry.get(ComponentSystemManager.class).get("engine:LiquidSimulator");
+                    if (liquidSimulator instanceof LiquidSimulator) {
+                        LiquidSimulationMetrics liquidMetrics = ((LiquidSimulator) liquidSimulator).getMetrics();
+                        text.add(String.format("Liquids: %d cells last tick, %.1f per tick, backlog: %d (peak: %d)", liquidMetrics.getCellsSimulatedLastTick(), liquidMetrics.getMeanCellsPerTick(), liquidMetrics.getBacklog(), liquidMetrics.getPeakBacklog()));
+                    }
+                    for (String task : metrics.getTaskNames()) {
+                        ChunkTaskMetrics.TaskStatistics stats = metrics.getStatistics(task);
+                        text.add(String.format("%s: %d, wait: %.2fms, run: %.2fms, max: %.2fms", task, stats.getCount(), stats.getMeanWaitMs(), stats.getMeanRunMs(), stats.getMaxLatencyMs()));
+                    }
+                }
+                if (worldRenderer != null) {
+                    ChunkUpdateManager updateManager = worldRenderer.getChunkUpdateManager();
+                    text.add(String.format("Meshing: %d queued, %.1f meshes/s", updateManager.getQueueSize(), updateManager.getMeshesPerSecond()));
+                    ChunkTaskMetrics metrics = updateManager.getMetrics();
+                    for (String task : metrics.getTaskNames()) {
+                        ChunkTaskMetrics.TaskStatistics stats = metrics.getStatistics(task);
+                        text.add(String.format("%s: %d, wait: %.2fms, run: %.2fms, max: %.2fms", task, stats.getCount(), stats.getMeanWaitMs(), stats.getMeanRunMs(), stats.getMaxLatencyMs()));
+                    }
+                }
+                for (int i = 0; i < lines.size(); ++i) {
+                    UILabel line = lines.get(i);
+                    line.setVisible(i < text.size());
+                    if (i < text.size()) {
+                        line.setText(text.get(i));
+                    }
+                }
+            }
         };
 
         public final String displayText;
@@ -154,6 +203,8 @@ public class UIScreenMetrics extends UIWindow {
                     return DecayingSpikes;
                 case DecayingSpikes:
                     return RunningThreads;
+                case RunningThreads:
+                    return ChunkTasks;
                 default:
                     return Off;
             }
@@ -93,6 +93,8 @@ import com.google.common.collect.Sets;
 public class MeshRenderer implements RenderSystem, EventHandlerSystem {
     private static final Logger logger = LoggerFactory.getLogger(MeshRenderer.class);
 
+    private static final int BATCH_RENDER_MESH_ACTIVITY = PerformanceMonitor.registerActivity("BatchRenderMesh");
+
     private Mesh gelatinousCubeMesh;
     private WorldRenderer worldRenderer;
 
@@ -332,7 +334,7 @@ public class MeshRenderer implements RenderSystem, EventHandlerSystem {
     private void renderBatch(TFloatList vertexData, TIntList indexData) {
         if (vertexData.size() == 0 || indexData.size() == 0) return;
 
-        PerformanceMonitor.startActivity("BatchRenderMesh");
+        PerformanceMonitor.startActivity(BATCH_RENDER_MESH_ACTIVITY);
         FloatBuffer vertexBuffer = BufferUtils.createFloatBuffer(vertexData.size());
         vertexBuffer.put(vertexData.toArray());
         vertexBuffer.flip();
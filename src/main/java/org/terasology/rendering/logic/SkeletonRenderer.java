@@ -58,7 +58,7 @@ import static org.lwjgl.opengl.GL11.glVertex3f;
 /**
  * @author Immortius
  */
-@RegisterComponentSystem
+@RegisterComponentSystem(headedOnly = true)
 public class SkeletonRenderer implements RenderSystem, EventHandlerSystem, UpdateSubscriberSystem {
 
     private static final Logger logger = LoggerFactory.getLogger(SkeletonRenderer.class);
@@ -15,19 +15,9 @@
  */
 package org.terasology.rendering.primitives;
 
-import static org.lwjgl.opengl.GL11.GL_COLOR_ARRAY;
 import static org.lwjgl.opengl.GL11.GL_CULL_FACE;
-import static org.lwjgl.opengl.GL11.GL_NORMAL_ARRAY;
-import static org.lwjgl.opengl.GL11.GL_TEXTURE_COORD_ARRAY;
-import static org.lwjgl.opengl.GL11.GL_VERTEX_ARRAY;
-import static org.lwjgl.opengl.GL11.glColorPointer;
 import static org.lwjgl.opengl.GL11.glDisable;
-import static org.lwjgl.opengl.GL11.glDisableClientState;
 import static org.lwjgl.opengl.GL11.glEnable;
-import static org.lwjgl.opengl.GL11.glEnableClientState;
-import static org.lwjgl.opengl.GL11.glNormalPointer;
-import static org.lwjgl.opengl.GL11.glTexCoordPointer;
-import static org.lwjgl.opengl.GL11.glVertexPointer;
 import gnu.trove.list.TFloatList;
 import gnu.trove.list.TIntList;
 import gnu.trove.list.array.TFloatArrayList;
@@ -38,9 +28,10 @@ import java.nio.IntBuffer;
 import java.util.concurrent.locks.ReentrantLock;
 
 import org.lwjgl.opengl.GL11;
-import org.lwjgl.opengl.GL13;
 import org.lwjgl.opengl.GL15;
+import org.terasology.logic.manager.ShaderManager;
 import org.terasology.logic.manager.VertexBufferObjectManager;
+import org.terasology.rendering.shader.ShaderProgram;
 
 import com.bulletphysics.collision.shapes.IndexedMesh;
 
@@ -100,13 +91,8 @@ public class ChunkMesh {
         WATER_AND_ICE;
     }
 
-    /* CONST */
-    private static final int STRIDE = (3 + 3 + 3 + 3 + 4) * 4;
-    private static final int OFFSET_VERTEX = 0;
-    private static final int OFFSET_TEX_0 = (3 * 4);
-    private static final int OFFSET_TEX_1 = ((3 + 3) * 4);
-    private static final int OFFSET_COLOR = ((3 + 3 + 3) * 4);
-    private static final int OFFSET_NORMAL = ((3 + 3 + 3 + 4) * 4);
+    /* VERTEX FORMAT */
+    private final ChunkVertexFormat _vertexFormat;
 
     /* VERTEX DATA */
     private final int[] _vertexBuffers = new int[4];
@@ -127,6 +113,11 @@ public class ChunkMesh {
     public ReentrantLock _lock = new ReentrantLock();
 
     public ChunkMesh() {
+        this(ChunkVertexFormat.FLOAT);
+    }
+
+    public ChunkMesh(ChunkVertexFormat vertexFormat) {
+        _vertexFormat = vertexFormat;
         _vertexElements[0] = new VertexElements();
         _vertexElements[1] = new VertexElements();
         _vertexElements[2] = new VertexElements();
@@ -189,32 +180,19 @@ public class ChunkMesh {
                 if (_vertexBuffers[id] <= 0 || _disposed)
                     return;
 
-                glEnableClientState(GL_VERTEX_ARRAY);
-                glEnableClientState(GL_TEXTURE_COORD_ARRAY);
-                glEnableClientState(GL_COLOR_ARRAY);
-                glEnableClientState(GL_NORMAL_ARRAY);
+                ShaderProgram shader = ShaderManager.getInstance().getActiveShaderProgram();
+                if (shader != null) {
+                    shader.setFloat("compactVertices", (_vertexFormat == ChunkVertexFormat.COMPACT) ? 1.0f : 0.0f);
+                }
 
                 GL15.glBindBuffer(GL15.GL_ELEMENT_ARRAY_BUFFER, _idxBuffers[id]);
                 GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, _vertexBuffers[id]);
 
-                glVertexPointer(3, GL11.GL_FLOAT, STRIDE, OFFSET_VERTEX);
-
-                GL13.glClientActiveTexture(GL13.GL_TEXTURE0);
-                glTexCoordPointer(3, GL11.GL_FLOAT, STRIDE, OFFSET_TEX_0);
-
-                GL13.glClientActiveTexture(GL13.GL_TEXTURE1);
-                glTexCoordPointer(3, GL11.GL_FLOAT, STRIDE, OFFSET_TEX_1);
-
-                glColorPointer(4, GL11.GL_FLOAT, STRIDE, OFFSET_COLOR);
-
-                glNormalPointer(GL11.GL_FLOAT, STRIDE, OFFSET_NORMAL);
+                _vertexFormat.enableArrays();
 
                 GL11.glDrawElements(GL11.GL_TRIANGLES, _vertexCount[id], GL11.GL_UNSIGNED_INT, 0);
 
-                glDisableClientState(GL_NORMAL_ARRAY);
-                glDisableClientState(GL_COLOR_ARRAY);
-                glDisableClientState(GL_TEXTURE_COORD_ARRAY);
-                glDisableClientState(GL_VERTEX_ARRAY);
+                _vertexFormat.disableArrays();
 
                 GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, 0);
                 GL15.glBindBuffer(GL15.GL_ELEMENT_ARRAY_BUFFER, 0);
@@ -267,6 +245,10 @@ public class ChunkMesh {
         }
     }
 
+    public ChunkVertexFormat getVertexFormat() {
+        return _vertexFormat;
+    }
+
     public boolean isGenerated() {
         return _vertexElements == null;
     }
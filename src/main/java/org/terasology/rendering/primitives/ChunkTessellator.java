@@ -15,48 +15,116 @@
  */
 package org.terasology.rendering.primitives;
 
-import gnu.trove.iterator.TIntIterator;
-
-import javax.vecmath.Vector3f;
 import javax.vecmath.Vector4f;
 
 import org.lwjgl.BufferUtils;
+import org.terasology.config.AdvancedConfig;
+import org.terasology.config.Config;
+import org.terasology.game.CoreRegistry;
 import org.terasology.math.Region3i;
 import org.terasology.math.Side;
 import org.terasology.math.Vector3i;
 import org.terasology.performanceMonitor.PerformanceMonitor;
+import org.terasology.world.ChunkClimate;
 import org.terasology.world.MiniatureChunk;
 import org.terasology.world.WorldBiomeProvider;
 import org.terasology.world.WorldView;
 import org.terasology.world.block.Block;
 import org.terasology.world.block.BlockPart;
+import org.terasology.world.block.BlockUri;
+import org.terasology.world.block.shapes.BlockMeshPart;
 import org.terasology.world.chunks.Chunk;
 
 /**
  * Generates tessellated chunk meshes from chunks.
+ * <p/>
+ * In greedy meshing mode, coplanar neighbouring faces of full cube blocks which look the same are merged into larger
+ * quads, see {@link GreedyMeshBuilder}.
  *
  * @author Benjamin Glatzel <benjamin.glatzel@me.com>
  */
 public final class ChunkTessellator {
 
+    private static final int GENERATE_MESH_ACTIVITY = PerformanceMonitor.registerActivity("GenerateMesh");
+    private static final int GENERATE_MINUATURE_MESH_ACTIVITY = PerformanceMonitor.registerActivity("GenerateMinuatureMesh");
+    private static final int OPTIMIZE_BUFFERS_ACTIVITY = PerformanceMonitor.registerActivity("OptimizeBuffers");
+    private static final int CALC_LIGHTING_ACTIVITY = PerformanceMonitor.registerActivity("calcLighting");
+
+    private static final int[] CORNER_SIGN_A = {1, 1, -1, -1};
+    private static final int[] CORNER_SIGN_B = {1, -1, -1, 1};
+    private static final float[] LIGHT_SAMPLE_OFFSETS_Y = {0.8f, -0.1f};
+
+    // Side.values() clones its array on every call, and is needed for every block
+    private static final Side[] SIDES = Side.values();
+    private static final BlockUri WATER_URI = new BlockUri("engine", "water");
+    private static final BlockUri ICE_URI = new BlockUri("engine", "ice");
+
     private static int _statVertexArrayUpdateCount = 0;
 
+    private static final ThreadLocal<GreedyMeshBuilder> greedyMeshBuilders = new ThreadLocal<GreedyMeshBuilder>() {
+        @Override
+        protected GreedyMeshBuilder initialValue() {
+            return new GreedyMeshBuilder();
+        }
+    };
+
     private WorldBiomeProvider biomeProvider;
+    private final boolean greedyMeshing;
+    private final ChunkVertexFormat vertexFormat;
 
     public ChunkTessellator(WorldBiomeProvider biomeProvider) {
+        this(biomeProvider, false);
+    }
+
+    /**
+     * @param greedyMeshing Whether to merge coplanar faces of full cube blocks with identical light into larger quads
+     */
+    public ChunkTessellator(WorldBiomeProvider biomeProvider, boolean greedyMeshing) {
+        this(biomeProvider, greedyMeshing, ChunkVertexFormat.FLOAT);
+    }
+
+    /**
+     * @param greedyMeshing Whether to merge coplanar faces of full cube blocks with identical light into larger quads
+     * @param vertexFormat  The layout of the vertices of the generated meshes
+     */
+    public ChunkTessellator(WorldBiomeProvider biomeProvider, boolean greedyMeshing, ChunkVertexFormat vertexFormat) {
         this.biomeProvider = biomeProvider;
+        this.greedyMeshing = greedyMeshing;
+        this.vertexFormat = vertexFormat;
+    }
+
+    /**
+     * @return A tessellator using the greedy meshing and vertex format chosen in the advanced config
+     */
+    public static ChunkTessellator createConfigured(WorldBiomeProvider biomeProvider) {
+        AdvancedConfig advancedConfig = CoreRegistry.get(Config.class).getAdvancedConfig();
+        ChunkVertexFormat vertexFormat = advancedConfig.isCompactChunkVerticesEnabled() ? ChunkVertexFormat.COMPACT : ChunkVertexFormat.FLOAT;
+        return new ChunkTessellator(biomeProvider, advancedConfig.isGreedyMeshingEnabled(), vertexFormat);
+    }
+
+    public boolean isGreedyMeshing() {
+        return greedyMeshing;
+    }
+
+    public ChunkVertexFormat getVertexFormat() {
+        return vertexFormat;
     }
 
     public ChunkMesh generateMesh(WorldView worldView, Vector3i chunkPos, int meshHeight, int verticalOffset) {
-        PerformanceMonitor.startActivity("GenerateMesh");
-        ChunkMesh mesh = new ChunkMesh();
+        PerformanceMonitor.startActivity(GENERATE_MESH_ACTIVITY);
+        ChunkMesh mesh = new ChunkMesh(vertexFormat);
+        GreedyMeshBuilder greedyMesh = null;
+        if (greedyMeshing) {
+            greedyMesh = greedyMeshBuilders.get();
+            greedyMesh.begin(verticalOffset, meshHeight);
+        }
 
-        Vector3i chunkOffset = new Vector3i(chunkPos.x * Chunk.SIZE_X, chunkPos.y * Chunk.SIZE_Y, chunkPos.z * Chunk.SIZE_Z);
+        ChunkClimate climate = biomeProvider.getChunkClimate(chunkPos.x, chunkPos.z);
 
         for (int x = 0; x < Chunk.SIZE_X; x++) {
             for (int z = 0; z < Chunk.SIZE_Z; z++) {
-                float biomeTemp = biomeProvider.getTemperatureAt(chunkOffset.x + x, chunkOffset.z + z);
-                float biomeHumidity = biomeProvider.getHumidityAt(chunkOffset.x + x, chunkOffset.z + z);
+                float biomeTemp = climate.getTemperature(x, z);
+                float biomeHumidity = climate.getHumidity(x, z);
 
                 for (int y = verticalOffset; y < verticalOffset + meshHeight; y++) {
                     Block block = worldView.getBlock(x, y, z);
@@ -64,12 +132,15 @@ public final class ChunkTessellator {
                     if (block == null || block.isInvisible())
                         continue;
 
-                    generateBlockVertices(worldView, mesh, x, y, z, biomeTemp, biomeHumidity);
+                    generateBlockVertices(worldView, mesh, greedyMesh, x, y, z, biomeTemp, biomeHumidity);
                 }
             }
         }
 
-        generateOptimizedBuffers(worldView, mesh);
+        if (greedyMesh != null) {
+            greedyMesh.mergeFaces();
+        }
+        generateOptimizedBuffers(worldView, mesh, greedyMesh);
         _statVertexArrayUpdateCount++;
 
         PerformanceMonitor.endActivity();
@@ -77,8 +148,8 @@ public final class ChunkTessellator {
     }
 
     public ChunkMesh generateMinaturizedMesh(MiniatureChunk miniatureChunk) {
-        PerformanceMonitor.startActivity("GenerateMinuatureMesh");
-        ChunkMesh mesh = new ChunkMesh();
+        PerformanceMonitor.startActivity(GENERATE_MINUATURE_MESH_ACTIVITY);
+        ChunkMesh mesh = new ChunkMesh(vertexFormat);
 
         MiniatureChunk[] chunks = { miniatureChunk };
         WorldView localWorldView = new WorldView(chunks, Region3i.createFromCenterExtents(Vector3i.zero(), Vector3i.zero()), Vector3i.zero());
@@ -92,114 +163,69 @@ public final class ChunkTessellator {
                     if (block == null || block.isInvisible())
                         continue;
 
-                    generateBlockVertices(localWorldView, mesh, x, y, z, 0.0f, 0.0f);
+                    generateBlockVertices(localWorldView, mesh, null, x, y, z, 0.0f, 0.0f);
                 }
             }
         }
 
-        generateOptimizedBuffers(localWorldView, mesh);
+        generateOptimizedBuffers(localWorldView, mesh, null);
         _statVertexArrayUpdateCount++;
 
         PerformanceMonitor.endActivity();
         return mesh;
     }
 
-    private void generateOptimizedBuffers(WorldView worldView, ChunkMesh mesh) {
-        PerformanceMonitor.startActivity("OptimizeBuffers");
+    private void generateOptimizedBuffers(WorldView worldView, ChunkMesh mesh, GreedyMeshBuilder greedyMesh) {
+        PerformanceMonitor.startActivity(OPTIMIZE_BUFFERS_ACTIVITY);
+        float[] light = new float[3];
 
         for (int j = 0; j < mesh._vertexElements.length; j++) {
-            // Vertices double to account for light info
-            mesh._vertexElements[j].finalVertices = BufferUtils.createByteBuffer(mesh._vertexElements[j].vertices.size() * 2 * 4 + mesh._vertexElements[j].tex.size() * 4 + mesh._vertexElements[j].color.size() * 4 + mesh._vertexElements[j].normals.size() * 4);
+            ChunkMesh.VertexElements elements = mesh._vertexElements[j];
+            int vertexCount = elements.vertices.size() / 3;
+            int quadCount = (greedyMesh != null) ? greedyMesh.getQuadCount(j) : 0;
+            elements.finalVertices = BufferUtils.createByteBuffer((vertexCount + 4 * quadCount) * vertexFormat.getVertexSize());
 
             int cTex = 0;
             int cColor = 0;
-            for (int i = 0; i < mesh._vertexElements[j].vertices.size(); i += 3, cTex += 3, cColor += 4) {
-
-                Vector3f vertexPos = new Vector3f(mesh._vertexElements[j].vertices.get(i), mesh._vertexElements[j].vertices.get(i + 1), mesh._vertexElements[j].vertices.get(i + 2));
-
-                mesh._vertexElements[j].finalVertices.putFloat(vertexPos.x);
-                mesh._vertexElements[j].finalVertices.putFloat(vertexPos.y);
-                mesh._vertexElements[j].finalVertices.putFloat(vertexPos.z);
-
-                mesh._vertexElements[j].finalVertices.putFloat(mesh._vertexElements[j].tex.get(cTex));
-                mesh._vertexElements[j].finalVertices.putFloat(mesh._vertexElements[j].tex.get(cTex + 1));
-                mesh._vertexElements[j].finalVertices.putFloat(mesh._vertexElements[j].tex.get(cTex + 2));
-
-                float[] result = new float[3];
-                Vector3f normal = new Vector3f(mesh._vertexElements[j].normals.get(i), mesh._vertexElements[j].normals.get(i+1), mesh._vertexElements[j].normals.get(i+2));
-                calcLightingValuesForVertexPos(worldView, vertexPos, result, normal);
-
-                mesh._vertexElements[j].finalVertices.putFloat(result[0]);
-                mesh._vertexElements[j].finalVertices.putFloat(result[1]);
-                mesh._vertexElements[j].finalVertices.putFloat(result[2]);
-
-                mesh._vertexElements[j].finalVertices.putFloat(mesh._vertexElements[j].color.get(cColor));
-                mesh._vertexElements[j].finalVertices.putFloat(mesh._vertexElements[j].color.get(cColor + 1));
-                mesh._vertexElements[j].finalVertices.putFloat(mesh._vertexElements[j].color.get(cColor + 2));
-                mesh._vertexElements[j].finalVertices.putFloat(mesh._vertexElements[j].color.get(cColor + 3));
+            for (int i = 0; i < elements.vertices.size(); i += 3, cTex += 3, cColor += 4) {
+                float x = elements.vertices.get(i);
+                float y = elements.vertices.get(i + 1);
+                float z = elements.vertices.get(i + 2);
+                float normalX = elements.normals.get(i);
+                float normalY = elements.normals.get(i + 1);
+                float normalZ = elements.normals.get(i + 2);
+
+                calcLightingValuesForVertexPos(worldView, x, y, z, normalX, normalY, normalZ, light);
+
+                vertexFormat.putVertex(elements.finalVertices, x, y, z,
+                        elements.tex.get(cTex), elements.tex.get(cTex + 1), elements.tex.get(cTex + 2),
+                        light[0], light[1], light[2],
+                        elements.color.get(cColor), elements.color.get(cColor + 1), elements.color.get(cColor + 2), elements.color.get(cColor + 3),
+                        normalX, normalY, normalZ);
+            }
 
-                mesh._vertexElements[j].finalVertices.putFloat(normal.x);
-                mesh._vertexElements[j].finalVertices.putFloat(normal.y);
-                mesh._vertexElements[j].finalVertices.putFloat(normal.z);
+            elements.finalIndices = BufferUtils.createIntBuffer(elements.indices.size() + 6 * quadCount);
+            for (int i = 0; i < elements.indices.size(); i++) {
+                elements.finalIndices.put(elements.indices.get(i));
             }
 
-            mesh._vertexElements[j].finalIndices = BufferUtils.createIntBuffer(mesh._vertexElements[j].indices.size());
-            TIntIterator indexIterator = mesh._vertexElements[j].indices.iterator();
-            while (indexIterator.hasNext()) {
-                mesh._vertexElements[j].finalIndices.put(indexIterator.next());
+            if (quadCount > 0) {
+                greedyMesh.writeQuads(j, vertexCount, vertexFormat, elements.finalVertices, elements.finalIndices);
             }
 
-            mesh._vertexElements[j].finalVertices.flip();
-            mesh._vertexElements[j].finalIndices.flip();
+            elements.finalVertices.flip();
+            elements.finalIndices.flip();
         }
         PerformanceMonitor.endActivity();
     }
 
-    private void calcLightingValuesForVertexPos(WorldView worldView, Vector3f vertexPos, float[] output, Vector3f normal) {
-        PerformanceMonitor.startActivity("calcLighting");
-        float[] lights = new float[8];
-        float[] blockLights = new float[8];
-        Block[] blocks = new Block[4];
-
-        PerformanceMonitor.startActivity("gatherLightInfo");
-        if (normal.y == 1.0f || normal.y == -1.0f) {
-            blocks[0] = worldView.getBlock((vertexPos.x + 0.1f), (vertexPos.y + 0.8f * normal.y), (vertexPos.z + 0.1f));
-            blocks[1] = worldView.getBlock((vertexPos.x + 0.1f), (vertexPos.y + 0.8f * normal.y), (vertexPos.z - 0.1f));
-            blocks[2] = worldView.getBlock((vertexPos.x - 0.1f), (vertexPos.y + 0.8f * normal.y), (vertexPos.z - 0.1f));
-            blocks[3] = worldView.getBlock((vertexPos.x - 0.1f), (vertexPos.y + 0.8f * normal.y), (vertexPos.z + 0.1f));
-        } else if (normal.x == 1.0f || normal.x == -1.0f) {
-            blocks[0] = worldView.getBlock((vertexPos.x + 0.8f * normal.x), (vertexPos.y + 0.1f), (vertexPos.z + 0.1f));
-            blocks[1] = worldView.getBlock((vertexPos.x + 0.8f * normal.x), (vertexPos.y + 0.1f), (vertexPos.z - 0.1f));
-            blocks[2] = worldView.getBlock((vertexPos.x + 0.8f * normal.x), (vertexPos.y - 0.1f), (vertexPos.z - 0.1f));
-            blocks[3] = worldView.getBlock((vertexPos.x + 0.8f * normal.x), (vertexPos.y - 0.1f), (vertexPos.z + 0.1f));
-        } else /*if (normal.z == 1.0f)*/ {
-            blocks[0] = worldView.getBlock((vertexPos.x + 0.1f), (vertexPos.y + 0.1f), (vertexPos.z + 0.8f * normal.z));
-            blocks[1] = worldView.getBlock((vertexPos.x + 0.1f), (vertexPos.y - 0.1f), (vertexPos.z + 0.8f * normal.z));
-            blocks[2] = worldView.getBlock((vertexPos.x - 0.1f), (vertexPos.y - 0.1f), (vertexPos.z + 0.8f * normal.z));
-            blocks[3] = worldView.getBlock((vertexPos.x - 0.1f), (vertexPos.y + 0.1f), (vertexPos.z + 0.8f * normal.z));
-        }
-
-        lights[0] = worldView.getSunlight((vertexPos.x + 0.1f), (vertexPos.y + 0.8f), (vertexPos.z + 0.1f));
-        lights[1] = worldView.getSunlight((vertexPos.x + 0.1f), (vertexPos.y + 0.8f), (vertexPos.z - 0.1f));
-        lights[2] = worldView.getSunlight((vertexPos.x - 0.1f), (vertexPos.y + 0.8f), (vertexPos.z - 0.1f));
-        lights[3] = worldView.getSunlight((vertexPos.x - 0.1f), (vertexPos.y + 0.8f), (vertexPos.z + 0.1f));
-
-        lights[4] = worldView.getSunlight((vertexPos.x + 0.1f), (vertexPos.y - 0.1f), (vertexPos.z + 0.1f));
-        lights[5] = worldView.getSunlight((vertexPos.x + 0.1f), (vertexPos.y - 0.1f), (vertexPos.z - 0.1f));
-        lights[6] = worldView.getSunlight((vertexPos.x - 0.1f), (vertexPos.y - 0.1f), (vertexPos.z - 0.1f));
-        lights[7] = worldView.getSunlight((vertexPos.x - 0.1f), (vertexPos.y - 0.1f), (vertexPos.z + 0.1f));
-
-        blockLights[0] = worldView.getLight((vertexPos.x + 0.1f), (vertexPos.y + 0.8f), (vertexPos.z + 0.1f));
-        blockLights[1] = worldView.getLight((vertexPos.x + 0.1f), (vertexPos.y + 0.8f), (vertexPos.z - 0.1f));
-        blockLights[2] = worldView.getLight((vertexPos.x - 0.1f), (vertexPos.y + 0.8f), (vertexPos.z - 0.1f));
-        blockLights[3] = worldView.getLight((vertexPos.x - 0.1f), (vertexPos.y + 0.8f), (vertexPos.z + 0.1f));
-
-        blockLights[4] = worldView.getLight((vertexPos.x + 0.1f), (vertexPos.y - 0.1f), (vertexPos.z + 0.1f));
-        blockLights[5] = worldView.getLight((vertexPos.x + 0.1f), (vertexPos.y - 0.1f), (vertexPos.z - 0.1f));
-        blockLights[6] = worldView.getLight((vertexPos.x - 0.1f), (vertexPos.y - 0.1f), (vertexPos.z - 0.1f));
-        blockLights[7] = worldView.getLight((vertexPos.x - 0.1f), (vertexPos.y - 0.1f), (vertexPos.z + 0.1f));
-        PerformanceMonitor.endActivity();
-
+    /**
+     * Calculates the sunlight, block light and ambient occlusion of a vertex, from the blocks around it.
+     *
+     * @param output Receives the sunlight, block light and ambient occlusion values
+     */
+    static void calcLightingValuesForVertexPos(WorldView worldView, float x, float y, float z, float normalX, float normalY, float normalZ, float[] output) {
+        PerformanceMonitor.startActivity(CALC_LIGHTING_ACTIVITY);
         float resultLight = 0;
         float resultBlockLight = 0;
         int counterLight = 0;
@@ -207,23 +233,35 @@ public final class ChunkTessellator {
 
         int occCounter = 0;
         int occCounterBillboard = 0;
-        for (int i = 0; i < 8; i++) {
-            if (lights[i] > 0) {
-                resultLight += lights[i];
-                counterLight++;
+        for (int i = 0; i < 4; i++) {
+            float offsetA = 0.1f * CORNER_SIGN_A[i];
+            float offsetB = 0.1f * CORNER_SIGN_B[i];
+
+            Block b;
+            if (normalY == 1.0f || normalY == -1.0f) {
+                b = worldView.getBlock(x + offsetA, y + 0.8f * normalY, z + offsetB);
+            } else if (normalX == 1.0f || normalX == -1.0f) {
+                b = worldView.getBlock(x + 0.8f * normalX, y + offsetA, z + offsetB);
+            } else {
+                b = worldView.getBlock(x + offsetA, y + offsetB, z + 0.8f * normalZ);
             }
-            if (blockLights[i] > 0) {
-                resultBlockLight += blockLights[i];
-                counterBlockLight++;
+            if (b.isShadowCasting() && !b.isTranslucent()) {
+                occCounter++;
+            } else if (b.isShadowCasting()) {
+                occCounterBillboard++;
             }
 
-            if (i < 4) {
-                Block b = blocks[i];
-
-                if (b.isShadowCasting() && !b.isTranslucent()) {
-                    occCounter++;
-                } else if (b.isShadowCasting()) {
-                    occCounterBillboard++;
+            // Light is sampled from the blocks above and below the vertex
+            for (float offsetY : LIGHT_SAMPLE_OFFSETS_Y) {
+                byte sunlight = worldView.getSunlight(x + offsetA, y + offsetY, z + offsetB);
+                if (sunlight > 0) {
+                    resultLight += sunlight;
+                    counterLight++;
+                }
+                byte blockLight = worldView.getLight(x + offsetA, y + offsetY, z + offsetB);
+                if (blockLight > 0) {
+                    resultBlockLight += blockLight;
+                    counterBlockLight++;
                 }
             }
         }
@@ -244,7 +282,7 @@ public final class ChunkTessellator {
         PerformanceMonitor.endActivity();
     }
 
-    private void generateBlockVertices(WorldView view, ChunkMesh mesh, int x, int y, int z, float temp, float hum) {
+    private void generateBlockVertices(WorldView view, ChunkMesh mesh, GreedyMeshBuilder greedyMesh, int x, int y, int z, float temp, float hum) {
         Block block = view.getBlock(x, y, z);
 
         /*
@@ -255,7 +293,7 @@ public final class ChunkTessellator {
         if (!block.isTranslucent())
             renderType = ChunkMesh.RENDER_TYPE.OPAQUE;
         // TODO: Review special case, or alternatively compare uris.
-        if (block.getURI().toString().equals("engine:water") || block.getURI().toString().equals("engine:ice"))
+        if (block.getURI().equals(WATER_URI) || block.getURI().equals(ICE_URI))
             renderType = ChunkMesh.RENDER_TYPE.WATER_AND_ICE;
         if (block.isDoubleSided())
             renderType = ChunkMesh.RENDER_TYPE.BILLBOARD;
@@ -265,16 +303,19 @@ public final class ChunkTessellator {
             block.getMeshPart(BlockPart.CENTER).appendTo(mesh, x, y, z, colorOffset, renderType.getIndex());
         }
 
-        boolean[] drawDir = new boolean[6];
+        // One bit per side, by ordinal
+        int drawDir = 0;
 
-        for (Side side : Side.values()) {
+        for (Side side : SIDES) {
             Vector3i offset = side.getVector3i();
             Block blockToCheck = view.getBlock(x + offset.x, y + offset.y, z + offset.z);
-            drawDir[side.ordinal()] = isSideVisibleForBlockTypes(blockToCheck, block, side);
+            if (isSideVisibleForBlockTypes(blockToCheck, block, side)) {
+                drawDir |= 1 << side.ordinal();
+            }
         }
 
         if (y == 0) {
-            drawDir[Side.BOTTOM.ordinal()] = false;
+            drawDir &= ~(1 << Side.BOTTOM.ordinal());
         }
 
         // If the block is lowered, some more faces may have to be drawn
@@ -286,18 +327,22 @@ public final class ChunkTessellator {
                 Block adjacent = view.getBlock(x + offset.x, y, z + offset.z);
                 Block below = view.getBlock(x, y - 1, z);
 
-                drawDir[side.ordinal()] |= (isSideVisibleForBlockTypes(adjacentBelow, block, side) && !isSideVisibleForBlockTypes(below, adjacent, side.reverse()));
+                if (isSideVisibleForBlockTypes(adjacentBelow, block, side) && !isSideVisibleForBlockTypes(below, adjacent, side.reverse())) {
+                    drawDir |= 1 << side.ordinal();
+                }
             }
 
             // Draw the top if below a non-lowered block
             // TODO: Don't need to render the top if each side and the block above each side are either liquid or opaque solids.
             Block blockToCheck = view.getBlock(x, y + 1, z);
-            drawDir[Side.TOP.ordinal()] |= !blockToCheck.isLiquid();
+            if (!blockToCheck.isLiquid()) {
+                drawDir |= 1 << Side.TOP.ordinal();
+            }
 
             Block bottomBlock = view.getBlock(x, y - 1, z);
             if (bottomBlock.isLiquid() || bottomBlock.getId() == 0x0) {
-                for (Side dir : Side.values()) {
-                    if (drawDir[dir.ordinal()]) {
+                for (Side dir : SIDES) {
+                    if ((drawDir & (1 << dir.ordinal())) != 0) {
                         Vector4f colorOffset = block.calcColorOffsetFor(BlockPart.fromSide(dir), temp, hum);
                         block.getLoweredLiquidMesh(dir).appendTo(mesh, x, y, z, colorOffset, renderType.getIndex());
                     }
@@ -306,10 +351,14 @@ public final class ChunkTessellator {
             }
         }
 
-        for (Side dir : Side.values()) {
-            if (drawDir[dir.ordinal()]) {
+        boolean mergeable = greedyMesh != null && renderType == ChunkMesh.RENDER_TYPE.OPAQUE && !block.isWaving();
+        for (Side dir : SIDES) {
+            if ((drawDir & (1 << dir.ordinal())) != 0) {
                 Vector4f colorOffset = block.calcColorOffsetFor(BlockPart.fromSide(dir), temp, hum);
-                block.getMeshPart(BlockPart.fromSide(dir)).appendTo(mesh, x, y, z, colorOffset, renderType.getIndex());
+                BlockMeshPart part = block.getMeshPart(BlockPart.fromSide(dir));
+                if (!mergeable || !block.isFullSide(dir) || !greedyMesh.addFace(view, part, dir, x, y, z, colorOffset, renderType.getIndex())) {
+                    part.appendTo(mesh, x, y, z, colorOffset, renderType.getIndex());
+                }
             }
         }
     }
@@ -0,0 +1,245 @@
+/*
+ * Copyright 2012 Benjamin Glatzel <benjamin.glatzel@me.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terasology.rendering.primitives;
+
+import static org.lwjgl.opengl.GL11.GL_COLOR_ARRAY;
+import static org.lwjgl.opengl.GL11.GL_NORMAL_ARRAY;
+import static org.lwjgl.opengl.GL11.GL_TEXTURE_COORD_ARRAY;
+import static org.lwjgl.opengl.GL11.GL_VERTEX_ARRAY;
+import static org.lwjgl.opengl.GL11.glColorPointer;
+import static org.lwjgl.opengl.GL11.glDisableClientState;
+import static org.lwjgl.opengl.GL11.glEnableClientState;
+import static org.lwjgl.opengl.GL11.glNormalPointer;
+import static org.lwjgl.opengl.GL11.glTexCoordPointer;
+import static org.lwjgl.opengl.GL11.glVertexPointer;
+
+import java.nio.ByteBuffer;
+
+import org.lwjgl.opengl.GL11;
+import org.lwjgl.opengl.GL13;
+import org.lwjgl.opengl.GL14;
+import org.terasology.math.Side;
+import org.terasology.math.TeraMath;
+import org.terasology.math.Vector3i;
+
+/**
+ * The layouts of the vertices in the vertex buffers of chunk meshes.
+ * <p/>
+ * The chunk shader reads both layouts, the uniform "compactVertices" tells it which one the rendered mesh uses.
+ */
+public enum ChunkVertexFormat {
+    /**
+     * 64 bytes per vertex: position, texture coordinates, light and normal as three floats each, color as four floats.
+     */
+    FLOAT((3 + 3 + 3 + 4 + 3) * 4) {
+        @Override
+        public void putVertex(ByteBuffer buffer, float x, float y, float z, float u, float v, float w, float sunlight, float blockLight, float occlusion,
+                              float red, float green, float blue, float alpha, float normalX, float normalY, float normalZ) {
+            buffer.putFloat(x);
+            buffer.putFloat(y);
+            buffer.putFloat(z);
+
+            buffer.putFloat(u);
+            buffer.putFloat(v);
+            buffer.putFloat(w);
+
+            buffer.putFloat(sunlight);
+            buffer.putFloat(blockLight);
+            buffer.putFloat(occlusion);
+
+            buffer.putFloat(red);
+            buffer.putFloat(green);
+            buffer.putFloat(blue);
+            buffer.putFloat(alpha);
+
+            buffer.putFloat(normalX);
+            buffer.putFloat(normalY);
+            buffer.putFloat(normalZ);
+        }
+
+        @Override
+        void enableArrays() {
+            glEnableClientState(GL_VERTEX_ARRAY);
+            glEnableClientState(GL_TEXTURE_COORD_ARRAY);
+            glEnableClientState(GL_COLOR_ARRAY);
+            glEnableClientState(GL_NORMAL_ARRAY);
+
+            glVertexPointer(3, GL11.GL_FLOAT, getVertexSize(), 0);
+
+            GL13.glClientActiveTexture(GL13.GL_TEXTURE0);
+            glTexCoordPointer(3, GL11.GL_FLOAT, getVertexSize(), 3 * 4);
+
+            GL13.glClientActiveTexture(GL13.GL_TEXTURE1);
+            glTexCoordPointer(3, GL11.GL_FLOAT, getVertexSize(), (3 + 3) * 4);
+
+            glColorPointer(4, GL11.GL_FLOAT, getVertexSize(), (3 + 3 + 3) * 4);
+
+            glNormalPointer(GL11.GL_FLOAT, getVertexSize(), (3 + 3 + 3 + 4) * 4);
+        }
+
+        @Override
+        void disableArrays() {
+            glDisableClientState(GL_NORMAL_ARRAY);
+            glDisableClientState(GL_COLOR_ARRAY);
+            glDisableClientState(GL_TEXTURE_COORD_ARRAY);
+            glDisableClientState(GL_VERTEX_ARRAY);
+        }
+    },
+
+    /**
+     * 24 bytes per vertex:
+     * <ul>
+     * <li>Four shorts: the chunk relative position in fixed point with {@link #POSITION_SCALE} steps per block, and
+     * the normal as the ordinal of the side it faces, or a quantized direction for other normals.</li>
+     * <li>Four shorts: the atlas texture coordinates with {@link #TEX_COORD_SCALE} steps over the atlas, the third
+     * texture coordinate and padding. Merged quads of greedy meshes keep their tile coordinates as they are.</li>
+     * <li>Four bytes: sunlight, block light, ambient occlusion and padding, normalized to 0..1.</li>
+     * <li>Four bytes: the color, normalized to 0..1 like the vertex colors passed on to the fragment shader.</li>
+     * </ul>
+     */
+    COMPACT(4 * 2 + 4 * 2 + 4 + 4) {
+        @Override
+        public void putVertex(ByteBuffer buffer, float x, float y, float z, float u, float v, float w, float sunlight, float blockLight, float occlusion,
+                              float red, float green, float blue, float alpha, float normalX, float normalY, float normalZ) {
+            buffer.putShort(toShort(x * POSITION_SCALE));
+            buffer.putShort(toShort(y * POSITION_SCALE));
+            buffer.putShort(toShort(z * POSITION_SCALE));
+            buffer.putShort(encodeNormal(normalX, normalY, normalZ));
+
+            float texCoordScale = (w >= 0) ? TEX_COORD_SCALE : 1;
+            buffer.putShort(toShort(u * texCoordScale));
+            buffer.putShort(toShort(v * texCoordScale));
+            buffer.putShort(toShort(w));
+            buffer.putShort((short) 0);
+
+            buffer.put(toUnsignedByte(sunlight));
+            buffer.put(toUnsignedByte(blockLight));
+            buffer.put(toUnsignedByte(occlusion));
+            buffer.put((byte) 0);
+
+            buffer.put(toUnsignedByte(red));
+            buffer.put(toUnsignedByte(green));
+            buffer.put(toUnsignedByte(blue));
+            buffer.put(toUnsignedByte(alpha));
+        }
+
+        @Override
+        void enableArrays() {
+            glEnableClientState(GL_VERTEX_ARRAY);
+            glEnableClientState(GL_TEXTURE_COORD_ARRAY);
+            glEnableClientState(GL_COLOR_ARRAY);
+            glEnableClientState(GL14.GL_SECONDARY_COLOR_ARRAY);
+
+            glVertexPointer(4, GL11.GL_SHORT, getVertexSize(), 0);
+
+            GL13.glClientActiveTexture(GL13.GL_TEXTURE0);
+            glTexCoordPointer(3, GL11.GL_SHORT, getVertexSize(), 4 * 2);
+
+            GL14.glSecondaryColorPointer(3, GL11.GL_UNSIGNED_BYTE, getVertexSize(), 4 * 2 + 4 * 2);
+
+            glColorPointer(4, GL11.GL_UNSIGNED_BYTE, getVertexSize(), 4 * 2 + 4 * 2 + 4);
+        }
+
+        @Override
+        void disableArrays() {
+            glDisableClientState(GL14.GL_SECONDARY_COLOR_ARRAY);
+            glDisableClientState(GL_COLOR_ARRAY);
+            glDisableClientState(GL_TEXTURE_COORD_ARRAY);
+            glDisableClientState(GL_VERTEX_ARRAY);
+        }
+    };
+
+    /**
+     * Fixed point steps per block of the positions of compact vertices. Chunk relative positions up to 255.99 fit into
+     * a short.
+     */
+    public static final float POSITION_SCALE = 128;
+
+    /**
+     * Fixed point steps over the whole texture atlas of the texture coordinates of compact vertices. The corners of
+     * all atlas tiles are represented exactly.
+     */
+    public static final float TEX_COORD_SCALE = 16384;
+
+    /**
+     * The first normal code of normals which do not face a side. They are quantized to
+     * {@link #NORMAL_STEPS} steps per axis.
+     */
+    public static final int FIRST_QUANTIZED_NORMAL = Side.values().length;
+    public static final int NORMAL_STEPS = 31;
+
+    private static final float SIDE_NORMAL_EPSILON = 0.0001f;
+
+    private final int vertexSize;
+
+    private ChunkVertexFormat(int vertexSize) {
+        this.vertexSize = vertexSize;
+    }
+
+    /**
+     * @return The size of a vertex in bytes
+     */
+    public int getVertexSize() {
+        return vertexSize;
+    }
+
+    /**
+     * Appends a vertex to the buffer.
+     *
+     * @param u         The first texture coordinate
+     * @param v         The second texture coordinate
+     * @param w         The third texture coordinate, negative for merged quads of greedy meshes
+     * @param sunlight  The sunlight, from 0 to 1
+     * @param occlusion The ambient occlusion, from 0 to 1
+     */
+    public abstract void putVertex(ByteBuffer buffer, float x, float y, float z, float u, float v, float w, float sunlight, float blockLight, float occlusion,
+                                   float red, float green, float blue, float alpha, float normalX, float normalY, float normalZ);
+
+    /**
+     * Enables the client state arrays of this format and points them into the bound vertex buffer.
+     */
+    abstract void enableArrays();
+
+    abstract void disableArrays();
+
+    /**
+     * Encodes a normal of a compact vertex. Normals facing a side are encoded as the ordinal of the side, other normals
+     * are quantized.
+     */
+    static short encodeNormal(float normalX, float normalY, float normalZ) {
+        Side side = Side.inDirection(normalX, normalY, normalZ);
+        Vector3i sideDir = side.getVector3i();
+        if (Math.abs(normalX - sideDir.x) < SIDE_NORMAL_EPSILON && Math.abs(normalY - sideDir.y) < SIDE_NORMAL_EPSILON && Math.abs(normalZ - sideDir.z) < SIDE_NORMAL_EPSILON) {
+            return (short) side.ordinal();
+        }
+        int x = quantizeNormal(normalX);
+        int y = quantizeNormal(normalY);
+        int z = quantizeNormal(normalZ);
+        return (short) (FIRST_QUANTIZED_NORMAL + (x * NORMAL_STEPS + y) * NORMAL_STEPS + z);
+    }
+
+    private static int quantizeNormal(float value) {
+        return TeraMath.clamp(Math.round((value + 1) * 0.5f * (NORMAL_STEPS - 1)), 0, NORMAL_STEPS - 1);
+    }
+
+    private static short toShort(float value) {
+        return (short) TeraMath.clamp(Math.round(value), Short.MIN_VALUE, Short.MAX_VALUE);
+    }
+
+    private static byte toUnsignedByte(float value) {
+        return (byte) TeraMath.clamp(Math.round(value * 255), 0, 255);
+    }
+}
@@ -0,0 +1,405 @@
+/*
+ * Copyright 2012 Benjamin Glatzel <benjamin.glatzel@me.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terasology.rendering.primitives;
+
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.util.Arrays;
+
+import javax.vecmath.Vector2f;
+import javax.vecmath.Vector3f;
+import javax.vecmath.Vector4f;
+
+import org.terasology.math.Side;
+import org.terasology.math.Vector3i;
+import org.terasology.world.WorldView;
+import org.terasology.world.block.Block;
+import org.terasology.world.block.shapes.BlockMeshPart;
+import org.terasology.world.chunks.Chunk;
+
+/**
+ * Collects the visible full side faces of the blocks of a chunk mesh, and merges coplanar neighbouring faces which look
+ * the same into larger quads: faces of the same block side, with the same color and the same light at all corners.
+ * Faces with varying light, e.g. from ambient occlusion, are kept as single quads with their own corner values, so the
+ * merged mesh is lit exactly like the mesh of single faces.
+ * <p/>
+ * A merged quad repeats the texture tile of its faces. Its texture coordinates count tiles instead of addressing the
+ * atlas, and the negative third texture coordinate holds the index of the tile, which the chunk shader uses to map the
+ * coordinates back into the atlas. The shader samples these tiles with the gradients of the unwrapped coordinates, so
+ * the mip level does not jump at tile borders. Without GL_ARB_shader_texture_lod it cannot, and merged quads show faint
+ * seams between their tiles in the distance, which is one reason greedy meshing is an opt-in advanced setting.
+ * <p/>
+ * The quads are written straight into the final vertex and index buffers of the mesh. Builders keep their buffers
+ * between meshes and must only be used by one thread at a time.
+ */
+final class GreedyMeshBuilder {
+    private static final float EPSILON = 0.001f;
+    private static final int TILES_PER_DIM = Math.round(1.0f / Block.TEXTURE_OFFSET);
+    private static final int LIGHT_FLOATS = 3 * 4;
+    private static final int QUAD_INTS = 7;
+    private static final int INITIAL_CAPACITY = 1024;
+    // Side.values() clones its array on every call
+    private static final Side[] SIDES = Side.values();
+
+    private int verticalOffset;
+    private int height;
+    private int[][] faceGrids = new int[SIDES.length][0];
+
+    private int faceCount;
+    private BlockMeshPart[] faceParts = new BlockMeshPart[INITIAL_CAPACITY];
+    private int[] faceMeshBits = new int[INITIAL_CAPACITY];
+    private float[] faceColors = new float[4 * INITIAL_CAPACITY];
+    private float[] faceLights = new float[LIGHT_FLOATS * INITIAL_CAPACITY];
+    private boolean[] faceUniformLight = new boolean[INITIAL_CAPACITY];
+
+    private int quadCount;
+    private int[] quads = new int[QUAD_INTS * INITIAL_CAPACITY];
+    private final int[] quadCounts = new int[4];
+
+    private final float[] light = new float[3];
+    private final int[] pos = new int[3];
+    private final int[] size = new int[3];
+
+    /**
+     * Starts a new mesh, covering all blocks of a chunk in the given range of heights.
+     */
+    void begin(int verticalOffset, int height) {
+        this.verticalOffset = verticalOffset;
+        this.height = height;
+        int cells = Chunk.SIZE_X * height * Chunk.SIZE_Z;
+        for (int i = 0; i < faceGrids.length; ++i) {
+            if (faceGrids[i].length < cells) {
+                faceGrids[i] = new int[cells];
+            } else {
+                // Normally already cleared by mergeFaces
+                Arrays.fill(faceGrids[i], 0, cells, 0);
+            }
+        }
+        Arrays.fill(faceParts, 0, faceCount, null);
+        faceCount = 0;
+        quadCount = 0;
+        Arrays.fill(quadCounts, 0);
+        size[0] = Chunk.SIZE_X;
+        size[1] = height;
+        size[2] = Chunk.SIZE_Z;
+    }
+
+    /**
+     * Adds a visible face of the block at the given position.
+     *
+     * @return Whether the face was added. Only faces which cover the full side of the block with a single, unrotated
+     *         texture tile can be added, other faces must be added to the mesh as usual.
+     */
+    boolean addFace(WorldView view, BlockMeshPart part, Side side, int x, int y, int z, Vector4f color, int meshBit) {
+        if (!isFullQuad(part, side)) {
+            return false;
+        }
+        int face = faceCount++;
+        ensureFaceCapacity(faceCount);
+        faceParts[face] = part;
+        faceMeshBits[face] = meshBit;
+        faceColors[4 * face] = color.x;
+        faceColors[4 * face + 1] = color.y;
+        faceColors[4 * face + 2] = color.z;
+        faceColors[4 * face + 3] = color.w;
+
+        boolean uniform = true;
+        for (int v = 0; v < 4; ++v) {
+            Vector3f vertex = part.getVertex(v);
+            Vector3f normal = part.getNormal(v);
+            ChunkTessellator.calcLightingValuesForVertexPos(view, vertex.x + x, vertex.y + y, vertex.z + z, normal.x, normal.y, normal.z, light);
+            int offset = LIGHT_FLOATS * face + 3 * v;
+            faceLights[offset] = light[0];
+            faceLights[offset + 1] = light[1];
+            faceLights[offset + 2] = light[2];
+            uniform &= light[0] == faceLights[LIGHT_FLOATS * face] && light[1] == faceLights[LIGHT_FLOATS * face + 1] && light[2] == faceLights[LIGHT_FLOATS * face + 2];
+        }
+        faceUniformLight[face] = uniform;
+
+        faceGrids[side.ordinal()][cellIndex(x, y, z)] = face + 1;
+        return true;
+    }
+
+    /**
+     * Merges the faces added since {@link #begin} into quads, growing each quad first along the first and then along
+     * the second axis of its plane.
+     */
+    void mergeFaces() {
+        for (Side side : SIDES) {
+            int[] grid = faceGrids[side.ordinal()];
+            int normalAxis = getNormalAxis(side);
+            int axisA = (normalAxis == 0) ? 1 : 0;
+            int axisB = (normalAxis == 2) ? 1 : 2;
+
+            for (pos[normalAxis] = 0; pos[normalAxis] < size[normalAxis]; ++pos[normalAxis]) {
+                for (int b = 0; b < size[axisB]; ++b) {
+                    for (int a = 0; a < size[axisA]; ++a) {
+                        pos[axisA] = a;
+                        pos[axisB] = b;
+                        int face = grid[cellIndex(pos)] - 1;
+                        if (face < 0) {
+                            continue;
+                        }
+
+                        int width = 1;
+                        int depth = 1;
+                        if (faceUniformLight[face]) {
+                            while (a + width < size[axisA] && isSameAppearance(face, cellFace(grid, axisA, a + width, axisB, b))) {
+                                width++;
+                            }
+                            grow:
+                            while (b + depth < size[axisB]) {
+                                for (int i = 0; i < width; ++i) {
+                                    if (!isSameAppearance(face, cellFace(grid, axisA, a + i, axisB, b + depth))) {
+                                        break grow;
+                                    }
+                                }
+                                depth++;
+                            }
+                        }
+
+                        for (int j = 0; j < depth; ++j) {
+                            for (int i = 0; i < width; ++i) {
+                                pos[axisA] = a + i;
+                                pos[axisB] = b + j;
+                                grid[cellIndex(pos)] = 0;
+                            }
+                        }
+                        pos[axisA] = a;
+                        pos[axisB] = b;
+                        addQuad(face, side, width, depth);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * @return The number of quads for the given mesh bit
+     */
+    int getQuadCount(int meshBit) {
+        return quadCounts[meshBit];
+    }
+
+    /**
+     * Writes the quads of the given mesh bit into the final buffers of the mesh.
+     *
+     * @param firstVertex  The index of the first vertex written
+     * @param vertexFormat The layout of the written vertices
+     */
+    void writeQuads(int meshBit, int firstVertex, ChunkVertexFormat vertexFormat, ByteBuffer vertices, IntBuffer indices) {
+        int nextVertex = firstVertex;
+        for (int q = 0; q < quadCount; ++q) {
+            int offset = QUAD_INTS * q;
+            int face = quads[offset];
+            if (faceMeshBits[face] != meshBit) {
+                continue;
+            }
+            Side side = SIDES[quads[offset + 1]];
+            int normalAxis = getNormalAxis(side);
+            int axisA = (normalAxis == 0) ? 1 : 0;
+            int axisB = (normalAxis == 2) ? 1 : 2;
+            int width = quads[offset + 5];
+            int depth = quads[offset + 6];
+            BlockMeshPart part = faceParts[face];
+
+            float minU = Float.MAX_VALUE;
+            float minV = Float.MAX_VALUE;
+            for (int v = 0; v < 4; ++v) {
+                minU = Math.min(minU, part.getTexCoord(v).x);
+                minV = Math.min(minV, part.getTexCoord(v).y);
+            }
+            int tileIndex = Math.round(minU / Block.TEXTURE_OFFSET) + TILES_PER_DIM * Math.round(minV / Block.TEXTURE_OFFSET);
+
+            // The change of the tile coordinates per block, along both axes of the plane
+            int tileUA = 0;
+            int tileVA = 0;
+            int tileUB = 0;
+            int tileVB = 0;
+            for (int v = 1; v < 4; ++v) {
+                float deltaA = getAxis(part.getVertex(v), axisA) - getAxis(part.getVertex(0), axisA);
+                float deltaB = getAxis(part.getVertex(v), axisB) - getAxis(part.getVertex(0), axisB);
+                int deltaU = tileCoord(part.getTexCoord(v).x, minU) - tileCoord(part.getTexCoord(0).x, minU);
+                int deltaV = tileCoord(part.getTexCoord(v).y, minV) - tileCoord(part.getTexCoord(0).y, minV);
+                if (Math.abs(deltaB) < EPSILON) {
+                    tileUA = Math.round(deltaU / deltaA);
+                    tileVA = Math.round(deltaV / deltaA);
+                } else if (Math.abs(deltaA) < EPSILON) {
+                    tileUB = Math.round(deltaU / deltaB);
+                    tileVB = Math.round(deltaV / deltaB);
+                }
+            }
+
+            for (int v = 0; v < 4; ++v) {
+                Vector3f vertex = part.getVertex(v);
+                Vector2f texCoord = part.getTexCoord(v);
+                Vector3f normal = part.getNormal(v);
+                int extendA = (getAxis(vertex, axisA) > 0) ? width - 1 : 0;
+                int extendB = (getAxis(vertex, axisB) > 0) ? depth - 1 : 0;
+
+                float x = vertex.x + quads[offset + 2] + ((axisA == 0) ? extendA : 0);
+                float y = vertex.y + quads[offset + 3] + ((axisA == 1) ? extendA : 0) + ((axisB == 1) ? extendB : 0);
+                float z = vertex.z + quads[offset + 4] + ((axisB == 2) ? extendB : 0);
+
+                float texU = texCoord.x;
+                float texV = texCoord.y;
+                float texW = 1.0f;
+                if (width > 1 || depth > 1) {
+                    texU = tileCoord(texCoord.x, minU) + extendA * tileUA + extendB * tileUB;
+                    texV = tileCoord(texCoord.y, minV) + extendA * tileVA + extendB * tileVB;
+                    texW = -1.0f - tileIndex;
+                }
+
+                int lightOffset = LIGHT_FLOATS * face + 3 * v;
+                vertexFormat.putVertex(vertices, x, y, z, texU, texV, texW,
+                        faceLights[lightOffset], faceLights[lightOffset + 1], faceLights[lightOffset + 2],
+                        faceColors[4 * face], faceColors[4 * face + 1], faceColors[4 * face + 2], faceColors[4 * face + 3],
+                        normal.x, normal.y, normal.z);
+            }
+            for (int i = 0; i < part.indicesSize(); ++i) {
+                indices.put(nextVertex + part.getIndex(i));
+            }
+            nextVertex += 4;
+        }
+    }
+
+    /**
+     * @return Whether the part is a single quad covering the given side of the block, textured with exactly one tile
+     */
+    private static boolean isFullQuad(BlockMeshPart part, Side side) {
+        if (part == null || part.size() != 4 || part.indicesSize() != 6) {
+            return false;
+        }
+        Vector3i normal = side.getVector3i();
+        float minU = Float.MAX_VALUE;
+        float minV = Float.MAX_VALUE;
+        for (int v = 0; v < 4; ++v) {
+            Vector3f vertex = part.getVertex(v);
+            if (!isCorner(vertex.x, normal.x) || !isCorner(vertex.y, normal.y) || !isCorner(vertex.z, normal.z)) {
+                return false;
+            }
+            minU = Math.min(minU, part.getTexCoord(v).x);
+            minV = Math.min(minV, part.getTexCoord(v).y);
+        }
+        for (int v = 0; v < 4; ++v) {
+            if (!isTileCorner(part.getTexCoord(v).x, minU) || !isTileCorner(part.getTexCoord(v).y, minV)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return Whether the coordinate lies on the side of the block in the given direction, or on any corner if the
+     *         direction is 0
+     */
+    private static boolean isCorner(float coord, int direction) {
+        if (direction != 0) {
+            return Math.abs(coord - 0.5f * direction) < EPSILON;
+        }
+        return Math.abs(Math.abs(coord) - 0.5f) < EPSILON;
+    }
+
+    private static boolean isTileCorner(float texCoord, float min) {
+        float tile = (texCoord - min) / Block.TEXTURE_OFFSET_WIDTH;
+        return Math.abs(tile) < EPSILON || Math.abs(tile - 1) < EPSILON;
+    }
+
+    private static int tileCoord(float texCoord, float min) {
+        return Math.round((texCoord - min) / Block.TEXTURE_OFFSET_WIDTH);
+    }
+
+    private static float getAxis(Vector3f vector, int axis) {
+        switch (axis) {
+            case 0:
+                return vector.x;
+            case 1:
+                return vector.y;
+            default:
+                return vector.z;
+        }
+    }
+
+    private static int getNormalAxis(Side side) {
+        Vector3i normal = side.getVector3i();
+        if (normal.x != 0) {
+            return 0;
+        }
+        return (normal.y != 0) ? 1 : 2;
+    }
+
+    private boolean isSameAppearance(int face, int other) {
+        if (other < 0 || !faceUniformLight[other] || faceParts[face] != faceParts[other] || faceMeshBits[face] != faceMeshBits[other]) {
+            return false;
+        }
+        for (int i = 0; i < 4; ++i) {
+            if (faceColors[4 * face + i] != faceColors[4 * other + i]) {
+                return false;
+            }
+        }
+        for (int i = 0; i < 3; ++i) {
+            if (faceLights[LIGHT_FLOATS * face + i] != faceLights[LIGHT_FLOATS * other + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int cellFace(int[] grid, int axisA, int a, int axisB, int b) {
+        int oldA = pos[axisA];
+        int oldB = pos[axisB];
+        pos[axisA] = a;
+        pos[axisB] = b;
+        int face = grid[cellIndex(pos)] - 1;
+        pos[axisA] = oldA;
+        pos[axisB] = oldB;
+        return face;
+    }
+
+    private int cellIndex(int[] cell) {
+        return (cell[1] * Chunk.SIZE_Z + cell[2]) * Chunk.SIZE_X + cell[0];
+    }
+
+    private int cellIndex(int x, int y, int z) {
+        return ((y - verticalOffset) * Chunk.SIZE_Z + z) * Chunk.SIZE_X + x;
+    }
+
+    private void addQuad(int face, Side side, int width, int depth) {
+        if (quads.length < QUAD_INTS * (quadCount + 1)) {
+            quads = Arrays.copyOf(quads, 2 * quads.length);
+        }
+        int offset = QUAD_INTS * quadCount++;
+        quads[offset] = face;
+        quads[offset + 1] = side.ordinal();
+        quads[offset + 2] = pos[0];
+        quads[offset + 3] = pos[1] + verticalOffset;
+        quads[offset + 4] = pos[2];
+        quads[offset + 5] = width;
+        quads[offset + 6] = depth;
+        quadCounts[faceMeshBits[face]]++;
+    }
+
+    private void ensureFaceCapacity(int capacity) {
+        if (faceParts.length < capacity) {
+            int newCapacity = 2 * faceParts.length;
+            faceParts = Arrays.copyOf(faceParts, newCapacity);
+            faceMeshBits = Arrays.copyOf(faceMeshBits, newCapacity);
+            faceColors = Arrays.copyOf(faceColors, 4 * newCapacity);
+            faceLights = Arrays.copyOf(faceLights, LIGHT_FLOATS * newCapacity);
+            faceUniformLight = Arrays.copyOf(faceUniformLight, newCapacity);
+        }
+    }
+}
@@ -39,13 +39,13 @@ import static org.lwjgl.opengl.GL11.glColorMask;
 public class BlockGrid {
 
     public class GridPosition {
-        public GridPosition(Vector3i position, byte blockType) {
+        public GridPosition(Vector3i position, short blockType) {
             this.position = position;
             this.blockType = blockType;
         }
 
         public Vector3i position;
-        public byte blockType;
+        public short blockType;
     }
 
     /* CONST */
@@ -89,7 +89,7 @@ public class BlockGrid {
      *
      * @param gridPosition The block position to add
      */
-    public void addGridPosition(Vector3i gridPosition, byte blockType) {
+    public void addGridPosition(Vector3i gridPosition, short blockType) {
         if (gridPosition.x < _minBounds.x) {
             _minBounds.x = gridPosition.x;
         }
@@ -0,0 +1,218 @@
+/*
+ * Copyright 2012 Benjamin Glatzel <benjamin.glatzel@me.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.terasology.rendering.world;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+import org.terasology.math.Vector3i;
+import org.terasology.world.chunks.Chunk;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+/**
+ * The ready chunks within the viewing distance of the camera, ordered by their distance to the camera chunk.
+ * <p/>
+ * The chunks in view are kept in a ring buffer addressed by chunk x/z, so when the camera moves into another chunk only
+ * the rows and columns coming into view are looked up. The order of the positions around the camera chunk is computed
+ * once per viewing distance, so the chunks never need to be sorted. Which chunks are ready is told by the chunk
+ * provider's events, rather than probed.
+ * <p/>
+ * Not thread safe, only used from the main thread.
+ */
+final class ChunkProximityRing {
+
+    private final Map<Vector3i, Chunk> readyChunks = Maps.newHashMap();
+    private final List<Chunk> chunks = Lists.newArrayList();
+    private boolean chunksDirty;
+
+    private int extent;
+    private int width;
+    private int centerX;
+    private int centerZ;
+    private Chunk[] slots = new Chunk[0];
+    private int[] orderX = new int[0];
+    private int[] orderZ = new int[0];
+
+    /**
+     * @param viewingDistance The width of the view, in chunks
+     * @param centerX         The x position of the camera chunk
+     * @param centerZ         The z position of the camera chunk
+     */
+    ChunkProximityRing(int viewingDistance, int centerX, int centerZ) {
+        this.centerX = centerX;
+        this.centerZ = centerZ;
+        setViewingDistance(viewingDistance);
+    }
+
+    /**
+     * @param viewingDistance The width of the view, in chunks
+     * @return Whether the viewing distance changed
+     */
+    boolean setViewingDistance(int viewingDistance) {
+        int newExtent = viewingDistance / 2;
+        if (newExtent == extent && slots.length > 0) {
+            return false;
+        }
+        extent = newExtent;
+        width = Math.max(1, 2 * extent);
+        slots = new Chunk[width * width];
+        calcOrder();
+        refill();
+        return true;
+    }
+
+    /**
+     * Moves the view to a new camera chunk, looking up the chunks of the positions coming into view.
+     *
+     * @return Whether the camera chunk changed
+     */
+    boolean setCenter(int newCenterX, int newCenterZ) {
+        if (newCenterX == centerX && newCenterZ == centerZ) {
+            return false;
+        }
+        int oldMinX = centerX - extent;
+        int oldMinZ = centerZ - extent;
+        centerX = newCenterX;
+        centerZ = newCenterZ;
+        if (Math.abs(newCenterX - (oldMinX + extent)) >= width || Math.abs(newCenterZ - (oldMinZ + extent)) >= width) {
+            refill();
+            return true;
+        }
+
+        // Each slot covers exactly one position of the view, so the positions coming into view take over the slots of
+        // the positions leaving it
+        for (int x = centerX - extent; x < centerX + extent; x++) {
+            boolean columnInOldView = x >= oldMinX && x < oldMinX + width;
+            for (int z = centerZ - extent; z < centerZ + extent; z++) {
+                if (!columnInOldView || z < oldMinZ || z >= oldMinZ + width) {
+                    slots[slot(x, z)] = readyChunks.get(new Vector3i(x, 0, z));
+                }
+            }
+        }
+        chunksDirty = true;
+        return true;
+    }
+
+    /**
+     * Looks up the chunks of all positions in view again.
+     */
+    void refill() {
+        for (int x = centerX - extent; x < centerX + extent; x++) {
+            for (int z = centerZ - extent; z < centerZ + extent; z++) {
+                slots[slot(x, z)] = readyChunks.get(new Vector3i(x, 0, z));
+            }
+        }
+        chunksDirty = true;
+    }
+
+    /**
+     * @param pos   The position of a chunk which, along with its neighbours, is complete
+     * @param chunk The chunk
+     */
+    void chunkReady(Vector3i pos, Chunk chunk) {
+        readyChunks.put(new Vector3i(pos), chunk);
+        if (isInView(pos.x, pos.z)) {
+            slots[slot(pos.x, pos.z)] = chunk;
+            chunksDirty = true;
+        }
+    }
+
+    /**
+     * Removes an unloaded chunk, and its neighbours as they cannot be rendered without it.
+     *
+     * @param pos The position of the unloaded chunk
+     */
+    void chunkUnloaded(Vector3i pos) {
+        for (int x = pos.x - 1; x <= pos.x + 1; x++) {
+            for (int z = pos.z - 1; z <= pos.z + 1; z++) {
+                if (readyChunks.remove(new Vector3i(x, pos.y, z)) != null && isInView(x, z)) {
+                    slots[slot(x, z)] = null;
+                    chunksDirty = true;
+                }
+            }
+        }
+    }
+
+    /**
+     * @return The ready chunks in view, closest to the camera chunk first
+     */
+    List<Chunk> getChunks() {
+        if (chunksDirty) {
+            chunks.clear();
+            for (int i = 0; i < orderX.length; i++) {
+                Chunk chunk = slots[slot(centerX + orderX[i], centerZ + orderZ[i])];
+                if (chunk != null) {
+                    chunks.add(chunk);
+                }
+            }
+            chunksDirty = false;
+        }
+        return chunks;
+    }
+
+    /**
+     * @return The number of ready chunks, whether in view or not
+     */
+    int getReadyChunkCount() {
+        return readyChunks.size();
+    }
+
+    private boolean isInView(int x, int z) {
+        return x >= centerX - extent && x < centerX + extent && z >= centerZ - extent && z < centerZ + extent;
+    }
+
+    private int slot(int x, int z) {
+        int slotX = x % width;
+        int slotZ = z % width;
+        if (slotX < 0) {
+            slotX += width;
+        }
+        if (slotZ < 0) {
+            slotZ += width;
+        }
+        return slotX * width + slotZ;
+    }
+
+    private void calcOrder() {
+        Integer[] offsets = new Integer[slots.length];
+        for (int i = 0; i < offsets.length; i++) {
+            offsets[i] = i;
+        }
+        Arrays.sort(offsets, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer o1, Integer o2) {
+                return distanceSquared(o1) - distanceSquared(o2);
+            }
+        });
+        orderX = new int[offsets.length];
+        orderZ = new int[offsets.length];
+        for (int i = 0; i < offsets.length; i++) {
+            orderX[i] = offsets[i] / width - extent;
+            orderZ[i] = offsets[i] % width - extent;
+        }
+    }
+
+    private int distanceSquared(int offset) {
+        int x = offset / width - extent;
+        int z = offset % width - extent;
+        return x * x + z * z;
+    }
+}
@@ -15,35 +15,61 @@
  */
 package org.terasology.rendering.world;
 
-import java.util.Set;
+import java.util.List;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
-import org.terasology.game.CoreRegistry;
-import org.terasology.game.GameEngine;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.terasology.logic.manager.Config;
+import org.terasology.math.Vector3i;
+import org.terasology.performanceMonitor.PerformanceMonitor;
 import org.terasology.rendering.primitives.ChunkMesh;
 import org.terasology.rendering.primitives.ChunkTessellator;
 import org.terasology.world.WorldProvider;
 import org.terasology.world.WorldView;
 import org.terasology.world.chunks.Chunk;
+import org.terasology.world.localChunkProvider.ChunkTaskMetrics;
 
-import com.google.common.collect.Sets;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
 /**
  * Provides the mechanism for updating and generating chunks.
+ * <p/>
+ * Chunk mesh updates are processed by a dedicated pool of meshing threads. Each chunk is queued at most once, and the
+ * queue hands out the updates closest to the camera first. If a chunk is changed again while its mesh is being
+ * generated, the outdated update is cancelled and the chunk is queued anew.
  *
  * @author Benjamin Glatzel <benjamin.glatzel@me.com>
  */
 public final class ChunkUpdateManager {
+    private static final Logger logger = LoggerFactory.getLogger(ChunkUpdateManager.class);
 
     public enum UPDATE_TYPE {
         DEFAULT, PLAYER_TRIGGERED
     }
 
     /* CONST */
-    private static final int MAX_THREADS = Config.getInstance().getMaxThreads();
+    private static final String TASK_NAME = "Chunk Update";
+    private static final long RATE_SAMPLE_INTERVAL = 1000000000L;
 
     /* CHUNK UPDATES */
-    private static final Set<Chunk> currentlyProcessedChunks = Sets.newHashSet();
+    private final ConcurrentMap<Chunk, MeshJob> jobs = Maps.newConcurrentMap();
+    private final PriorityBlockingQueue<MeshJob> queue = new PriorityBlockingQueue<MeshJob>(64);
+    private final ExecutorService meshingThreads;
+    private volatile Vector3i cameraChunk = Vector3i.zero();
+
+    /* METRICS */
+    private final ChunkTaskMetrics metrics = new ChunkTaskMetrics();
+    private final AtomicInteger completedMeshes = new AtomicInteger();
+    private long rateSampleStart = System.nanoTime();
+    private float meshesPerSecond;
 
     private final ChunkTessellator tessellator;
     private final WorldProvider worldProvider;
@@ -51,50 +77,210 @@ public final class ChunkUpdateManager {
     public ChunkUpdateManager(ChunkTessellator tessellator, WorldProvider worldProvider) {
         this.tessellator = tessellator;
         this.worldProvider = worldProvider;
+
+        int threads = Math.max(1, Config.getInstance().getMaxThreads());
+        meshingThreads = Executors.newFixedThreadPool(threads, new ThreadFactoryBuilder().setNameFormat("Chunk-Mesher-%d").setPriority(Thread.MIN_PRIORITY).setDaemon(true).build());
+        for (int i = 0; i < threads; ++i) {
+            meshingThreads.execute(new Runnable() {
+                @Override
+                public void run() {
+                    boolean running = true;
+                    while (running) {
+                        try {
+                            queue.take().run();
+                        } catch (InterruptedException e) {
+                            running = false;
+                        } catch (Exception e) {
+                            logger.error("Error in thread", e);
+                        }
+                    }
+                    logger.debug("Thread shutdown safely");
+                }
+            });
+        }
     }
 
     /**
-     * Updates the given chunk using a new thread from the thread pool. If the maximum amount of chunk updates
-     * is reached, the chunk update is ignored. Chunk updates can be forced though.
+     * Queues an update of the mesh of the given chunk. Chunks which are already queued are not queued again, but
+     * player triggered updates move them to the front of the queue.
      *
      * @param chunk The chunk to update
      * @param type  The chunk update type
-     * @return True if a chunk update was executed
+     * @return True if a new chunk update was queued
      */
-    // TODO: Review this system
     public boolean queueChunkUpdate(Chunk chunk, final UPDATE_TYPE type) {
+        MeshJob job = jobs.get(chunk);
+        if (job != null) {
+            if (!job.isStarted()) {
+                if (type == UPDATE_TYPE.PLAYER_TRIGGERED && !job.playerTriggered && queue.remove(job)) {
+                    job.playerTriggered = true;
+                    job.updatePriority(cameraChunk);
+                    queue.offer(job);
+                }
+                return false;
+            }
+            if (!chunk.isDirty()) {
+                // The running update already covers the latest changes
+                return false;
+            }
+            job.cancel();
+        }
 
-        if (!currentlyProcessedChunks.contains(chunk) && (currentlyProcessedChunks.size() < MAX_THREADS || type != UPDATE_TYPE.DEFAULT)) {
-            executeChunkUpdate(chunk);
-            return true;
+        MeshJob newJob = new MeshJob(chunk, type == UPDATE_TYPE.PLAYER_TRIGGERED);
+        boolean added = (job == null) ? jobs.putIfAbsent(chunk, newJob) == null : jobs.replace(chunk, job, newJob);
+        if (!added) {
+            return false;
+        }
+        newJob.updatePriority(cameraChunk);
+        queue.offer(newJob);
+        return true;
+    }
+
+    /**
+     * Sets the chunk the camera is in. If it changed, the queued updates are sorted again by their distance to it.
+     */
+    public void setCameraChunk(int x, int z) {
+        if (cameraChunk.x == x && cameraChunk.z == z) {
+            return;
         }
+        Vector3i newCameraChunk = new Vector3i(x, 0, z);
+        cameraChunk = newCameraChunk;
 
-        return false;
+        List<MeshJob> queued = Lists.newArrayListWithCapacity(queue.size());
+        queue.drainTo(queued);
+        for (MeshJob job : queued) {
+            job.updatePriority(newCameraChunk);
+        }
+        queue.addAll(queued);
     }
 
-    private void executeChunkUpdate(final Chunk c) {
-        currentlyProcessedChunks.add(c);
+    /**
+     * Samples the meshing metrics, should be called once per frame.
+     */
+    public void update() {
+        metrics.sampleQueueDepth(queue.size());
+        long now = System.nanoTime();
+        if (now - rateSampleStart >= RATE_SAMPLE_INTERVAL) {
+            meshesPerSecond = completedMeshes.getAndSet(0) * (float) RATE_SAMPLE_INTERVAL / (now - rateSampleStart);
+            rateSampleStart = now;
+        }
+    }
+
+    /**
+     * @return Metrics about the queue latency and run time of the chunk mesh updates
+     */
+    public ChunkTaskMetrics getMetrics() {
+        return metrics;
+    }
 
-        // Create a new thread and start processing
-        Runnable r = new Runnable() {
-            @Override
-            public void run() {
-                ChunkMesh[] newMeshes = new ChunkMesh[WorldRenderer.VERTICAL_SEGMENTS];
-                WorldView worldView = worldProvider.getLocalView(c.getPos());
+    /**
+     * @return The number of chunk meshes generated per second, sampled once per second
+     */
+    public float getMeshesPerSecond() {
+        return meshesPerSecond;
+    }
+
+    /**
+     * @return The number of queued chunk updates
+     */
+    public int getQueueSize() {
+        return queue.size();
+    }
+
+    /**
+     * Cancels all chunk updates and stops the meshing threads.
+     */
+    public void dispose() {
+        meshingThreads.shutdownNow();
+        for (MeshJob job : jobs.values()) {
+            job.cancel();
+        }
+        queue.clear();
+        jobs.clear();
+        try {
+            if (!meshingThreads.awaitTermination(1, TimeUnit.SECONDS)) {
+                logger.warn("Timed out awaiting chunk meshing thread termination");
+            }
+        } catch (InterruptedException e) {
+            logger.warn("Interrupted awaiting chunk meshing thread termination");
+        }
+    }
+
+    private class MeshJob implements Runnable, Comparable<MeshJob> {
+        private final Chunk chunk;
+        private final Vector3i position;
+        private final long creationTime = System.nanoTime();
+        private volatile boolean playerTriggered;
+        private volatile int priority;
+        private volatile boolean started;
+        private boolean cancelled;
+
+        public MeshJob(Chunk chunk, boolean playerTriggered) {
+            this.chunk = chunk;
+            this.position = chunk.getPos();
+            this.playerTriggered = playerTriggered;
+        }
+
+        public boolean isStarted() {
+            return started;
+        }
+
+        public void updatePriority(Vector3i cameraChunk) {
+            priority = playerTriggered ? -1 : position.gridDistance(cameraChunk);
+        }
+
+        public synchronized void cancel() {
+            cancelled = true;
+        }
+
+        public synchronized boolean isCancelled() {
+            return cancelled;
+        }
+
+        @Override
+        public void run() {
+            started = true;
+            if (isCancelled()) {
+                return;
+            }
+            long start = System.nanoTime();
+            PerformanceMonitor.startThread(TASK_NAME);
+            try {
+                WorldView worldView = worldProvider.getLocalView(position);
                 if (worldView != null) {
-                    c.setDirty(false);
+                    chunk.setDirty(false);
+                    ChunkMesh[] newMeshes = new ChunkMesh[WorldRenderer.VERTICAL_SEGMENTS];
                     for (int seg = 0; seg < WorldRenderer.VERTICAL_SEGMENTS; seg++) {
-                        newMeshes[seg] = tessellator.generateMesh(worldView, c.getPos(), Chunk.SIZE_Y / WorldRenderer.VERTICAL_SEGMENTS, seg * (Chunk.SIZE_Y / WorldRenderer.VERTICAL_SEGMENTS));
+                        if (isCancelled()) {
+                            return;
+                        }
+                        newMeshes[seg] = tessellator.generateMesh(worldView, position, Chunk.SIZE_Y / WorldRenderer.VERTICAL_SEGMENTS, seg * (Chunk.SIZE_Y / WorldRenderer.VERTICAL_SEGMENTS));
+                    }
+                    if (publish(newMeshes)) {
+                        completedMeshes.incrementAndGet();
+                        metrics.taskCompleted(TASK_NAME, start - creationTime, System.nanoTime() - start);
                     }
-
-                    c.setPendingMesh(newMeshes);
-
                 }
-                currentlyProcessedChunks.remove(c);
+            } finally {
+                jobs.remove(chunk, this);
+                PerformanceMonitor.endThread(TASK_NAME);
             }
-        };
+        }
 
-        CoreRegistry.get(GameEngine.class).submitTask("Chunk Update", r);
-    }
+        /**
+         * Hands the new meshes to the chunk, unless this update was cancelled in the meantime.
+         */
+        private synchronized boolean publish(ChunkMesh[] newMeshes) {
+            if (cancelled) {
+                return false;
+            }
+            chunk.setPendingMesh(newMeshes);
+            return true;
+        }
 
+        @Override
+        public int compareTo(MeshJob o) {
+            return (priority < o.priority) ? -1 : ((priority == o.priority) ? 0 : 1);
+        }
+    }
 }
@@ -35,19 +35,17 @@ import static org.lwjgl.opengl.GL11.glPopMatrix;
 import static org.lwjgl.opengl.GL11.glPushMatrix;
 
 import java.awt.image.BufferedImage;
-import java.io.BufferedOutputStream;
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.ObjectOutputStream;
 import java.nio.ByteBuffer;
 import java.text.SimpleDateFormat;
 import java.util.Calendar;
-import java.util.Collections;
 import java.util.Comparator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 import javax.imageio.ImageIO;
 import javax.vecmath.Vector3f;
@@ -74,7 +72,6 @@ import org.terasology.logic.manager.PostProcessingRenderer;
 import org.terasology.logic.manager.ShaderManager;
 import org.terasology.logic.manager.WorldTimeEventManager;
 import org.terasology.math.AABB;
-import org.terasology.math.Rect2i;
 import org.terasology.math.Region3i;
 import org.terasology.math.TeraMath;
 import org.terasology.math.Vector3i;
@@ -97,10 +94,12 @@ import org.terasology.world.WorldTimeEvent;
 import org.terasology.world.WorldView;
 import org.terasology.world.block.Block;
 import org.terasology.world.chunks.Chunk;
+import org.terasology.world.chunks.ChunkListener;
 import org.terasology.world.chunks.ChunkProvider;
 import org.terasology.world.chunks.ChunkStore;
 import org.terasology.world.chunks.LocalChunkProvider;
 import org.terasology.world.chunks.store.ChunkStoreGZip;
+import org.terasology.world.chunks.store.ChunkStoreRegion;
 import org.terasology.world.generator.core.ChunkGeneratorManager;
 
 import com.google.common.collect.Lists;
@@ -119,8 +118,29 @@ public final class WorldRenderer {
     public static final int MAX_BILLBOARD_CHUNKS = 64;
     public static final int VERTICAL_SEGMENTS = Config.getInstance().getVerticalChunkMeshSegments();
 
+    private static final String REGION_FOLDER = "regions";
+
     private static final Logger logger = LoggerFactory.getLogger(WorldRenderer.class);
 
+    private static final int RENDER_POST_PROCESSING_ACTIVITY = PerformanceMonitor.registerActivity("Render Post-Processing");
+    private static final int RENDER_FIRST_PERSON_ACTIVITY = PerformanceMonitor.registerActivity("Render First Person");
+    private static final int RENDER_SKY_ACTIVITY = PerformanceMonitor.registerActivity("Render Sky");
+    private static final int RENDER_WORLD_ACTIVITY = PerformanceMonitor.registerActivity("Render World");
+    private static final int RENDER_OBJECTS_OPAQUE_ACTIVITY = PerformanceMonitor.registerActivity("Render Objects (Opaque)");
+    private static final int RENDER_CHUNKS_OPAQUE_ACTIVITY = PerformanceMonitor.registerActivity("Render Chunks (Opaque)");
+    private static final int RENDER_CHUNKS_TRANSPARENT_ACTIVITY = PerformanceMonitor.registerActivity("Render Chunks (Transparent)");
+    private static final int RENDER_OBJECTS_TRANSPARENT_ACTIVITY = PerformanceMonitor.registerActivity("Render Objects (Transparent)");
+    private static final int RENDER_CHUNKS_WATER_ICE_ACTIVITY = PerformanceMonitor.registerActivity("Render Chunks (Water, Ice)");
+    private static final int RENDER_OVERLAYS_ACTIVITY = PerformanceMonitor.registerActivity("Render Overlays");
+    private static final int RENDER_WORLD_REFLECTION_ACTIVITY = PerformanceMonitor.registerActivity("Render World (Reflection)");
+    private static final int CAMERAS_ACTIVITY = PerformanceMonitor.registerActivity("Cameras");
+    private static final int UPDATE_TICK_ACTIVITY = PerformanceMonitor.registerActivity("Update Tick");
+    private static final int UPDATE_CHUNK_CACHE_ACTIVITY = PerformanceMonitor.registerActivity("Update Chunk Cache");
+    private static final int UPDATE_CLOSE_CHUNKS_ACTIVITY = PerformanceMonitor.registerActivity("Update Close Chunks");
+    private static final int SKYSPHERE_ACTIVITY = PerformanceMonitor.registerActivity("Skysphere");
+    private static final int FIRE_EVENTS_ACTIVITY = PerformanceMonitor.registerActivity("Fire Events");
+    private static final int PHYSICS_RENDERER_ACTIVITY = PerformanceMonitor.registerActivity("Physics Renderer");
+
     /* WORLD PROVIDER */
     private final WorldProvider _worldProvider;
     private ChunkProvider _chunkProvider;
@@ -142,9 +162,20 @@ public final class WorldRenderer {
 
     /* CHUNKS */
     private ChunkTessellator _chunkTesselator;
-    private boolean _pendingChunks = false;
-    private final List<Chunk> _chunksInProximity = Lists.newArrayList();
-    private int _chunkPosX, _chunkPosZ;
+    private final ChunkProximityRing _chunksInProximity;
+    private final Queue<Chunk> _readyChunks = new ConcurrentLinkedQueue<Chunk>();
+    private final Queue<Vector3i> _unloadedChunks = new ConcurrentLinkedQueue<Vector3i>();
+    private final ChunkListener _chunkListener = new ChunkListener() {
+        @Override
+        public void onChunkReady(Vector3i pos, Chunk chunk) {
+            _readyChunks.add(chunk);
+        }
+
+        @Override
+        public void onChunkUnloaded(Vector3i pos) {
+            _unloadedChunks.add(new Vector3i(pos));
+        }
+    };
 
     /* RENDERING */
     private final LinkedList<Chunk> _renderQueueChunksOpaque = Lists.newLinkedList();
@@ -190,27 +221,24 @@ public final class WorldRenderer {
      */
     public WorldRenderer(WorldInfo worldInfo, ChunkGeneratorManager chunkGeneratorManager, EntityManager manager, LocalPlayerSystem localPlayerSystem) {
         // TODO: Cleaner method for this? Should not be using the world title
-        File f = new File(PathManager.getInstance().getWorldSavePath(worldInfo.getTitle()), worldInfo.getTitle() + ".dat");
-        if (f.exists()) {
-            try {
-                chunkStore = ChunkStoreGZip.load(f);
-            } catch (IOException e) {
-                /* TODO: We really should expose this error via UI so player knows that there is an issue with their world
-                   (don't have the game continue or we risk overwriting their game)
-                 */
-                e.printStackTrace();
-            }
-        }
-        if (chunkStore == null) {
-            chunkStore = new ChunkStoreGZip();
+        File worldSavePath = PathManager.getInstance().getWorldSavePath(worldInfo.getTitle());
+        ChunkStoreRegion regionStore = new ChunkStoreRegion(new File(worldSavePath, REGION_FOLDER));
+        File legacyChunkFile = new File(worldSavePath, worldInfo.getTitle() + ".dat");
+        if (legacyChunkFile.exists()) {
+            importLegacyChunks(legacyChunkFile, regionStore);
         }
+        chunkStore = regionStore;
         _chunkProvider = new LocalChunkProvider(chunkStore, chunkGeneratorManager);
+        _chunksInProximity = new ChunkProximityRing(Config.getInstance().getActiveViewingDistance(), 0, 0);
+        _chunkProvider.addChunkListener(_chunkListener);
         EntityAwareWorldProvider entityWorldProvider = new EntityAwareWorldProvider(new WorldProviderCoreImpl(worldInfo, _chunkProvider));
+        // Generation and rendering share the biome provider, so each chunk's climate is only computed once
+        chunkGeneratorManager.setWorldBiomeProvider(entityWorldProvider.getBiomeProvider());
         CoreRegistry.put(BlockEntityRegistry.class, entityWorldProvider);
         CoreRegistry.get(ComponentSystemManager.class).register(entityWorldProvider, "engine:BlockEntityRegistry");
         _worldProvider = new WorldProviderWrapper(entityWorldProvider);
         _bulletPhysics = new BulletPhysics(_worldProvider);
-        _chunkTesselator = new ChunkTessellator(_worldProvider.getBiomeProvider());
+        _chunkTesselator = ChunkTessellator.createConfigured(_worldProvider.getBiomeProvider());
         _skysphere = new Skysphere(this);
         _chunkUpdateManager = new ChunkUpdateManager(_chunkTesselator, _worldProvider);
         _worldTimeEventManager = new WorldTimeEventManager(_worldProvider);
@@ -240,71 +268,29 @@ public final class WorldRenderer {
      * @return True if the list was changed
      */
     public boolean updateChunksInProximity(boolean force) {
-        int newChunkPosX = calcCamChunkOffsetX();
-        int newChunkPosZ = calcCamChunkOffsetZ();
-
-        // TODO: This should actually be done based on events from the ChunkProvider on new chunk availability/old chunk removal
-        int viewingDistance = Config.getInstance().getActiveViewingDistance();
-
-        if (_chunkPosX != newChunkPosX || _chunkPosZ != newChunkPosZ || force || _pendingChunks) {
-            // just add all visible chunks
-            if (_chunksInProximity.size() == 0 || force || _pendingChunks) {
-                _chunksInProximity.clear();
-                for (int x = -(viewingDistance / 2); x < viewingDistance / 2; x++) {
-                    for (int z = -(viewingDistance / 2); z < viewingDistance / 2; z++) {
-                        Chunk c = _chunkProvider.getChunk(newChunkPosX + x, 0, newChunkPosZ + z);
-                        if (c != null && c.getChunkState() == Chunk.State.COMPLETE && _worldProvider.getLocalView(c.getPos()) != null) {
-                            _chunksInProximity.add(c);
-                        } else {
-                            _pendingChunks = true;
-                        }
-                    }
-                }
-            }
-            // adjust proximity chunk list
-            else {
-                int vd2 = viewingDistance / 2;
-
-                Rect2i oldView = new Rect2i(_chunkPosX - vd2, _chunkPosZ - vd2, viewingDistance, viewingDistance);
-                Rect2i newView = new Rect2i(newChunkPosX - vd2, newChunkPosZ - vd2, viewingDistance, viewingDistance);
-
-                // remove
-                List<Rect2i> removeRects = Rect2i.subtractEqualsSized(oldView, newView);
-                for (Rect2i r : removeRects) {
-                    for (int x = r.minX(); x < r.maxX(); ++x) {
-                        for (int y = r.minY(); y < r.maxY(); ++y) {
-                            Chunk c = _chunkProvider.getChunk(x, 0, y);
-                            _chunksInProximity.remove(c);
-                        }
-                    }
-                }
+        boolean changed = _chunksInProximity.setViewingDistance(Config.getInstance().getActiveViewingDistance());
+        changed |= _chunksInProximity.setCenter(calcCamChunkOffsetX(), calcCamChunkOffsetZ());
 
-                // add
-                List<Rect2i> addRects = Rect2i.subtractEqualsSized(newView, oldView);
-                for (Rect2i r : addRects) {
-                    for (int x = r.minX(); x < r.maxX(); ++x) {
-                        for (int y = r.minY(); y < r.maxY(); ++y) {
-                            Chunk c = _chunkProvider.getChunk(x, 0, y);
-                            if (c != null && c.getChunkState() == Chunk.State.COMPLETE && _worldProvider.getLocalView(c.getPos()) != null) {
-                                _chunksInProximity.add(c);
-                            } else {
-                                _pendingChunks = true;
-                            }
-                        }
-                    }
-                }
+        Vector3i unloadedPos;
+        while ((unloadedPos = _unloadedChunks.poll()) != null) {
+            _chunksInProximity.chunkUnloaded(unloadedPos);
+            changed = true;
+        }
+        // The two queues do not keep the order of events between them, so a queued chunk may have been unloaded since.
+        // Only the chunk the provider currently holds is added.
+        Chunk readyChunk;
+        while ((readyChunk = _readyChunks.poll()) != null) {
+            if (!readyChunk.isDisposed() && _chunkProvider.getChunk(readyChunk.getPos()) == readyChunk && _worldProvider.getLocalView(readyChunk.getPos()) != null) {
+                _chunksInProximity.chunkReady(readyChunk.getPos(), readyChunk);
+                changed = true;
             }
-
-            _chunkPosX = newChunkPosX;
-            _chunkPosZ = newChunkPosZ;
-
-
-            Collections.sort(_chunksInProximity, new ChunkProximityComparator());
-
-            return true;
         }
 
-        return false;
+        if (force) {
+            _chunksInProximity.refill();
+            changed = true;
+        }
+        return changed;
     }
 
     private static class ChunkProximityComparator implements Comparator<Chunk> {
@@ -436,11 +422,15 @@ public final class WorldRenderer {
         _statVisibleChunks = 0;
         _statIgnoredPhases = 0;
 
-        for (int i = 0; i < _chunksInProximity.size(); i++) {
-            Chunk c = _chunksInProximity.get(i);
+        _chunkUpdateManager.setCameraChunk(calcCamChunkOffsetX(), calcCamChunkOffsetZ());
+        _chunkUpdateManager.update();
+
+        List<Chunk> chunksInProximity = _chunksInProximity.getChunks();
+        for (int i = 0; i < chunksInProximity.size(); i++) {
+            Chunk c = chunksInProximity.get(i);
             ChunkMesh[] mesh = c.getMesh();
 
-            if (isChunkVisible(c) && isChunkValidForRender(c)) {
+            if (isChunkVisible(c)) {
 
                 if (triangleCount(mesh, ChunkMesh.RENDER_PHASE.OPAQUE) > 0)
                     _renderQueueChunksOpaque.add(c);
@@ -531,7 +521,7 @@ public final class WorldRenderer {
         PostProcessingRenderer.getInstance().endRenderScene();
 
         /* RENDER THE FINAL POST-PROCESSED SCENE */
-        PerformanceMonitor.startActivity("Render Post-Processing");
+        PerformanceMonitor.startActivity(RENDER_POST_PROCESSING_ACTIVITY);
         PostProcessingRenderer.getInstance().renderScene();
         PerformanceMonitor.endActivity();
 
@@ -541,7 +531,7 @@ public final class WorldRenderer {
             glLoadIdentity();
             _activeCamera.loadProjectionMatrix(90f);
 
-            PerformanceMonitor.startActivity("Render First Person");
+            PerformanceMonitor.startActivity(RENDER_FIRST_PERSON_ACTIVITY);
             for (RenderSystem renderer : _systemManager.iterateRenderSubscribers()) {
                 renderer.renderFirstPerson();
             }
@@ -553,13 +543,13 @@ public final class WorldRenderer {
 
     public void renderWorld(Camera camera) {
         /* SKYSPHERE */
-        PerformanceMonitor.startActivity("Render Sky");
+        PerformanceMonitor.startActivity(RENDER_SKY_ACTIVITY);
         camera.lookThroughNormalized();
         _skysphere.render();
         PerformanceMonitor.endActivity();
 
         /* WORLD RENDERING */
-        PerformanceMonitor.startActivity("Render World");
+        PerformanceMonitor.startActivity(RENDER_WORLD_ACTIVITY);
         camera.lookThrough();
         if (Config.getInstance().isDebugCollision()) {
             renderDebugCollision(camera);
@@ -572,7 +562,7 @@ public final class WorldRenderer {
         if (_wireframe)
             glPolygonMode(GL_FRONT_AND_BACK, GL_LINE);
 
-        PerformanceMonitor.startActivity("Render Objects (Opaque)");
+        PerformanceMonitor.startActivity(RENDER_OBJECTS_OPAQUE_ACTIVITY);
 
         for (RenderSystem renderer : _systemManager.iterateRenderSubscribers()) {
             renderer.renderOpaque();
@@ -580,7 +570,7 @@ public final class WorldRenderer {
 
         PerformanceMonitor.endActivity();
 
-        PerformanceMonitor.startActivity("Render Chunks (Opaque)");
+        PerformanceMonitor.startActivity(RENDER_CHUNKS_OPAQUE_ACTIVITY);
 
         /*
          * FIRST RENDER PASS: OPAQUE ELEMENTS
@@ -590,7 +580,7 @@ public final class WorldRenderer {
 
         PerformanceMonitor.endActivity();
 
-        PerformanceMonitor.startActivity("Render Chunks (Transparent)");
+        PerformanceMonitor.startActivity(RENDER_CHUNKS_TRANSPARENT_ACTIVITY);
 
         /*
          * SECOND RENDER PASS: BILLBOARDS
@@ -603,7 +593,7 @@ public final class WorldRenderer {
 
         PerformanceMonitor.endActivity();
 
-        PerformanceMonitor.startActivity("Render Objects (Transparent)");
+        PerformanceMonitor.startActivity(RENDER_OBJECTS_TRANSPARENT_ACTIVITY);
 
         for (RenderSystem renderer : _systemManager.iterateRenderSubscribers()) {
             renderer.renderTransparent();
@@ -611,7 +601,7 @@ public final class WorldRenderer {
 
         PerformanceMonitor.endActivity();
 
-        PerformanceMonitor.startActivity("Render Chunks (Water, Ice)");
+        PerformanceMonitor.startActivity(RENDER_CHUNKS_WATER_ICE_ACTIVITY);
 
         // Make sure the water surface is rendered if the player is swimming
         if (headUnderWater) {
@@ -638,7 +628,7 @@ public final class WorldRenderer {
 
         PerformanceMonitor.endActivity();
 
-        PerformanceMonitor.startActivity("Render Overlays");
+        PerformanceMonitor.startActivity(RENDER_OVERLAYS_ACTIVITY);
 
         for (RenderSystem renderer : _systemManager.iterateRenderSubscribers()) {
             renderer.renderOverlay();
@@ -655,10 +645,12 @@ public final class WorldRenderer {
             glPolygonMode(GL_FRONT_AND_BACK, GL_FILL);
 
         glDisable(GL_LIGHT0);
+
+        PerformanceMonitor.endActivity();
     }
 
     public void renderWorldReflection(Camera camera) {
-        PerformanceMonitor.startActivity("Render World (Reflection)");
+        PerformanceMonitor.startActivity(RENDER_WORLD_REFLECTION_ACTIVITY);
         camera.lookThroughNormalized();
         _skysphere.render();
 
@@ -730,25 +722,25 @@ public final class WorldRenderer {
     }
 
     public void update(float delta) {
-        PerformanceMonitor.startActivity("Cameras");
+        PerformanceMonitor.startActivity(CAMERAS_ACTIVITY);
         animateSpawnCamera(delta);
         _spawnCamera.update(delta);
         PerformanceMonitor.endActivity();
 
-        PerformanceMonitor.startActivity("Update Tick");
+        PerformanceMonitor.startActivity(UPDATE_TICK_ACTIVITY);
         updateTick(delta);
         PerformanceMonitor.endActivity();
 
         // Free unused space
-        PerformanceMonitor.startActivity("Update Chunk Cache");
+        PerformanceMonitor.startActivity(UPDATE_CHUNK_CACHE_ACTIVITY);
         _chunkProvider.update();
         PerformanceMonitor.endActivity();
 
-        PerformanceMonitor.startActivity("Update Close Chunks");
+        PerformanceMonitor.startActivity(UPDATE_CLOSE_CHUNKS_ACTIVITY);
         updateChunksInProximity(false);
         PerformanceMonitor.endActivity();
 
-        PerformanceMonitor.startActivity("Skysphere");
+        PerformanceMonitor.startActivity(SKYSPHERE_ACTIVITY);
         _skysphere.update(delta);
         PerformanceMonitor.endActivity();
 
@@ -758,11 +750,11 @@ public final class WorldRenderer {
 
 
         // And finally fire any active events
-        PerformanceMonitor.startActivity("Fire Events");
+        PerformanceMonitor.startActivity(FIRE_EVENTS_ACTIVITY);
         _worldTimeEventManager.fireWorldTimeEvents();
         PerformanceMonitor.endActivity();
 
-        PerformanceMonitor.startActivity("Physics Renderer");
+        PerformanceMonitor.startActivity(PHYSICS_RENDERER_ACTIVITY);
         _bulletPhysics.update(delta);
         PerformanceMonitor.endActivity();
     }
@@ -869,10 +861,16 @@ public final class WorldRenderer {
         return _chunkProvider;
     }
 
+    public ChunkUpdateManager getChunkUpdateManager() {
+        return _chunkUpdateManager;
+    }
+
     /**
      * Disposes this world.
      */
     public void dispose() {
+        _chunkProvider.removeChunkListener(_chunkListener);
+        _chunkUpdateManager.dispose();
         _worldProvider.dispose();
         WorldInfo worldInfo = _worldProvider.getWorldInfo();
         try {
@@ -884,19 +882,45 @@ public final class WorldRenderer {
         AudioManager.getInstance().stopAllSounds();
 
         chunkStore.dispose();
-        // TODO: this should be elsewhere, perhaps within the chunk cache.
-        File chunkFile = new File(PathManager.getInstance().getWorldSavePath(_worldProvider.getTitle()), _worldProvider.getTitle() + ".dat");
+    }
+
+    /**
+     * Moves the chunks of a world saved as a single chunk store blob into the region files of the current chunk store.
+     * Each chunk is written as soon as it is inflated, so only one is held in memory at a time. Once all chunks are on
+     * disk, the old file is kept under a new name, so it is not imported again. If any chunk fails to import, the old
+     * file is left in place and the import is repeated next time the world is loaded.
+     */
+    private void importLegacyChunks(File legacyChunkFile, ChunkStoreRegion regionStore) {
+        ChunkStoreGZip legacyStore;
         try {
-            FileOutputStream fileOut = new FileOutputStream(chunkFile);
-            BufferedOutputStream bos = new BufferedOutputStream(fileOut);
-            ObjectOutputStream out = new ObjectOutputStream(bos);
-            out.writeObject(chunkStore);
-            out.close();
-            bos.flush();
-            bos.close();
-            fileOut.close();
+            legacyStore = ChunkStoreGZip.load(legacyChunkFile);
         } catch (IOException e) {
-            logger.error("Error saving chunks", e);
+            /* TODO: We really should expose this error via UI so player knows that there is an issue with their world
+               (don't have the game continue or we risk overwriting their game)
+             */
+            logger.error("Failed to load chunks from {}", legacyChunkFile, e);
+            return;
+        }
+        try {
+            logger.info("Importing chunks from {}", legacyChunkFile);
+            for (Vector3i pos : legacyStore.getChunkPositions()) {
+                Chunk chunk = legacyStore.get(pos);
+                if (chunk == null) {
+                    logger.error("Failed to read chunk {} from {}, keeping it for the next import", pos, legacyChunkFile);
+                    return;
+                }
+                regionStore.write(chunk);
+            }
+            regionStore.flush();
+        } catch (IOException e) {
+            logger.error("Failed to import chunks from {}, keeping it for the next import", legacyChunkFile, e);
+            return;
+        } finally {
+            legacyStore.dispose();
+        }
+        File importedFile = new File(legacyChunkFile.getParentFile(), legacyChunkFile.getName() + ".imported");
+        if (!legacyChunkFile.renameTo(importedFile)) {
+            logger.warn("Failed to rename imported chunk file {}", legacyChunkFile);
         }
     }
 
@@ -1033,7 +1057,7 @@ public final class WorldRenderer {
     }
 
     public List<Chunk> getChunksInProximity() {
-        return _chunksInProximity;
+        return _chunksInProximity.getChunks();
     }
 
     public boolean isWireframe() {
@@ -17,6 +17,7 @@ package org.terasology.utilities;
 
 import org.terasology.math.TeraMath;
 import java.lang.Math;
+import java.util.Arrays;
 
 /**
  * Edited Perlin noise generator based on the reference implementation by Ken Perlin.
@@ -27,13 +28,10 @@ import java.lang.Math;
 public class EPNoise implements Noise {
 
 	private static final double LACUNARITY = 2.1379201;
-	private static final double H = 0.836281;
 
-	private double[] _spectralWeights;
+	private volatile double[] _spectralWeights = PerlinNoise.computeSpectralWeights(9);
 
 	private final int[] _noisePermutations;
-	private boolean _recomputeSpectralWeights = true;
-	private int _octaves = 9;
 	private boolean on;
 	//static final boolean verbose = false;
 
@@ -218,18 +216,10 @@ public class EPNoise implements Noise {
 		double result = 0.0;
 
 		if (on) {
-			if (_recomputeSpectralWeights) {
-				_spectralWeights = new double[_octaves];
+			double[] spectralWeights = _spectralWeights;
 
-				for (int i = 0; i < _octaves; i++)
-					_spectralWeights[i] = java.lang.Math
-							.pow(LACUNARITY, -H * i);
-
-				_recomputeSpectralWeights = false;
-			}
-
-			for (int i = 0; i < _octaves; i++) {
-				result += noise(x, y, z) * _spectralWeights[i];
+			for (int i = 0; i < spectralWeights.length; i++) {
+				result += noise(x, y, z) * spectralWeights[i];
 				
 				x *= LACUNARITY;
 				y *= LACUNARITY;
@@ -239,6 +229,14 @@ public class EPNoise implements Noise {
 		return result;
 	}
 
+	public void fBm(double[] result, double[] xs, double[] ys, double[] zs) {
+		if (on) {
+			PerlinLattice.fBm(_noisePermutations, _spectralWeights, LACUNARITY, result, xs, ys, zs);
+		} else {
+			Arrays.fill(result, 0, xs.length * ys.length * zs.length, 0.0);
+		}
+	}
+
 	private static double fade(double t) {
 		return t * t * t * (t * (t * 6 - 15) + 10);
 	}
@@ -254,11 +252,10 @@ public class EPNoise implements Noise {
 	}
 
 	public void setOctaves(int octaves) {
-		_octaves = octaves;
-		_recomputeSpectralWeights = true;
+		_spectralWeights = PerlinNoise.computeSpectralWeights(octaves);
 	}
 
 	public int getOctaves() {
-		return _octaves;
+		return _spectralWeights.length;
 	}
 }
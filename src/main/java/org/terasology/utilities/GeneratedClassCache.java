@@ -0,0 +1,62 @@
+/*
+ * Copyright 2012 Benjamin Glatzel <benjamin.glatzel@me.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terasology.utilities;
+
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import com.google.common.collect.Maps;
+
+/**
+ * Remembers classes generated at runtime for a type, so each is generated once rather than every time it is needed.
+ * Generated classes are defined in the class loader of the type they were generated for and cannot be unloaded before
+ * it, so generating them again would only pile up more classes.
+ * <p/>
+ * Neither the types nor the generated classes are kept alive by the cache: when the class loader of a type, such as
+ * that of a mod, is discarded, its entries go with it.
+ * <p/>
+ * Thread safe.
+ */
+public final class GeneratedClassCache {
+
+    private final Map<Class<?>, Map<String, WeakReference<Class<?>>>> classes = new WeakHashMap<Class<?>, Map<String, WeakReference<Class<?>>>>();
+
+    /**
+     * @param type The type the class was generated for
+     * @param key  Identifies the generated class among those of the type, e.g. its source
+     * @return The class generated for the type and key, or null if there is none
+     */
+    public synchronized Class<?> get(Class<?> type, String key) {
+        Map<String, WeakReference<Class<?>>> generated = classes.get(type);
+        if (generated != null) {
+            WeakReference<Class<?>> reference = generated.get(key);
+            if (reference != null) {
+                return reference.get();
+            }
+        }
+        return null;
+    }
+
+    public synchronized void put(Class<?> type, String key, Class<?> generatedClass) {
+        Map<String, WeakReference<Class<?>>> generated = classes.get(type);
+        if (generated == null) {
+            generated = Maps.newHashMap();
+            classes.put(type, generated);
+        }
+        generated.put(key, new WeakReference<Class<?>>(generatedClass));
+    }
+}
@@ -42,8 +42,23 @@ public interface Noise {
      */
     public double fBm(double x, double y, double z) ;
 
+    /**
+     * Fills an array with the Fractional Brownian Motion of a lattice of positions, given by every combination of the
+     * given coordinates. The values of each column of positions with the same x and z coordinates are stored next to
+     * each other.
+     *
+     * @param result The array to fill, indexed by (xIndex * zs.length + zIndex) * ys.length + yIndex
+     * @param xs     The x coordinates of the lattice
+     * @param ys     The y coordinates of the lattice
+     * @param zs     The z coordinates of the lattice
+     */
+    public void fBm(double[] result, double[] xs, double[] ys, double[] zs);
 
-
+    /**
+     * Sets the number of octaves summed by fBm. This should be done before the noise is shared between threads.
+     *
+     * @param octaves
+     */
     public void setOctaves(int octaves);
 
     public int getOctaves();
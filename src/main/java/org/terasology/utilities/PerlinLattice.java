@@ -0,0 +1,164 @@
+/*
+ * Copyright 2012 Benjamin Glatzel <benjamin.glatzel@me.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terasology.utilities;
+
+import org.terasology.math.TeraMath;
+
+/**
+ * Computes the Fractional Brownian Motion of improved Perlin noise for a whole lattice of positions at once.
+ * <p/>
+ * The lattice is the product of a set of x, y and z coordinates. Everything that only depends on one coordinate -
+ * the lattice cell, the offset in the cell and its fade curve - is computed once per coordinate and octave rather than
+ * once per position, and the values are accumulated into a flat array. The results are identical to sampling each
+ * position on its own. The buffers for the per-coordinate values are kept per thread.
+ */
+final class PerlinLattice {
+
+    private static final ThreadLocal<Scratch> scratch = new ThreadLocal<Scratch>() {
+        @Override
+        protected Scratch initialValue() {
+            return new Scratch();
+        }
+    };
+
+    private PerlinLattice() {
+    }
+
+    /**
+     * @param permutations    The doubled permutation table of the noise
+     * @param spectralWeights The weight of each octave
+     * @param lacunarity      The factor the coordinates grow by with each octave
+     * @param result          The array to fill, indexed by (xIndex * zs.length + zIndex) * ys.length + yIndex
+     * @param xs              The x coordinates of the lattice
+     * @param ys              The y coordinates of the lattice
+     * @param zs              The z coordinates of the lattice
+     */
+    static void fBm(int[] permutations, double[] spectralWeights, double lacunarity, double[] result, double[] xs, double[] ys, double[] zs) {
+        final int sizeX = xs.length;
+        final int sizeY = ys.length;
+        final int sizeZ = zs.length;
+        for (int i = sizeX * sizeY * sizeZ - 1; i >= 0; --i) {
+            result[i] = 0.0;
+        }
+
+        Scratch buffers = scratch.get();
+        Axis xAxis = buffers.x.reset(xs);
+        Axis yAxis = buffers.y.reset(ys);
+        Axis zAxis = buffers.z.reset(zs);
+
+        for (double weight : spectralWeights) {
+            xAxis.update();
+            yAxis.update();
+            zAxis.update();
+
+            for (int xIndex = 0; xIndex < sizeX; ++xIndex) {
+                int X = xAxis.cells[xIndex];
+                double x = xAxis.offsets[xIndex];
+                double u = xAxis.fades[xIndex];
+                int permX = permutations[X];
+                int permX1 = permutations[X + 1];
+
+                for (int zIndex = 0; zIndex < sizeZ; ++zIndex) {
+                    int Z = zAxis.cells[zIndex];
+                    double z = zAxis.offsets[zIndex];
+                    double w = zAxis.fades[zIndex];
+                    int column = (xIndex * sizeZ + zIndex) * sizeY;
+
+                    for (int yIndex = 0; yIndex < sizeY; ++yIndex) {
+                        int Y = yAxis.cells[yIndex];
+                        double y = yAxis.offsets[yIndex];
+                        double v = yAxis.fades[yIndex];
+
+                        int A = permX + Y, AA = permutations[A] + Z, AB = permutations[(A + 1)] + Z,
+                                B = permX1 + Y, BA = permutations[B] + Z, BB = permutations[(B + 1)] + Z;
+
+                        double noise = lerp(w, lerp(v, lerp(u, grad(permutations[AA], x, y, z),
+                                grad(permutations[BA], x - 1, y, z)),
+                                lerp(u, grad(permutations[AB], x, y - 1, z),
+                                        grad(permutations[BB], x - 1, y - 1, z))),
+                                lerp(v, lerp(u, grad(permutations[(AA + 1)], x, y, z - 1),
+                                        grad(permutations[(BA + 1)], x - 1, y, z - 1)),
+                                        lerp(u, grad(permutations[(AB + 1)], x, y - 1, z - 1),
+                                                grad(permutations[(BB + 1)], x - 1, y - 1, z - 1))));
+                        result[column + yIndex] += noise * weight;
+                    }
+                }
+            }
+
+            xAxis.scale(lacunarity);
+            yAxis.scale(lacunarity);
+            zAxis.scale(lacunarity);
+        }
+    }
+
+    private static double fade(double t) {
+        return t * t * t * (t * (t * 6 - 15) + 10);
+    }
+
+    private static double lerp(double t, double a, double b) {
+        return a + t * (b - a);
+    }
+
+    private static double grad(int hash, double x, double y, double z) {
+        int h = hash & 15;
+        double u = h < 8 ? x : y, v = h < 4 ? y : h == 12 || h == 14 ? x : z;
+        return ((h & 1) == 0 ? u : -u) + ((h & 2) == 0 ? v : -v);
+    }
+
+    private static final class Scratch {
+        private final Axis x = new Axis();
+        private final Axis y = new Axis();
+        private final Axis z = new Axis();
+    }
+
+    /**
+     * The per-coordinate values of one axis of the lattice, for the current octave.
+     */
+    private static final class Axis {
+        private int size;
+        private double[] coordinates = new double[0];
+        private int[] cells = new int[0];
+        private double[] offsets = new double[0];
+        private double[] fades = new double[0];
+
+        private Axis reset(double[] values) {
+            size = values.length;
+            if (coordinates.length < size) {
+                coordinates = new double[size];
+                cells = new int[size];
+                offsets = new double[size];
+                fades = new double[size];
+            }
+            System.arraycopy(values, 0, coordinates, 0, size);
+            return this;
+        }
+
+        private void update() {
+            for (int i = 0; i < size; ++i) {
+                double floor = TeraMath.fastFloor(coordinates[i]);
+                cells[i] = (int) floor & 255;
+                offsets[i] = coordinates[i] - floor;
+                fades[i] = fade(offsets[i]);
+            }
+        }
+
+        private void scale(double factor) {
+            for (int i = 0; i < size; ++i) {
+                coordinates[i] *= factor;
+            }
+        }
+    }
+}
@@ -19,6 +19,8 @@ import org.terasology.math.TeraMath;
 
 /**
  * Improved Perlin noise based on the reference implementation by Ken Perlin.
+ * <p/>
+ * Sampling does not change the noise, so it can be used by several threads at once.
  *
  * @author Benjamin Glatzel <benjamin.glatzel@me.com>
  */
@@ -27,11 +29,9 @@ public class PerlinNoise implements Noise{
     private static final double LACUNARITY = 2.1379201;
     private static final double H = 0.836281;
 
-    private double[] _spectralWeights;
+    private volatile double[] _spectralWeights;
 
     private final int[] _noisePermutations;
-    private boolean _recomputeSpectralWeights = true;
-    private int _octaves = 9;
 
     /**
      * Init. a new generator with a given seed value.
@@ -39,6 +39,17 @@ public class PerlinNoise implements Noise{
      * @param seed The seed value
      */
     public PerlinNoise(int seed) {
+        this(seed, 9);
+    }
+
+    /**
+     * Init. a new generator with a given seed value.
+     *
+     * @param seed    The seed value
+     * @param octaves The number of octaves summed by fBm
+     */
+    public PerlinNoise(int seed, int octaves) {
+        _spectralWeights = computeSpectralWeights(octaves);
         FastRandom rand = new FastRandom(seed);
 
         _noisePermutations = new int[512];
@@ -103,18 +114,10 @@ public class PerlinNoise implements Noise{
      */
     public double fBm(double x, double y, double z) {
         double result = 0.0;
+        double[] spectralWeights = _spectralWeights;
 
-        if (_recomputeSpectralWeights) {
-            _spectralWeights = new double[_octaves];
-
-            for (int i = 0; i < _octaves; i++)
-                _spectralWeights[i] = java.lang.Math.pow(LACUNARITY, -H * i);
-
-            _recomputeSpectralWeights = false;
-        }
-
-        for (int i = 0; i < _octaves; i++) {
-            result += noise(x, y, z) * _spectralWeights[i];
+        for (int i = 0; i < spectralWeights.length; i++) {
+            result += noise(x, y, z) * spectralWeights[i];
 
             x *= LACUNARITY;
             y *= LACUNARITY;
@@ -124,6 +127,17 @@ public class PerlinNoise implements Noise{
         return result;
     }
 
+    public void fBm(double[] result, double[] xs, double[] ys, double[] zs) {
+        PerlinLattice.fBm(_noisePermutations, _spectralWeights, LACUNARITY, result, xs, ys, zs);
+    }
+
+    static double[] computeSpectralWeights(int octaves) {
+        double[] spectralWeights = new double[octaves];
+        for (int i = 0; i < octaves; i++)
+            spectralWeights[i] = java.lang.Math.pow(LACUNARITY, -H * i);
+        return spectralWeights;
+    }
+
     private static double fade(double t) {
         return t * t * t * (t * (t * 6 - 15) + 10);
     }
@@ -139,11 +153,10 @@ public class PerlinNoise implements Noise{
     }
 
     public void setOctaves(int octaves) {
-        _octaves = octaves;
-        _recomputeSpectralWeights = true;
+        _spectralWeights = computeSpectralWeights(octaves);
     }
 
     public int getOctaves() {
-        return _octaves;
+        return _spectralWeights.length;
     }
 }
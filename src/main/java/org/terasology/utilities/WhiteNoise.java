@@ -23,12 +23,9 @@ package org.terasology.utilities;
 public class WhiteNoise implements Noise{
 
     private static final double LACUNARITY = 2.1379201;
-    private static final double H = 0.836281;
 
-    private double[] _spectralWeights;
+    private double[] _spectralWeights = PerlinNoise.computeSpectralWeights(9);
 
-    private boolean _recomputeSpectralWeights = true;
-    private int _octaves = 9;
     private FastRandom rand;
     private double amplitude;
 
@@ -69,16 +66,7 @@ public class WhiteNoise implements Noise{
     public double fBm(double x, double y, double z) {
         double result = 0.0;
 
-        if (_recomputeSpectralWeights) {
-            _spectralWeights = new double[_octaves];
-
-            for (int i = 0; i < _octaves; i++)
-                _spectralWeights[i] = java.lang.Math.pow(LACUNARITY, -H * i);
-
-            _recomputeSpectralWeights = false;
-        }
-
-        for (int i = 0; i < _octaves; i++) {
+        for (int i = 0; i < _spectralWeights.length; i++) {
             result += noise(x, y, z) * _spectralWeights[i];
 
             x *= LACUNARITY;
@@ -89,12 +77,22 @@ public class WhiteNoise implements Noise{
         return result;
     }
 
+    public void fBm(double[] result, double[] xs, double[] ys, double[] zs) {
+        for (int i = 0; i < xs.length; i++) {
+            for (int k = 0; k < zs.length; k++) {
+                int column = (i * zs.length + k) * ys.length;
+                for (int j = 0; j < ys.length; j++) {
+                    result[column + j] = fBm(xs[i], ys[j], zs[k]);
+                }
+            }
+        }
+    }
+
     public void setOctaves(int octaves) {
-        _octaves = octaves;
-        _recomputeSpectralWeights = true;
+        _spectralWeights = PerlinNoise.computeSpectralWeights(octaves);
     }
 
     public int getOctaves() {
-        return _octaves;
+        return _spectralWeights.length;
     }
 }
@@ -0,0 +1,115 @@
+/*
+ * Copyright 2012 Benjamin Glatzel <benjamin.glatzel@me.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terasology.utilities.collection;
+
+import java.util.NoSuchElementException;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * A first-in first-out queue of primitive ints, backed by a ring buffer which grows when full.
+ * <p/>
+ * Adding and removing values does not allocate once the buffer has grown to the required capacity, so a buffer can be
+ * cleared and reused for many runs of an algorithm.
+ */
+public final class IntRingBuffer {
+
+    private static final int DEFAULT_CAPACITY = 1024;
+
+    private int[] values;
+    private int head;
+    private int size;
+
+    public IntRingBuffer() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param initialCapacity The number of values the buffer can hold before it has to grow, rounded up to a power of two
+     */
+    public IntRingBuffer(int initialCapacity) {
+        Preconditions.checkArgument(initialCapacity > 0, "Capacity must be positive");
+        int capacity = 1;
+        while (capacity < initialCapacity) {
+            capacity <<= 1;
+        }
+        values = new int[capacity];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int capacity() {
+        return values.length;
+    }
+
+    /**
+     * Appends a value to the end of the queue.
+     */
+    public void add(int value) {
+        if (size == values.length) {
+            grow();
+        }
+        values[(head + size) & (values.length - 1)] = value;
+        size++;
+    }
+
+    /**
+     * Removes and returns the value at the front of the queue.
+     *
+     * @throws NoSuchElementException if the queue is empty
+     */
+    public int remove() {
+        if (size == 0) {
+            throw new NoSuchElementException();
+        }
+        int value = values[head];
+        head = (head + 1) & (values.length - 1);
+        size--;
+        return value;
+    }
+
+    /**
+     * @param index The position in the queue, where 0 is the front of the queue
+     * @return The value at the given position, without removing it
+     */
+    public int get(int index) {
+        Preconditions.checkElementIndex(index, size);
+        return values[(head + index) & (values.length - 1)];
+    }
+
+    /**
+     * Removes all values, keeping the current capacity.
+     */
+    public void clear() {
+        head = 0;
+        size = 0;
+    }
+
+    private void grow() {
+        int[] newValues = new int[values.length * 2];
+        int firstPart = values.length - head;
+        System.arraycopy(values, head, newValues, 0, firstPart);
+        System.arraycopy(values, 0, newValues, firstPart, head);
+        values = newValues;
+        head = 0;
+    }
+}
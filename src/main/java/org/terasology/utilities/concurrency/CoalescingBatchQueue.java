@@ -0,0 +1,214 @@
+/*
+ * Copyright 2012 Benjamin Glatzel <benjamin.glatzel@me.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terasology.utilities.concurrency;
+
+import java.lang.ref.WeakReference;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+/**
+ * A queue which many threads add items to, and a single consumer thread takes items from in batches.
+ * <p/>
+ * Each producing thread adds to its own stripe, so producers only contend with the consumer and only for the moment it
+ * takes their batch. Each item is stamped with a sequence number when it is added, and the consumer collects the items
+ * of all stripes in the order of their sequence numbers, i.e. the order they were added in across all threads. Items
+ * with equal keys are merged by the {@link Coalescer} as they are collected, so repeated items only need to be
+ * processed once. A merged item takes the place of the earliest item it was merged from, and items that cancel each
+ * other out are dropped.
+ * <p/>
+ * {@link #collect()}, {@link #poll()} and {@link #size()} must only be called by the consuming thread.
+ *
+ * @param <T> The type of the queued items
+ */
+public class CoalescingBatchQueue<T> {
+
+    private final Coalescer<T> coalescer;
+    private final AtomicLong nextSequence = new AtomicLong();
+    private final List<Stripe<T>> stripes = new CopyOnWriteArrayList<Stripe<T>>();
+    private final ThreadLocal<Stripe<T>> localStripe = new ThreadLocal<Stripe<T>>() {
+        @Override
+        protected Stripe<T> initialValue() {
+            Stripe<T> stripe = new Stripe<T>(Thread.currentThread());
+            stripes.add(stripe);
+            return stripe;
+        }
+    };
+
+    // Collected items waiting to be polled, only accessed by the consuming thread
+    private final Map<Object, T> backlog = Maps.newLinkedHashMap();
+
+    /**
+     * Creates a queue which does not merge any items.
+     */
+    public CoalescingBatchQueue() {
+        this(new Coalescer<T>() {
+            @Override
+            public Object getKey(T item) {
+                return null;
+            }
+
+            @Override
+            public T merge(T earlier, T later) {
+                throw new UnsupportedOperationException();
+            }
+        });
+    }
+
+    public CoalescingBatchQueue(Coalescer<T> coalescer) {
+        this.coalescer = Preconditions.checkNotNull(coalescer);
+    }
+
+    /**
+     * Adds an item to the stripe of the calling thread. Can be called from any thread.
+     */
+    public void add(T item) {
+        localStripe.get().add(Preconditions.checkNotNull(item), nextSequence);
+    }
+
+    /**
+     * Moves the items added by all threads into the backlog in the order they were added, merging items with equal keys.
+     * <p/>
+     * Only items numbered before the sequence number current at the start of the call are collected. Items are numbered
+     * while holding the lock of their stripe, so all of those are in their stripes by the time the stripe is taken from,
+     * while a later item, which could otherwise overtake an earlier one still being added, is left for the next call.
+     */
+    public void collect() {
+        long limit = nextSequence.get();
+        List<Sequenced<T>> batch = Lists.newArrayList();
+        for (Stripe<T> stripe : stripes) {
+            // Checked before taking the items, as a thread which has ended cannot add any more
+            boolean abandoned = stripe.isAbandoned();
+            if (stripe.takeBefore(limit, batch) && abandoned) {
+                stripes.remove(stripe);
+            }
+        }
+        Collections.sort(batch);
+        for (Sequenced<T> sequenced : batch) {
+            Object key = coalescer.getKey(sequenced.item);
+            if (key == null) {
+                key = new Object();
+            }
+            T earlier = backlog.get(key);
+            T merged = (earlier == null) ? sequenced.item : coalescer.merge(earlier, sequenced.item);
+            if (merged != null) {
+                backlog.put(key, merged);
+            } else {
+                backlog.remove(key);
+            }
+        }
+    }
+
+    /**
+     * @return The next collected item, or null if the backlog is empty
+     */
+    public T poll() {
+        Iterator<T> iterator = backlog.values().iterator();
+        if (iterator.hasNext()) {
+            T item = iterator.next();
+            iterator.remove();
+            return item;
+        }
+        return null;
+    }
+
+    /**
+     * @return The number of collected items waiting to be polled
+     */
+    public int size() {
+        return backlog.size();
+    }
+
+    /**
+     * Decides which items of the queue are duplicates, and how to merge them.
+     */
+    public interface Coalescer<T> {
+        /**
+         * @return The key of the item, where items with equal keys are merged, or null if the item is never merged
+         */
+        Object getKey(T item);
+
+        /**
+         * @return An item with the combined effect of the earlier item followed by the later one, or null if they
+         *         cancel each other out, in which case both are dropped
+         */
+        T merge(T earlier, T later);
+    }
+
+    private static final class Sequenced<T> implements Comparable<Sequenced<T>> {
+        private final long sequence;
+        private final T item;
+
+        private Sequenced(long sequence, T item) {
+            this.sequence = sequence;
+            this.item = item;
+        }
+
+        @Override
+        public int compareTo(Sequenced<T> other) {
+            return (sequence < other.sequence) ? -1 : ((sequence == other.sequence) ? 0 : 1);
+        }
+    }
+
+    private static final class Stripe<T> {
+        private final WeakReference<Thread> owner;
+        private List<Sequenced<T>> items = Lists.newArrayList();
+
+        private Stripe(Thread owner) {
+            this.owner = new WeakReference<Thread>(owner);
+        }
+
+        private synchronized void add(T item, AtomicLong nextSequence) {
+            items.add(new Sequenced<T>(nextSequence.getAndIncrement(), item));
+        }
+
+        /**
+         * Moves the items numbered before the limit to the given list. Items of a stripe are in sequence order.
+         *
+         * @return Whether the stripe is empty afterwards
+         */
+        private synchronized boolean takeBefore(long limit, List<Sequenced<T>> result) {
+            if (items.isEmpty()) {
+                return true;
+            }
+            int count = 0;
+            while (count < items.size() && items.get(count).sequence < limit) {
+                count++;
+            }
+            if (count == items.size()) {
+                result.addAll(items);
+                items = Lists.newArrayList();
+                return true;
+            }
+            List<Sequenced<T>> taken = items.subList(0, count);
+            result.addAll(taken);
+            taken.clear();
+            return false;
+        }
+
+        private boolean isAbandoned() {
+            Thread thread = owner.get();
+            return thread == null || !thread.isAlive();
+        }
+    }
+}
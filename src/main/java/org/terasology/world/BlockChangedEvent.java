@@ -17,15 +17,17 @@
 package org.terasology.world;
 
 import org.terasology.entitySystem.AbstractEvent;
+import org.terasology.entitySystem.CoalescableEvent;
 import org.terasology.math.Vector3i;
 import org.terasology.world.block.Block;
 
 /**
- * Event when a block has changed
+ * Event when a block has changed. Several changes of the same block waiting to be processed are merged into one change
+ * from the first old type to the last new type, or dropped if the block ends up as it was.
  *
  * @author Immortius
  */
-public class BlockChangedEvent extends AbstractEvent {
+public class BlockChangedEvent extends AbstractEvent implements CoalescableEvent<BlockChangedEvent> {
     private Block oldType;
     private Block newType;
     private Vector3i blockPosition;
@@ -47,4 +49,17 @@ public class BlockChangedEvent extends AbstractEvent {
     public Block getNewType() {
         return newType;
     }
+
+    @Override
+    public Object getCoalescingKey() {
+        return blockPosition;
+    }
+
+    @Override
+    public BlockChangedEvent coalesce(BlockChangedEvent later) {
+        if (later.newType == oldType) {
+            return null;
+        }
+        return new BlockChangedEvent(blockPosition, later.newType, oldType);
+    }
 }
@@ -0,0 +1,61 @@
+/*
+ * Copyright 2012 Benjamin Glatzel <benjamin.glatzel@me.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terasology.world;
+
+import org.terasology.world.chunks.Chunk;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * The temperature, humidity and biome type of each column of a chunk. Positions are relative to the chunk.
+ * <p/>
+ * A chunk climate is immutable, so it can be shared between the generator, simulation and rendering threads.
+ */
+public final class ChunkClimate {
+    private static final int SIZE = Chunk.SIZE_X * Chunk.SIZE_Z;
+    private static final WorldBiomeProvider.Biome[] BIOMES = WorldBiomeProvider.Biome.values();
+
+    private final float[] temperature;
+    private final float[] humidity;
+    private final byte[] biomes;
+
+    /**
+     * @param temperature The temperature of each column, indexed by x * Chunk.SIZE_Z + z
+     * @param humidity    The humidity of each column, indexed by x * Chunk.SIZE_Z + z
+     * @param biomes      The biome type of each column, indexed by x * Chunk.SIZE_Z + z
+     */
+    public ChunkClimate(float[] temperature, float[] humidity, WorldBiomeProvider.Biome[] biomes) {
+        Preconditions.checkArgument(temperature.length == SIZE && humidity.length == SIZE && biomes.length == SIZE, "Expected %s columns", SIZE);
+        this.temperature = temperature.clone();
+        this.humidity = humidity.clone();
+        this.biomes = new byte[SIZE];
+        for (int i = 0; i < SIZE; i++) {
+            this.biomes[i] = (byte) biomes[i].ordinal();
+        }
+    }
+
+    public float getTemperature(int x, int z) {
+        return temperature[x * Chunk.SIZE_Z + z];
+    }
+
+    public float getHumidity(int x, int z) {
+        return humidity[x * Chunk.SIZE_Z + z];
+    }
+
+    public WorldBiomeProvider.Biome getBiome(int x, int z) {
+        return BIOMES[biomes[x * Chunk.SIZE_Z + z]];
+    }
+}
@@ -18,7 +18,6 @@ package org.terasology.world;
 
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
-import com.google.common.collect.Queues;
 import org.terasology.componentSystem.UpdateSubscriberSystem;
 import org.terasology.components.HealthComponent;
 import org.terasology.components.world.LocationComponent;
@@ -33,19 +32,27 @@ import org.terasology.entitySystem.event.RemovedComponentEvent;
 import org.terasology.math.Region3i;
 import org.terasology.math.Vector3i;
 import org.terasology.performanceMonitor.PerformanceMonitor;
+import org.terasology.utilities.concurrency.CoalescingBatchQueue;
 import org.terasology.world.block.Block;
 import org.terasology.world.block.BlockComponent;
 import org.terasology.world.block.BlockEntityMode;
 import org.terasology.world.block.BlockRegionComponent;
 
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.BlockingQueue;
 
 /**
  * @author Immortius
  */
 public class EntityAwareWorldProvider extends AbstractWorldProviderDecorator implements BlockEntityRegistry, EventHandlerSystem, UpdateSubscriberSystem {
+
+    private static final int BLOCK_CHANGED_EVENT_QUEUE_ACTIVITY = PerformanceMonitor.registerActivity("BlockChangedEventQueue");
+    private static final int TEMP_BLOCKS_CLEANUP_ACTIVITY = PerformanceMonitor.registerActivity("Temp Blocks Cleanup");
+
+    // Time per frame spent sending block changes made by other threads
+    private static final long BLOCK_CHANGED_BUDGET_NANOS = 2000000;
+
     @In
     EntityManager entityManager;
 
@@ -59,7 +66,17 @@ public class EntityAwareWorldProvider extends AbstractWorldProviderDecorator imp
     private List<EntityRef> tempBlocks = Lists.newArrayList();
 
     private Thread mainThread;
-    private BlockingQueue<BlockChangedEvent> eventQueue = Queues.newLinkedBlockingQueue();
+    private CoalescingBatchQueue<BlockChangedEvent> eventQueue = new CoalescingBatchQueue<BlockChangedEvent>(new CoalescingBatchQueue.Coalescer<BlockChangedEvent>() {
+        @Override
+        public Object getKey(BlockChangedEvent event) {
+            return event.getCoalescingKey();
+        }
+
+        @Override
+        public BlockChangedEvent merge(BlockChangedEvent earlier, BlockChangedEvent later) {
+            return earlier.coalesce(later);
+        }
+    });
 
     public EntityAwareWorldProvider(WorldProviderCore base) {
         super(base);
@@ -92,16 +109,39 @@ public class EntityAwareWorldProvider extends AbstractWorldProviderDecorator imp
     @Override
     public boolean setBlock(int x, int y, int z, Block type, Block oldType) {
         if (super.setBlock(x, y, z, type, oldType)) {
-            if (Thread.currentThread().equals(mainThread)) {
-                getOrCreateEntityAt(new Vector3i(x, y, z)).send(new BlockChangedEvent(new Vector3i(x, y, z), type, oldType));
-            } else {
-                eventQueue.add(new BlockChangedEvent(new Vector3i(x, y, z), type, oldType));
+            sendBlockChanged(new BlockChangedEvent(new Vector3i(x, y, z), type, oldType));
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public boolean setBlocks(BlockUpdate... updates) {
+        return setBlocks(Arrays.asList(updates));
+    }
+
+    /**
+     * Sends a BlockChangedEvent for each update once all updates have been made.
+     */
+    @Override
+    public boolean setBlocks(Iterable<BlockUpdate> updates) {
+        if (super.setBlocks(updates)) {
+            for (BlockUpdate update : updates) {
+                sendBlockChanged(new BlockChangedEvent(update.getPosition(), update.getNewType(), update.getOldType()));
             }
             return true;
         }
         return false;
     }
 
+    private void sendBlockChanged(BlockChangedEvent event) {
+        if (Thread.currentThread().equals(mainThread)) {
+            getOrCreateEntityAt(event.getBlockPosition()).send(event);
+        } else {
+            eventQueue.add(event);
+        }
+    }
+
     @Override
     public EntityRef getBlockEntityAt(Vector3i blockPosition) {
         EntityRef result = blockComponentLookup.get(blockPosition);
@@ -221,18 +261,17 @@ public class EntityAwareWorldProvider extends AbstractWorldProviderDecorator imp
 
     @Override
     public void update(float delta) {
-        int processed = 0;
-        PerformanceMonitor.startActivity("BlockChangedEventQueue");
-        BlockChangedEvent event = eventQueue.poll();
-        while (event != null) {
+        PerformanceMonitor.startActivity(BLOCK_CHANGED_EVENT_QUEUE_ACTIVITY);
+        long deadline = System.nanoTime() + BLOCK_CHANGED_BUDGET_NANOS;
+        eventQueue.collect();
+        for (BlockChangedEvent event = eventQueue.poll(); event != null; event = eventQueue.poll()) {
             getOrCreateEntityAt(event.getBlockPosition()).send(event);
-            if (processed++ >= 4) {
+            if (System.nanoTime() >= deadline) {
                 break;
             }
-            event = eventQueue.poll();
         }
         PerformanceMonitor.endActivity();
-        PerformanceMonitor.startActivity("Temp Blocks Cleanup");
+        PerformanceMonitor.startActivity(TEMP_BLOCKS_CLEANUP_ACTIVITY);
         for (EntityRef entity : tempBlocks) {
             BlockComponent blockComp = entity.getComponent(BlockComponent.class);
             if (blockComp == null || !blockComp.temporary)
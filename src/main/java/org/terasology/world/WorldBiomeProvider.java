@@ -54,6 +54,24 @@ public interface WorldBiomeProvider {
      */
     public float getTemperatureAt(int x, int z);
 
+    /**
+     * Fills an array with the humidity of every combination of the given coordinates.
+     *
+     * @param result The array to fill, indexed by xIndex * zs.length + zIndex
+     * @param xs     The X-coordinates
+     * @param zs     The Z-coordinates
+     */
+    public void getHumidities(float[] result, int[] xs, int[] zs);
+
+    /**
+     * Fills an array with the temperature of every combination of the given coordinates.
+     *
+     * @param result The array to fill, indexed by xIndex * zs.length + zIndex
+     * @param xs     The X-coordinates
+     * @param zs     The Z-coordinates
+     */
+    public void getTemperatures(float[] result, int[] xs, int[] zs);
+
     public float getFog(float time);
 
     /*
@@ -63,5 +81,15 @@ public interface WorldBiomeProvider {
 
     public Biome getBiomeAt(float x, float z);
 
+    /**
+     * Returns the temperature, humidity and biome type of each column of a chunk. Reading many columns of the same
+     * chunk is cheaper through this than through the single position methods.
+     *
+     * @param chunkX The X-coordinate of the chunk
+     * @param chunkZ The Z-coordinate of the chunk
+     * @return The climate of the chunk
+     */
+    public ChunkClimate getChunkClimate(int chunkX, int chunkZ);
+
 
 }
@@ -17,16 +17,43 @@
 package org.terasology.world;
 
 import org.terasology.math.TeraMath;
+import org.terasology.math.Vector3i;
+import org.terasology.utilities.Noise;
 import org.terasology.utilities.PerlinNoise;
+import org.terasology.world.chunks.Chunk;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
 
 /**
- * @author Immortius
+ * Provides the climate of the world from noise. The climate of a chunk is computed for all its columns at once, the
+ * first time any of them is asked for, and kept in a bounded cache shared by the generators, simulation and rendering.
  */
 // TODO: Evolve this class into a world description provider (density, height, etc) to feed into the world generators
 public class WorldBiomeProviderImpl implements WorldBiomeProvider {
 
+    private static final double CLIMATE_SCALE = 0.0005;
+    private static final int CLIMATE_CACHE_SIZE = 4096;
+
+    private static final ThreadLocal<Scratch> scratch = new ThreadLocal<Scratch>() {
+        @Override
+        protected Scratch initialValue() {
+            return new Scratch();
+        }
+    };
+
     PerlinNoise temperatureNoise, humidityNoise, fogNoise;
 
+    private final LoadingCache<Vector3i, ChunkClimate> climateCache = CacheBuilder.newBuilder()
+            .maximumSize(CLIMATE_CACHE_SIZE)
+            .build(new CacheLoader<Vector3i, ChunkClimate>() {
+                @Override
+                public ChunkClimate load(Vector3i chunkPos) {
+                    return calcChunkClimate(chunkPos.x, chunkPos.z);
+                }
+            });
+
     public WorldBiomeProviderImpl(String worldSeed) {
         temperatureNoise = new PerlinNoise(worldSeed.hashCode() + 5);
         humidityNoise = new PerlinNoise(worldSeed.hashCode() + 6);
@@ -35,14 +62,30 @@ public class WorldBiomeProviderImpl implements WorldBiomeProvider {
 
     @Override
     public float getHumidityAt(int x, int z) {
-        double result = humidityNoise.fBm(x * 0.0005, 0, 0.0005 * z);
-        return (float) TeraMath.clamp((result + 1.0f) / 2.0f);
+        return getChunkClimateAt(x, z).getHumidity(TeraMath.calcBlockPosX(x), TeraMath.calcBlockPosZ(z));
     }
 
     @Override
     public float getTemperatureAt(int x, int z) {
-        double result = temperatureNoise.fBm(x * 0.0005, 0, 0.0005 * z);
-        return (float) TeraMath.clamp((result + 1.0f) / 2.0f);
+        return getChunkClimateAt(x, z).getTemperature(TeraMath.calcBlockPosX(x), TeraMath.calcBlockPosZ(z));
+    }
+
+    @Override
+    public void getHumidities(float[] result, int[] xs, int[] zs) {
+        for (int i = 0; i < xs.length; i++) {
+            for (int k = 0; k < zs.length; k++) {
+                result[i * zs.length + k] = getHumidityAt(xs[i], zs[k]);
+            }
+        }
+    }
+
+    @Override
+    public void getTemperatures(float[] result, int[] xs, int[] zs) {
+        for (int i = 0; i < xs.length; i++) {
+            for (int k = 0; k < zs.length; k++) {
+                result[i * zs.length + k] = getTemperatureAt(xs[i], zs[k]);
+            }
+        }
     }
 
     @Override
@@ -52,9 +95,53 @@ public class WorldBiomeProviderImpl implements WorldBiomeProvider {
 
     @Override
     public Biome getBiomeAt(int x, int z) {
-        double temp = getTemperatureAt(x, z);
-        double humidity = getHumidityAt(x, z) * temp;
+        return getChunkClimateAt(x, z).getBiome(TeraMath.calcBlockPosX(x), TeraMath.calcBlockPosZ(z));
+    }
+
+    @Override
+    public Biome getBiomeAt(float x, float z) {
+        return getBiomeAt(TeraMath.floorToInt(x + 0.5f), TeraMath.floorToInt(z + 0.5f));
+    }
 
+    @Override
+    public ChunkClimate getChunkClimate(int chunkX, int chunkZ) {
+        return climateCache.getUnchecked(new Vector3i(chunkX, 0, chunkZ));
+    }
+
+    private ChunkClimate getChunkClimateAt(int x, int z) {
+        return getChunkClimate(TeraMath.calcChunkPosX(x), TeraMath.calcChunkPosZ(z));
+    }
+
+    private ChunkClimate calcChunkClimate(int chunkX, int chunkZ) {
+        Scratch buffers = scratch.get();
+        for (int i = 0; i < Chunk.SIZE_X; i++) {
+            buffers.noiseX[i] = (chunkX * Chunk.SIZE_X + i) * CLIMATE_SCALE;
+        }
+        for (int i = 0; i < Chunk.SIZE_Z; i++) {
+            buffers.noiseZ[i] = CLIMATE_SCALE * (chunkZ * Chunk.SIZE_Z + i);
+        }
+
+        float[] temperature = new float[Scratch.SIZE];
+        float[] humidity = new float[Scratch.SIZE];
+        Biome[] biomes = new Biome[Scratch.SIZE];
+        calcClimate(temperatureNoise, buffers, temperature);
+        calcClimate(humidityNoise, buffers, humidity);
+        for (int i = 0; i < Scratch.SIZE; i++) {
+            double temp = temperature[i];
+            double columnHumidity = humidity[i] * temp;
+            biomes[i] = calcBiome(temp, columnHumidity);
+        }
+        return new ChunkClimate(temperature, humidity, biomes);
+    }
+
+    private static void calcClimate(Noise noise, Scratch buffers, float[] result) {
+        noise.fBm(buffers.noise, buffers.noiseX, Scratch.ORIGIN, buffers.noiseZ);
+        for (int i = 0; i < Scratch.SIZE; i++) {
+            result[i] = (float) TeraMath.clamp((buffers.noise[i] + 1.0f) / 2.0f);
+        }
+    }
+
+    private static Biome calcBiome(double temp, double humidity) {
         if (temp >= 0.5 && humidity < 0.3) {
             return Biome.DESERT;
         } else if (humidity >= 0.3 && humidity <= 0.6 && temp >= 0.5) {
@@ -68,8 +155,15 @@ public class WorldBiomeProviderImpl implements WorldBiomeProvider {
         return Biome.FOREST;
     }
 
-    @Override
-    public Biome getBiomeAt(float x, float z) {
-        return getBiomeAt(TeraMath.floorToInt(x + 0.5f), TeraMath.floorToInt(z + 0.5f));
+    /**
+     * Buffers for computing the climate of a chunk, reused by each thread.
+     */
+    private static final class Scratch {
+        private static final int SIZE = Chunk.SIZE_X * Chunk.SIZE_Z;
+        private static final double[] ORIGIN = {0};
+
+        private final double[] noiseX = new double[Chunk.SIZE_X];
+        private final double[] noiseZ = new double[Chunk.SIZE_Z];
+        private final double[] noise = new double[SIZE];
     }
 }
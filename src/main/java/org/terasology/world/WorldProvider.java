@@ -17,6 +17,7 @@ package org.terasology.world;
 
 import javax.vecmath.Vector3f;
 
+import org.terasology.math.Region3i;
 import org.terasology.math.Vector3i;
 import org.terasology.world.block.Block;
 import org.terasology.world.liquid.LiquidData;
@@ -48,6 +49,18 @@ public interface WorldProvider extends WorldProviderCore {
      */
     public boolean setBlock(Vector3i pos, Block type, Block oldType);
 
+    /**
+     * Replaces all blocks in a region with blocks of a specific type, as a single change.
+     *
+     * @param region The region of blocks to replace
+     * @param type   The type of the blocks to set
+     * @return True if the blocks were replaced. Will fail if another change is made to the region at the same time, if
+     *         any of the underlying chunks is not available, or if the region and the blocks lit through it span more
+     *         than 1024 blocks in x or z
+     * @see #setBlocks(Iterable)
+     */
+    public boolean setBlocks(Region3i region, Block type);
+
     /**
      * @param pos
      * @param state    The new value of the liquid state
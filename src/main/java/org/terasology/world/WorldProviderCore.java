@@ -78,11 +78,17 @@ public interface WorldProviderCore {
      *
      * @param updates
      * @return Whether the updates succeeded
+     * @see #setBlocks(Iterable)
      */
     public boolean setBlocks(BlockUpdate... updates);
 
     /**
      * Changes a number of blocks, if all updates are valid (oldTypes match the current block types in the given positions)
+     * <p/>
+     * The updates are made as a single change: the affected chunks are locked once, either all or none of the updates
+     * are applied, and the lighting and chunk meshes are updated once for the whole change. Several updates of the same
+     * position are applied in order, so each has to expect the type set by the previous one. Changes spanning more
+     * than 1024 blocks in x or z, including the blocks lit through them, are rejected.
      *
      * @param updates
      * @return Whether the updates succeeded
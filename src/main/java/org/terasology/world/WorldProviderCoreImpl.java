@@ -16,6 +16,9 @@
 
 package org.terasology.world;
 
+import java.util.Arrays;
+import java.util.Map;
+
 import org.terasology.config.ModConfig;
 import org.terasology.game.CoreRegistry;
 import org.terasology.game.Timer;
@@ -30,11 +33,13 @@ import org.terasology.world.block.Block;
 import org.terasology.world.block.management.BlockManager;
 import org.terasology.world.chunks.Chunk;
 import org.terasology.world.chunks.ChunkProvider;
-import org.terasology.world.lighting.LightPropagator;
+import org.terasology.world.lighting.BatchLightPropagator;
 import org.terasology.world.lighting.LightingUtil;
 import org.terasology.world.lighting.PropagationComparison;
 import org.terasology.world.liquid.LiquidData;
 
+import com.google.common.collect.Maps;
+
 /**
  * @author Immortius
  */
@@ -122,12 +127,57 @@ public class WorldProviderCoreImpl implements WorldProviderCore {
 
     @Override
     public boolean setBlocks(BlockUpdate... updates) {
-        return false;  //To change body of implemented methods use File | Settings | File Templates.
+        return setBlocks(Arrays.asList(updates));
     }
 
     @Override
     public boolean setBlocks(Iterable<BlockUpdate> updates) {
-        return false;  //To change body of implemented methods use File | Settings | File Templates.
+        Region3i updateRegion = Region3i.EMPTY;
+        boolean affectsLighting = false;
+        for (BlockUpdate update : updates) {
+            Vector3i pos = update.getPosition();
+            if (pos.y < 0 || pos.y >= Chunk.SIZE_Y) {
+                return false;
+            }
+            updateRegion = (updateRegion.isEmpty()) ? Region3i.createFromMinAndSize(pos, Vector3i.one()) : updateRegion.expandToContain(pos);
+            affectsLighting |= LightingUtil.compareLightingPropagation(update.getNewType(), update.getOldType()) != PropagationComparison.IDENTICAL
+                    || update.getNewType().getLuminance() != update.getOldType().getLuminance();
+        }
+        if (updateRegion.isEmpty()) {
+            return true;
+        }
+
+        WorldView worldView = WorldView.createSubviewAroundRegion(updateRegion, (affectsLighting) ? Chunk.MAX_LIGHT + 1 : 1, chunkProvider);
+        if (worldView == null || !BatchLightPropagator.canPropagate(worldView)) {
+            return false;
+        }
+        worldView.lock();
+        try {
+            // Check all updates against the current blocks, and against the earlier updates of the same block
+            Map<Vector3i, Block> pendingTypes = Maps.newHashMap();
+            for (BlockUpdate update : updates) {
+                Block currentType = pendingTypes.get(update.getPosition());
+                if (currentType == null) {
+                    currentType = worldView.getBlock(update.getPosition());
+                }
+                if (currentType != update.getOldType()) {
+                    return false;
+                }
+                pendingTypes.put(update.getPosition(), update.getNewType());
+            }
+
+            BatchLightPropagator propagator = new BatchLightPropagator(worldView);
+            for (BlockUpdate update : updates) {
+                Vector3i pos = update.getPosition();
+                if (worldView.setBlock(pos, update.getNewType(), update.getOldType())) {
+                    propagator.addChange(pos.x, pos.y, pos.z, update.getNewType(), update.getOldType());
+                }
+            }
+            worldView.setDirtyAround(Region3i.createEncompassing(updateRegion, propagator.process()));
+            return true;
+        } finally {
+            worldView.unlock();
+        }
     }
 
     @Override
@@ -147,7 +197,7 @@ public class WorldProviderCoreImpl implements WorldProviderCore {
                     return false;
                 }
 
-                Region3i affected = new LightPropagator(worldView).update(x, y, z, type, oldType);
+                Region3i affected = new BatchLightPropagator(worldView).update(x, y, z, type, oldType);
                 if (affected.isEmpty()) {
                     worldView.setDirtyAround(blockPos);
                 } else {
@@ -16,12 +16,17 @@
 
 package org.terasology.world;
 
+import java.util.List;
+
 import javax.vecmath.Vector3f;
 
+import org.terasology.math.Region3i;
 import org.terasology.math.Vector3i;
 import org.terasology.world.block.Block;
 import org.terasology.world.liquid.LiquidData;
 
+import com.google.common.collect.Lists;
+
 /**
  * @author Immortius
  */
@@ -48,6 +53,18 @@ public class WorldProviderWrapper extends AbstractWorldProviderDecorator impleme
         return core.setBlock(pos.x, pos.y, pos.z, type, oldType);
     }
 
+    @Override
+    public boolean setBlocks(Region3i region, Block type) {
+        List<BlockUpdate> updates = Lists.newArrayListWithCapacity(region.size().x * region.size().y * region.size().z);
+        for (Vector3i pos : region) {
+            Block oldType = core.getBlock(pos.x, pos.y, pos.z);
+            if (oldType != type) {
+                updates.add(new BlockUpdate(pos, type, oldType));
+            }
+        }
+        return core.setBlocks(updates);
+    }
+
     @Override
     public boolean setLiquid(Vector3i pos, LiquidData state, LiquidData oldState) {
         return core.setLiquid(pos.x, pos.y, pos.z, state, oldState);
@@ -49,6 +49,22 @@ public class WorldView {
         return createWorldView(region, new Vector3i(-region.min().x, 0, -region.min().z), chunkProvider);
     }
 
+    /**
+     * @param blockRegion The region of blocks to cover, in world coordinates
+     * @param extent      The number of blocks the view should extend horizontally beyond the region
+     * @param chunkProvider
+     * @return A world view of the chunks containing the region and its surroundings, using world coordinates, or null if
+     *         any of the chunks is not available
+     */
+    public static WorldView createSubviewAroundRegion(Region3i blockRegion, int extent, ChunkProvider chunkProvider) {
+        Vector3i minPos = blockRegion.min();
+        minPos.sub(extent, 0, extent);
+        Vector3i maxPos = blockRegion.max();
+        maxPos.add(extent, 0, extent);
+        Region3i region = Region3i.createFromMinMax(TeraMath.calcChunkPos(minPos.x, 0, minPos.z), TeraMath.calcChunkPos(maxPos.x, 0, maxPos.z));
+        return createWorldView(region, new Vector3i(-region.min().x, 0, -region.min().z), chunkProvider);
+    }
+
     public static WorldView createSubviewAroundChunk(Vector3i chunkPos, ChunkProvider chunkProvider) {
         Region3i region = Region3i.createFromCenterExtents(chunkPos, new Vector3i(1, 0, 1));
         return createWorldView(region, new Vector3i(-region.min().x, 0, -region.min().z), chunkProvider);
@@ -78,6 +94,23 @@ public class WorldView {
         return chunkRegion;
     }
 
+    /**
+     * @return The region of blocks covered by this view, in the coordinates of this view
+     */
+    public Region3i getBlockRegion() {
+        return blockRegion;
+    }
+
+    /**
+     * @return The chunk containing the given block, or null if the block is outside of this view
+     */
+    public Chunk getChunk(int blockX, int blockY, int blockZ) {
+        if (!blockRegion.encompasses(blockX, blockY, blockZ)) {
+            return null;
+        }
+        return chunks[relChunkIndex(blockX, blockY, blockZ)];
+    }
+
     public Block getBlock(float x, float y, float z) {
         return getBlock(TeraMath.floorToInt(x + 0.5f), TeraMath.floorToInt(y + 0.5f), TeraMath.floorToInt(z + 0.5f));
     }
@@ -127,7 +127,7 @@ public class Block {
         }
     }
 
-    private byte id = 0x0;
+    private short id = 0x0;
     private String displayName = "Untitled block";
     private BlockUri uri;
     private BlockFamily family = null;
@@ -192,11 +192,11 @@ public class Block {
         }
     }
 
-    public byte getId() {
+    public short getId() {
         return id;
     }
 
-    public void setId(byte id) {
+    public void setId(short id) {
         this.id = id;
     }
 
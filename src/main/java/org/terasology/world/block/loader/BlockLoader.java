@@ -35,7 +35,6 @@ import com.google.gson.stream.JsonWriter;
 import gnu.trove.map.TObjectIntMap;
 import gnu.trove.map.hash.TObjectIntHashMap;
 import org.codehaus.groovy.tools.groovydoc.SimpleGroovyExecutableMemberDoc;
-import org.newdawn.slick.opengl.PNGDecoder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.terasology.asset.AssetManager;
@@ -63,9 +62,8 @@ import javax.vecmath.Vector2f;
 import javax.vecmath.Vector4f;
 import java.awt.*;
 import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
 import java.io.BufferedReader;
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
@@ -82,6 +80,7 @@ import java.util.Map;
  */
 public class BlockLoader {
     private static final int MAX_TILES = 256;
+    private static final String CACHE_FILE = "blocks.cache";
     public static final String AUTO_BLOCK_URL_FRAGMENT = "/auto/";
 
     private static final Logger logger = LoggerFactory.getLogger(BlockLoader.class);
@@ -100,6 +99,10 @@ public class BlockLoader {
     private TObjectIntMap<AssetUri> tileIndexes = new TObjectIntHashMap<AssetUri>();
     private List<Tile> tiles = Lists.newArrayList();
 
+    // Either the valid cache read from disk, or the cache being filled while loading from the assets
+    private BlockLoaderCache cache;
+    private boolean cacheValid;
+
     public BlockLoader() {
         parser = new JsonParser();
         gson = new GsonBuilder()
@@ -124,60 +127,99 @@ public class BlockLoader {
 
     public LoadBlockDefinitionResults loadBlockDefinitions() {
         logger.info("Loading Blocks...");
-        LoadBlockDefinitionResults result = new LoadBlockDefinitionResults();
-        for (AssetUri blockDefUri : Assets.list(AssetType.BLOCK_DEFINITION)) {
-            try {
-                JsonElement rawJson = readJson(blockDefUri);
-                if (rawJson != null) {
-                    JsonObject blockDefJson = rawJson.getAsJsonObject();
-
-                    // Don't process templates
-                    if (blockDefJson.has("template") && blockDefJson.get("template").getAsBoolean()) {
-                        continue;
-                    }
-                    logger.debug("Loading {}", blockDefUri);
+        long start = System.nanoTime();
+        byte[] contentHash = BlockLoaderCache.computeContentHash(atlasSize, tileSize);
+        cache = BlockLoaderCache.read(getCacheFile(), contentHash);
+        cacheValid = cache != null;
+        if (!cacheValid && contentHash != null) {
+            cache = new BlockLoaderCache(contentHash);
+        }
 
-                    BlockDefinition blockDef = loadBlockDefinition(inheritData(blockDefUri, blockDefJson));
+        LoadBlockDefinitionResults result = new LoadBlockDefinitionResults();
+        if (cacheValid) {
+            List<String> cachedTiles = cache.getTiles();
+            for (int i = 0; i < cachedTiles.size(); ++i) {
+                tileIndexes.put(new AssetUri(AssetType.BLOCK_TILE, cachedTiles.get(i)), i);
+            }
+            for (Map.Entry<String, String> entry : cache.getDefinitions().entrySet()) {
+                AssetUri blockDefUri = new AssetUri(AssetType.BLOCK_DEFINITION, entry.getKey());
+                try {
+                    processBlockDefinition(blockDefUri, parser.parse(entry.getValue()).getAsJsonObject(), result);
+                } catch (JsonParseException e) {
+                    logger.error("Failed to load block '{}'", blockDefUri, e);
+                } catch (NullPointerException e) {
+                    logger.error("Failed to load block '{}'", blockDefUri, e);
+                }
+            }
+            for (String autoBlock : cache.getAutoBlocks()) {
+                AssetUri blockTileUri = new AssetUri(AssetType.BLOCK_TILE, autoBlock);
+                result.shapelessDefinitions.add(new ShapelessFamily(new BlockUri(blockTileUri.getPackage(), blockTileUri.getAssetName())));
+            }
+        } else {
+            for (AssetUri blockDefUri : Assets.list(AssetType.BLOCK_DEFINITION)) {
+                try {
+                    JsonElement rawJson = readJson(blockDefUri);
+                    if (rawJson != null) {
+                        JsonObject blockDefJson = rawJson.getAsJsonObject();
 
-                    if (isShapelessBlockFamily(blockDef)) {
-                        indexTile(getDefaultTile(blockDef, blockDefUri), true);
-                        result.shapelessDefinitions.add(new ShapelessFamily(new BlockUri(blockDefUri.getPackage(), blockDefUri.getAssetName()), getCategories(blockDef)));
-                    } else {
-                        if (blockDef.liquid) {
-                            blockDef.rotation = BlockDefinition.RotationType.NONE;
-                            blockDef.shapes.clear();
-                            blockDef.shape = trimmedLoweredShape.getURI().getSimpleString();
+                        // Don't process templates
+                        if (blockDefJson.has("template") && blockDefJson.get("template").getAsBoolean()) {
+                            continue;
                         }
 
-                        if (blockDef.shapes.isEmpty()) {
-                            switch (blockDef.rotation) {
-                                case ALIGNTOSURFACE:
-                                    result.families.add(processAlignToSurfaceFamily(blockDefUri, blockDefJson));
-                                    break;
-                                case HORIZONTAL:
-                                    result.families.add(processHorizontalBlockFamily(blockDefUri, blockDef));
-                                    break;
-
-                                default:
-                                    result.families.add(processSingleBlockFamily(blockDefUri, blockDef));
-                                    break;
-                            }
-                        } else {
-                            result.families.addAll(processMultiBlockFamily(blockDefUri, blockDef));
+                        JsonObject resolvedJson = inheritData(blockDefUri, blockDefJson);
+                        if (cache != null) {
+                            // Processing modifies the json, so store it first
+                            cache.addDefinition(blockDefUri, resolvedJson.toString());
                         }
+                        processBlockDefinition(blockDefUri, resolvedJson, result);
                     }
-
+                } catch (JsonParseException e) {
+                    logger.error("Failed to load block '{}'", blockDefUri, e);
+                } catch (NullPointerException e) {
+                    logger.error("Failed to load block '{}'", blockDefUri, e);
                 }
-            } catch (JsonParseException e) {
-                logger.error("Failed to load block '{}'", blockDefUri, e);
-            } catch (NullPointerException e) {
-                logger.error("Failed to load block '{}'", blockDefUri, e);
             }
+            result.shapelessDefinitions.addAll(loadAutoBlocks());
         }
-        result.shapelessDefinitions.addAll(loadAutoBlocks());
+        logger.info("Loaded block definitions in {}ms ({})", (System.nanoTime() - start) / 1000000, cacheValid ? "cached" : "from assets");
         return result;
     }
 
+    private void processBlockDefinition(AssetUri blockDefUri, JsonObject blockDefJson, LoadBlockDefinitionResults result) {
+        logger.debug("Loading {}", blockDefUri);
+
+        BlockDefinition blockDef = loadBlockDefinition(blockDefJson);
+
+        if (isShapelessBlockFamily(blockDef)) {
+            indexTile(getDefaultTile(blockDef, blockDefUri), true);
+            result.shapelessDefinitions.add(new ShapelessFamily(new BlockUri(blockDefUri.getPackage(), blockDefUri.getAssetName()), getCategories(blockDef)));
+        } else {
+            if (blockDef.liquid) {
+                blockDef.rotation = BlockDefinition.RotationType.NONE;
+                blockDef.shapes.clear();
+                blockDef.shape = trimmedLoweredShape.getURI().getSimpleString();
+            }
+
+            if (blockDef.shapes.isEmpty()) {
+                switch (blockDef.rotation) {
+                    case ALIGNTOSURFACE:
+                        result.families.add(processAlignToSurfaceFamily(blockDefUri, blockDefJson));
+                        break;
+                    case HORIZONTAL:
+                        result.families.add(processHorizontalBlockFamily(blockDefUri, blockDef));
+                        break;
+
+                    default:
+                        result.families.add(processSingleBlockFamily(blockDefUri, blockDef));
+                        break;
+                }
+            } else {
+                result.families.addAll(processMultiBlockFamily(blockDefUri, blockDef));
+            }
+        }
+    }
+
     public BlockFamily loadWithShape(BlockUri uri) {
         BlockShape shape = cubeShape;
         if (uri.hasShape()) {
@@ -211,6 +253,36 @@ public class BlockLoader {
     }
 
     public void buildAtlas() {
+        long start = System.nanoTime();
+        ByteBuffer[] data;
+        if (cacheValid) {
+            data = cache.getMipmaps();
+        } else {
+            data = generateAtlasMipmaps();
+            if (cache != null) {
+                for (Tile tile : tiles) {
+                    cache.addTile(tile.getURI());
+                }
+                cache.setMipmaps(data);
+                cache.write(getCacheFile());
+            }
+        }
+        logger.info("Built block atlas in {}ms ({})", (System.nanoTime() - start) / 1000000, cacheValid ? "cached" : "from tiles");
+
+        Texture terrainTex = new Texture(data, atlasSize, atlasSize, Texture.WrapMode.Clamp, Texture.FilterMode.Nearest);
+        AssetManager.getInstance().addAssetTemporary(new AssetUri(AssetType.TEXTURE, "engine:terrain"), terrainTex);
+        Material terrainMat = new Material(new AssetUri(AssetType.MATERIAL, "engine:terrain"), Assets.getShader("engine:block"));
+        terrainMat.setTexture("textureAtlas", terrainTex);
+        terrainMat.setFloat3("colorOffset", 1, 1, 1);
+        terrainMat.setInt("textured", 1);
+        AssetManager.getInstance().addAssetTemporary(new AssetUri(AssetType.MATERIAL, "engine:terrain"), terrainMat);
+    }
+
+    private File getCacheFile() {
+        return new File(PathManager.getInstance().getCachePath(), CACHE_FILE);
+    }
+
+    private ByteBuffer[] generateAtlasMipmaps() {
         int numMipMaps = getNumMipmaps();
         ByteBuffer[] data = new ByteBuffer[numMipMaps];
         for (int i = 0; i < numMipMaps; ++i) {
@@ -222,28 +294,22 @@ public class BlockLoader {
                     logger.warn("Failed to write atlas");
                 }
             }
-
-            // TODO: Read data directly from image buffer into texture
-            ByteArrayOutputStream bos = new ByteArrayOutputStream();
-            try {
-                ImageIO.write(image, "png", bos);
-                PNGDecoder decoder = new PNGDecoder(new ByteArrayInputStream(bos.toByteArray()));
-                ByteBuffer buf = ByteBuffer.allocateDirect(4 * decoder.getWidth() * decoder.getHeight());
-                decoder.decode(buf, decoder.getWidth() * 4, PNGDecoder.RGBA);
-                buf.flip();
-                data[i] = buf;
-            } catch (IOException e) {
-                logger.error("Failed to create atlas texture");
-            }
+            data[i] = getRGBAData(image);
         }
+        return data;
+    }
 
-        Texture terrainTex = new Texture(data, atlasSize, atlasSize, Texture.WrapMode.Clamp, Texture.FilterMode.Nearest);
-        AssetManager.getInstance().addAssetTemporary(new AssetUri(AssetType.TEXTURE, "engine:terrain"), terrainTex);
-        Material terrainMat = new Material(new AssetUri(AssetType.MATERIAL, "engine:terrain"), Assets.getShader("engine:block"));
-        terrainMat.setTexture("textureAtlas", terrainTex);
-        terrainMat.setFloat3("colorOffset", 1, 1, 1);
-        terrainMat.setInt("textured", 1);
-        AssetManager.getInstance().addAssetTemporary(new AssetUri(AssetType.MATERIAL, "engine:terrain"), terrainMat);
+    /**
+     * @return The pixels of the given ARGB image as RGBA bytes, as expected by the texture
+     */
+    private ByteBuffer getRGBAData(BufferedImage image) {
+        int[] pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+        ByteBuffer buf = ByteBuffer.allocateDirect(4 * pixels.length);
+        for (int argb : pixels) {
+            buf.put((byte) (argb >> 16)).put((byte) (argb >> 8)).put((byte) argb).put((byte) (argb >>> 24));
+        }
+        buf.flip();
+        return buf;
     }
 
     private BufferedImage generateAtlas(int mipMapLevel) {
@@ -277,6 +343,9 @@ public class BlockLoader {
                 BlockUri uri = new BlockUri(blockTileUri.getPackage(), blockTileUri.getAssetName());
                 result.add(new ShapelessFamily(uri));
                 getTileIndex(blockTileUri, true);
+                if (cache != null) {
+                    cache.addAutoBlock(blockTileUri);
+                }
             }
         }
         return result;
@@ -582,7 +651,8 @@ public class BlockLoader {
     private int indexTile(AssetUri uri, boolean warnOnError) {
         Tile tile = (Tile) AssetManager.tryLoad(uri);
         if (tile != null) {
-            int index = tiles.size();
+            // Tiles restored from the cache are indexed without being loaded
+            int index = tileIndexes.size();
             tiles.add(tile);
             tileIndexes.put(uri, index);
             return index;
@@ -0,0 +1,301 @@
+/*
+ * Copyright 2012 Benjamin Glatzel <benjamin.glatzel@me.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terasology.world.block.loader;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.net.URL;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.terasology.asset.AssetManager;
+import org.terasology.asset.AssetType;
+import org.terasology.asset.AssetUri;
+import org.terasology.asset.Assets;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.google.common.io.ByteStreams;
+
+/**
+ * On-disk cache of everything the {@link BlockLoader} derives from the block definition and tile assets: the resolved
+ * json of each block definition, the auto blocks, the order of the tiles in the atlas and the raw RGBA mipmaps of the
+ * terrain atlas.
+ * <p/>
+ * The cache is keyed by a hash over all block definition and tile assets, so any change to them rebuilds it. A valid
+ * cache file is memory mapped in one go, the mipmaps are slices of the mapped file.
+ */
+final class BlockLoaderCache {
+    private static final Logger logger = LoggerFactory.getLogger(BlockLoaderCache.class);
+
+    private static final int MAGIC = 0x54424c43;
+    private static final int VERSION = 1;
+    /** The length of the sha1 content hash */
+    private static final int MAX_HASH_LENGTH = 20;
+
+    private final byte[] contentHash;
+    private final Map<String, String> definitions = Maps.newLinkedHashMap();
+    private final List<String> autoBlocks = Lists.newArrayList();
+    private final List<String> tiles = Lists.newArrayList();
+    private ByteBuffer[] mipmaps = new ByteBuffer[0];
+
+    BlockLoaderCache(byte[] contentHash) {
+        this.contentHash = contentHash;
+    }
+
+    /**
+     * @return A hash over the given atlas layout and the uri, location and content of every block definition and tile
+     *         asset, or null if an asset could not be read
+     */
+    static byte[] computeContentHash(int atlasSize, int tileSize) {
+        Hasher hasher = Hashing.sha1().newHasher();
+        hasher.putInt(VERSION).putInt(atlasSize).putInt(tileSize);
+        try {
+            hashAssets(hasher, AssetType.BLOCK_DEFINITION);
+            hashAssets(hasher, AssetType.BLOCK_TILE);
+        } catch (IOException e) {
+            logger.warn("Failed to read block assets, block cache disabled", e);
+            return null;
+        }
+        return hasher.hash().asBytes();
+    }
+
+    private static void hashAssets(Hasher hasher, AssetType type) throws IOException {
+        List<AssetUri> uris = Lists.newArrayList(Assets.list(type));
+        Collections.sort(uris);
+        for (AssetUri uri : uris) {
+            hasher.putString(uri.toString(), Charsets.UTF_8);
+            // The location decides whether a tile is an auto block
+            for (URL url : AssetManager.getInstance().getAssetURLs(uri)) {
+                hasher.putString(url.toString(), Charsets.UTF_8);
+            }
+            InputStream stream = AssetManager.assetStream(uri);
+            if (stream != null) {
+                try {
+                    hasher.putBytes(ByteStreams.toByteArray(stream));
+                } finally {
+                    stream.close();
+                }
+            }
+        }
+    }
+
+    /**
+     * @return The cache stored in the given file, or null if there is none or it does not match the content hash
+     */
+    static BlockLoaderCache read(File file, byte[] contentHash) {
+        if (contentHash == null || !file.isFile()) {
+            return null;
+        }
+        try {
+            // Check the header first, so an outdated file is never mapped and can be replaced
+            if (!Arrays.equals(contentHash, readHash(file))) {
+                logger.info("Block cache is out of date");
+                return null;
+            }
+            RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+            try {
+                ByteBuffer buffer = randomAccessFile.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, randomAccessFile.length());
+                return read(buffer, contentHash);
+            } finally {
+                // The mapping stays valid after the file is closed
+                randomAccessFile.close();
+            }
+        } catch (IOException e) {
+            logger.warn("Failed to read block cache", e);
+        } catch (BufferUnderflowException e) {
+            logger.warn("Block cache is truncated", e);
+        } catch (RuntimeException e) {
+            logger.warn("Block cache is corrupt", e);
+        } catch (OutOfMemoryError e) {
+            logger.warn("Block cache is corrupt", e);
+        }
+        return null;
+    }
+
+    private static byte[] readHash(File file) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+        try {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                return null;
+            }
+            int hashLength = in.readInt();
+            if (hashLength < 0 || hashLength > MAX_HASH_LENGTH) {
+                return null;
+            }
+            byte[] hash = new byte[hashLength];
+            in.readFully(hash);
+            return hash;
+        } finally {
+            in.close();
+        }
+    }
+
+    private static BlockLoaderCache read(ByteBuffer buffer, byte[] contentHash) {
+        // Skip the header, it has been checked by readHash
+        buffer.getInt();
+        buffer.getInt();
+        int hashLength = checkLength(buffer, buffer.getInt());
+        buffer.position(buffer.position() + hashLength);
+
+        BlockLoaderCache cache = new BlockLoaderCache(contentHash);
+        int definitionCount = buffer.getInt();
+        for (int i = 0; i < definitionCount; ++i) {
+            String uri = readString(buffer);
+            cache.definitions.put(uri, readString(buffer));
+        }
+        int autoBlockCount = buffer.getInt();
+        for (int i = 0; i < autoBlockCount; ++i) {
+            cache.autoBlocks.add(readString(buffer));
+        }
+        int tileCount = buffer.getInt();
+        for (int i = 0; i < tileCount; ++i) {
+            cache.tiles.add(readString(buffer));
+        }
+        // Every mipmap takes at least its length, so the count cannot exceed the remaining bytes either
+        cache.mipmaps = new ByteBuffer[checkLength(buffer, buffer.getInt())];
+        for (int i = 0; i < cache.mipmaps.length; ++i) {
+            int length = checkLength(buffer, buffer.getInt());
+            ByteBuffer mipmap = buffer.slice();
+            mipmap.limit(length);
+            cache.mipmaps[i] = mipmap;
+            buffer.position(buffer.position() + length);
+        }
+        return cache;
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        byte[] bytes = new byte[checkLength(buffer, buffer.getInt())];
+        buffer.get(bytes);
+        return new String(bytes, Charsets.UTF_8);
+    }
+
+    /**
+     * @return The given length read from the buffer, if that many bytes remain in it
+     * @throws BufferUnderflowException If the length is negative or exceeds the remaining bytes
+     */
+    private static int checkLength(ByteBuffer buffer, int length) {
+        if (length < 0 || length > buffer.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        return length;
+    }
+
+    /**
+     * Writes the cache to the given file. The file is replaced only once the cache has been written completely.
+     */
+    void write(File file) {
+        File tempFile = new File(file.getPath() + ".tmp");
+        try {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)));
+            try {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(contentHash.length);
+                out.write(contentHash);
+                out.writeInt(definitions.size());
+                for (Map.Entry<String, String> entry : definitions.entrySet()) {
+                    writeString(out, entry.getKey());
+                    writeString(out, entry.getValue());
+                }
+                out.writeInt(autoBlocks.size());
+                for (String autoBlock : autoBlocks) {
+                    writeString(out, autoBlock);
+                }
+                out.writeInt(tiles.size());
+                for (String tile : tiles) {
+                    writeString(out, tile);
+                }
+                out.writeInt(mipmaps.length);
+                for (ByteBuffer mipmap : mipmaps) {
+                    byte[] bytes = new byte[mipmap.remaining()];
+                    mipmap.duplicate().get(bytes);
+                    out.writeInt(bytes.length);
+                    out.write(bytes);
+                }
+            } finally {
+                out.close();
+            }
+            if ((file.exists() && !file.delete()) || !tempFile.renameTo(file)) {
+                logger.warn("Failed to replace block cache {}", file);
+            }
+        } catch (IOException e) {
+            logger.warn("Failed to write block cache {}", file, e);
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(Charsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * @return The resolved json of each block definition, by block definition uri
+     */
+    Map<String, String> getDefinitions() {
+        return definitions;
+    }
+
+    void addDefinition(AssetUri uri, String json) {
+        definitions.put(uri.getSimpleString(), json);
+    }
+
+    List<String> getAutoBlocks() {
+        return autoBlocks;
+    }
+
+    void addAutoBlock(AssetUri uri) {
+        autoBlocks.add(uri.getSimpleString());
+    }
+
+    /**
+     * @return The uris of the tiles, in atlas order
+     */
+    List<String> getTiles() {
+        return tiles;
+    }
+
+    void addTile(AssetUri uri) {
+        tiles.add(uri.getSimpleString());
+    }
+
+    ByteBuffer[] getMipmaps() {
+        return mipmaps;
+    }
+
+    void setMipmaps(ByteBuffer[] mipmaps) {
+        this.mipmaps = mipmaps;
+    }
+}
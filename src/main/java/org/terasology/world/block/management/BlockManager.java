@@ -19,9 +19,9 @@ import com.google.common.collect.HashMultimap;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Multimap;
 import com.google.common.collect.Sets;
-import gnu.trove.iterator.TObjectByteIterator;
-import gnu.trove.map.hash.TByteObjectHashMap;
-import gnu.trove.map.hash.TObjectByteHashMap;
+import gnu.trove.iterator.TObjectShortIterator;
+import gnu.trove.map.hash.TShortObjectHashMap;
+import gnu.trove.map.hash.TObjectShortHashMap;
 import org.lwjgl.BufferUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -55,10 +55,10 @@ public class BlockManager {
 
     /* BLOCKS */
     private final Map<BlockUri, Block> blocksByUri = Maps.newHashMapWithExpectedSize(256);
-    private final TByteObjectHashMap<Block> blocksById = new TByteObjectHashMap<Block>(256);
+    private final TShortObjectHashMap<Block> blocksById = new TShortObjectHashMap<Block>(256);
 
     private int nextId = 1;
-    private final TObjectByteHashMap<BlockUri> idByUri = new TObjectByteHashMap<BlockUri>(256);
+    private final TObjectShortHashMap<BlockUri> idByUri = new TObjectShortHashMap<BlockUri>(256);
 
     /* Families */
     private final Set<BlockUri> shapelessBlockDefinition = Sets.newHashSet();
@@ -99,7 +99,7 @@ public class BlockManager {
         air.setShadowCasting(false);
         air.setAttachmentAllowed(false);
         air.setHardness((byte) 0);
-        air.setId((byte) 0);
+        air.setId((short) 0);
         air.setDisplayName("Air");
         air.setUri(new BlockUri(ModManager.ENGINE_PACKAGE, "air"));
         blocksById.put(air.getId(), air);
@@ -108,12 +108,24 @@ public class BlockManager {
         familyByUri.put(air.getURI(), new SymmetricFamily(air.getURI(), air));
     }
 
-    public void load(Map<String, Byte> knownBlockMappings) {
+    public void load(Map<String, Short> knownBlockMappings) {
+        load(knownBlockMappings, false);
+    }
+
+    /**
+     * @param headless Whether the game runs without a display, in which case the texture atlas is not built
+     */
+    public void load(Map<String, Short> knownBlockMappings, boolean headless) {
         reset();
-        for (Map.Entry<String, Byte> entry : knownBlockMappings.entrySet()) {
-            idByUri.put(new BlockUri(entry.getKey()), (byte) entry.getValue());
+        for (Map.Entry<String, Short> entry : knownBlockMappings.entrySet()) {
+            short id = entry.getValue();
+            if (id < 0) {
+                // Worlds saved with 8 bit block ids stored ids above 127 as negative bytes
+                id = (short) (id & 0xff);
+            }
+            idByUri.put(new BlockUri(entry.getKey()), id);
+            nextId = Math.max(nextId, id + 1);
         }
-        nextId = idByUri.size();
 
         BlockLoader.LoadBlockDefinitionResults blockDefinitions = blockLoader.loadBlockDefinitions();
         for (BlockFamily family : blockDefinitions.families) {
@@ -126,11 +138,13 @@ public class BlockManager {
         for (BlockLoader.ShapelessFamily shapelessFamily : blockDefinitions.shapelessDefinitions) {
             addShapelessBlockFamily(shapelessFamily.uri, shapelessFamily.categories);
         }
-        blockLoader.buildAtlas();
+        if (!headless) {
+            blockLoader.buildAtlas();
+        }
         bindBlocks(knownBlockMappings);
     }
 
-    private void bindBlocks(Map<String, Byte> knownBlockMappings) {
+    private void bindBlocks(Map<String, Short> knownBlockMappings) {
         for (String blockUri : knownBlockMappings.keySet()) {
             Block block = getBlock(new BlockUri(blockUri));
             if (block == null) {
@@ -139,9 +153,9 @@ public class BlockManager {
         }
     }
 
-    public Map<String, Byte> getBlockIdMap() {
-        Map<String, Byte> result = Maps.newHashMapWithExpectedSize(idByUri.size());
-        TObjectByteIterator<BlockUri> iterator = idByUri.iterator();
+    public Map<String, Short> getBlockIdMap() {
+        Map<String, Short> result = Maps.newHashMapWithExpectedSize(idByUri.size());
+        TObjectShortIterator<BlockUri> iterator = idByUri.iterator();
         while (iterator.hasNext()) {
             iterator.advance();
             result.put(iterator.key().toString(), iterator.value());
@@ -196,22 +210,22 @@ public class BlockManager {
                 block = family.getBlockFor(uri);
             }
             if (block == null) {
-                return blocksById.get((byte) 0);
+                return blocksById.get((short) 0);
             }
         }
         return block;
     }
 
-    public Block getBlock(byte id) {
+    public Block getBlock(short id) {
         Block result = blocksById.get(id);
         if (result == null) {
-            return blocksById.get((byte) 0);
+            return blocksById.get((short) 0);
         }
         return result;
     }
 
     public Block getAir() {
-        return blocksById.get((byte) 0);
+        return blocksById.get((short) 0);
     }
 
     public void addBlockFamily(BlockFamily family) {
@@ -239,9 +253,13 @@ public class BlockManager {
     private void registerBlockFamily(BlockFamily family) {
         familyByUri.put(family.getURI(), family);
         for (Block block : family.getBlocks()) {
-            byte id = idByUri.get(block.getURI());
+            short id = idByUri.get(block.getURI());
             if (id == 0) {
-                id = (byte) nextId++;
+                if (nextId > Short.MAX_VALUE) {
+                    logger.error("Out of block ids, cannot register {}", block.getURI());
+                    continue;
+                }
+                id = (short) nextId++;
                 idByUri.put(block.getURI(), id);
             }
             block.setId(id);
@@ -27,17 +27,18 @@ import javax.vecmath.Vector3f;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.terasology.config.AdvancedConfig;
+import org.terasology.config.Config;
 import org.terasology.game.CoreRegistry;
-import org.terasology.logic.manager.Config;
 import org.terasology.math.AABB;
 import org.terasology.math.TeraMath;
 import org.terasology.math.Vector3i;
 import org.terasology.rendering.primitives.ChunkMesh;
+import org.terasology.rendering.world.WorldRenderer;
 import org.terasology.world.block.Block;
 import org.terasology.world.block.management.BlockManager;
 import org.terasology.world.chunks.blockdata.TeraArray;
 import org.terasology.world.chunks.blockdata.TeraDenseArray4Bit;
-import org.terasology.world.chunks.blockdata.TeraDenseArray8Bit;
+import org.terasology.world.chunks.blockdata.TeraPaletteArray;
 import org.terasology.world.chunks.deflate.TeraStandardDeflator;
 import org.terasology.world.chunks.deflate.TeraDeflator;
 import org.terasology.world.liquid.LiquidData;
@@ -76,7 +77,7 @@ public class Chunk implements Externalizable {
     public static final int INNER_CHUNK_POS_FILTER_Z = TeraMath.ceilPowerOfTwo(SIZE_Z) - 1;
     public static final int POWER_X = TeraMath.sizeOfPower(SIZE_X);
     public static final int POWER_Z = TeraMath.sizeOfPower(SIZE_Z);
-    public static final int VERTICAL_SEGMENTS = Config.getInstance().getVerticalChunkMeshSegments();
+    public static final int VERTICAL_SEGMENTS = WorldRenderer.VERTICAL_SEGMENTS;
     public static final byte MAX_LIGHT = 0x0f;
     public static final byte MAX_LIQUID_DEPTH = 0x07;
 
@@ -106,7 +107,7 @@ public class Chunk implements Externalizable {
 
 
     public Chunk() {
-        AdvancedConfig config = CoreRegistry.get(org.terasology.config.Config.class).getAdvancedConfig();
+        AdvancedConfig config = CoreRegistry.get(Config.class).getAdvancedConfig();
         blocks = config.getBlocksFactory().create(this);
         sunlight = config.getSunlightFactory().create(this);
         light = config.getLightFactory().create(this);
@@ -152,6 +153,13 @@ public class Chunk implements Externalizable {
         lock.unlock();
     }
 
+    /**
+     * @return Whether the lock was acquired
+     */
+    public boolean tryLock() {
+        return lock.tryLock();
+    }
+
     public boolean isLocked() {
         return lock.isLocked();
     }
@@ -190,12 +198,32 @@ public class Chunk implements Externalizable {
         return blocks.getEstimatedMemoryConsumptionInBytes() + sunlight.getEstimatedMemoryConsumptionInBytes() + light.getEstimatedMemoryConsumptionInBytes() + liquid.getEstimatedMemoryConsumptionInBytes();
     }
 
+    /**
+     * The block, sunlight and light arrays of the chunk, for processing many blocks at once. They may only be used while
+     * the chunk is locked, as deflating the chunk replaces them.
+     */
+    public TeraArray getBlockData() {
+        return blocks;
+    }
+
+    public TeraArray getSunlightData() {
+        return sunlight;
+    }
+
+    public TeraArray getLightData() {
+        return light;
+    }
+
+    TeraArray getLiquidData() {
+        return liquid;
+    }
+
     public Block getBlock(Vector3i pos) {
-        return BlockManager.getInstance().getBlock((byte)blocks.get(pos.x, pos.y, pos.z));
+        return BlockManager.getInstance().getBlock((short) blocks.get(pos.x, pos.y, pos.z));
     }
 
     public Block getBlock(int x, int y, int z) {
-        return BlockManager.getInstance().getBlock((byte)blocks.get(x, y, z));
+        return BlockManager.getInstance().getBlock((short) blocks.get(x, y, z));
     }
 
     public boolean setBlock(int x, int y, int z, Block block) {
@@ -286,6 +314,13 @@ public class Chunk implements Externalizable {
         return new LiquidData((byte) liquid.get(x, y, z));
     }
 
+    /**
+     * @return The liquid state as stored in the liquid layer, with the liquid type in bit 3 and the depth in bits 0-2
+     */
+    public byte getRawLiquid(int x, int y, int z) {
+        return (byte) liquid.get(x, y, z);
+    }
+
     public Vector3i getChunkWorldPos() {
         return new Vector3i(getChunkWorldPosX(), getChunkWorldPosY(), getChunkWorldPosZ());
     }
@@ -351,6 +386,10 @@ public class Chunk implements Externalizable {
         setDirty(true);
         chunkState = (State) in.readObject();
         blocks = (TeraArray) in.readObject();
+        if (!(blocks instanceof TeraPaletteArray)) {
+            // Chunks saved before block ids were 16 bit wide
+            blocks = new TeraPaletteArray(blocks);
+        }
         sunlight = (TeraArray) in.readObject();
         light = (TeraArray) in.readObject();
         liquid = (TeraArray) in.readObject();
@@ -364,7 +403,7 @@ public class Chunk implements Externalizable {
         }
         lock();
         try {
-            AdvancedConfig config = CoreRegistry.get(org.terasology.config.Config.class).getAdvancedConfig();
+            AdvancedConfig config = CoreRegistry.get(Config.class).getAdvancedConfig();
             final TeraDeflator def = new TeraStandardDeflator();
             
             if (config.isChunkDeflationLoggingEnabled()) {
@@ -406,8 +445,8 @@ public class Chunk implements Externalizable {
     public void inflate() {
         lock();
         try {
-            if (!(blocks instanceof TeraDenseArray8Bit))
-                blocks = new TeraDenseArray8Bit(blocks);
+            if (!(blocks instanceof TeraPaletteArray))
+                blocks = new TeraPaletteArray(blocks);
             if (!(sunlight instanceof TeraDenseArray4Bit))
                 sunlight = new TeraDenseArray4Bit(sunlight);
             if (!(light instanceof TeraDenseArray4Bit))
@@ -480,6 +519,14 @@ public class Chunk implements Externalizable {
         }
     }
 
+    /**
+     * Marks the chunk as disposed, so it is no longer used, without releasing its mesh. Must be followed by a call to
+     * dispose() on the main thread.
+     */
+    public void markDisposed() {
+        disposed = true;
+    }
+
     public boolean isDisposed() {
         return disposed;
     }
@@ -0,0 +1,277 @@
+/*
+ * Copyright 2012 Benjamin Glatzel <benjamin.glatzel@me.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terasology.world.chunks;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import org.terasology.config.AdvancedConfig;
+import org.terasology.config.Config;
+import org.terasology.game.CoreRegistry;
+import org.terasology.math.Vector3i;
+import org.terasology.world.chunks.blockdata.TeraArray;
+
+/**
+ * Encodes chunks into a compact, versioned binary format and decodes them again.
+ * <p/>
+ * The format consists of a header (magic number, version, chunk position and chunk state) followed by the block,
+ * sunlight, light and liquid layers. Each layer stores its dimensions, a palette of the distinct values it contains and
+ * the values in storage order as runs of palette indices.
+ * <p/>
+ * Block values are unsigned 16-bit block ids since version 2, version 1 stored 8-bit block ids.
+ * <p/>
+ * Decoding is thread safe. Encoding reuses an internal buffer, so an instance must only be used to encode chunks by one
+ * thread at a time.
+ */
+public final class ChunkCodec {
+
+    public static final int MAGIC = 0x5443484b;
+    public static final byte VERSION = 2;
+
+    private static final int HEADER_SIZE = 4 + 1 + 3 * 4 + 1;
+    private static final int MAX_PALETTE_SIZE = 1 << 16;
+    private static final int INITIAL_BUFFER_SIZE = 1 << 16;
+    private static final int SIGN_EXTEND = -1;
+
+    private ByteBuffer buffer = ByteBuffer.allocate(INITIAL_BUFFER_SIZE);
+    private final int[] paletteIndex = new int[MAX_PALETTE_SIZE];
+    private final short[] palette = new short[MAX_PALETTE_SIZE];
+
+    public ChunkCodec() {
+        Arrays.fill(paletteIndex, -1);
+    }
+
+    /**
+     * @param data The data to check, from its position
+     * @return Whether the data starts with the header of this format
+     */
+    public static boolean isEncoded(ByteBuffer data) {
+        return data.remaining() >= HEADER_SIZE && data.getInt(data.position()) == MAGIC;
+    }
+
+    /**
+     * Encodes a chunk.
+     *
+     * @param chunk The chunk to encode
+     * @return A buffer containing the encoded chunk between its position and limit. The buffer is reused by the next
+     *         call to encode.
+     */
+    public ByteBuffer encode(Chunk chunk) {
+        buffer.clear();
+        ensureRemaining(HEADER_SIZE);
+        Vector3i pos = chunk.getPos();
+        buffer.putInt(MAGIC);
+        buffer.put(VERSION);
+        buffer.putInt(pos.x);
+        buffer.putInt(pos.y);
+        buffer.putInt(pos.z);
+        buffer.put((byte) chunk.getChunkState().ordinal());
+        encodeLayer(chunk.getBlockData());
+        encodeLayer(chunk.getSunlightData());
+        encodeLayer(chunk.getLightData());
+        encodeLayer(chunk.getLiquidData());
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * Decodes a chunk, using the tera array factories of the advanced config for its layers.
+     *
+     * @param data The encoded chunk, from its position to its limit
+     * @return The decoded chunk
+     * @throws IOException If the data is not a valid encoded chunk
+     */
+    public static Chunk decode(ByteBuffer data) throws IOException {
+        AdvancedConfig config = CoreRegistry.get(Config.class).getAdvancedConfig();
+        return decode(data, config.getBlocksFactory(), config.getSunlightFactory(), config.getLightFactory(), config.getLiquidFactory());
+    }
+
+    public static Chunk decode(ByteBuffer data, TeraArray.Factory blocksFactory, TeraArray.Factory sunlightFactory, TeraArray.Factory lightFactory, TeraArray.Factory liquidFactory) throws IOException {
+        if (!isEncoded(data)) {
+            throw new IOException("Data is not an encoded chunk");
+        }
+        try {
+            data.getInt();
+            byte version = data.get();
+            if (version > VERSION) {
+                throw new IOException("Unsupported chunk format version " + version);
+            }
+            Vector3i pos = new Vector3i(data.getInt(), data.getInt(), data.getInt());
+            int stateOrdinal = data.get();
+            Chunk.State[] states = Chunk.State.values();
+            if (stateOrdinal < 0 || stateOrdinal >= states.length) {
+                throw new IOException("Invalid chunk state " + stateOrdinal);
+            }
+            int blockMask = (version < 2) ? 0xff : 0xffff;
+            TeraArray blocks = decodeLayer(data, blocksFactory, blockMask);
+            TeraArray sunlight = decodeLayer(data, sunlightFactory, SIGN_EXTEND);
+            TeraArray light = decodeLayer(data, lightFactory, SIGN_EXTEND);
+            TeraArray liquid = decodeLayer(data, liquidFactory, SIGN_EXTEND);
+            Chunk chunk = new Chunk(pos, blocks, sunlight, light, liquid);
+            chunk.setChunkState(states[stateOrdinal]);
+            return chunk;
+        } catch (BufferUnderflowException e) {
+            throw new IOException("Encoded chunk is truncated", e);
+        }
+    }
+
+    private void encodeLayer(TeraArray array) {
+        int sizeX = array.getSizeX();
+        int sizeY = array.getSizeY();
+        int sizeZ = array.getSizeZ();
+
+        int paletteSize = 0;
+        for (int y = 0; y < sizeY; y++) {
+            for (int z = 0; z < sizeZ; z++) {
+                for (int x = 0; x < sizeX; x++) {
+                    int key = array.get(x, y, z) & 0xffff;
+                    if (paletteIndex[key] == -1) {
+                        paletteIndex[key] = paletteSize;
+                        palette[paletteSize++] = (short) key;
+                    }
+                }
+            }
+        }
+
+        ensureRemaining(3 * 2 + 4 + paletteSize * 2);
+        buffer.putShort((short) sizeX);
+        buffer.putShort((short) sizeY);
+        buffer.putShort((short) sizeZ);
+        buffer.putInt(paletteSize);
+        for (int i = 0; i < paletteSize; i++) {
+            buffer.putShort(palette[i]);
+        }
+
+        boolean wideIndices = paletteSize > 256;
+        int runValue = -1;
+        int runLength = 0;
+        for (int y = 0; y < sizeY; y++) {
+            for (int z = 0; z < sizeZ; z++) {
+                for (int x = 0; x < sizeX; x++) {
+                    int index = paletteIndex[array.get(x, y, z) & 0xffff];
+                    if (index == runValue) {
+                        runLength++;
+                    } else {
+                        if (runLength > 0) {
+                            writeRun(runValue, runLength, wideIndices);
+                        }
+                        runValue = index;
+                        runLength = 1;
+                    }
+                }
+            }
+        }
+        writeRun(runValue, runLength, wideIndices);
+
+        for (int i = 0; i < paletteSize; i++) {
+            paletteIndex[palette[i] & 0xffff] = -1;
+        }
+    }
+
+    private void writeRun(int index, int length, boolean wideIndices) {
+        ensureRemaining(5 + 2);
+        while ((length & ~0x7f) != 0) {
+            buffer.put((byte) ((length & 0x7f) | 0x80));
+            length >>>= 7;
+        }
+        buffer.put((byte) length);
+        if (wideIndices) {
+            buffer.putShort((short) index);
+        } else {
+            buffer.put((byte) index);
+        }
+    }
+
+    private static TeraArray decodeLayer(ByteBuffer data, TeraArray.Factory factory, int valueMask) throws IOException {
+        int sizeX = data.getShort() & 0xffff;
+        int sizeY = data.getShort() & 0xffff;
+        int sizeZ = data.getShort() & 0xffff;
+        int paletteSize = data.getInt();
+        if (paletteSize <= 0 || paletteSize > MAX_PALETTE_SIZE) {
+            throw new IOException("Invalid palette size " + paletteSize);
+        }
+        short[] values = new short[paletteSize];
+        for (int i = 0; i < paletteSize; i++) {
+            values[i] = data.getShort();
+        }
+
+        TeraArray array = factory.create(sizeX, sizeY, sizeZ);
+        boolean wideIndices = paletteSize > 256;
+        int x = 0;
+        int y = 0;
+        int z = 0;
+        int remaining = sizeX * sizeY * sizeZ;
+        while (remaining > 0) {
+            int length = readRunLength(data);
+            int index = (wideIndices) ? data.getShort() & 0xffff : data.get() & 0xff;
+            if (length <= 0 || length > remaining || index >= paletteSize) {
+                throw new IOException("Invalid run in encoded chunk");
+            }
+            remaining -= length;
+            int value = values[index] & valueMask;
+            if (value == 0) {
+                // Freshly created arrays are filled with zero already
+                x += length;
+                while (x >= sizeX) {
+                    x -= sizeX;
+                    if (++z == sizeZ) {
+                        z = 0;
+                        y++;
+                    }
+                }
+                continue;
+            }
+            for (int i = 0; i < length; i++) {
+                array.set(x, y, z, value);
+                if (++x == sizeX) {
+                    x = 0;
+                    if (++z == sizeZ) {
+                        z = 0;
+                        y++;
+                    }
+                }
+            }
+        }
+        return array;
+    }
+
+    private static int readRunLength(ByteBuffer data) throws IOException {
+        int result = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            byte b = data.get();
+            result |= (b & 0x7f) << shift;
+            if ((b & 0x80) == 0) {
+                return result;
+            }
+        }
+        throw new IOException("Malformed run length");
+    }
+
+    private void ensureRemaining(int bytes) {
+        if (buffer.remaining() < bytes) {
+            int capacity = buffer.capacity();
+            while (capacity - buffer.position() < bytes) {
+                capacity *= 2;
+            }
+            ByteBuffer newBuffer = ByteBuffer.allocate(capacity);
+            buffer.flip();
+            newBuffer.put(buffer);
+            buffer = newBuffer;
+        }
+    }
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright 2012 Benjamin Glatzel <benjamin.glatzel@me.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.terasology.world.chunks;
+
+import org.terasology.math.Vector3i;
+
+/**
+ * Receives notifications about the chunks of a {@link ChunkProvider}. The notifications are sent from the chunk
+ * provider's worker threads, so listeners must be thread safe.
+ */
+public interface ChunkListener {
+
+    /**
+     * Called when a chunk and all of its neighbours are complete, so the chunk can be rendered.
+     *
+     * @param pos   The position of the chunk
+     * @param chunk The chunk
+     */
+    public void onChunkReady(Vector3i pos, Chunk chunk);
+
+    /**
+     * Called when a chunk is unloaded. Its neighbours are not ready any more, until it is loaded again.
+     * <p/>
+     * This is called from the provider's eviction thread while it holds the lock of the unloaded chunk, before the
+     * chunk is stored. This way the notification always precedes the {@link #onChunkReady} notification for the chunk
+     * once it has been loaded again. Listeners must return quickly and must not lock chunks or wait for other threads;
+     * the usual approach is to queue the position and handle it on the main thread.
+     *
+     * @param pos The position of the chunk
+     */
+    public void onChunkUnloaded(Vector3i pos);
+}
@@ -45,6 +45,18 @@ public interface ChunkProvider {
      */
     public void removeRegionEntity(EntityRef entity);
 
+    /**
+     * Adds a listener to be notified when chunks become ready or are unloaded.
+     *
+     * @param listener
+     */
+    public void addChunkListener(ChunkListener listener);
+
+    /**
+     * @param listener
+     */
+    public void removeChunkListener(ChunkListener listener);
+
     /**
      * Updates the near cache based on the movement of the caching entities
      */
@@ -16,14 +16,18 @@
 
 package org.terasology.world.chunks;
 
+import java.util.Collections;
 import java.util.Comparator;
-import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
 import java.util.Set;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
@@ -34,6 +38,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.terasology.components.world.LocationComponent;
 import org.terasology.config.AdvancedConfig;
+import org.terasology.config.Config;
 import org.terasology.entitySystem.EntityRef;
 import org.terasology.game.CoreRegistry;
 import org.terasology.math.Region3i;
@@ -44,50 +49,109 @@ import org.terasology.world.lighting.LightPropagator;
 import org.terasology.world.WorldView;
 import org.terasology.world.generator.core.ChunkGeneratorManager;
 import org.terasology.world.localChunkProvider.AbstractChunkTask;
+import org.terasology.world.localChunkProvider.ChunkCacheMetrics;
+import org.terasology.world.localChunkProvider.ChunkDependencyTracker;
 import org.terasology.world.localChunkProvider.ChunkRequest;
 import org.terasology.world.localChunkProvider.ChunkTask;
+import org.terasology.world.localChunkProvider.ChunkTaskMetrics;
 import org.terasology.world.lighting.InternalLightProcessor;
 import org.terasology.world.localChunkProvider.ShutdownTask;
 
 import com.google.common.base.Objects;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
+import com.google.common.collect.Queues;
 import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
 /**
+ * Provides chunks around the registered region entities, loading them from the chunk store or generating them.
+ * <p/>
+ * Each chunk passes through the states of {@link Chunk.State}, and can only leave a state once all of its neighbours
+ * have reached the same state. A {@link ChunkDependencyTracker} counts the neighbours in each state, and the task for
+ * the next stage of a chunk is queued as soon as the tracker reports the chunk ready.
+ *
  * @author Immortius
  */
 public class LocalChunkProvider implements ChunkProvider {
-    private static final int CACHE_SIZE = (int) (2 * Runtime.getRuntime().maxMemory() / 1048576);
+    private static final long DEFAULT_CACHE_BYTES = Runtime.getRuntime().maxMemory() / 3;
+    private static final double EVICTION_TARGET = 0.9;
+    private static final long EVICTION_INTERVAL_MS = 500;
+    private static final Vector3i RETAINED_EXTENTS = new Vector3i(4, 0, 4);
     private static final int REQUEST_CHUNK_THREADS = 1;
     private static final int CHUNK_PROCESSING_THREADS = 8;
-    private static final Vector3i LOCAL_REGION_EXTENTS = new Vector3i(1, 0, 1);
 
     private static final Logger logger = LoggerFactory.getLogger(LocalChunkProvider.class);
 
+    private static final int DISPOSE_EVICTED_CHUNKS_ACTIVITY = PerformanceMonitor.registerActivity("Dispose evicted chunks");
+    private static final int CHECK_CHUNK_IN_CACHE_ACTIVITY = PerformanceMonitor.registerActivity("Check chunk in cache");
+    private static final int LOAD_TASK_ACTIVITY = PerformanceMonitor.registerActivity("Chunk task: Load");
+    private static final int GENERATE_TASK_ACTIVITY = PerformanceMonitor.registerActivity("Chunk task: Generate");
+    private static final int ADJACENCY_GENERATION_TASK_ACTIVITY = PerformanceMonitor.registerActivity("Chunk task: Adjacency generation");
+    private static final int INTERNAL_LIGHTING_TASK_ACTIVITY = PerformanceMonitor.registerActivity("Chunk task: Internal lighting");
+    private static final int LIGHT_PROPAGATION_TASK_ACTIVITY = PerformanceMonitor.registerActivity("Chunk task: Light propagation");
+    private static final int COMPLETION_TASK_ACTIVITY = PerformanceMonitor.registerActivity("Chunk task: Completion");
+    private static final int DEFLATION_TASK_ACTIVITY = PerformanceMonitor.registerActivity("Chunk task: Deflation");
+
     private ChunkStore farStore;
 
     private BlockingQueue<ChunkTask> chunkTasksQueue;
-    private BlockingQueue<ChunkRequest> reviewChunkQueue;
-    private ExecutorService reviewThreads;
+    private BlockingQueue<ChunkRequest> chunkRequestQueue;
+    private ExecutorService requestThreads;
     private ExecutorService chunkProcessingThreads;
     private ChunkGeneratorManager generator;
 
+    private final ChunkDependencyTracker dependencies = new ChunkDependencyTracker();
+    private final ChunkTaskMetrics metrics = new ChunkTaskMetrics();
+    private final Set<Vector3i> pendingProduction = Sets.newSetFromMap(Maps.<Vector3i, Boolean>newConcurrentMap());
+
     private Set<CacheRegion> regions = Sets.newHashSet();
+    private boolean regionsChanged;
+    // The x/z bounds of the regions whose chunks are not evicted, as minX, minZ, maxX, maxZ per region
+    private volatile int[] retainedBounds = new int[0];
 
     private ConcurrentMap<Vector3i, Chunk> nearCache = Maps.newConcurrentMap();
+    private final long maxCacheBytes;
+    private final ChunkCacheMetrics cacheMetrics;
+    private final ScheduledExecutorService cacheThread;
+    private final Queue<Chunk> evictedChunks = Queues.newConcurrentLinkedQueue();
 
     private EntityRef worldEntity = EntityRef.NULL;
+    private final List<ChunkListener> listeners = Lists.newCopyOnWriteArrayList();
 
     private ReadWriteLock regionLock = new ReentrantReadWriteLock();
 
     public LocalChunkProvider(ChunkStore farStore, ChunkGeneratorManager generator) {
+        this(farStore, generator, DEFAULT_CACHE_BYTES);
+    }
+
+    /**
+     * @param farStore      The store to load chunks from and to save evicted chunks to
+     * @param generator     The generator for chunks not contained in the store
+     * @param maxCacheBytes The estimated memory the loaded chunks may use before chunks are evicted
+     */
+    public LocalChunkProvider(ChunkStore farStore, ChunkGeneratorManager generator, long maxCacheBytes) {
         this.farStore = farStore;
         this.generator = generator;
+        this.maxCacheBytes = maxCacheBytes;
+        this.cacheMetrics = new ChunkCacheMetrics(maxCacheBytes);
+
+        cacheThread = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder().setNameFormat("Chunk-Eviction-%d").build());
+        cacheThread.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    evictChunks();
+                } catch (Exception e) {
+                    logger.error("Error evicting chunks", e);
+                }
+            }
+        }, EVICTION_INTERVAL_MS, EVICTION_INTERVAL_MS, TimeUnit.MILLISECONDS);
 
-        reviewChunkQueue = new PriorityBlockingQueue<ChunkRequest>(32);
-        reviewThreads = Executors.newFixedThreadPool(REQUEST_CHUNK_THREADS);
+        chunkRequestQueue = new PriorityBlockingQueue<ChunkRequest>(32);
+        requestThreads = Executors.newFixedThreadPool(REQUEST_CHUNK_THREADS, new ThreadFactoryBuilder().setNameFormat("Chunk-Requests-%d").build());
         for (int i = 0; i < REQUEST_CHUNK_THREADS; ++i) {
-            reviewThreads.execute(new Runnable() {
+            requestThreads.execute(new Runnable() {
                 @Override
                 public void run() {
                     boolean running = true;
@@ -95,13 +159,8 @@ public class LocalChunkProvider implements ChunkProvider {
                     while (running) {
 
                         try {
-                            ChunkRequest request = reviewChunkQueue.take();
+                            ChunkRequest request = chunkRequestQueue.take();
                             switch (request.getType()) {
-                                case REVIEW:
-                                    for (Vector3i pos : request.getRegion()) {
-                                        checkState(pos);
-                                    }
-                                    break;
                                 case PRODUCE:
                                     for (Vector3i pos : request.getRegion()) {
                                         checkOrCreateChunk(pos);
@@ -123,7 +182,7 @@ public class LocalChunkProvider implements ChunkProvider {
         }
 
         chunkTasksQueue = new PriorityBlockingQueue<ChunkTask>(128, new ChunkTaskRelevanceComparator());
-        chunkProcessingThreads = Executors.newFixedThreadPool(CHUNK_PROCESSING_THREADS);
+        chunkProcessingThreads = Executors.newFixedThreadPool(CHUNK_PROCESSING_THREADS, new ThreadFactoryBuilder().setNameFormat("Chunk-Processing-%d").build());
         for (int i = 0; i < CHUNK_PROCESSING_THREADS; ++i) {
             chunkProcessingThreads.submit(new Runnable() {
                 @Override
@@ -137,7 +196,14 @@ public class LocalChunkProvider implements ChunkProvider {
                                 running = false;
                                 break;
                             }
-                            request.enact();
+                            long start = System.nanoTime();
+                            PerformanceMonitor.startActivity(request.getActivity());
+                            try {
+                                request.enact();
+                            } finally {
+                                PerformanceMonitor.endActivity();
+                            }
+                            metrics.taskCompleted(request.getName(), start - request.getCreationTime(), System.nanoTime() - start);
                         } catch (InterruptedException e) {
                             logger.error("Thread interrupted", e);
                         } catch (Exception e) {
@@ -161,10 +227,21 @@ public class LocalChunkProvider implements ChunkProvider {
         try {
             regions.remove(region);
             regions.add(region);
+            regionsChanged = true;
         } finally  {
             regionLock.writeLock().unlock();
         }
-        reviewChunkQueue.offer(new ChunkRequest(ChunkRequest.RequestType.PRODUCE, region.getRegion().expand(new Vector3i(2, 0, 2))));
+        chunkRequestQueue.offer(new ChunkRequest(ChunkRequest.RequestType.PRODUCE, region.getRegion().expand(new Vector3i(2, 0, 2))));
+    }
+
+    @Override
+    public void addChunkListener(ChunkListener listener) {
+        listeners.add(listener);
+    }
+
+    @Override
+    public void removeChunkListener(ChunkListener listener) {
+        listeners.remove(listener);
     }
 
     @Override
@@ -172,6 +249,7 @@ public class LocalChunkProvider implements ChunkProvider {
         regionLock.writeLock().lock();
         try {
             regions.remove(new CacheRegion(entity, 0));
+            regionsChanged = true;
         } finally {
             regionLock.writeLock().unlock();
         }
@@ -181,49 +259,42 @@ public class LocalChunkProvider implements ChunkProvider {
     public void update() {
         regionLock.readLock().lock();
         try {
+            boolean regionsMoved = regionsChanged;
             for (CacheRegion cacheRegion : regions) {
                 cacheRegion.update();
                 if (cacheRegion.isDirty()) {
                     cacheRegion.setUpToDate();
-                    reviewChunkQueue.offer(new ChunkRequest(ChunkRequest.RequestType.PRODUCE, cacheRegion.getRegion().expand(new Vector3i(2, 0, 2))));
+                    regionsMoved = true;
+                    chunkRequestQueue.offer(new ChunkRequest(ChunkRequest.RequestType.PRODUCE, cacheRegion.getRegion().expand(new Vector3i(2, 0, 2))));
                 }
             }
-
-            PerformanceMonitor.startActivity("Review cache size");
-            if (nearCache.size() > CACHE_SIZE) {
-                logger.debug("Compacting cache");
-                Iterator<Vector3i> iterator = nearCache.keySet().iterator();
-                while (iterator.hasNext()) {
-                    Vector3i pos = iterator.next();
-                    boolean keep = false;
-                    for (CacheRegion region : regions) {
-                        if (region.getRegion().expand(new Vector3i(4, 0, 4)).encompasses(pos)) {
-                            keep = true;
-                            break;
-                        }
-                    }
-                    if (!keep) {
-                        // TODO: need some way to not dispose chunks being edited or processed (or do so safely)
-                        Chunk chunk = nearCache.get(pos);
-                        if (chunk.isLocked()) {
-                            continue;
-                        }
-                        chunk.lock();
-                        try {
-                            farStore.put(chunk);
-                            iterator.remove();
-                            chunk.dispose();
-                        } finally {
-                            chunk.unlock();
-                        }
-                    }
-
+            if (regionsMoved) {
+                regionsChanged = false;
+                int[] bounds = new int[4 * regions.size()];
+                int index = 0;
+                for (CacheRegion cacheRegion : regions) {
+                    Region3i retained = cacheRegion.getRegion().expand(RETAINED_EXTENTS);
+                    Vector3i min = retained.min();
+                    Vector3i max = retained.max();
+                    bounds[index++] = min.x;
+                    bounds[index++] = min.z;
+                    bounds[index++] = max.x;
+                    bounds[index++] = max.z;
                 }
+                retainedBounds = bounds;
             }
-            PerformanceMonitor.endActivity();
         } finally {
             regionLock.readLock().unlock();
         }
+
+        PerformanceMonitor.startActivity(DISPOSE_EVICTED_CHUNKS_ACTIVITY);
+        Chunk evicted = evictedChunks.poll();
+        while (evicted != null) {
+            evicted.dispose();
+            evicted = evictedChunks.poll();
+        }
+        PerformanceMonitor.endActivity();
+        metrics.sampleQueueDepth(chunkTasksQueue.size());
     }
 
     @Override
@@ -238,26 +309,36 @@ public class LocalChunkProvider implements ChunkProvider {
 
     @Override
     public Chunk getChunk(Vector3i pos) {
-        return nearCache.get(pos);
+        Chunk chunk = nearCache.get(pos);
+        if (chunk != null) {
+            cacheMetrics.hit();
+        } else {
+            cacheMetrics.miss();
+        }
+        return chunk;
     }
 
     @Override
     public void dispose() {
+        cacheThread.shutdown();
         for (int i = 0; i < REQUEST_CHUNK_THREADS; ++i) {
-            reviewChunkQueue.offer(new ChunkRequest(ChunkRequest.RequestType.EXIT, Region3i.EMPTY));
+            chunkRequestQueue.offer(new ChunkRequest(ChunkRequest.RequestType.EXIT, Region3i.EMPTY));
         }
         for (int i = 0; i < CHUNK_PROCESSING_THREADS; ++i) {
             chunkTasksQueue.offer(new ShutdownTask());
         }
-        reviewThreads.shutdown();
+        requestThreads.shutdown();
         chunkProcessingThreads.shutdown();
         try {
-            if (!reviewThreads.awaitTermination(1, TimeUnit.SECONDS)) {
-                logger.warn("Timed out awaiting chunk review thread termination");
+            if (!requestThreads.awaitTermination(1, TimeUnit.SECONDS)) {
+                logger.warn("Timed out awaiting chunk request thread termination");
             }
             if (!chunkProcessingThreads.awaitTermination(1, TimeUnit.SECONDS)) {
                 logger.warn("Timed out awaiting chunk processing thread termination");
             }
+            if (!cacheThread.awaitTermination(1, TimeUnit.SECONDS)) {
+                logger.warn("Timed out awaiting chunk cache thread termination");
+            }
         } catch (InterruptedException e) {
             logger.warn("Interrupted awaiting chunk thread termination");
         }
@@ -267,6 +348,11 @@ public class LocalChunkProvider implements ChunkProvider {
             chunk.dispose();
         }
         nearCache.clear();
+        Chunk evicted = evictedChunks.poll();
+        while (evicted != null) {
+            evicted.dispose();
+            evicted = evictedChunks.poll();
+        }
     }
 
     @Override
@@ -274,92 +360,202 @@ public class LocalChunkProvider implements ChunkProvider {
         return farStore.size();
     }
 
+    /**
+     * @return Metrics about the chunk tasks processed by this provider
+     */
+    public ChunkTaskMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * @return Metrics about the cache of loaded chunks
+     */
+    public ChunkCacheMetrics getCacheMetrics() {
+        return cacheMetrics;
+    }
+
+    /**
+     * Evicts the chunks furthest away from any region entity until the estimated memory used by the cached chunks is
+     * back below the limit. Chunks within the retained regions are never evicted, neither are chunks currently
+     * locked, which covers chunks being edited or processed by a chunk task. Evicted chunks are stored and removed from
+     * the cache, but since disposing chunk meshes requires the main thread they are disposed in {@link #update()}.
+     */
+    private void evictChunks() {
+        long residentBytes = 0;
+        for (Chunk chunk : nearCache.values()) {
+            residentBytes += chunk.getEstimatedMemoryConsumptionInBytes();
+        }
+        cacheMetrics.setResidentBytes(residentBytes);
+        if (residentBytes <= maxCacheBytes) {
+            return;
+        }
+
+        int[] retained = retainedBounds;
+        List<EvictionCandidate> candidates = Lists.newArrayList();
+        for (Map.Entry<Vector3i, Chunk> entry : nearCache.entrySet()) {
+            int distance = distanceToRegions(entry.getKey(), retained);
+            if (distance > 0) {
+                candidates.add(new EvictionCandidate(entry.getValue(), distance));
+            }
+        }
+        Collections.sort(candidates);
+
+        long targetBytes = (long) (maxCacheBytes * EVICTION_TARGET);
+        for (EvictionCandidate candidate : candidates) {
+            if (residentBytes <= targetBytes) {
+                break;
+            }
+            Chunk chunk = candidate.chunk;
+            if (!chunk.tryLock()) {
+                continue;
+            }
+            try {
+                if (chunk.isDisposed() || !nearCache.remove(chunk.getPos(), chunk)) {
+                    continue;
+                }
+                dependencies.chunkRemoved(chunk.getPos());
+                // Before storing the chunk, so listeners learn of the unloading before the chunk can be loaded again
+                for (ChunkListener listener : listeners) {
+                    listener.onChunkUnloaded(chunk.getPos());
+                }
+                farStore.put(chunk);
+                chunk.markDisposed();
+                residentBytes -= chunk.getEstimatedMemoryConsumptionInBytes();
+                cacheMetrics.evicted();
+            } finally {
+                chunk.unlock();
+            }
+            evictedChunks.offer(chunk);
+        }
+        cacheMetrics.setResidentBytes(residentBytes);
+    }
+
+    /**
+     * @return The number of chunks between the given position and the closest of the regions, 0 if within a region
+     */
+    private static int distanceToRegions(Vector3i pos, int[] bounds) {
+        int result = Integer.MAX_VALUE;
+        for (int i = 0; i < bounds.length; i += 4) {
+            int dx = Math.max(0, Math.max(bounds[i] - pos.x, pos.x - bounds[i + 2]));
+            int dz = Math.max(0, Math.max(bounds[i + 1] - pos.z, pos.z - bounds[i + 3]));
+            result = Math.min(result, dx + dz);
+        }
+        return result;
+    }
+
     private void checkOrCreateChunk(Vector3i chunkPos) {
-        Chunk chunk = getChunk(chunkPos);
-        if (chunk == null) {
-            PerformanceMonitor.startActivity("Check chunk in cache");
-            if (farStore.contains(chunkPos)) {
-                chunkTasksQueue.offer(new AbstractChunkTask(chunkPos, this) {
-                    @Override
-                    public void enact() {
+        if (nearCache.containsKey(chunkPos) || !pendingProduction.add(new Vector3i(chunkPos))) {
+            return;
+        }
+        PerformanceMonitor.startActivity(CHECK_CHUNK_IN_CACHE_ACTIVITY);
+        if (farStore.contains(chunkPos)) {
+            chunkTasksQueue.offer(new AbstractChunkTask("Load", LOAD_TASK_ACTIVITY, chunkPos, this) {
+                @Override
+                public void enact() {
+                    try {
                         Chunk chunk = farStore.get(getPosition());
-                        if (nearCache.putIfAbsent(getPosition(), chunk) == null) {
-                            if (chunk.getChunkState() == Chunk.State.COMPLETE) {
-                                for (Vector3i adjPos : Region3i.createFromCenterExtents(getPosition(), LOCAL_REGION_EXTENTS)) {
-                                    checkChunkReady(adjPos);
-                                }
-                            }
-                            reviewChunkQueue.offer(new ChunkRequest(ChunkRequest.RequestType.REVIEW, Region3i.createFromCenterExtents(getPosition(), LOCAL_REGION_EXTENTS)));
-                        }
-                    }
-                });
-            } else {
-                chunkTasksQueue.offer(new AbstractChunkTask(chunkPos, this) {
-                    @Override
-                    public void enact() {
-                        Chunk chunk = generator.generateChunk(getPosition());
-                        if (null == nearCache.putIfAbsent(getPosition(), chunk)) {
-                            reviewChunkQueue.offer(new ChunkRequest(ChunkRequest.RequestType.REVIEW, Region3i.createFromCenterExtents(getPosition(), LOCAL_REGION_EXTENTS)));
+                        if (chunk == null) {
+                            chunk = generator.generateChunk(getPosition());
                         }
+                        addToCache(chunk);
+                    } finally {
+                        pendingProduction.remove(getPosition());
                     }
-                });
-            }
-            PerformanceMonitor.endActivity();
+                }
+            });
         } else {
-            checkState(chunk);
+            chunkTasksQueue.offer(new AbstractChunkTask("Generate", GENERATE_TASK_ACTIVITY, chunkPos, this) {
+                @Override
+                public void enact() {
+                    try {
+                        addToCache(generator.generateChunk(getPosition()));
+                    } finally {
+                        pendingProduction.remove(getPosition());
+                    }
+                }
+            });
         }
+        PerformanceMonitor.endActivity();
     }
 
-    private void checkState(Vector3i pos) {
-        Chunk chunk = getChunk(pos);
-        if (chunk != null) {
-            checkState(chunk);
+    private void addToCache(Chunk chunk) {
+        List<Vector3i> readyChunks = Collections.emptyList();
+        // Locked so the chunk cannot be removed from the cache before the dependency tracker knows about it
+        chunk.lock();
+        try {
+            if (nearCache.putIfAbsent(chunk.getPos(), chunk) == null) {
+                cacheMetrics.addResidentBytes(chunk.getEstimatedMemoryConsumptionInBytes());
+                readyChunks = dependencies.chunkAdded(chunk.getPos(), chunk.getChunkState());
+            }
+        } finally {
+            chunk.unlock();
         }
+        scheduleStages(readyChunks);
     }
 
-    private void checkState(Chunk chunk) {
-        switch (chunk.getChunkState()) {
-            case ADJACENCY_GENERATION_PENDING:
-                checkReadyForSecondPass(chunk.getPos());
-                break;
-            case INTERNAL_LIGHT_GENERATION_PENDING:
-                checkReadyToDoInternalLighting(chunk.getPos());
-                break;
-            case LIGHT_PROPAGATION_PENDING:
-                checkReadyToPropagateLighting(chunk.getPos());
-                break;
-            case FULL_LIGHT_CONNECTIVITY_PENDING:
-                checkComplete(chunk.getPos());
-                break;
-            default:
-                break;
-        }
+    private void stateChanged(Vector3i pos, Chunk.State newState) {
+        scheduleStages(dependencies.stateChanged(pos, newState));
     }
 
-    private void checkReadyForSecondPass(Vector3i pos) {
-        Chunk chunk = getChunk(pos);
-        if (chunk != null && chunk.getChunkState() == Chunk.State.ADJACENCY_GENERATION_PENDING) {
-            for (Vector3i adjPos : Region3i.createFromCenterExtents(pos, LOCAL_REGION_EXTENTS)) {
-                if (!adjPos.equals(pos)) {
-                    Chunk adjChunk = getChunk(adjPos);
-                    if (adjChunk == null) {
-                        return;
-                    }
-                }
+    /**
+     * Restarts the stage of a chunk whose task could not be carried out because the chunk or one of its neighbours was
+     * evicted in the meantime, if the neighbourhood is still (or again) ready for it.
+     */
+    private void stageAbandoned(Vector3i pos, Chunk.State state) {
+        scheduleStages(dependencies.stageAbandoned(pos, state));
+    }
+
+    /**
+     * Starts the next stage of each of the given chunks, whose neighbourhood has become ready for it.
+     */
+    private void scheduleStages(List<Vector3i> readyChunks) {
+        for (Vector3i pos : readyChunks) {
+            Chunk chunk = getChunk(pos);
+            if (chunk == null) {
+                continue;
             }
-            logger.debug("Queueing for adjacency generation {}", pos);
-            chunkTasksQueue.offer(new AbstractChunkTask(pos, this) {
-                @Override
-                public void enact() {
-                    WorldView view = WorldView.createLocalView(getPosition(), getProvider());
-                    if (view == null) {
-                        return;
+            switch (chunk.getChunkState()) {
+                case ADJACENCY_GENERATION_PENDING:
+                    queueSecondPass(pos);
+                    break;
+                case INTERNAL_LIGHT_GENERATION_PENDING:
+                    queueInternalLighting(pos);
+                    break;
+                case LIGHT_PROPAGATION_PENDING:
+                    queueLightPropagation(pos);
+                    break;
+                case FULL_LIGHT_CONNECTIVITY_PENDING:
+                    queueCompletion(pos);
+                    break;
+                case COMPLETE:
+                    for (ChunkListener listener : listeners) {
+                        listener.onChunkReady(pos, chunk);
                     }
-                    view.lock();
-                    try {
-                        if (!view.isValidView()) {
-                            return;
-                        }
+                    if (worldEntity.exists()) {
+                        worldEntity.send(new ChunkReadyEvent(pos));
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+
+    private void queueSecondPass(Vector3i pos) {
+        logger.debug("Queueing for adjacency generation {}", pos);
+        chunkTasksQueue.offer(new AbstractChunkTask("Adjacency generation", ADJACENCY_GENERATION_TASK_ACTIVITY, pos, this) {
+            @Override
+            public void enact() {
+                WorldView view = WorldView.createLocalView(getPosition(), getProvider());
+                if (view == null) {
+                    stageAbandoned(getPosition(), Chunk.State.ADJACENCY_GENERATION_PENDING);
+                    return;
+                }
+                boolean valid;
+                view.lock();
+                try {
+                    valid = view.isValidView();
+                    if (valid) {
                         Chunk chunk = getProvider().getChunk(getPosition());
                         if (chunk.getChunkState() != Chunk.State.ADJACENCY_GENERATION_PENDING) {
                             return;
@@ -367,75 +563,68 @@ public class LocalChunkProvider implements ChunkProvider {
 
                         generator.secondPassChunk(getPosition(), view);
                         chunk.setChunkState(Chunk.State.INTERNAL_LIGHT_GENERATION_PENDING);
-                        reviewChunkQueue.offer(new ChunkRequest(ChunkRequest.RequestType.REVIEW, Region3i.createFromCenterExtents(getPosition(), LOCAL_REGION_EXTENTS)));
-                    } finally {
-                        view.unlock();
                     }
+                } finally {
+                    view.unlock();
                 }
-            });
-        }
+                if (!valid) {
+                    stageAbandoned(getPosition(), Chunk.State.ADJACENCY_GENERATION_PENDING);
+                    return;
+                }
+                stateChanged(getPosition(), Chunk.State.INTERNAL_LIGHT_GENERATION_PENDING);
+            }
+        });
     }
 
-    private void checkReadyToDoInternalLighting(Vector3i pos) {
-        Chunk chunk = getChunk(pos);
-        if (chunk != null && chunk.getChunkState() == Chunk.State.INTERNAL_LIGHT_GENERATION_PENDING) {
-            for (Vector3i adjPos : Region3i.createFromCenterExtents(pos, LOCAL_REGION_EXTENTS)) {
-                if (!adjPos.equals(pos)) {
-                    Chunk adjChunk = getChunk(adjPos);
-                    if (adjChunk == null || adjChunk.getChunkState().compareTo(Chunk.State.INTERNAL_LIGHT_GENERATION_PENDING) < 0) {
-                        return;
-                    }
+    private void queueInternalLighting(Vector3i pos) {
+        logger.debug("Queueing for internal light generation {}", pos);
+        chunkTasksQueue.offer(new AbstractChunkTask("Internal lighting", INTERNAL_LIGHTING_TASK_ACTIVITY, pos, this) {
+            @Override
+            public void enact() {
+                Chunk chunk = getProvider().getChunk(getPosition());
+                if (chunk == null) {
+                    stageAbandoned(getPosition(), Chunk.State.INTERNAL_LIGHT_GENERATION_PENDING);
+                    return;
                 }
-            }
-            logger.debug("Queueing for internal light generation {}", pos);
-            chunkTasksQueue.offer(new AbstractChunkTask(pos, this) {
-                @Override
-                public void enact() {
-                    Chunk chunk = getProvider().getChunk(getPosition());
-                    if (chunk == null) {
-                        return;
-                    }
 
-                    chunk.lock();
-                    try {
-                        if (chunk.isDisposed() || chunk.getChunkState() != Chunk.State.INTERNAL_LIGHT_GENERATION_PENDING) {
+                boolean disposed;
+                chunk.lock();
+                try {
+                    disposed = chunk.isDisposed();
+                    if (!disposed) {
+                        if (chunk.getChunkState() != Chunk.State.INTERNAL_LIGHT_GENERATION_PENDING) {
                             return;
                         }
                         InternalLightProcessor.generateInternalLighting(chunk);
                         chunk.setChunkState(Chunk.State.LIGHT_PROPAGATION_PENDING);
-                        reviewChunkQueue.offer(new ChunkRequest(ChunkRequest.RequestType.REVIEW, Region3i.createFromCenterExtents(getPosition(), LOCAL_REGION_EXTENTS)));
-                    } finally {
-                        chunk.unlock();
                     }
+                } finally {
+                    chunk.unlock();
                 }
-            });
-        }
+                if (disposed) {
+                    stageAbandoned(getPosition(), Chunk.State.INTERNAL_LIGHT_GENERATION_PENDING);
+                    return;
+                }
+                stateChanged(getPosition(), Chunk.State.LIGHT_PROPAGATION_PENDING);
+            }
+        });
     }
 
-    private void checkReadyToPropagateLighting(Vector3i pos) {
-        Chunk chunk = getChunk(pos);
-        if (chunk != null && chunk.getChunkState() == Chunk.State.LIGHT_PROPAGATION_PENDING) {
-            for (Vector3i adjPos : Region3i.createFromCenterExtents(pos, LOCAL_REGION_EXTENTS)) {
-                if (!adjPos.equals(pos)) {
-                    Chunk adjChunk = getChunk(adjPos);
-                    if (adjChunk == null || adjChunk.getChunkState().compareTo(Chunk.State.LIGHT_PROPAGATION_PENDING) < 0) {
-                        return;
-                    }
+    private void queueLightPropagation(Vector3i pos) {
+        logger.debug("Queueing for light propagation pass {}", pos);
+        chunkTasksQueue.offer(new AbstractChunkTask("Light propagation", LIGHT_PROPAGATION_TASK_ACTIVITY, pos, this) {
+            @Override
+            public void enact() {
+                WorldView worldView = WorldView.createLocalView(getPosition(), getProvider());
+                if (worldView == null) {
+                    stageAbandoned(getPosition(), Chunk.State.LIGHT_PROPAGATION_PENDING);
+                    return;
                 }
-            }
-            logger.debug("Queueing for light propagation pass {}", pos);
-            chunkTasksQueue.offer(new AbstractChunkTask(pos, this) {
-                @Override
-                public void enact() {
-                    WorldView worldView = WorldView.createLocalView(getPosition(), getProvider());
-                    if (worldView == null) {
-                        return;
-                    }
-                    worldView.lock();
-                    try {
-                        if (!worldView.isValidView()) {
-                            return;
-                        }
+                boolean valid;
+                worldView.lock();
+                try {
+                    valid = worldView.isValidView();
+                    if (valid) {
                         Chunk chunk = getProvider().getChunk(getPosition());
                         if (chunk.getChunkState() != Chunk.State.LIGHT_PROPAGATION_PENDING) {
                             return;
@@ -443,57 +632,67 @@ public class LocalChunkProvider implements ChunkProvider {
 
                         new LightPropagator(worldView).propagateOutOfTargetChunk();
                         chunk.setChunkState(Chunk.State.FULL_LIGHT_CONNECTIVITY_PENDING);
-                        reviewChunkQueue.offer(new ChunkRequest(ChunkRequest.RequestType.REVIEW, Region3i.createFromCenterExtents(getPosition(), LOCAL_REGION_EXTENTS)));
-                    } finally {
-                        worldView.unlock();
                     }
+                } finally {
+                    worldView.unlock();
                 }
-            });
-        }
+                if (!valid) {
+                    stageAbandoned(getPosition(), Chunk.State.LIGHT_PROPAGATION_PENDING);
+                    return;
+                }
+                stateChanged(getPosition(), Chunk.State.FULL_LIGHT_CONNECTIVITY_PENDING);
+            }
+        });
     }
 
-    private void checkComplete(Vector3i pos) {
-        Chunk chunk = getChunk(pos);
-        if (chunk != null && chunk.getChunkState() == Chunk.State.FULL_LIGHT_CONNECTIVITY_PENDING) {
-            for (Vector3i adjPos : Region3i.createFromCenterExtents(pos, LOCAL_REGION_EXTENTS)) {
-                if (!adjPos.equals(pos)) {
-                    Chunk adjChunk = getChunk(adjPos);
-                    if (adjChunk == null || adjChunk.getChunkState().compareTo(Chunk.State.FULL_LIGHT_CONNECTIVITY_PENDING) < 0) {
-                        return;
-                    }
+    private void queueCompletion(Vector3i pos) {
+        chunkTasksQueue.offer(new AbstractChunkTask("Completion", COMPLETION_TASK_ACTIVITY, pos, this) {
+            @Override
+            public void enact() {
+                Chunk chunk = getProvider().getChunk(getPosition());
+                if (chunk == null) {
+                    stageAbandoned(getPosition(), Chunk.State.FULL_LIGHT_CONNECTIVITY_PENDING);
+                    return;
                 }
-            }
-            logger.debug("Now complete {}", pos);
-            chunk.setChunkState(Chunk.State.COMPLETE);
-            AdvancedConfig config = CoreRegistry.get(org.terasology.config.Config.class).getAdvancedConfig();
-            if (config.isChunkDeflationEnabled()) {
-                if (!chunkTasksQueue.offer(new AbstractChunkTask(pos, this) {
-                    @Override
-                    public void enact() {
-                        Chunk chunk = getChunk(getPosition());
-                        if (chunk != null) {
-                            chunk.deflate();
+
+                boolean disposed;
+                chunk.lock();
+                try {
+                    disposed = chunk.isDisposed();
+                    if (!disposed) {
+                        if (chunk.getChunkState() != Chunk.State.FULL_LIGHT_CONNECTIVITY_PENDING) {
+                            return;
                         }
+                        logger.debug("Now complete {}", getPosition());
+                        chunk.setChunkState(Chunk.State.COMPLETE);
                     }
-                })) {
-                    logger.warn("LocalChunkProvider.chunkTasksQueue rejected deflation task for chunk {}", pos);
+                } finally {
+                    chunk.unlock();
                 }
+                if (disposed) {
+                    stageAbandoned(getPosition(), Chunk.State.FULL_LIGHT_CONNECTIVITY_PENDING);
+                    return;
+                }
+                AdvancedConfig config = CoreRegistry.get(Config.class).getAdvancedConfig();
+                if (config.isChunkDeflationEnabled()) {
+                    queueDeflation(getPosition());
+                }
+                stateChanged(getPosition(), Chunk.State.COMPLETE);
             }
-            for (Vector3i adjPos : Region3i.createFromCenterExtents(pos, LOCAL_REGION_EXTENTS)) {
-                checkChunkReady(adjPos);
-            }
-        }
+        });
     }
 
-    private void checkChunkReady(Vector3i pos) {
-        if (worldEntity.exists()) {
-            for (Vector3i adjPos : Region3i.createFromCenterExtents(pos, LOCAL_REGION_EXTENTS)) {
-                Chunk chunk = getChunk(adjPos);
-                if (chunk == null || chunk.getChunkState() != Chunk.State.COMPLETE) {
-                    return;
+    private void queueDeflation(Vector3i pos) {
+        if (!chunkTasksQueue.offer(new AbstractChunkTask("Deflation", DEFLATION_TASK_ACTIVITY, pos, this) {
+            @Override
+            public void enact() {
+                Chunk chunk = getChunk(getPosition());
+                if (chunk != null) {
+                    chunk.deflate();
                 }
             }
-            worldEntity.send(new ChunkReadyEvent(pos));
+        })) {
+            logger.warn("LocalChunkProvider.chunkTasksQueue rejected deflation task for chunk {}", pos);
         }
     }
 
@@ -579,6 +778,22 @@ public class LocalChunkProvider implements ChunkProvider {
         }
     }
 
+    private static class EvictionCandidate implements Comparable<EvictionCandidate> {
+        private final Chunk chunk;
+        private final int distance;
+
+        public EvictionCandidate(Chunk chunk, int distance) {
+            this.chunk = chunk;
+            this.distance = distance;
+        }
+
+        @Override
+        public int compareTo(EvictionCandidate o) {
+            // Furthest chunks first
+            return (distance < o.distance) ? 1 : ((distance == o.distance) ? 0 : -1);
+        }
+    }
+
     private class ChunkTaskRelevanceComparator implements Comparator<ChunkTask> {
 
         @Override
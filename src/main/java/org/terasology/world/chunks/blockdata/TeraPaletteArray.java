@@ -0,0 +1,321 @@
+/*
+ * Copyright 2012 Benjamin Glatzel <benjamin.glatzel@me.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terasology.world.chunks.blockdata;
+
+import gnu.trove.map.hash.TShortIntHashMap;
+
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+
+import org.terasology.world.chunks.deflate.TeraAdvancedDeflator;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * TeraPaletteArray stores unsigned 16-bit values as indices into a palette of the distinct values used by the array.
+ * <p/>
+ * The indices are bit packed with 1, 2, 4, 8 or 16 bits per entry, depending on the size of the palette. When a value
+ * is set that does not fit into the palette anymore, the indices are re-packed with twice as many bits per entry. So
+ * an array containing only a few different values uses a fraction of the memory a dense array would need, while still
+ * supporting the full 16-bit value range.
+ * <p/>
+ * The packed indices, their number of bits and the palette are published together as one {@link State}, replaced as a
+ * whole on re-packing, so reading threads never decode indices with the wrong number of bits. The palette of a state
+ * has room for every index its bits can hold, so it never needs to be replaced for a state. Values are written from
+ * one thread at a time.
+ * <p/>
+ * Values no longer in use are only removed from the palette by {@link #deflate(TeraAdvancedDeflator)}.
+ */
+public final class TeraPaletteArray extends TeraArray {
+
+    private static final int MAX_BITS = 16;
+    private static final int LOOKUP_THRESHOLD = 16;
+
+    private volatile State state;
+    private int paletteSize;
+    private transient TShortIntHashMap lookup;
+
+    public TeraPaletteArray() {
+        super();
+    }
+
+    public TeraPaletteArray(int sizeX, int sizeY, int sizeZ) {
+        super(sizeX, sizeY, sizeZ);
+        state = new State(1, new int[dataSize(1)], new short[2]);
+        paletteSize = 1;
+    }
+
+    /**
+     * Creates a palette array holding the values of the given array. Values of arrays with fewer than 16 bits per
+     * element are treated as unsigned.
+     */
+    public TeraPaletteArray(TeraArray in) {
+        this(Preconditions.checkNotNull(in).getSizeX(), in.getSizeY(), in.getSizeZ());
+        int mask = (in.getElementSizeInBits() < MAX_BITS) ? (1 << in.getElementSizeInBits()) - 1 : 0xffff;
+        for (int y = 0; y < getSizeY(); y++) {
+            for (int z = 0; z < getSizeZ(); z++) {
+                for (int x = 0; x < getSizeX(); x++) {
+                    set(x, y, z, in.get(x, y, z) & mask);
+                }
+            }
+        }
+    }
+
+    private TeraPaletteArray(int sizeX, int sizeY, int sizeZ, State state, int paletteSize) {
+        super(sizeX, sizeY, sizeZ);
+        this.state = state;
+        this.paletteSize = paletteSize;
+        rebuildLookup();
+    }
+
+    private int dataSize(int bits) {
+        int entriesPerWord = 32 / bits;
+        return (getSizeXYZ() + entriesPerWord - 1) / entriesPerWord;
+    }
+
+    private int pos(int x, int y, int z) {
+        return y * getSizeXZ() + z * getSizeX() + x;
+    }
+
+    /**
+     * @return The number of bits used per entry
+     */
+    public int getBitsPerEntry() {
+        return state.bitsPerEntry;
+    }
+
+    /**
+     * @return The number of values in the palette
+     */
+    public int getPaletteSize() {
+        return paletteSize;
+    }
+
+    @Override
+    public boolean isSparse() {
+        return false;
+    }
+
+    @Override
+    public TeraArray copy() {
+        State current = state;
+        int[] dataCopy = new int[current.data.length];
+        System.arraycopy(current.data, 0, dataCopy, 0, dataCopy.length);
+        short[] paletteCopy = new short[current.palette.length];
+        System.arraycopy(current.palette, 0, paletteCopy, 0, paletteCopy.length);
+        return new TeraPaletteArray(getSizeX(), getSizeY(), getSizeZ(), new State(current.bitsPerEntry, dataCopy, paletteCopy), paletteSize);
+    }
+
+    /**
+     * Returns a copy of this array without palette entries which are no longer used, packed with as few bits per entry
+     * as possible, or null if the palette does not contain unused entries.
+     */
+    @Override
+    public TeraArray deflate(TeraAdvancedDeflator deflator) {
+        State current = state;
+        boolean[] used = new boolean[paletteSize];
+        int usedCount = 0;
+        for (int i = 0; i < getSizeXYZ(); i++) {
+            int index = current.getIndex(i);
+            if (!used[index]) {
+                used[index] = true;
+                usedCount++;
+            }
+        }
+        if (usedCount == paletteSize) {
+            return null;
+        }
+
+        TeraPaletteArray result = new TeraPaletteArray(getSizeX(), getSizeY(), getSizeZ());
+        result.state.palette[0] = current.palette[current.getIndex(0)];
+        for (int i = 0; i < getSizeXYZ(); i++) {
+            result.setIndexed(i, current.palette[current.getIndex(i)]);
+        }
+        return result;
+    }
+
+    @Override
+    public int getEstimatedMemoryConsumptionInBytes() {
+        State current = state;
+        return 32 + 16 + (16 + current.data.length * 4) + (16 + current.palette.length * 2);
+    }
+
+    @Override
+    public int getElementSizeInBits() {
+        return MAX_BITS;
+    }
+
+    @Override
+    public int get(int x, int y, int z) {
+        State current = state;
+        return current.palette[current.getIndex(pos(x, y, z))] & 0xffff;
+    }
+
+    @Override
+    public int set(int x, int y, int z, int value) {
+        int pos = pos(x, y, z);
+        State current = state;
+        int old = current.palette[current.getIndex(pos)] & 0xffff;
+        if (old != value) {
+            setIndexed(pos, (short) value);
+        }
+        return old;
+    }
+
+    @Override
+    public boolean set(int x, int y, int z, int value, int expected) {
+        int pos = pos(x, y, z);
+        State current = state;
+        int old = current.palette[current.getIndex(pos)] & 0xffff;
+        if (old == expected) {
+            if (old != value) {
+                setIndexed(pos, (short) value);
+            }
+            return true;
+        }
+        return false;
+    }
+
+    private void setIndexed(int pos, short value) {
+        int index = paletteIndexOf(value);
+        // Read after adding to the palette, which may have re-packed the indices into a new state
+        state.setIndex(pos, index);
+    }
+
+    private int paletteIndexOf(short value) {
+        if (lookup != null) {
+            if (lookup.containsKey(value)) {
+                return lookup.get(value);
+            }
+        } else {
+            short[] palette = state.palette;
+            for (int i = 0; i < paletteSize; i++) {
+                if (palette[i] == value) {
+                    return i;
+                }
+            }
+        }
+        return addToPalette(value);
+    }
+
+    private int addToPalette(short value) {
+        if (paletteSize == state.palette.length) {
+            repack(state.bitsPerEntry * 2);
+        }
+        int index = paletteSize++;
+        state.palette[index] = value;
+        if (lookup != null) {
+            lookup.put(value, index);
+        } else if (paletteSize > LOOKUP_THRESHOLD) {
+            rebuildLookup();
+        }
+        return index;
+    }
+
+    /**
+     * Publishes a new state with the indices packed with the given number of bits. Readers still holding the old
+     * state keep decoding the old indices, which are not written anymore.
+     */
+    private void repack(int newBits) {
+        Preconditions.checkState(newBits <= MAX_BITS, "Palette exceeds " + MAX_BITS + " bits");
+        State old = state;
+        short[] newPalette = new short[1 << newBits];
+        System.arraycopy(old.palette, 0, newPalette, 0, paletteSize);
+        State repacked = new State(newBits, new int[dataSize(newBits)], newPalette);
+        int size = getSizeXYZ();
+        for (int i = 0; i < size; i++) {
+            int index = old.getIndex(i);
+            if (index != 0) {
+                repacked.setIndex(i, index);
+            }
+        }
+        state = repacked;
+    }
+
+    @Override
+    public void writeExternal(ObjectOutput out) throws IOException {
+        State current = state;
+        writeExternalHeader(out);
+        out.writeByte(current.bitsPerEntry);
+        out.writeInt(paletteSize);
+        for (int i = 0; i < paletteSize; i++) {
+            out.writeShort(current.palette[i]);
+        }
+        out.writeInt(current.data.length);
+        for (int word : current.data) {
+            out.writeInt(word);
+        }
+    }
+
+    @Override
+    public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException {
+        readExternalHeader(in);
+        int bitsPerEntry = in.readByte();
+        paletteSize = in.readInt();
+        short[] palette = new short[1 << bitsPerEntry];
+        for (int i = 0; i < paletteSize; i++) {
+            palette[i] = in.readShort();
+        }
+        int[] data = new int[in.readInt()];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = in.readInt();
+        }
+        state = new State(bitsPerEntry, data, palette);
+        rebuildLookup();
+    }
+
+    private void rebuildLookup() {
+        lookup = null;
+        if (paletteSize > LOOKUP_THRESHOLD) {
+            short[] palette = state.palette;
+            lookup = new TShortIntHashMap(2 * paletteSize);
+            for (int i = 0; i < paletteSize; i++) {
+                lookup.put(palette[i], i);
+            }
+        }
+    }
+
+    /**
+     * The packed indices along with their number of bits and the palette they index, holding 1 << bitsPerEntry values.
+     */
+    private static final class State {
+        private final int bitsPerEntry;
+        private final int entriesPerWord;
+        private final int mask;
+        private final int[] data;
+        private final short[] palette;
+
+        private State(int bitsPerEntry, int[] data, short[] palette) {
+            this.bitsPerEntry = bitsPerEntry;
+            this.entriesPerWord = 32 / bitsPerEntry;
+            this.mask = (1 << bitsPerEntry) - 1;
+            this.data = data;
+            this.palette = palette;
+        }
+
+        private int getIndex(int pos) {
+            int shift = (pos % entriesPerWord) * bitsPerEntry;
+            return (data[pos / entriesPerWord] >>> shift) & mask;
+        }
+
+        private void setIndex(int pos, int index) {
+            int word = pos / entriesPerWord;
+            int shift = (pos % entriesPerWord) * bitsPerEntry;
+            data[word] = (data[word] & ~(mask << shift)) | ((index & mask) << shift);
+        }
+    }
+}
@@ -23,6 +23,7 @@ import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.io.Serializable;
+import java.util.Set;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutorService;
@@ -41,6 +42,7 @@ import org.terasology.world.chunks.ChunkStore;
 
 import com.google.common.collect.Maps;
 import com.google.common.collect.Queues;
+import com.google.common.collect.Sets;
 
 public class ChunkStoreGZip implements ChunkStore, Serializable {
     static final long serialVersionUID = -8168985892342356264L;
@@ -171,6 +173,15 @@ public class ChunkStoreGZip implements ChunkStore, Serializable {
         return modifiedChunks.containsKey(position) || compressedChunks.containsKey(position);
     }
 
+    /**
+     * @return The positions of all chunks in this store
+     */
+    public Set<Vector3i> getChunkPositions() {
+        Set<Vector3i> result = Sets.newHashSet(compressedChunks.keySet());
+        result.addAll(modifiedChunks.keySet());
+        return result;
+    }
+
     public float size() {
         return (float) sizeInByte.get() / (1 << 20);
     }
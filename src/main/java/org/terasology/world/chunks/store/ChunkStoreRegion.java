@@ -0,0 +1,284 @@
+/*
+ * Copyright 2012 Benjamin Glatzel <benjamin.glatzel@me.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terasology.world.chunks.store;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.nio.ByteBuffer;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.InflaterInputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.terasology.math.Vector3i;
+import org.terasology.performanceMonitor.PerformanceMonitor;
+import org.terasology.world.chunks.Chunk;
+import org.terasology.world.chunks.ChunkCodec;
+import org.terasology.world.chunks.ChunkStore;
+
+import com.google.common.collect.Maps;
+import com.google.common.collect.Queues;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * A chunk store that keeps chunks on disk, grouped into region files of {@link RegionFile#SIZE_X} x
+ * {@link RegionFile#SIZE_Z} chunks.
+ * <p/>
+ * Region files are opened lazily on first access, and only the offset table and the sectors of requested chunks are
+ * read, so neither the time to open a world nor the memory used by the store grow with the size of the world.
+ * Chunks are written back by a background thread, until then they are served from memory. Chunks are stored using
+ * {@link ChunkCodec}.
+ */
+public class ChunkStoreRegion implements ChunkStore {
+
+    public static final String REGION_FILE_EXTENSION = ".region";
+
+    private static final Logger logger = LoggerFactory.getLogger(ChunkStoreRegion.class);
+
+    private static final int ENCODE_CHUNK_ACTIVITY = PerformanceMonitor.registerActivity("Encode Chunk");
+    private static final int WRITE_CHUNK_ACTIVITY = PerformanceMonitor.registerActivity("Write Chunk");
+    private static final int DECODE_CHUNK_ACTIVITY = PerformanceMonitor.registerActivity("Decode Chunk");
+
+    private final File regionPath;
+
+    private final ConcurrentMap<Vector3i, RegionFile> regionFiles = Maps.newConcurrentMap();
+    private final ConcurrentMap<Vector3i, Chunk> modifiedChunks = Maps.newConcurrentMap();
+    private final BlockingQueue<Chunk> writeQueue = Queues.newLinkedBlockingQueue();
+    private final AtomicBoolean running = new AtomicBoolean(true);
+    private final ExecutorService writeThread;
+    private final ChunkCodec codec = new ChunkCodec();
+
+    public ChunkStoreRegion(File regionPath) {
+        this.regionPath = regionPath;
+        writeThread = Executors.newSingleThreadExecutor(new ThreadFactoryBuilder().setNameFormat("Chunk-Store-Writer-%d").build());
+        writeThread.execute(new Runnable() {
+            @Override
+            public void run() {
+                Thread.currentThread().setPriority(Thread.MIN_PRIORITY);
+                while (running.get()) {
+                    try {
+                        Chunk chunk = writeQueue.poll(500, TimeUnit.MILLISECONDS);
+                        if (chunk != null) {
+                            saveChunk(chunk);
+                        }
+                    } catch (InterruptedException e) {
+                        logger.error("Thread interrupted", e);
+                    } catch (Exception e) {
+                        logger.error("Error in thread", e);
+                    }
+                }
+                Chunk chunk = writeQueue.poll();
+                while (chunk != null) {
+                    saveChunk(chunk);
+                    chunk = writeQueue.poll();
+                }
+                logger.debug("Thread shutdown safely");
+            }
+        });
+    }
+
+    @Override
+    public Chunk get(Vector3i position) {
+        Chunk chunk = modifiedChunks.get(position);
+        if (chunk != null) {
+            return new Chunk(chunk);
+        }
+
+        RegionFile region = getRegionFile(position, false);
+        if (region == null) {
+            return null;
+        }
+        try {
+            ByteBuffer data = region.read(RegionFile.indexOf(position.x, position.z));
+            if (data == null) {
+                return null;
+            }
+            PerformanceMonitor.startActivity(DECODE_CHUNK_ACTIVITY);
+            try {
+                return decode(data);
+            } finally {
+                PerformanceMonitor.endActivity();
+            }
+        } catch (IOException e) {
+            logger.error("Error loading chunk {}", position, e);
+        } catch (ClassNotFoundException e) {
+            logger.error("Error loading chunk {}", position, e);
+        }
+        return null;
+    }
+
+    @Override
+    public void put(Chunk c) {
+        modifiedChunks.put(c.getPos(), c);
+        if (!writeQueue.offer(c)) {
+            logger.error("Failed to add chunk to write queue");
+        }
+    }
+
+    @Override
+    public boolean contains(Vector3i position) {
+        if (modifiedChunks.containsKey(position)) {
+            return true;
+        }
+        RegionFile region = getRegionFile(position, false);
+        return region != null && region.contains(RegionFile.indexOf(position.x, position.z));
+    }
+
+    @Override
+    public float size() {
+        long bytes = 0;
+        for (RegionFile region : regionFiles.values()) {
+            bytes += region.size();
+        }
+        return (float) bytes / (1 << 20);
+    }
+
+    @Override
+    public void dispose() {
+        running.set(false);
+        writeThread.shutdown();
+        try {
+            if (!writeThread.awaitTermination(30, TimeUnit.SECONDS)) {
+                logger.warn("Timed out awaiting chunk write thread termination");
+            }
+        } catch (InterruptedException e) {
+            logger.error("Interrupted while awaiting thread disposal");
+        }
+        for (RegionFile region : regionFiles.values()) {
+            try {
+                region.close();
+            } catch (IOException e) {
+                logger.error("Failed to close region file {}", region.getFile(), e);
+            }
+        }
+        regionFiles.clear();
+    }
+
+    /**
+     * Writes the chunk to its region file right away on the calling thread, instead of queueing it for the writer
+     * thread. Use {@link #flush()} to make sure it has reached the disk. Meant for filling the store before it is in use,
+     * a chunk written this way must not also be queued with {@link #put(Chunk)}.
+     *
+     * @throws IOException If the chunk could not be written
+     */
+    public void write(Chunk chunk) throws IOException {
+        writeChunk(chunk);
+    }
+
+    /**
+     * Forces all chunks written to the region files so far onto the disk. Chunks still queued for the writer thread are
+     * not included.
+     *
+     * @throws IOException If a region file could not be flushed
+     */
+    public void flush() throws IOException {
+        for (RegionFile region : regionFiles.values()) {
+            region.flush();
+        }
+    }
+
+    private void saveChunk(Chunk chunk) {
+        try {
+            writeChunk(chunk);
+            modifiedChunks.remove(chunk.getPos(), chunk);
+        } catch (IOException e) {
+            logger.error("Error saving chunk {}", chunk.getPos(), e);
+        }
+    }
+
+    private void writeChunk(Chunk chunk) throws IOException {
+        Vector3i pos = chunk.getPos();
+        RegionFile region = getRegionFile(pos, true);
+        if (region == null) {
+            throw new IOException("No region file for chunk " + pos);
+        }
+        // The codec reuses its buffer, and chunks are written by the writer thread as well as by write()
+        synchronized (codec) {
+            PerformanceMonitor.startActivity(ENCODE_CHUNK_ACTIVITY);
+            ByteBuffer data;
+            try {
+                data = codec.encode(chunk);
+            } finally {
+                PerformanceMonitor.endActivity();
+            }
+            PerformanceMonitor.startActivity(WRITE_CHUNK_ACTIVITY);
+            try {
+                region.write(RegionFile.indexOf(pos.x, pos.z), data);
+            } finally {
+                PerformanceMonitor.endActivity();
+            }
+        }
+    }
+
+    private RegionFile getRegionFile(Vector3i chunkPos, boolean create) {
+        Vector3i regionPos = new Vector3i(chunkPos.x >> RegionFile.POWER_X, chunkPos.y, chunkPos.z >> RegionFile.POWER_Z);
+        RegionFile region = regionFiles.get(regionPos);
+        if (region != null) {
+            return region;
+        }
+
+        synchronized (regionFiles) {
+            region = regionFiles.get(regionPos);
+            if (region == null) {
+                File file = new File(regionPath, regionPos.x + "." + regionPos.y + "." + regionPos.z + REGION_FILE_EXTENSION);
+                if (!file.exists()) {
+                    if (!create) {
+                        return null;
+                    }
+                    if (!regionPath.exists() && !regionPath.mkdirs()) {
+                        logger.error("Failed to create region directory {}", regionPath);
+                        return null;
+                    }
+                }
+                try {
+                    region = new RegionFile(file);
+                    regionFiles.put(regionPos, region);
+                } catch (IOException e) {
+                    logger.error("Failed to open region file {}", file, e);
+                }
+            }
+            return region;
+        }
+    }
+
+    private Chunk decode(ByteBuffer data) throws IOException, ClassNotFoundException {
+        if (ChunkCodec.isEncoded(data)) {
+            return ChunkCodec.decode(data);
+        }
+        return decodeLegacy(data);
+    }
+
+    /**
+     * Reads chunks written using java serialization, before chunks were stored using {@link ChunkCodec}.
+     */
+    private Chunk decodeLegacy(ByteBuffer data) throws IOException, ClassNotFoundException {
+        byte[] bytes = new byte[data.remaining()];
+        data.get(bytes);
+        ObjectInputStream objectIn = new ObjectInputStream(new InflaterInputStream(new ByteArrayInputStream(bytes)));
+        try {
+            return (Chunk) objectIn.readObject();
+        } finally {
+            objectIn.close();
+        }
+    }
+}
@@ -0,0 +1,198 @@
+/*
+ * Copyright 2012 Benjamin Glatzel <benjamin.glatzel@me.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terasology.world.chunks.store;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.BitSet;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * A single region file holding up to {@link #ENTRIES} chunks.
+ * <p/>
+ * The file starts with an offset table which is memory mapped for the lifetime of the region file. Each entry consists
+ * of the first sector and the number of sectors used by a chunk, a sector offset of zero marks an empty slot. The chunk
+ * data itself is stored in sectors of {@link #SECTOR_SIZE} bytes, prefixed by its length in bytes. Chunk data is written
+ * in place if it still fits into the sectors it occupied before, otherwise it is moved into the first free run of
+ * sectors large enough to hold it, or appended to the end of the file.
+ */
+final class RegionFile {
+
+    public static final int SIZE_X = 32;
+    public static final int SIZE_Z = 32;
+    public static final int POWER_X = 5;
+    public static final int POWER_Z = 5;
+    public static final int ENTRIES = SIZE_X * SIZE_Z;
+
+    public static final int SECTOR_SIZE = 4096;
+    private static final int HEADER_BYTES = ENTRIES * 2 * 4;
+    private static final int HEADER_SECTORS = HEADER_BYTES / SECTOR_SIZE;
+    private static final int LENGTH_PREFIX = 4;
+
+    private final File file;
+    private final RandomAccessFile randomAccessFile;
+    private final FileChannel channel;
+    private final MappedByteBuffer headerBuffer;
+    private final IntBuffer header;
+    private final BitSet usedSectors = new BitSet();
+    private int sectorCount;
+
+    public RegionFile(File file) throws IOException {
+        this.file = file;
+        randomAccessFile = new RandomAccessFile(file, "rw");
+        channel = randomAccessFile.getChannel();
+        if (channel.size() < HEADER_BYTES) {
+            channel.write(ByteBuffer.allocate(HEADER_BYTES), 0);
+        }
+        headerBuffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES);
+        header = headerBuffer.asIntBuffer();
+
+        sectorCount = (int) ((channel.size() + SECTOR_SIZE - 1) / SECTOR_SIZE);
+        usedSectors.set(0, HEADER_SECTORS);
+        for (int i = 0; i < ENTRIES; ++i) {
+            int offset = header.get(2 * i);
+            int count = header.get(2 * i + 1);
+            if (offset >= HEADER_SECTORS && offset + count <= sectorCount) {
+                usedSectors.set(offset, offset + count);
+            } else if (offset != 0) {
+                // Entry points outside of the file, most likely a write that did not complete
+                header.put(2 * i, 0);
+                header.put(2 * i + 1, 0);
+            }
+        }
+    }
+
+    /**
+     * @param x Chunk x position
+     * @param z Chunk z position
+     * @return The index of the given chunk in the offset table of its region
+     */
+    public static int indexOf(int x, int z) {
+        return (x & (SIZE_X - 1)) + ((z & (SIZE_Z - 1)) << POWER_X);
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    public synchronized boolean contains(int index) {
+        return header.get(2 * index) != 0;
+    }
+
+    /**
+     * Reads the data of a single chunk.
+     *
+     * @param index The index of the chunk within this region
+     * @return The stored data, or null if there is no data for this chunk
+     * @throws IOException
+     */
+    public synchronized ByteBuffer read(int index) throws IOException {
+        int offset = header.get(2 * index);
+        int count = header.get(2 * index + 1);
+        if (offset == 0) {
+            return null;
+        }
+        MappedByteBuffer sectors = channel.map(FileChannel.MapMode.READ_ONLY, (long) offset * SECTOR_SIZE, (long) count * SECTOR_SIZE);
+        int length = sectors.getInt();
+        if (length < 0 || length > count * SECTOR_SIZE - LENGTH_PREFIX) {
+            throw new IOException("Corrupt chunk entry " + index + " in region file " + file);
+        }
+        sectors.limit(LENGTH_PREFIX + length);
+        return sectors.slice();
+    }
+
+    /**
+     * Writes the data of a single chunk, reusing its current sectors if possible.
+     *
+     * @param index The index of the chunk within this region
+     * @param data  The data to store, from its position to its limit
+     * @throws IOException
+     */
+    public synchronized void write(int index, ByteBuffer data) throws IOException {
+        int length = data.remaining();
+        int required = (length + LENGTH_PREFIX + SECTOR_SIZE - 1) / SECTOR_SIZE;
+        int offset = header.get(2 * index);
+        int count = header.get(2 * index + 1);
+
+        if (offset == 0 || count < required) {
+            if (offset != 0) {
+                usedSectors.clear(offset, offset + count);
+            }
+            offset = allocate(required);
+        } else if (count > required) {
+            usedSectors.clear(offset + required, offset + count);
+        }
+
+        ByteBuffer lengthPrefix = ByteBuffer.allocate(LENGTH_PREFIX);
+        lengthPrefix.putInt(0, length);
+        long position = (long) offset * SECTOR_SIZE;
+        channel.write(lengthPrefix, position);
+        position += LENGTH_PREFIX;
+        while (data.hasRemaining()) {
+            position += channel.write(data, position);
+        }
+        long end = (long) (offset + required) * SECTOR_SIZE;
+        if (channel.size() < end) {
+            // Keep the file sector aligned, so every allocated sector can be mapped
+            channel.write(ByteBuffer.allocate(1), end - 1);
+        }
+
+        usedSectors.set(offset, offset + required);
+        header.put(2 * index, offset);
+        header.put(2 * index + 1, required);
+    }
+
+    public synchronized void flush() throws IOException {
+        headerBuffer.force();
+        channel.force(false);
+    }
+
+    public synchronized void close() throws IOException {
+        flush();
+        channel.close();
+        randomAccessFile.close();
+    }
+
+    /**
+     * @return The size of the region file in bytes
+     */
+    public synchronized long size() {
+        return (long) sectorCount * SECTOR_SIZE;
+    }
+
+    private int allocate(int required) {
+        Preconditions.checkArgument(required > 0);
+        int start = usedSectors.nextClearBit(HEADER_SECTORS);
+        while (start < sectorCount) {
+            int end = usedSectors.nextSetBit(start);
+            if (end == -1 || end > sectorCount) {
+                end = sectorCount;
+            }
+            if (end - start >= required) {
+                return start;
+            }
+            start = usedSectors.nextClearBit(end);
+        }
+        sectorCount = start + required;
+        return start;
+    }
+}
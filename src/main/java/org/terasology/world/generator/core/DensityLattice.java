@@ -0,0 +1,223 @@
+/*
+ * Copyright 2012 Benjamin Glatzel <benjamin.glatzel@me.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.terasology.world.generator.core;
+
+import org.terasology.math.TeraMath;
+import org.terasology.utilities.Noise;
+import org.terasology.world.chunks.Chunk;
+
+/**
+ * The buffers the density based terrain generators fill while generating a chunk. Each thread reuses its own lattice,
+ * so a chunk can be generated without allocating any large arrays.
+ * <p/>
+ * The density is sampled on a coarse lattice, every SAMPLE_RATE_HOR blocks horizontally and every SAMPLE_RATE_VERT
+ * blocks vertically, and trilinearly interpolated in between. All values are stored column by column, the same layout
+ * the noise uses when sampling a lattice of positions.
+ */
+final class DensityLattice {
+    static final int SAMPLE_RATE_HOR = 4;
+    static final int SAMPLE_RATE_VERT = 4;
+
+    static final int SAMPLES_X = Chunk.SIZE_X / SAMPLE_RATE_HOR + 1;
+    static final int SAMPLES_Y = Chunk.SIZE_Y / SAMPLE_RATE_VERT + 1;
+    static final int SAMPLES_Z = Chunk.SIZE_Z / SAMPLE_RATE_HOR + 1;
+
+    private static final int SIZE_X = Chunk.SIZE_X + 1;
+    private static final int SIZE_Y = Chunk.SIZE_Y + 1;
+    private static final int SIZE_Z = Chunk.SIZE_Z + 1;
+
+    private static final double[] ORIGIN = {0};
+
+    private static final ThreadLocal<DensityLattice> lattices = new ThreadLocal<DensityLattice>() {
+        @Override
+        protected DensityLattice initialValue() {
+            return new DensityLattice();
+        }
+    };
+
+    /**
+     * The world positions of the sampled columns
+     */
+    final int[] sampleX = new int[SAMPLES_X];
+    final int[] sampleZ = new int[SAMPLES_Z];
+
+    /**
+     * The world positions of the columns of the chunk
+     */
+    final int[] blockX = new int[Chunk.SIZE_X];
+    final int[] blockZ = new int[Chunk.SIZE_Z];
+
+    /**
+     * The noise of the terrain layers, for each sampled column or sampled position
+     */
+    final double[] baseNoise = new double[SAMPLES_X * SAMPLES_Z];
+    final double[] oceanNoise = new double[SAMPLES_X * SAMPLES_Z];
+    final double[] riverNoise = new double[SAMPLES_X * SAMPLES_Z];
+    final double[] mountainNoise = new double[SAMPLES_X * SAMPLES_Z * SAMPLES_Y];
+    final double[] hillNoise = new double[SAMPLES_X * SAMPLES_Z * SAMPLES_Y];
+
+    /**
+     * The climate of each sampled column
+     */
+    final float[] temperature = new float[SAMPLES_X * SAMPLES_Z];
+    final float[] humidity = new float[SAMPLES_X * SAMPLES_Z];
+
+    private final double[] density = new double[SIZE_X * SIZE_Y * SIZE_Z];
+    private final double[] caveDensity = new double[Chunk.SIZE_X * Chunk.SIZE_Y * Chunk.SIZE_Z];
+    private int caveHeight;
+
+    private final double[] noiseSampleX = new double[SAMPLES_X];
+    private final double[] noiseSampleY = new double[SAMPLES_Y];
+    private final double[] noiseSampleZ = new double[SAMPLES_Z];
+    private final double[] noiseBlockX = new double[Chunk.SIZE_X];
+    private final double[] noiseBlockZ = new double[Chunk.SIZE_Z];
+
+    private DensityLattice() {
+    }
+
+    /**
+     * @param c The chunk to generate
+     * @return The lattice of the current thread, positioned on the given chunk
+     */
+    static DensityLattice forChunk(Chunk c) {
+        DensityLattice lattice = lattices.get();
+        for (int i = 0; i < SAMPLES_X; i++) {
+            lattice.sampleX[i] = c.getBlockWorldPosX(i * SAMPLE_RATE_HOR);
+        }
+        for (int i = 0; i < SAMPLES_Z; i++) {
+            lattice.sampleZ[i] = c.getBlockWorldPosZ(i * SAMPLE_RATE_HOR);
+        }
+        for (int i = 0; i < Chunk.SIZE_X; i++) {
+            lattice.blockX[i] = c.getBlockWorldPosX(i);
+        }
+        for (int i = 0; i < Chunk.SIZE_Z; i++) {
+            lattice.blockZ[i] = c.getBlockWorldPosZ(i);
+        }
+        lattice.caveHeight = 0;
+        return lattice;
+    }
+
+    /**
+     * Samples the fBm of the noise at (scale * x, 0, scale * z) for each sampled column.
+     */
+    void sampleColumns(Noise noise, double scale, double[] result) {
+        for (int i = 0; i < SAMPLES_X; i++) {
+            noiseSampleX[i] = scale * sampleX[i];
+        }
+        for (int i = 0; i < SAMPLES_Z; i++) {
+            noiseSampleZ[i] = scale * sampleZ[i];
+        }
+        noise.fBm(result, noiseSampleX, ORIGIN, noiseSampleZ);
+    }
+
+    /**
+     * Samples the fBm of the noise at (x * horizontalScale, y * verticalScale, z * horizontalScale) for each sampled
+     * position.
+     */
+    void sampleLattice(Noise noise, double horizontalScale, double verticalScale, double[] result) {
+        for (int i = 0; i < SAMPLES_X; i++) {
+            noiseSampleX[i] = sampleX[i] * horizontalScale;
+        }
+        for (int i = 0; i < SAMPLES_Y; i++) {
+            noiseSampleY[i] = (i * SAMPLE_RATE_VERT) * verticalScale;
+        }
+        for (int i = 0; i < SAMPLES_Z; i++) {
+            noiseSampleZ[i] = sampleZ[i] * horizontalScale;
+        }
+        noise.fBm(result, noiseSampleX, noiseSampleY, noiseSampleZ);
+    }
+
+    /**
+     * Samples the fBm of the noise at (x * scale, y * scale, z * scale) for each block of the chunk from y = 1 up to
+     * the highest block with a positive density.
+     */
+    void sampleCaves(Noise noise, double scale) {
+        caveHeight = 0;
+        for (int x = 0; x < Chunk.SIZE_X; x++) {
+            for (int z = 0; z < Chunk.SIZE_Z; z++) {
+                int column = index(x, 0, z);
+                for (int y = Chunk.SIZE_Y - 1; y > caveHeight; y--) {
+                    if (density[column + y] >= 0) {
+                        caveHeight = y;
+                        break;
+                    }
+                }
+            }
+        }
+        if (caveHeight == 0) {
+            return;
+        }
+
+        double[] noiseY = new double[caveHeight];
+        for (int i = 0; i < caveHeight; i++) {
+            noiseY[i] = (i + 1) * scale;
+        }
+        for (int i = 0; i < Chunk.SIZE_X; i++) {
+            noiseBlockX[i] = blockX[i] * scale;
+        }
+        for (int i = 0; i < Chunk.SIZE_Z; i++) {
+            noiseBlockZ[i] = blockZ[i] * scale;
+        }
+        noise.fBm(caveDensity, noiseBlockX, noiseY, noiseBlockZ);
+    }
+
+    /**
+     * @return The cave density of a block of the chunk with a positive density, above the mantle
+     */
+    double getCaveDensity(int x, int y, int z) {
+        return caveDensity[(x * Chunk.SIZE_Z + z) * caveHeight + y - 1];
+    }
+
+    double getDensity(int x, int y, int z) {
+        return density[index(x, y, z)];
+    }
+
+    /**
+     * Sets the density of a sampled position, given by its index along each axis of the lattice.
+     */
+    void setSample(int sampleX, int sampleY, int sampleZ, double value) {
+        density[index(sampleX * SAMPLE_RATE_HOR, sampleY * SAMPLE_RATE_VERT, sampleZ * SAMPLE_RATE_HOR)] = value;
+    }
+
+    /**
+     * Trilinear interpolates the density of the blocks between the sampled positions.
+     */
+    void triLerp() {
+        for (int x = 0; x < Chunk.SIZE_X; x++) {
+            int offsetX = (x / SAMPLE_RATE_HOR) * SAMPLE_RATE_HOR;
+            for (int z = 0; z < Chunk.SIZE_Z; z++) {
+                int offsetZ = (z / SAMPLE_RATE_HOR) * SAMPLE_RATE_HOR;
+                int column = index(x, 0, z);
+                int c00 = index(offsetX, 0, offsetZ);
+                int c01 = index(offsetX, 0, offsetZ + SAMPLE_RATE_HOR);
+                int c10 = index(offsetX + SAMPLE_RATE_HOR, 0, offsetZ);
+                int c11 = index(offsetX + SAMPLE_RATE_HOR, 0, offsetZ + SAMPLE_RATE_HOR);
+                for (int y = 0; y < Chunk.SIZE_Y; y++) {
+                    if (!(x % SAMPLE_RATE_HOR == 0 && y % SAMPLE_RATE_VERT == 0 && z % SAMPLE_RATE_HOR == 0)) {
+                        int offsetY = (y / SAMPLE_RATE_VERT) * SAMPLE_RATE_VERT;
+                        int offsetY1 = offsetY + SAMPLE_RATE_VERT;
+                        density[column + y] = TeraMath.triLerp(x, y, z, density[c00 + offsetY], density[c00 + offsetY1], density[c01 + offsetY], density[c01 + offsetY1], density[c10 + offsetY], density[c10 + offsetY1], density[c11 + offsetY], density[c11 + offsetY1], offsetX, SAMPLE_RATE_HOR + offsetX, offsetY, offsetY1, offsetZ, offsetZ + SAMPLE_RATE_HOR);
+                    }
+                }
+            }
+        }
+    }
+
+    private static int index(int x, int y, int z) {
+        return (x * SIZE_Z + z) * SIZE_Y + y;
+    }
+}
@@ -19,6 +19,7 @@ import java.util.Map;
 
 import org.terasology.logic.manager.Config;
 import org.terasology.utilities.FastRandom;
+import org.terasology.world.ChunkClimate;
 import org.terasology.world.WorldBiomeProvider;
 import org.terasology.world.block.Block;
 import org.terasology.world.block.management.BlockManager;
@@ -65,10 +66,11 @@ public class FloraGenerator implements ChunkGenerator {
     public void generateChunk(Chunk c) {
         // TODO: Better seeding mechanism
         FastRandom random = new FastRandom(worldSeed.hashCode() ^ (c.getPos().x + 39L * (c.getPos().y + 39L * c.getPos().z)));
+        ChunkClimate climate = biomeProvider.getChunkClimate(c.getPos().x, c.getPos().z);
         for (int y = 0; y < Chunk.SIZE_Y; y++) {
             for (int x = 0; x < Chunk.SIZE_X; x++) {
                 for (int z = 0; z < Chunk.SIZE_Z; z++) {
-                    generateGrassAndFlowers(c, x, y, z, random);
+                    generateGrassAndFlowers(c, climate, x, y, z, random);
                 }
             }
         }
@@ -77,19 +79,20 @@ public class FloraGenerator implements ChunkGenerator {
     /**
      * Generates grass or a flower on the given chunk.
      *
-     * @param c The chunk
-     * @param x Position on the x-axis
-     * @param y Position on the y-axis
-     * @param z Position on the z-axis
+     * @param c       The chunk
+     * @param climate The climate of the chunk
+     * @param x       Position on the x-axis
+     * @param y       Position on the y-axis
+     * @param z       Position on the z-axis
      */
-    private void generateGrassAndFlowers(Chunk c, int x, int y, int z, FastRandom random) {
+    private void generateGrassAndFlowers(Chunk c, ChunkClimate climate, int x, int y, int z, FastRandom random) {
         Block targetBlock = c.getBlock(x, y, z);
         if ((targetBlock.equals(grassBlock) || targetBlock.equals(sandBlock) || targetBlock.equals(snowBlock)) && c.getBlock(x, y + 1, z).equals(BlockManager.getInstance().getAir())) {
 
             double grassRand = (random.randomDouble() + 1.0) / 2.0;
             double grassProb = 1.0;
 
-            WorldBiomeProvider.Biome biome = biomeProvider.getBiomeAt(c.getBlockWorldPosX(x), c.getBlockWorldPosZ(z));
+            WorldBiomeProvider.Biome biome = climate.getBiome(x, z);
 
             switch (biome) {
                 case PLAINS:
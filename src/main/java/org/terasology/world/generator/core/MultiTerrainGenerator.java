@@ -24,6 +24,7 @@ import org.terasology.math.TeraMath;
 import org.terasology.utilities.EPNoise;
 import org.terasology.utilities.Noise;
 import org.terasology.utilities.WhiteNoise;
+import org.terasology.world.ChunkClimate;
 import org.terasology.world.WorldBiomeProvider;
 import org.terasology.world.block.Block;
 import org.terasology.world.block.management.BlockManager;
@@ -38,9 +39,6 @@ import org.terasology.world.liquid.LiquidType;
  * @author Esa-Petri
  */
 public class MultiTerrainGenerator implements ChunkGenerator {
-	private static final int SAMPLE_RATE_3D_HOR = 4;
-	private static final int SAMPLE_RATE_3D_VERT = 4;
-
 	private Noise pGen1, pGen2, pGen3, pGen4, pGen5, pGen8;
 	private WorldBiomeProvider biomeProvider;
 
@@ -103,32 +101,27 @@ public class MultiTerrainGenerator implements ChunkGenerator {
 
 	@Override
 	public void generateChunk(Chunk c) {
-		double[][][] densityMap = new double[Chunk.SIZE_X + 1][Chunk.SIZE_Y + 1][Chunk.SIZE_Z + 1];
+		DensityLattice lattice = DensityLattice.forChunk(c);
 
 		/*
 		 * Create the density map at a lower sample rate.
 		 */
-		for (int x = 0; x <= Chunk.SIZE_X; x += SAMPLE_RATE_3D_HOR) {
-			for (int z = 0; z <= Chunk.SIZE_Z; z += SAMPLE_RATE_3D_HOR) {
-				for (int y = 0; y <= Chunk.SIZE_Y; y += SAMPLE_RATE_3D_VERT) {
-					densityMap[x][y][z] = calcDensity(c.getBlockWorldPosX(x),
-							y, c.getBlockWorldPosZ(z));
-				}
-			}
-		}
+		calcDensity(lattice);
 
 		/*
 		 * Trilinear interpolate the missing values.
 		 */
-		triLerpDensityMap(densityMap);
+		lattice.triLerp();
+
+		lattice.sampleCaves(pGen8, 0.02);
+		ChunkClimate climate = biomeProvider.getChunkClimate(c.getPos().x, c.getPos().z);
 
 		/*
 		 * Generate the chunk from the density map.
 		 */
 		for (int x = 0; x < Chunk.SIZE_X; x++) {
 			for (int z = 0; z < Chunk.SIZE_Z; z++) {
-				WorldBiomeProvider.Biome type = biomeProvider.getBiomeAt(
-						c.getBlockWorldPosX(x), c.getBlockWorldPosZ(z));
+				WorldBiomeProvider.Biome type = climate.getBiome(x, z);
 				int firstBlockHeight = -1;
 
 				for (int y = Chunk.SIZE_Y-1; y >= 0; y--) {
@@ -151,7 +144,7 @@ public class MultiTerrainGenerator implements ChunkGenerator {
 						}
 					}
 
-					double dens = densityMap[x][y][z];
+					double dens = lattice.getDensity(x, y, z);
 
 					if ((dens >= 0 && dens < 32)) {
 
@@ -159,8 +152,7 @@ public class MultiTerrainGenerator implements ChunkGenerator {
 						if (firstBlockHeight == -1)
 							firstBlockHeight = y;
 
-						if (calcCaveDensity(c.getBlockWorldPosX(x), y,
-								c.getBlockWorldPosZ(z)) > -0.7)
+						if (lattice.getCaveDensity(x, y, z) > -0.7)
 							GenerateOuterLayer(x, y, z, firstBlockHeight, c,
 									type);
 						else
@@ -173,8 +165,7 @@ public class MultiTerrainGenerator implements ChunkGenerator {
 						if (firstBlockHeight == -1)
 							firstBlockHeight = y;
 
-						if (calcCaveDensity(c.getBlockWorldPosX(x), y,
-								c.getBlockWorldPosZ(z)) > -0.6)
+						if (lattice.getCaveDensity(x, y, z) > -0.6)
 							GenerateInnerLayer(x, y, z, c, type);
 						else
 							c.setBlock(x, y, z, air);
@@ -250,44 +241,37 @@ public class MultiTerrainGenerator implements ChunkGenerator {
 		}
 	}
 
-	private void triLerpDensityMap(double[][][] densityMap) {
-		for (int x = 0; x < Chunk.SIZE_X; x++) {
-			for (int y = 0; y < Chunk.SIZE_Y; y++) {
-				for (int z = 0; z < Chunk.SIZE_Z; z++) {
-					if (!(x % SAMPLE_RATE_3D_HOR == 0
-							&& y % SAMPLE_RATE_3D_VERT == 0 && z
-							% SAMPLE_RATE_3D_HOR == 0)) {
-						int offsetX = (x / SAMPLE_RATE_3D_HOR)
-								* SAMPLE_RATE_3D_HOR;
-						int offsetY = (y / SAMPLE_RATE_3D_VERT)
-								* SAMPLE_RATE_3D_VERT;
-						int offsetZ = (z / SAMPLE_RATE_3D_HOR)
-								* SAMPLE_RATE_3D_HOR;
-						densityMap[x][y][z] = TeraMath
-								.triLerp(
-										x,
-										y,
-										z,
-										densityMap[offsetX][offsetY][offsetZ],
-										densityMap[offsetX][SAMPLE_RATE_3D_VERT
-												+ offsetY][offsetZ],
-										densityMap[offsetX][offsetY][offsetZ
-												+ SAMPLE_RATE_3D_HOR],
-										densityMap[offsetX][offsetY
-												+ SAMPLE_RATE_3D_VERT][offsetZ
-												+ SAMPLE_RATE_3D_HOR],
-										densityMap[SAMPLE_RATE_3D_HOR + offsetX][offsetY][offsetZ],
-										densityMap[SAMPLE_RATE_3D_HOR + offsetX][offsetY
-												+ SAMPLE_RATE_3D_VERT][offsetZ],
-										densityMap[SAMPLE_RATE_3D_HOR + offsetX][offsetY][offsetZ
-												+ SAMPLE_RATE_3D_HOR],
-										densityMap[SAMPLE_RATE_3D_HOR + offsetX][offsetY
-												+ SAMPLE_RATE_3D_VERT][offsetZ
-												+ SAMPLE_RATE_3D_HOR], offsetX,
-										SAMPLE_RATE_3D_HOR + offsetX, offsetY,
-										SAMPLE_RATE_3D_VERT + offsetY, offsetZ,
-										offsetZ + SAMPLE_RATE_3D_HOR);
-					}
+	private void calcDensity(DensityLattice lattice) {
+		lattice.sampleColumns(pGen1, 0.004, lattice.baseNoise);
+		lattice.sampleColumns(pGen2, 0.0009, lattice.oceanNoise);
+		lattice.sampleColumns(pGen3, 0.0008, lattice.riverNoise);
+		lattice.sampleLattice(pGen4, 0.002, 0.001, lattice.mountainNoise);
+		lattice.sampleLattice(pGen5, 0.008, 0.006, lattice.hillNoise);
+		biomeProvider.getTemperatures(lattice.temperature, lattice.sampleX,
+				lattice.sampleZ);
+		biomeProvider.getHumidities(lattice.humidity, lattice.sampleX,
+				lattice.sampleZ);
+
+		for (int x = 0; x < DensityLattice.SAMPLES_X; x++) {
+			for (int z = 0; z < DensityLattice.SAMPLES_Z; z++) {
+				int column = x * DensityLattice.SAMPLES_Z + z;
+				double height = baseTerrain(lattice.baseNoise[column]);
+				double ocean = oceanTerrain(lattice.oceanNoise[column]);
+				double river = riverTerrain(lattice.riverNoise[column]);
+
+				float temp = lattice.temperature[column];
+				float humidity = lattice.humidity[column] * temp;
+				double mIntens = mountainIntensity(temp, humidity);
+
+				for (int y = 0; y < DensityLattice.SAMPLES_Y; y++) {
+					int sample = column * DensityLattice.SAMPLES_Y + y;
+					double densityMountains = mountainDensity(lattice.mountainNoise[sample])
+							* mIntens;
+					double densityHills = hillDensity(lattice.hillNoise[sample])
+							* (1.0 - mIntens);
+					lattice.setSample(x, y, z, density(y
+							* DensityLattice.SAMPLE_RATE_VERT, height, ocean,
+							river, densityMountains, densityHills));
 				}
 			}
 		}
@@ -301,20 +285,23 @@ public class MultiTerrainGenerator implements ChunkGenerator {
 		float temp = biomeProvider.getTemperatureAt(x, z);
 		float humidity = biomeProvider.getHumidityAt(x, z) * temp;
 
-		Vector2f distanceToMountainBiome = new Vector2f(temp - 0.25f,
-				humidity - 0.35f);
-
-		double mIntens = TeraMath
-				.clamp(1.0 - distanceToMountainBiome.length() * 3.0);
+		double mIntens = mountainIntensity(temp, humidity);
 
 		
 		double densityMountains = calcMountainDensity(x, y, z) * mIntens;
 		double densityHills = calcHillDensity(x, y, z) * (1.0 - mIntens);
 
+		counter++;
+
+		return density(y, height, ocean, river, densityMountains,
+				densityHills);
+	}
+
+	private static double density(int y, double height, double ocean,
+			double river, double densityMountains, double densityHills) {
 		//returned to original
         int plateauArea = (int) (Chunk.SIZE_Y * 0.10);
         double flatten = TeraMath.clamp(((Chunk.SIZE_Y - 16) - y) / plateauArea);
-		counter++;
 
 		return -y
 				+ (((32.0 + height * 32.0) * TeraMath.clamp(river + 0.25) * TeraMath
@@ -322,18 +309,37 @@ public class MultiTerrainGenerator implements ChunkGenerator {
 				* flatten;
 	}
 
-	private double calcBaseTerrain(double x, double z) {
+	private static double mountainIntensity(float temp, float humidity) {
+		Vector2f distanceToMountainBiome = new Vector2f(temp - 0.25f,
+				humidity - 0.35f);
+
 		return TeraMath
-				.clamp((pGen1.fBm(0.004 * x, 0, 0.004 * z) + 1.0) / 2.0);
+				.clamp(1.0 - distanceToMountainBiome.length() * 3.0);
+	}
+
+	private double calcBaseTerrain(double x, double z) {
+		return baseTerrain(pGen1.fBm(0.004 * x, 0, 0.004 * z));
+	}
+
+	private static double baseTerrain(double noise) {
+		return TeraMath.clamp((noise + 1.0) / 2.0);
 	}
 
 	private double calcOceanTerrain(double x, double z) {
-		return TeraMath.clamp(pGen2.fBm(0.0009 * x, 0, 0.0009 * z) * 8.0);
+		return oceanTerrain(pGen2.fBm(0.0009 * x, 0, 0.0009 * z));
+	}
+
+	private static double oceanTerrain(double noise) {
+		return TeraMath.clamp(noise * 8.0);
 	}
 
 	private double calcRiverTerrain(double x, double z) {
-		return TeraMath.clamp((java.lang.Math.sqrt(java.lang.Math.abs(pGen3
-				.fBm(0.0008 * x, 0, 0.0008 * z))) - 0.1) * 7.0);
+		return riverTerrain(pGen3.fBm(0.0008 * x, 0, 0.0008 * z));
+	}
+
+	private static double riverTerrain(double noise) {
+		return TeraMath.clamp((java.lang.Math.sqrt(java.lang.Math
+				.abs(noise)) - 0.1) * 7.0);
 	}
 
 	private double calcMountainDensity(double x, double y, double z) {
@@ -342,8 +348,11 @@ public class MultiTerrainGenerator implements ChunkGenerator {
 		y1 = y * 0.001;
 		z1 = z * 0.002;
 
-		double result = pGen4.fBm(x1, y1, z1);
-		return result > 0.0 ? result : 0;
+		return mountainDensity(pGen4.fBm(x1, y1, z1));
+	}
+
+	private static double mountainDensity(double noise) {
+		return noise > 0.0 ? noise : 0;
 	}
 
 	private double calcHillDensity(double x, double y, double z) {
@@ -352,12 +361,12 @@ public class MultiTerrainGenerator implements ChunkGenerator {
 		y1 = y * 0.006;
 		z1 = z * 0.008;
 
-		double result = pGen5.fBm(x1, y1, z1) - 0.1;
-		return result > 0.0 ? result : 0;
+		return hillDensity(pGen5.fBm(x1, y1, z1));
 	}
 
-	private double calcCaveDensity(double x, double y, double z) {
-		return pGen8.fBm(x * 0.02, y * 0.02, z * 0.02);
+	private static double hillDensity(double noise) {
+		double result = noise - 0.1;
+		return result > 0.0 ? result : 0;
 	}
 
 	@Override
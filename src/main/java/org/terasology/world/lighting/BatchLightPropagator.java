@@ -0,0 +1,421 @@
+/*
+ * Copyright 2012 Benjamin Glatzel <benjamin.glatzel@me.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terasology.world.lighting;
+
+import org.terasology.math.Region3i;
+import org.terasology.math.Side;
+import org.terasology.math.Vector3i;
+import org.terasology.utilities.collection.IntRingBuffer;
+import org.terasology.world.WorldView;
+import org.terasology.world.block.Block;
+import org.terasology.world.block.management.BlockManager;
+import org.terasology.world.chunks.Chunk;
+import org.terasology.world.chunks.blockdata.TeraArray;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Updates the sunlight and light of a world view for a batch of block changes at once.
+ * <p/>
+ * Light is first removed breadth first from every changed block and from all blocks which may have been lit through
+ * them, then spread again from the remaining light and from the light sources. Positions are packed into ints and
+ * queued in {@link IntRingBuffer}s, and block ids and light values are read and written directly on the block, sunlight
+ * and light arrays of the chunks of the view, so spreading light does not allocate any objects. A propagator can be
+ * reused for several batches, as long as the chunks of the view stay locked.
+ * <p/>
+ * The propagation rules are those of {@link InternalLightProcessor} and {@link LightPropagator}: light loses one level
+ * per block, sunlight at full strength keeps it when falling into blocks it {@link LightingUtil#doesSunlightRetainsFullStrengthIn
+ * retains full strength in} and does not spread upwards.
+ *
+ * @see LightPropagator
+ */
+public class BatchLightPropagator {
+
+    // Positions are packed with 10 bits for x and z
+    private static final int MAX_EXTENT = 1 << 10;
+
+    private static final Side[] SIDES = Side.values();
+    private static final Side[] REVERSE_SIDES = new Side[SIDES.length];
+    private static final int[] DIR_X = new int[SIDES.length];
+    private static final int[] DIR_Y = new int[SIDES.length];
+    private static final int[] DIR_Z = new int[SIDES.length];
+
+    static {
+        for (int i = 0; i < SIDES.length; i++) {
+            REVERSE_SIDES[i] = SIDES[i].reverse();
+            DIR_X[i] = SIDES[i].getVector3i().x;
+            DIR_Y[i] = SIDES[i].getVector3i().y;
+            DIR_Z[i] = SIDES[i].getVector3i().z;
+        }
+    }
+
+    private final BlockManager blockManager = BlockManager.getInstance();
+    private final TeraArray[] blockData;
+    private final TeraArray[] sunlightData;
+    private final TeraArray[] lightData;
+    private final int chunksX;
+    private final int minX;
+    private final int minZ;
+    private final int sizeX;
+    private final int sizeZ;
+
+    private final IntRingBuffer changes = new IntRingBuffer();
+    private final IntRingBuffer removalQueue = new IntRingBuffer();
+    private final IntRingBuffer spreadQueue = new IntRingBuffer();
+
+    private int affectedMinX;
+    private int affectedMinY;
+    private int affectedMinZ;
+    private int affectedMaxX;
+    private int affectedMaxY;
+    private int affectedMaxZ;
+
+    public BatchLightPropagator(WorldView worldView) {
+        Region3i blockRegion = worldView.getBlockRegion();
+        Vector3i size = blockRegion.size();
+        Preconditions.checkArgument(canPropagate(worldView), "World view is too large: %s", size);
+        Preconditions.checkArgument(size.y == Chunk.SIZE_Y, "World view must span the full chunk height");
+        minX = blockRegion.min().x;
+        minZ = blockRegion.min().z;
+        sizeX = size.x;
+        sizeZ = size.z;
+        chunksX = sizeX / Chunk.SIZE_X;
+        int chunksZ = sizeZ / Chunk.SIZE_Z;
+        blockData = new TeraArray[chunksX * chunksZ];
+        sunlightData = new TeraArray[chunksX * chunksZ];
+        lightData = new TeraArray[chunksX * chunksZ];
+        for (int z = 0; z < chunksZ; z++) {
+            for (int x = 0; x < chunksX; x++) {
+                Chunk chunk = worldView.getChunk(minX + x * Chunk.SIZE_X, 0, minZ + z * Chunk.SIZE_Z);
+                blockData[x + chunksX * z] = chunk.getBlockData();
+                sunlightData[x + chunksX * z] = chunk.getSunlightData();
+                lightData[x + chunksX * z] = chunk.getLightData();
+            }
+        }
+    }
+
+    /**
+     * @return Whether a propagator can be created for the world view, which must not be wider than 1024 blocks
+     */
+    public static boolean canPropagate(WorldView worldView) {
+        Vector3i size = worldView.getBlockRegion().size();
+        return size.x <= MAX_EXTENT && size.z <= MAX_EXTENT;
+    }
+
+    /**
+     * Adds a block change to the current batch. The block must already have been changed in the world view.
+     *
+     * @param x       The x position of the block, in the coordinates of the world view
+     * @param y       The y position of the block
+     * @param z       The z position of the block
+     * @param type    The new block type
+     * @param oldType The old block type
+     */
+    public void addChange(int x, int y, int z, Block type, Block oldType) {
+        int relX = x - minX;
+        int relZ = z - minZ;
+        if (!isInBounds(relX, y, relZ)) {
+            return;
+        }
+        if (type.getLuminance() == oldType.getLuminance()
+                && LightingUtil.doesSunlightRetainsFullStrengthIn(type) == LightingUtil.doesSunlightRetainsFullStrengthIn(oldType)
+                && LightingUtil.compareLightingPropagation(type, oldType) == PropagationComparison.IDENTICAL) {
+            return;
+        }
+        changes.add(pack(relX, y, relZ, 0));
+    }
+
+    /**
+     * @return The number of block changes in the current batch which affect lighting
+     */
+    public int getPendingChanges() {
+        return changes.size();
+    }
+
+    /**
+     * Updates the lighting for all block changes of the current batch, and starts a new batch.
+     *
+     * @return The region affected by the light update
+     */
+    public Region3i process() {
+        resetAffectedRegion();
+        if (!changes.isEmpty()) {
+            update(true);
+            update(false);
+            changes.clear();
+        }
+        return getAffectedRegion();
+    }
+
+    /**
+     * Updates the lighting for a single block change.
+     *
+     * @return The region affected by the light update
+     */
+    public Region3i update(int x, int y, int z, Block type, Block oldType) {
+        addChange(x, y, z, type, oldType);
+        return process();
+    }
+
+    /**
+     * Lights the whole world view from scratch, spreading sunlight from the top of the world and light from all light
+     * sources. Expects all sunlight and light values to be zero.
+     *
+     * @return The region affected by the light update
+     */
+    public Region3i generateLighting() {
+        resetAffectedRegion();
+        int top = Chunk.SIZE_Y - 1;
+        for (int z = 0; z < sizeZ; z++) {
+            for (int x = 0; x < sizeX; x++) {
+                int sunlight = getSunlightSource(getBlock(chunkIndex(x, z), x & Chunk.INNER_CHUNK_POS_FILTER_X, top, z & Chunk.INNER_CHUNK_POS_FILTER_Z), top);
+                if (sunlight > 0) {
+                    spreadQueue.add(pack(x, top, z, sunlight));
+                }
+            }
+        }
+        spread(true);
+
+        for (int z = 0; z < sizeZ; z++) {
+            for (int x = 0; x < sizeX; x++) {
+                int chunk = chunkIndex(x, z);
+                int localX = x & Chunk.INNER_CHUNK_POS_FILTER_X;
+                int localZ = z & Chunk.INNER_CHUNK_POS_FILTER_Z;
+                for (int y = 0; y < Chunk.SIZE_Y; y++) {
+                    int luminance = getBlock(chunk, localX, y, localZ).getLuminance();
+                    if (luminance > 0) {
+                        spreadQueue.add(pack(x, y, z, luminance));
+                    }
+                }
+            }
+        }
+        spread(false);
+        return getAffectedRegion();
+    }
+
+    private void update(boolean sunlight) {
+        for (int i = 0; i < changes.size(); i++) {
+            int pos = changes.get(i);
+            int x = unpackX(pos);
+            int y = unpackY(pos);
+            int z = unpackZ(pos);
+            int chunk = chunkIndex(x, z);
+            int localX = x & Chunk.INNER_CHUNK_POS_FILTER_X;
+            int localZ = z & Chunk.INNER_CHUNK_POS_FILTER_Z;
+
+            int oldLight = getLight(chunk, localX, y, localZ, sunlight);
+            if (oldLight > 0) {
+                setLight(chunk, localX, y, localZ, 0, sunlight);
+                expandAffectedRegion(x, y, z);
+            }
+            removalQueue.add(pack(x, y, z, oldLight));
+
+            int source = getSource(getBlock(chunk, localX, y, localZ), y, sunlight);
+            if (source > 0) {
+                spreadQueue.add(pack(x, y, z, source));
+            }
+        }
+        remove(sunlight);
+        spread(sunlight);
+    }
+
+    /**
+     * Clears the light of all blocks which may have received their light from the blocks in the removal queue, and
+     * queues the lit blocks around the cleared area, and the light sources inside it, for spreading.
+     */
+    private void remove(boolean sunlight) {
+        while (!removalQueue.isEmpty()) {
+            int pos = removalQueue.remove();
+            int x = unpackX(pos);
+            int y = unpackY(pos);
+            int z = unpackZ(pos);
+            int lightLevel = unpackLevel(pos);
+
+            for (int i = 0; i < SIDES.length; i++) {
+                int adjX = x + DIR_X[i];
+                int adjY = y + DIR_Y[i];
+                int adjZ = z + DIR_Z[i];
+                if (!isInBounds(adjX, adjY, adjZ)) {
+                    continue;
+                }
+                int adjChunk = chunkIndex(adjX, adjZ);
+                int adjLocalX = adjX & Chunk.INNER_CHUNK_POS_FILTER_X;
+                int adjLocalZ = adjZ & Chunk.INNER_CHUNK_POS_FILTER_Z;
+                int adjLight = getLight(adjChunk, adjLocalX, adjY, adjLocalZ, sunlight);
+                if (adjLight == 0) {
+                    continue;
+                }
+                boolean fullStrengthBelow = sunlight && lightLevel == Chunk.MAX_LIGHT && adjLight == Chunk.MAX_LIGHT && SIDES[i] == Side.BOTTOM;
+                if (adjLight < lightLevel || fullStrengthBelow) {
+                    setLight(adjChunk, adjLocalX, adjY, adjLocalZ, 0, sunlight);
+                    expandAffectedRegion(adjX, adjY, adjZ);
+                    removalQueue.add(pack(adjX, adjY, adjZ, adjLight));
+                    int source = getSource(getBlock(adjChunk, adjLocalX, adjY, adjLocalZ), adjY, sunlight);
+                    if (source > 0) {
+                        spreadQueue.add(pack(adjX, adjY, adjZ, source));
+                    }
+                } else {
+                    spreadQueue.add(pack(adjX, adjY, adjZ, 0));
+                }
+            }
+        }
+    }
+
+    /**
+     * Spreads light from the blocks in the spread queue. Each queued block is first raised to the light level it was
+     * queued with, if that is brighter than its current light.
+     */
+    private void spread(boolean sunlight) {
+        while (!spreadQueue.isEmpty()) {
+            int pos = spreadQueue.remove();
+            int x = unpackX(pos);
+            int y = unpackY(pos);
+            int z = unpackZ(pos);
+            int chunk = chunkIndex(x, z);
+            int localX = x & Chunk.INNER_CHUNK_POS_FILTER_X;
+            int localZ = z & Chunk.INNER_CHUNK_POS_FILTER_Z;
+
+            int lightLevel = getLight(chunk, localX, y, localZ, sunlight);
+            if (unpackLevel(pos) > lightLevel) {
+                lightLevel = unpackLevel(pos);
+                setLight(chunk, localX, y, localZ, lightLevel, sunlight);
+                expandAffectedRegion(x, y, z);
+            }
+            if (lightLevel <= 1) {
+                continue;
+            }
+
+            Block block = getBlock(chunk, localX, y, localZ);
+            for (int i = 0; i < SIDES.length; i++) {
+                Side side = SIDES[i];
+                if (sunlight && side == Side.TOP && lightLevel == Chunk.MAX_LIGHT) {
+                    continue;
+                }
+                int adjX = x + DIR_X[i];
+                int adjY = y + DIR_Y[i];
+                int adjZ = z + DIR_Z[i];
+                if (!isInBounds(adjX, adjY, adjZ) || !LightingUtil.canSpreadLightOutOf(block, side)) {
+                    continue;
+                }
+                int adjChunk = chunkIndex(adjX, adjZ);
+                int adjLocalX = adjX & Chunk.INNER_CHUNK_POS_FILTER_X;
+                int adjLocalZ = adjZ & Chunk.INNER_CHUNK_POS_FILTER_Z;
+                Block adjBlock = getBlock(adjChunk, adjLocalX, adjY, adjLocalZ);
+                if (!LightingUtil.canSpreadLightInto(adjBlock, REVERSE_SIDES[i])) {
+                    continue;
+                }
+
+                int newLight = lightLevel - 1;
+                if (sunlight && side == Side.BOTTOM && lightLevel == Chunk.MAX_LIGHT && LightingUtil.doesSunlightRetainsFullStrengthIn(adjBlock)) {
+                    newLight = Chunk.MAX_LIGHT;
+                }
+                if (getLight(adjChunk, adjLocalX, adjY, adjLocalZ, sunlight) < newLight) {
+                    setLight(adjChunk, adjLocalX, adjY, adjLocalZ, newLight, sunlight);
+                    expandAffectedRegion(adjX, adjY, adjZ);
+                    spreadQueue.add(pack(adjX, adjY, adjZ, 0));
+                }
+            }
+        }
+    }
+
+    private int getSource(Block block, int y, boolean sunlight) {
+        return (sunlight) ? getSunlightSource(block, y) : block.getLuminance();
+    }
+
+    private int getSunlightSource(Block block, int y) {
+        if (y == Chunk.SIZE_Y - 1 && LightingUtil.canSpreadLightInto(block, Side.TOP) && LightingUtil.doesSunlightRetainsFullStrengthIn(block)) {
+            return Chunk.MAX_LIGHT;
+        }
+        return 0;
+    }
+
+    private Block getBlock(int chunk, int x, int y, int z) {
+        return blockManager.getBlock((short) blockData[chunk].get(x, y, z));
+    }
+
+    private int getLight(int chunk, int x, int y, int z, boolean sunlight) {
+        return (sunlight) ? sunlightData[chunk].get(x, y, z) : lightData[chunk].get(x, y, z);
+    }
+
+    private void setLight(int chunk, int x, int y, int z, int value, boolean sunlight) {
+        if (sunlight) {
+            sunlightData[chunk].set(x, y, z, value);
+        } else {
+            lightData[chunk].set(x, y, z, value);
+        }
+    }
+
+    /**
+     * @return The index of the chunk containing the given position, relative to the minimum of the world view
+     */
+    private int chunkIndex(int x, int z) {
+        return (x >> Chunk.POWER_X) + chunksX * (z >> Chunk.POWER_Z);
+    }
+
+    private boolean isInBounds(int x, int y, int z) {
+        return x >= 0 && x < sizeX && y >= 0 && y < Chunk.SIZE_Y && z >= 0 && z < sizeZ;
+    }
+
+    private void resetAffectedRegion() {
+        affectedMinX = Integer.MAX_VALUE;
+        affectedMinY = Integer.MAX_VALUE;
+        affectedMinZ = Integer.MAX_VALUE;
+        affectedMaxX = Integer.MIN_VALUE;
+        affectedMaxY = Integer.MIN_VALUE;
+        affectedMaxZ = Integer.MIN_VALUE;
+    }
+
+    private void expandAffectedRegion(int x, int y, int z) {
+        affectedMinX = Math.min(affectedMinX, x);
+        affectedMinY = Math.min(affectedMinY, y);
+        affectedMinZ = Math.min(affectedMinZ, z);
+        affectedMaxX = Math.max(affectedMaxX, x);
+        affectedMaxY = Math.max(affectedMaxY, y);
+        affectedMaxZ = Math.max(affectedMaxZ, z);
+    }
+
+    private Region3i getAffectedRegion() {
+        if (affectedMinX > affectedMaxX) {
+            return Region3i.EMPTY;
+        }
+        return Region3i.createFromMinMax(new Vector3i(affectedMinX + minX, affectedMinY, affectedMinZ + minZ),
+                new Vector3i(affectedMaxX + minX, affectedMaxY, affectedMaxZ + minZ));
+    }
+
+    /**
+     * Packs a position relative to the minimum of the world view and a light level into an int: 10 bits each for x and
+     * z, 8 bits for y and 4 bits for the light level.
+     */
+    private static int pack(int x, int y, int z, int lightLevel) {
+        return (x << 22) | (z << 12) | (y << 4) | lightLevel;
+    }
+
+    private static int unpackX(int pos) {
+        return pos >>> 22;
+    }
+
+    private static int unpackZ(int pos) {
+        return (pos >>> 12) & 0x3ff;
+    }
+
+    private static int unpackY(int pos) {
+        return (pos >>> 4) & 0xff;
+    }
+
+    private static int unpackLevel(int pos) {
+        return pos & 0xf;
+    }
+}
@@ -0,0 +1,387 @@
+/*
+ * Copyright 2012 Benjamin Glatzel <benjamin.glatzel@me.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terasology.world.liquid;
+
+import gnu.trove.iterator.TLongObjectIterator;
+import gnu.trove.list.TIntList;
+import gnu.trove.list.array.TIntArrayList;
+import gnu.trove.map.TLongObjectMap;
+import gnu.trove.map.hash.TLongObjectHashMap;
+
+import java.util.List;
+
+import org.terasology.math.Side;
+import org.terasology.math.TeraMath;
+import org.terasology.math.Vector3i;
+import org.terasology.world.WorldView;
+import org.terasology.world.block.management.BlockManager;
+import org.terasology.world.chunks.Chunk;
+
+import com.google.common.collect.Lists;
+
+/**
+ * Cellular automaton form of the liquid rules of {@link LiquidSimulator#calcStateFor}. Rather than evaluating single
+ * blocks through a world view, a step evaluates the dirty cells of a chunk on a snapshot of its packed liquid layer and
+ * of a halo of the neighbouring chunks, and collects the new states in a separate change buffer. All chunks of a step
+ * can therefore be evaluated in parallel against the same, unchanged world before any change is written back.
+ * <p/>
+ * Each chunk keeps a bitmask of the cells which may change in the next step. Cells are marked when a block near them
+ * changes or the liquid of a cell they depend on changes, so chunks with settled liquid are not visited at all.
+ * All methods which mark cells are thread safe.
+ */
+final class LiquidAutomaton {
+    /**
+     * The number of blocks beyond the chunk which are read when evaluating the cells of a chunk
+     */
+    static final int HALO = 2;
+
+    private static final int CELLS = Chunk.SIZE_X * Chunk.SIZE_Y * Chunk.SIZE_Z;
+    private static final int CELLS_PER_LAYER = Chunk.SIZE_X * Chunk.SIZE_Z;
+    private static final int WORDS_PER_LAYER = CELLS_PER_LAYER / 64;
+    private static final int WIDTH_X = Chunk.SIZE_X + 2 * HALO;
+    private static final int WIDTH_Z = Chunk.SIZE_Z + 2 * HALO;
+    private static final int STRIDE_Y = WIDTH_X * WIDTH_Z;
+
+    private static final int DEPTH_MASK = 0x07;
+    private static final int TYPE_MASK = 0x08;
+    private static final int STATE_BITS = 4;
+    private static final int STATE_MASK = (1 << STATE_BITS) - 1;
+
+    /**
+     * Offsets of the horizontal neighbours within a snapshot, in the order of {@link Side#horizontalSides()} so that
+     * ties between neighbours are broken the same way as by the per block simulation.
+     */
+    private static final int[] HORIZONTAL_OFFSETS;
+
+    private static final ThreadLocal<Snapshot> snapshots = new ThreadLocal<Snapshot>() {
+        @Override
+        protected Snapshot initialValue() {
+            return new Snapshot();
+        }
+    };
+
+    static {
+        Side[] sides = Side.horizontalSides();
+        HORIZONTAL_OFFSETS = new int[sides.length];
+        for (int i = 0; i < sides.length; ++i) {
+            Vector3i dir = sides[i].getVector3i();
+            HORIZONTAL_OFFSETS[i] = dir.z * WIDTH_X + dir.x;
+        }
+    }
+
+    private final TLongObjectMap<ChunkLayer> layers = new TLongObjectHashMap<ChunkLayer>();
+    private int dirtyCells;
+
+    /**
+     * Marks all cells whose next state may depend on the block or liquid at the given position.
+     */
+    synchronized void markDirty(int x, int y, int z) {
+        for (int dy = -1; dy <= 1; ++dy) {
+            for (int dz = -HALO; dz <= HALO; ++dz) {
+                int extent = HALO - TeraMath.fastAbs(dz);
+                for (int dx = -extent; dx <= extent; ++dx) {
+                    markCell(x + dx, y + dy, z + dz);
+                }
+            }
+        }
+    }
+
+    /**
+     * Marks all cells in the given region, in world coordinates.
+     */
+    synchronized void markRegionDirty(int minX, int minY, int minZ, int maxX, int maxY, int maxZ) {
+        for (int y = minY; y <= maxY; ++y) {
+            for (int z = minZ; z <= maxZ; ++z) {
+                for (int x = minX; x <= maxX; ++x) {
+                    markCell(x, y, z);
+                }
+            }
+        }
+    }
+
+    private void markCell(int x, int y, int z) {
+        if (y < 0 || y >= Chunk.SIZE_Y) {
+            return;
+        }
+        int chunkX = TeraMath.calcChunkPosX(x);
+        int chunkZ = TeraMath.calcChunkPosZ(z);
+        long key = LiquidScheduler.pack(chunkX, 0, chunkZ);
+        ChunkLayer layer = layers.get(key);
+        if (layer == null) {
+            layer = new ChunkLayer(chunkX, chunkZ);
+            layers.put(key, layer);
+        }
+        if (layer.mark(x - chunkX * Chunk.SIZE_X, y, z - chunkZ * Chunk.SIZE_Z)) {
+            dirtyCells++;
+        }
+    }
+
+    /**
+     * Removes and returns all chunk layers with dirty cells. Cells marked afterwards go into new layers, for the next step.
+     */
+    synchronized List<ChunkLayer> takeDirtyLayers() {
+        List<ChunkLayer> result = Lists.newArrayListWithCapacity(layers.size());
+        TLongObjectIterator<ChunkLayer> iterator = layers.iterator();
+        while (iterator.hasNext()) {
+            iterator.advance();
+            result.add(iterator.value());
+        }
+        layers.clear();
+        dirtyCells = 0;
+        return result;
+    }
+
+    /**
+     * @return The number of cells marked for the next step
+     */
+    synchronized int getDirtyCellCount() {
+        return dirtyCells;
+    }
+
+    synchronized void clear() {
+        layers.clear();
+        dirtyCells = 0;
+    }
+
+    static int getChangeX(int change) {
+        return (change >>> (2 * STATE_BITS)) & (Chunk.SIZE_X - 1);
+    }
+
+    static int getChangeY(int change) {
+        return change >>> (2 * STATE_BITS + Chunk.POWER_X + Chunk.POWER_Z);
+    }
+
+    static int getChangeZ(int change) {
+        return (change >>> (2 * STATE_BITS + Chunk.POWER_X)) & (Chunk.SIZE_Z - 1);
+    }
+
+    static byte getChangeOldState(int change) {
+        return (byte) ((change >>> STATE_BITS) & STATE_MASK);
+    }
+
+    static byte getChangeNewState(int change) {
+        return (byte) (change & STATE_MASK);
+    }
+
+    /**
+     * Equivalent of {@link LiquidSimulator#calcStateFor} on a snapshot, for the cell at the given index.
+     */
+    private static int calcState(byte[] liquid, boolean[] penetrable, int index) {
+        if (!penetrable[index]) {
+            return 0;
+        }
+
+        int current = liquid[index];
+        int depth = current & DEPTH_MASK;
+        if (depth == Chunk.MAX_LIQUID_DEPTH) {
+            return current;
+        }
+
+        int above = liquid[index + STRIDE_Y];
+        if ((above & DEPTH_MASK) > 0) {
+            return (above & TYPE_MASK) | (Chunk.MAX_LIQUID_DEPTH - 1);
+        }
+
+        int h1 = 0;
+        int h2 = 0;
+        for (int offset : HORIZONTAL_OFFSETS) {
+            int adj = index + offset;
+            if (!penetrable[adj - STRIDE_Y]) {
+                int state = calcOutgoing(liquid, penetrable, adj);
+                int stateDepth = state & DEPTH_MASK;
+                if ((state & TYPE_MASK) != (current & TYPE_MASK) || stateDepth >= depth) {
+                    if (stateDepth > (h1 & DEPTH_MASK)) {
+                        h2 = h1;
+                        h1 = state;
+                    } else if (stateDepth > (h2 & DEPTH_MASK)) {
+                        h2 = state;
+                    }
+                }
+            }
+        }
+
+        if ((h1 & DEPTH_MASK) > 0) {
+            if ((h1 & TYPE_MASK) == (h2 & TYPE_MASK) || (h2 & DEPTH_MASK) == 0) {
+                return h1;
+            }
+            int finalDepth = (h1 & DEPTH_MASK) - (h2 & DEPTH_MASK);
+            if (finalDepth > 0) {
+                return (h1 & TYPE_MASK) | finalDepth;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Equivalent of {@link LiquidSimulator#getOutgoingLiquid} on a snapshot. Like the original, the available spaces are
+     * only counted if the block at the given index itself is penetrable.
+     */
+    private static int calcOutgoing(byte[] liquid, boolean[] penetrable, int index) {
+        int current = liquid[index];
+        int depth = current & DEPTH_MASK;
+        if (depth == 0) {
+            return 0;
+        }
+
+        int availableSpaces = 0;
+        if (penetrable[index]) {
+            for (int offset : HORIZONTAL_OFFSETS) {
+                if ((liquid[index + offset] & DEPTH_MASK) < depth) {
+                    availableSpaces++;
+                }
+            }
+        }
+        return (current & TYPE_MASK) | LiquidSimulator.OUTGOING_FLOW[availableSpaces][depth];
+    }
+
+    /**
+     * Liquid states are equal if they have the same depth and, unless they are dry, the same type.
+     */
+    private static boolean isSameState(int a, int b) {
+        return (a & DEPTH_MASK) == (b & DEPTH_MASK) && ((a & DEPTH_MASK) == 0 || (a & TYPE_MASK) == (b & TYPE_MASK));
+    }
+
+    /**
+     * The dirty cells of a single chunk, and after evaluation the changes to its liquid states.
+     */
+    static final class ChunkLayer {
+        private final int chunkX;
+        private final int chunkZ;
+        private final long[] dirty = new long[CELLS / 64];
+        private int minY = Chunk.SIZE_Y;
+        private int maxY = -1;
+        private int dirtyCells;
+        private final TIntList changes = new TIntArrayList();
+
+        ChunkLayer(int chunkX, int chunkZ) {
+            this.chunkX = chunkX;
+            this.chunkZ = chunkZ;
+        }
+
+        Vector3i getChunkPos() {
+            return new Vector3i(chunkX, 0, chunkZ);
+        }
+
+        int getChunkX() {
+            return chunkX;
+        }
+
+        int getChunkZ() {
+            return chunkZ;
+        }
+
+        int getDirtyCellCount() {
+            return dirtyCells;
+        }
+
+        /**
+         * @return The changes found by the last evaluation, packed with the local position of the cell and its old and
+         *         new liquid state. Use the getChange methods of {@link LiquidAutomaton} to unpack them.
+         */
+        TIntList getChanges() {
+            return changes;
+        }
+
+        /**
+         * @return Whether the cell was not dirty before
+         */
+        private boolean mark(int x, int y, int z) {
+            int index = (y << (Chunk.POWER_X + Chunk.POWER_Z)) | (z << Chunk.POWER_X) | x;
+            long bit = 1L << (index & 63);
+            if ((dirty[index >>> 6] & bit) != 0) {
+                return false;
+            }
+            dirty[index >>> 6] |= bit;
+            minY = Math.min(minY, y);
+            maxY = Math.max(maxY, y);
+            dirtyCells++;
+            return true;
+        }
+
+        /**
+         * Evaluates all dirty cells against a snapshot of the chunk and its surroundings, taken from the given view, and
+         * stores the cells whose liquid state changes.
+         *
+         * @param view A view in world coordinates which covers the chunk and its neighbours
+         */
+        void evaluate(WorldView view) {
+            changes.clear();
+            if (dirtyCells == 0) {
+                return;
+            }
+
+            int fromY = minY - 1;
+            int toY = maxY + 1;
+            Snapshot snapshot = snapshots.get();
+            snapshot.copyFrom(view, chunkX * Chunk.SIZE_X - HALO, fromY, chunkZ * Chunk.SIZE_Z - HALO, toY);
+            byte[] liquid = snapshot.liquid;
+            boolean[] penetrable = snapshot.penetrable;
+
+            for (int word = minY * WORDS_PER_LAYER; word < (maxY + 1) * WORDS_PER_LAYER; ++word) {
+                long bits = dirty[word];
+                while (bits != 0) {
+                    int index = (word << 6) | Long.numberOfTrailingZeros(bits);
+                    bits &= bits - 1;
+
+                    int x = index & (Chunk.SIZE_X - 1);
+                    int z = (index >>> Chunk.POWER_X) & (Chunk.SIZE_Z - 1);
+                    int y = index >>> (Chunk.POWER_X + Chunk.POWER_Z);
+                    int cell = (y - fromY) * STRIDE_Y + (z + HALO) * WIDTH_X + x + HALO;
+                    int current = liquid[cell];
+                    int next = calcState(liquid, penetrable, cell);
+                    if (!isSameState(current, next)) {
+                        changes.add((index << (2 * STATE_BITS)) | (current << STATE_BITS) | next);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Per thread buffers holding the liquid states and penetrability of a chunk and its halo, for a range of heights.
+     */
+    private static final class Snapshot {
+        private final byte[] liquid = new byte[(Chunk.SIZE_Y + 2) * STRIDE_Y];
+        private final boolean[] penetrable = new boolean[(Chunk.SIZE_Y + 2) * STRIDE_Y];
+
+        /**
+         * Copies the given range, column by column. Blocks outside of the view or the world are treated like the view
+         * treats them: dry air.
+         */
+        void copyFrom(WorldView view, int minX, int fromY, int minZ, int toY) {
+            boolean airPenetrable = BlockManager.getInstance().getAir().isPenetrable();
+            for (int z = 0; z < WIDTH_Z; ++z) {
+                for (int x = 0; x < WIDTH_X; ++x) {
+                    int worldX = minX + x;
+                    int worldZ = minZ + z;
+                    Chunk chunk = view.getChunk(worldX, 0, worldZ);
+                    int localX = worldX & Chunk.INNER_CHUNK_POS_FILTER_X;
+                    int localZ = worldZ & Chunk.INNER_CHUNK_POS_FILTER_Z;
+                    int cell = z * WIDTH_X + x;
+                    for (int y = fromY; y <= toY; ++y, cell += STRIDE_Y) {
+                        if (chunk == null || y < 0 || y >= Chunk.SIZE_Y) {
+                            liquid[cell] = 0;
+                            penetrable[cell] = airPenetrable;
+                        } else {
+                            liquid[cell] = chunk.getRawLiquid(localX, y, localZ);
+                            penetrable[cell] = chunk.getBlock(localX, y, localZ).isPenetrable();
+                        }
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright 2012 Benjamin Glatzel <benjamin.glatzel@me.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terasology.world.liquid;
+
+import gnu.trove.list.TLongList;
+import gnu.trove.list.array.TLongArrayList;
+import gnu.trove.map.TLongLongMap;
+import gnu.trove.map.hash.TLongLongHashMap;
+
+/**
+ * Schedules block positions for liquid simulation at a game time, using a timer wheel of ticks.
+ * <p/>
+ * Each position is pending at most once: scheduling a pending position again only moves it to the earlier of the two
+ * times. Positions are packed into longs, so scheduling does not allocate once the wheel has grown to its working size.
+ * All methods are thread safe.
+ */
+class LiquidScheduler {
+    static final int TICK_MS = 50;
+
+    private static final int WHEEL_SIZE = 64;
+    private static final int WHEEL_MASK = WHEEL_SIZE - 1;
+
+    private static final int HORIZONTAL_BITS = 26;
+    private static final int VERTICAL_BITS = 12;
+
+    private final TLongList[] slots = new TLongList[WHEEL_SIZE];
+    private final TLongLongMap pendingTicks = new TLongLongHashMap();
+    private long currentTick = -1;
+
+    LiquidScheduler() {
+        for (int i = 0; i < WHEEL_SIZE; ++i) {
+            slots[i] = new TLongArrayList();
+        }
+    }
+
+    /**
+     * Packs a block position into a long, supporting horizontal coordinates of +-2^25 and vertical coordinates of
+     * +-2^11.
+     */
+    static long pack(int x, int y, int z) {
+        return ((long) x << (HORIZONTAL_BITS + VERTICAL_BITS))
+                | (((long) z & ((1L << HORIZONTAL_BITS) - 1)) << VERTICAL_BITS)
+                | ((long) y & ((1L << VERTICAL_BITS) - 1));
+    }
+
+    static int unpackX(long packed) {
+        return (int) (packed >> (HORIZONTAL_BITS + VERTICAL_BITS));
+    }
+
+    static int unpackY(long packed) {
+        return (int) ((packed << (64 - VERTICAL_BITS)) >> (64 - VERTICAL_BITS));
+    }
+
+    static int unpackZ(long packed) {
+        return (int) ((packed << HORIZONTAL_BITS) >> (HORIZONTAL_BITS + VERTICAL_BITS));
+    }
+
+    /**
+     * Schedules a position to be simulated once the game time reaches the given time.
+     */
+    synchronized void schedule(int x, int y, int z, long time) {
+        long tick = (time + TICK_MS - 1) / TICK_MS;
+        if (tick <= currentTick) {
+            tick = currentTick + 1;
+        }
+        long pos = pack(x, y, z);
+        if (pendingTicks.containsKey(pos) && pendingTicks.get(pos) <= tick) {
+            return;
+        }
+        pendingTicks.put(pos, tick);
+        slots[(int) (tick & WHEEL_MASK)].add(pos);
+    }
+
+    /**
+     * Advances the wheel to the given game time, removing all positions which are due.
+     *
+     * @param due The list to add the packed due positions to
+     */
+    synchronized void advance(long time, TLongList due) {
+        long targetTick = time / TICK_MS;
+        if (targetTick <= currentTick) {
+            return;
+        }
+        // Every pending position is checked against the target tick, so visiting each slot once is enough
+        long firstTick = Math.max(currentTick + 1, targetTick - WHEEL_MASK);
+        for (long tick = firstTick; tick <= targetTick; ++tick) {
+            int slotIndex = (int) (tick & WHEEL_MASK);
+            TLongList slot = slots[slotIndex];
+            int kept = 0;
+            for (int i = 0; i < slot.size(); ++i) {
+                long pos = slot.get(i);
+                if (!pendingTicks.containsKey(pos)) {
+                    continue;
+                }
+                long dueTick = pendingTicks.get(pos);
+                if (dueTick <= targetTick) {
+                    pendingTicks.remove(pos);
+                    due.add(pos);
+                } else if ((dueTick & WHEEL_MASK) == slotIndex) {
+                    slot.set(kept++, pos);
+                }
+                // Otherwise the position was moved to an earlier slot, and this entry is stale
+            }
+            slot.remove(kept, slot.size() - kept);
+        }
+        currentTick = targetTick;
+    }
+
+    /**
+     * @return The number of pending positions
+     */
+    synchronized int size() {
+        return pendingTicks.size();
+    }
+
+    synchronized void clear() {
+        for (TLongList slot : slots) {
+            slot.clear();
+        }
+        pendingTicks.clear();
+        currentTick = -1;
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright 2012 Benjamin Glatzel <benjamin.glatzel@me.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terasology.world.liquid;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Thread safe counters describing the work of the liquid simulator.
+ */
+public class LiquidSimulationMetrics {
+
+    private final AtomicLong ticks = new AtomicLong();
+    private final AtomicLong cellsSimulated = new AtomicLong();
+    private volatile int cellsSimulatedLastTick;
+    private volatile int backlog;
+    private volatile int peakBacklog;
+
+    /**
+     * Records a completed simulation tick.
+     *
+     * @param cells   The number of cells simulated during the tick
+     * @param backlog The number of cells still scheduled after the tick
+     */
+    public void tickCompleted(int cells, int backlog) {
+        ticks.incrementAndGet();
+        cellsSimulated.addAndGet(cells);
+        cellsSimulatedLastTick = cells;
+        this.backlog = backlog;
+        if (backlog > peakBacklog) {
+            peakBacklog = backlog;
+        }
+    }
+
+    public long getTicks() {
+        return ticks.get();
+    }
+
+    public long getCellsSimulated() {
+        return cellsSimulated.get();
+    }
+
+    public int getCellsSimulatedLastTick() {
+        return cellsSimulatedLastTick;
+    }
+
+    /**
+     * @return The mean number of cells simulated per tick
+     */
+    public double getMeanCellsPerTick() {
+        long tickCount = ticks.get();
+        return (tickCount == 0) ? 0 : (double) cellsSimulated.get() / tickCount;
+    }
+
+    /**
+     * @return The number of cells waiting to be simulated
+     */
+    public int getBacklog() {
+        return backlog;
+    }
+
+    public int getPeakBacklog() {
+        return peakBacklog;
+    }
+}
@@ -15,15 +15,26 @@
  */
 package org.terasology.world.liquid;
 
-import java.util.concurrent.BlockingQueue;
+import gnu.trove.iterator.TLongObjectIterator;
+import gnu.trove.list.TIntList;
+import gnu.trove.list.TLongList;
+import gnu.trove.list.array.TLongArrayList;
+import gnu.trove.map.TLongObjectMap;
+import gnu.trove.map.hash.TLongObjectHashMap;
+
+import java.util.List;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.terasology.world.block.BlockComponent;
 import org.terasology.components.world.WorldComponent;
+import org.terasology.config.Config;
 import org.terasology.entitySystem.EntityRef;
 import org.terasology.entitySystem.EventHandlerSystem;
 import org.terasology.entitySystem.ReceiveEvent;
@@ -33,6 +44,7 @@ import org.terasology.math.Region3i;
 import org.terasology.math.Side;
 import org.terasology.math.TeraMath;
 import org.terasology.math.Vector3i;
+import org.terasology.performanceMonitor.PerformanceMonitor;
 import org.terasology.world.BlockChangedEvent;
 import org.terasology.world.WorldProvider;
 import org.terasology.world.WorldView;
@@ -41,7 +53,8 @@ import org.terasology.world.block.management.BlockManager;
 import org.terasology.world.chunks.Chunk;
 import org.terasology.world.chunks.ChunkReadyEvent;
 
-import com.google.common.collect.Queues;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
 /**
  * Rough draft of Minecraft-like behavior of liquids. Will be replaced with some
@@ -55,9 +68,16 @@ public class LiquidSimulator implements EventHandlerSystem {
     private static int NUM_THREADS = 2;
     private static byte MAX_LIQUID_DEPTH = 0x7;
     public static final int PROPAGATION_DELAY = 200;
+    private static final long SHUTDOWN_TIMEOUT_MS = 1000;
 
     private static final Logger logger = LoggerFactory.getLogger(LiquidSimulator.class);
 
+    private static final int TICK_ACTIVITY = PerformanceMonitor.registerActivity("Liquid Tick");
+    private static final int CHUNK_BATCH_ACTIVITY = PerformanceMonitor.registerActivity("Liquid Chunk Batch");
+    private static final int EVALUATION_ACTIVITY = PerformanceMonitor.registerActivity("Liquid Evaluation");
+    private static final int UPDATE_ACTIVITY = PerformanceMonitor.registerActivity("Liquid Update");
+    private static final int REVIEW_CHUNK_ACTIVITY = PerformanceMonitor.registerActivity("Liquid Chunk Review");
+
     private WorldProvider world;
     private Block air;
     private Block grass;
@@ -65,7 +85,11 @@ public class LiquidSimulator implements EventHandlerSystem {
     private Block dirt;
     private Block water;
     private Block lava;
-    private BlockingQueue<LiquidSimulationTask> blockQueue;
+    private LiquidScheduler scheduler = new LiquidScheduler();
+    private LiquidSimulationMetrics metrics = new LiquidSimulationMetrics();
+    private LiquidAutomaton automaton = new LiquidAutomaton();
+    private boolean automatonEnabled;
+    private ScheduledExecutorService tickExecutor;
     private ExecutorService executor;
 
     @Override
@@ -78,60 +102,134 @@ public class LiquidSimulator implements EventHandlerSystem {
         water = BlockManager.getInstance().getBlock("engine:Water");
         lava = BlockManager.getInstance().getBlock("engine:Lava");
 
-        blockQueue = Queues.newLinkedBlockingQueue();
+        scheduler.clear();
+        automaton.clear();
+        automatonEnabled = CoreRegistry.get(Config.class).getAdvancedConfig().isLiquidAutomatonEnabled();
 
-        executor = Executors.newFixedThreadPool(NUM_THREADS);
-        for (int i = 0; i < NUM_THREADS; ++i) {
-            executor.execute(new Runnable() {
+        ThreadFactory threadFactory = new ThreadFactoryBuilder().setNameFormat("Liquids-%d").setPriority(Thread.MIN_PRIORITY).build();
+        executor = Executors.newFixedThreadPool(NUM_THREADS, threadFactory);
+        tickExecutor = Executors.newSingleThreadScheduledExecutor(threadFactory);
+        if (automatonEnabled) {
+            tickExecutor.scheduleWithFixedDelay(new Runnable() {
                 @Override
                 public void run() {
-                    Thread.currentThread().setPriority(Thread.MIN_PRIORITY);
-                    while (true) {
-                        try {
-                            LiquidSimulationTask task = blockQueue.take();
-                            if (task.shutdownThread()) {
-                                break;
-                            }
-                            task.run();
-                        } catch (InterruptedException e) {
-                            logger.debug("Interrupted");
-                        } catch (Exception e) {
-                            logger.error("Error in water simulation", e);
-                        }
+                    PerformanceMonitor.startActivity(TICK_ACTIVITY);
+                    try {
+                        stepAutomaton();
+                    } catch (InterruptedException e) {
+                        logger.debug("Interrupted");
+                    } catch (Exception e) {
+                        logger.error("Error in water simulation", e);
+                    } finally {
+                        PerformanceMonitor.endActivity();
                     }
                 }
-            });
+            }, PROPAGATION_DELAY, PROPAGATION_DELAY, TimeUnit.MILLISECONDS);
+        } else {
+            tickExecutor.scheduleWithFixedDelay(new Runnable() {
+                @Override
+                public void run() {
+                    PerformanceMonitor.startActivity(TICK_ACTIVITY);
+                    try {
+                        simulateDueBlocks();
+                    } catch (InterruptedException e) {
+                        logger.debug("Interrupted");
+                    } catch (Exception e) {
+                        logger.error("Error in water simulation", e);
+                    } finally {
+                        PerformanceMonitor.endActivity();
+                    }
+                }
+            }, LiquidScheduler.TICK_MS, LiquidScheduler.TICK_MS, TimeUnit.MILLISECONDS);
         }
     }
 
     @Override
     public void shutdown() {
+        tickExecutor.shutdown();
         executor.shutdown();
-        for (int i = 0; i < NUM_THREADS; ++i) {
-            blockQueue.offer(new LiquidSimulationTask() {
-                @Override
-                public boolean shutdownThread() {
-                    return true;
-                }
-
-                @Override
-                public void run() {
-                }
-            });
-        }
         try {
-            executor.awaitTermination(1, TimeUnit.MILLISECONDS);
+            tickExecutor.awaitTermination(SHUTDOWN_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+            executor.awaitTermination(SHUTDOWN_TIMEOUT_MS, TimeUnit.MILLISECONDS);
         } catch (InterruptedException e) {
             logger.error("Interrupted awaiting shutdown");
         }
-        if (blockQueue.isEmpty()) {
-            executor.shutdownNow();
+        executor.shutdownNow();
+        scheduler.clear();
+        automaton.clear();
+    }
+
+    public LiquidSimulationMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Simulates all blocks which are due, in one batch per chunk so that each batch shares a single world view.
+     */
+    private void simulateDueBlocks() throws InterruptedException {
+        TLongList due = new TLongArrayList();
+        scheduler.advance(world.getTime(), due);
+
+        TLongObjectMap<TLongList> batches = new TLongObjectHashMap<TLongList>();
+        for (int i = 0; i < due.size(); ++i) {
+            long pos = due.get(i);
+            long chunk = LiquidScheduler.pack(TeraMath.calcChunkPosX(LiquidScheduler.unpackX(pos)), 0, TeraMath.calcChunkPosZ(LiquidScheduler.unpackZ(pos)));
+            TLongList batch = batches.get(chunk);
+            if (batch == null) {
+                batch = new TLongArrayList();
+                batches.put(chunk, batch);
+            }
+            batch.add(pos);
         }
+
+        List<Callable<Object>> tasks = Lists.newArrayListWithCapacity(batches.size());
+        TLongObjectIterator<TLongList> iterator = batches.iterator();
+        while (iterator.hasNext()) {
+            iterator.advance();
+            tasks.add(Executors.callable(new SimulateChunkBatch(iterator.key(), iterator.value())));
+        }
+        executor.invokeAll(tasks);
+        metrics.tickCompleted(due.size(), scheduler.size());
+    }
+
+    /**
+     * Runs one step of the cellular automaton: first evaluates the dirty cells of all active chunks in parallel, then
+     * writes the changes back. Because no change is written before all chunks are evaluated, the result of a step does
+     * not depend on the order in which the chunks are processed.
+     */
+    private void stepAutomaton() throws InterruptedException {
+        List<LiquidAutomaton.ChunkLayer> layers = automaton.takeDirtyLayers();
+        List<Callable<Object>> evaluations = Lists.newArrayListWithCapacity(layers.size());
+        List<Callable<Object>> updates = Lists.newArrayListWithCapacity(layers.size());
+        int cells = 0;
+        for (LiquidAutomaton.ChunkLayer layer : layers) {
+            Vector3i chunkPos = layer.getChunkPos();
+            if (!world.isBlockActive(new Vector3i(chunkPos.x * Chunk.SIZE_X, 0, chunkPos.z * Chunk.SIZE_Z))) {
+                continue;
+            }
+            WorldView view = world.getWorldViewAround(chunkPos);
+            if (view == null) {
+                continue;
+            }
+            AutomatonChunkStep step = new AutomatonChunkStep(layer, view);
+            evaluations.add(Executors.callable(step.evaluation));
+            updates.add(Executors.callable(step.update));
+            cells += layer.getDirtyCellCount();
+        }
+        executor.invokeAll(evaluations);
+        executor.invokeAll(updates);
+        metrics.tickCompleted(cells, automaton.getDirtyCellCount());
     }
 
     @ReceiveEvent(components = WorldComponent.class)
     public void chunkReady(ChunkReadyEvent event, EntityRef worldEntity) {
-        blockQueue.offer(new ReviewChunk(event.getChunkPos()));
+        if (automatonEnabled) {
+            Vector3i chunkPos = event.getChunkPos();
+            automaton.markRegionDirty(chunkPos.x * Chunk.SIZE_X - 1, 0, chunkPos.z * Chunk.SIZE_Z - 1,
+                    (chunkPos.x + 1) * Chunk.SIZE_X, Chunk.SIZE_Y - 1, (chunkPos.z + 1) * Chunk.SIZE_Z);
+        } else {
+            executor.execute(new ReviewChunk(event.getChunkPos()));
+        }
     }
 
     @ReceiveEvent(components = BlockComponent.class)
@@ -141,13 +239,13 @@ public class LiquidSimulator implements EventHandlerSystem {
             if (currentState.getDepth() > 0) {
                 world.setLiquid(event.getBlockPosition(), new LiquidData(), currentState);
             }
-            if (event.getNewType().isPenetrable()) {
-                blockQueue.offer(new SimulateBlock(event.getBlockPosition(), world.getTime() + PROPAGATION_DELAY));
-            }
-            for (Side side : Side.values()) {
-                Vector3i adjPos = new Vector3i(event.getBlockPosition());
-                adjPos.add(side.getVector3i());
-                blockQueue.offer(new SimulateBlock(adjPos, world.getTime() + PROPAGATION_DELAY));
+            if (automatonEnabled) {
+                markDirty(event.getBlockPosition());
+            } else {
+                if (event.getNewType().isPenetrable()) {
+                    schedule(event.getBlockPosition(), world.getTime() + PROPAGATION_DELAY);
+                }
+                scheduleNeighbours(event.getBlockPosition(), world.getTime() + PROPAGATION_DELAY);
             }
         } else {
             LiquidData currentState = world.getLiquid(event.getBlockPosition());
@@ -155,36 +253,62 @@ public class LiquidSimulator implements EventHandlerSystem {
                 world.setLiquid(event.getBlockPosition(), new LiquidData((water.equals(event.getNewType())) ? LiquidType.WATER : LiquidType.LAVA, MAX_LIQUID_DEPTH), currentState);
             }
 
-            for (Side side : Side.values()) {
-                Vector3i adjPos = new Vector3i(event.getBlockPosition());
-                adjPos.add(side.getVector3i());
-                blockQueue.offer(new SimulateBlock(adjPos, world.getTime() + PROPAGATION_DELAY));
+            if (automatonEnabled) {
+                markDirty(event.getBlockPosition());
+            } else {
+                scheduleNeighbours(event.getBlockPosition(), world.getTime() + PROPAGATION_DELAY);
             }
         }
     }
 
+    private void markDirty(Vector3i pos) {
+        automaton.markDirty(pos.x, pos.y, pos.z);
+    }
+
+    private void schedule(Vector3i pos, long time) {
+        scheduler.schedule(pos.x, pos.y, pos.z, time);
+    }
+
+    private void scheduleNeighbours(Vector3i pos, long time) {
+        for (Side side : Side.values()) {
+            Vector3i dir = side.getVector3i();
+            scheduler.schedule(pos.x + dir.x, pos.y + dir.y, pos.z + dir.z, time);
+        }
+    }
+
     public void simulate(Vector3i blockPos, WorldView view) {
         Block block = view.getBlock(blockPos);
         LiquidData current = view.getLiquid(blockPos);
         LiquidData newState = calcStateFor(blockPos, view);
         if (!newState.equals(current)) {
-            view.lock();
-            try {
-                if (view.isValidView() && world.setLiquid(blockPos, newState, current)) {
-                    if (newState.getDepth() > 0) {
-                        world.setBlock(blockPos, ((newState.getType() == LiquidType.WATER) ? water : lava), block);
-                        Vector3i belowBlockPos = new Vector3i(blockPos.x, blockPos.y - 1, blockPos.z);
-                        Block belowType = world.getBlock(belowBlockPos);
-                        if (grass.equals(belowType) || snow.equals(belowType)) {
-                            world.setBlock(belowBlockPos, dirt, belowType);
-                        }
-                    } else {
-                        world.setBlock(blockPos, air, block);
+            update(blockPos, block, current, newState, view);
+        }
+    }
+
+    /**
+     * Changes the liquid state of a block, and the block to match.
+     *
+     * @return Whether the liquid state was still the expected current state, and has been changed
+     */
+    private boolean update(Vector3i blockPos, Block block, LiquidData current, LiquidData newState, WorldView view) {
+        view.lock();
+        try {
+            if (view.isValidView() && world.setLiquid(blockPos, newState, current)) {
+                if (newState.getDepth() > 0) {
+                    world.setBlock(blockPos, ((newState.getType() == LiquidType.WATER) ? water : lava), block);
+                    Vector3i belowBlockPos = new Vector3i(blockPos.x, blockPos.y - 1, blockPos.z);
+                    Block belowType = world.getBlock(belowBlockPos);
+                    if (grass.equals(belowType) || snow.equals(belowType)) {
+                        world.setBlock(belowBlockPos, dirt, belowType);
                     }
+                } else {
+                    world.setBlock(blockPos, air, block);
                 }
-            } finally {
-                view.unlock();
+                return true;
             }
+            return false;
+        } finally {
+            view.unlock();
         }
     }
 
@@ -243,7 +367,7 @@ public class LiquidSimulator implements EventHandlerSystem {
     /**
      * Map of outgoing amounts of water, by number of available spaces (0-4) and depth (0-7)
      */
-    private static byte[][] OUTGOING_FLOW = new byte[][]{
+    static final byte[][] OUTGOING_FLOW = new byte[][]{
             // No where to go
             {0, 0, 0, 0, 0, 0, 0, 0},
             // One space
@@ -282,57 +406,119 @@ public class LiquidSimulator implements EventHandlerSystem {
         return !block.isPenetrable();
     }
 
-    private class SimulateBlock implements LiquidSimulationTask{
-
-        private Vector3i blockPos;
-        private long waitForTime;
+    /**
+     * Simulates the due blocks of one chunk against a single view around that chunk.
+     */
+    private class SimulateChunkBatch implements Runnable {
+        private long chunkPos;
+        private TLongList positions;
 
-        public SimulateBlock(Vector3i blockPos, long time) {
-            this.blockPos = blockPos;
-            this.waitForTime = time;
+        public SimulateChunkBatch(long chunkPos, TLongList positions) {
+            this.chunkPos = chunkPos;
+            this.positions = positions;
         }
 
         @Override
-        public boolean shutdownThread() {
-            return false;
+        public void run() {
+            PerformanceMonitor.startActivity(CHUNK_BATCH_ACTIVITY);
+            try {
+                simulateBatch();
+            } finally {
+                PerformanceMonitor.endActivity();
+            }
         }
 
-        @Override
-        public void run() {
-            if (world.getTime() < waitForTime) {
-                blockQueue.offer(this);
-            } else if (world.isBlockActive(blockPos)) {
-                WorldView view = world.getWorldViewAround(TeraMath.calcChunkPos(blockPos));
-                if (view != null && view.isValidView()) {
-                    simulate(blockPos, view);
+        private void simulateBatch() {
+            Vector3i chunk = new Vector3i(LiquidScheduler.unpackX(chunkPos), 0, LiquidScheduler.unpackZ(chunkPos));
+            if (!world.isBlockActive(new Vector3i(chunk.x * Chunk.SIZE_X, 0, chunk.z * Chunk.SIZE_Z))) {
+                return;
+            }
+            WorldView view = world.getWorldViewAround(chunk);
+            if (view == null) {
+                return;
+            }
+            Vector3i blockPos = new Vector3i();
+            for (int i = 0; i < positions.size() && view.isValidView(); ++i) {
+                long pos = positions.get(i);
+                blockPos.set(LiquidScheduler.unpackX(pos), LiquidScheduler.unpackY(pos), LiquidScheduler.unpackZ(pos));
+                simulate(blockPos, view);
+            }
+        }
+    }
+
+    /**
+     * Evaluation and update of one chunk in a step of the cellular automaton.
+     */
+    private class AutomatonChunkStep {
+        private final LiquidAutomaton.ChunkLayer layer;
+        private final WorldView view;
+
+        private final Runnable evaluation = new Runnable() {
+            @Override
+            public void run() {
+                PerformanceMonitor.startActivity(EVALUATION_ACTIVITY);
+                try {
+                    if (view.isValidView()) {
+                        layer.evaluate(view);
+                    }
+                } finally {
+                    PerformanceMonitor.endActivity();
                 }
             }
+        };
+
+        private final Runnable update = new Runnable() {
+            @Override
+            public void run() {
+                PerformanceMonitor.startActivity(UPDATE_ACTIVITY);
+                try {
+                    TIntList changes = layer.getChanges();
+                    Vector3i blockPos = new Vector3i();
+                    for (int i = 0; i < changes.size() && view.isValidView(); ++i) {
+                        int change = changes.get(i);
+                        blockPos.set(layer.getChunkX() * Chunk.SIZE_X + LiquidAutomaton.getChangeX(change), LiquidAutomaton.getChangeY(change),
+                                layer.getChunkZ() * Chunk.SIZE_Z + LiquidAutomaton.getChangeZ(change));
+                        LiquidData current = new LiquidData(LiquidAutomaton.getChangeOldState(change));
+                        LiquidData newState = new LiquidData(LiquidAutomaton.getChangeNewState(change));
+                        if (LiquidSimulator.this.update(blockPos, view.getBlock(blockPos), current, newState, view)) {
+                            markDirty(blockPos);
+                        }
+                    }
+                } finally {
+                    PerformanceMonitor.endActivity();
+                }
+            }
+        };
+
+        public AutomatonChunkStep(LiquidAutomaton.ChunkLayer layer, WorldView view) {
+            this.layer = layer;
+            this.view = view;
         }
     }
 
-    private class ReviewChunk implements LiquidSimulationTask {
+    private class ReviewChunk implements Runnable {
         private Vector3i chunkPos;
 
         public ReviewChunk(Vector3i chunkPos) {
             this.chunkPos = chunkPos;
         }
 
-        @Override
-        public boolean shutdownThread() {
-            return false;
-        }
-
         @Override
         public void run() {
-            WorldView view = world.getLocalView(chunkPos);
-            if (view != null) {
-                for (Vector3i pos : Region3i.createFromMinAndSize(new Vector3i(-1, 0, -1), new Vector3i(Chunk.SIZE_X + 2, Chunk.SIZE_Y, Chunk.SIZE_Z + 2))) {
-                    LiquidData state = view.getLiquid(pos);
-                    LiquidData newState = calcStateFor(pos, view);
-                    if (!newState.equals(state)) {
-                        blockQueue.offer(new SimulateBlock(view.toWorldPos(pos), 0));
+            PerformanceMonitor.startActivity(REVIEW_CHUNK_ACTIVITY);
+            try {
+                WorldView view = world.getLocalView(chunkPos);
+                if (view != null) {
+                    for (Vector3i pos : Region3i.createFromMinAndSize(new Vector3i(-1, 0, -1), new Vector3i(Chunk.SIZE_X + 2, Chunk.SIZE_Y, Chunk.SIZE_Z + 2))) {
+                        LiquidData state = view.getLiquid(pos);
+                        LiquidData newState = calcStateFor(pos, view);
+                        if (!newState.equals(state)) {
+                            schedule(view.toWorldPos(pos), 0);
+                        }
                     }
                 }
+            } finally {
+                PerformanceMonitor.endActivity();
             }
         }
     }
@@ -23,12 +23,21 @@ import org.terasology.world.chunks.ChunkProvider;
  * @author Immortius
  */
 public abstract class AbstractChunkTask implements ChunkTask {
+    private final String name;
+    private final int activity;
     private final Vector3i position;
     private final ChunkProvider provider;
+    private final long creationTime;
 
-    public AbstractChunkTask(Vector3i position, ChunkProvider provider) {
+    /**
+     * @param activity The performance monitor activity of this kind of task, registered once per kind
+     */
+    public AbstractChunkTask(String name, int activity, Vector3i position, ChunkProvider provider) {
+        this.name = name;
+        this.activity = activity;
         this.position = new Vector3i(position);
         this.provider = provider;
+        this.creationTime = System.nanoTime();
     }
 
     @Override
@@ -45,4 +54,19 @@ public abstract class AbstractChunkTask implements ChunkTask {
     public ChunkProvider getProvider() {
         return provider;
     }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public int getActivity() {
+        return activity;
+    }
+
+    @Override
+    public long getCreationTime() {
+        return creationTime;
+    }
 }
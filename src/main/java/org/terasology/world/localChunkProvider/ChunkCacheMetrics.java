@@ -0,0 +1,109 @@
+/*
+ * Copyright 2012 Benjamin Glatzel <benjamin.glatzel@me.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terasology.world.localChunkProvider;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Thread safe counters describing the cache of loaded chunks of a chunk provider.
+ * <p/>
+ * Hits and misses are counted on every chunk lookup by the main thread and all chunk workers, so they are striped: each
+ * thread increments one of several counters, spread over separate cache lines, and reads add them up.
+ */
+public class ChunkCacheMetrics {
+
+    private static final int STRIPES = 16;
+    // Eight longs fill a 64 byte cache line
+    private static final int STRIPE_SPACING = 8;
+
+    private final AtomicLongArray hits = new AtomicLongArray(STRIPES * STRIPE_SPACING);
+    private final AtomicLongArray misses = new AtomicLongArray(STRIPES * STRIPE_SPACING);
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong residentBytes = new AtomicLong();
+    private final long maxBytes;
+
+    public ChunkCacheMetrics(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    public void hit() {
+        hits.incrementAndGet(stripe());
+    }
+
+    public void miss() {
+        misses.incrementAndGet(stripe());
+    }
+
+    public void evicted() {
+        evictions.incrementAndGet();
+    }
+
+    public void addResidentBytes(long bytes) {
+        residentBytes.addAndGet(bytes);
+    }
+
+    public void setResidentBytes(long bytes) {
+        residentBytes.set(bytes);
+    }
+
+    public long getHits() {
+        return sum(hits);
+    }
+
+    public long getMisses() {
+        return sum(misses);
+    }
+
+    /**
+     * @return The fraction of chunk lookups which found the chunk in the cache, between 0 and 1
+     */
+    public double getHitRate() {
+        long hitCount = getHits();
+        long total = hitCount + getMisses();
+        return (total == 0) ? 0 : (double) hitCount / total;
+    }
+
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    /**
+     * @return The estimated memory used by the cached chunks
+     */
+    public long getResidentBytes() {
+        return residentBytes.get();
+    }
+
+    /**
+     * @return The memory the cached chunks may use before chunks are evicted
+     */
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    private static int stripe() {
+        return (int) (Thread.currentThread().getId() % STRIPES) * STRIPE_SPACING;
+    }
+
+    private static long sum(AtomicLongArray counters) {
+        long result = 0;
+        for (int i = 0; i < STRIPES; ++i) {
+            result += counters.get(i * STRIPE_SPACING);
+        }
+        return result;
+    }
+}
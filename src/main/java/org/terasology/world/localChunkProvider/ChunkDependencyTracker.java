@@ -0,0 +1,200 @@
+/*
+ * Copyright 2012 Benjamin Glatzel <benjamin.glatzel@me.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terasology.world.localChunkProvider;
+
+import java.util.List;
+import java.util.Map;
+
+import org.terasology.math.Vector3i;
+import org.terasology.world.chunks.Chunk;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+/**
+ * Tracks for every chunk how many of its neighbours have reached each chunk state.
+ * <p/>
+ * A chunk can move on from a state once all of its horizontal neighbours are loaded and have reached at least the same
+ * state. The tracker is informed whenever a chunk is added, removed or changes its state, and reports the chunks whose
+ * neighbourhood has just become ready for their current state, so the next processing stage can be started
+ * immediately instead of polling the neighbourhood of every chunk.
+ * <p/>
+ * A chunk is reported at most once per state, unless one of its neighbours is removed in the meantime.
+ */
+public class ChunkDependencyTracker {
+
+    public static final int NEIGHBOURS = 8;
+
+    private static final Chunk.State[] STATES = Chunk.State.values();
+
+    private final Map<Vector3i, Entry> entries = Maps.newHashMap();
+
+    /**
+     * @param pos   The position of the added chunk
+     * @param state The state of the added chunk
+     * @return The chunks which are now ready to move on from their current state
+     */
+    public synchronized List<Vector3i> chunkAdded(Vector3i pos, Chunk.State state) {
+        Entry entry = getOrCreateEntry(pos);
+        if (entry.state != null) {
+            return stateChanged(pos, state);
+        }
+        entry.state = state;
+
+        List<Vector3i> result = Lists.newArrayList();
+        for (Vector3i adjPos : neighbours(pos)) {
+            Entry adjEntry = getOrCreateEntry(adjPos);
+            for (int i = 0; i <= state.ordinal(); ++i) {
+                adjEntry.neighboursAtLeast[i]++;
+            }
+            checkReady(adjPos, adjEntry, result);
+        }
+        checkReady(pos, entry, result);
+        return result;
+    }
+
+    /**
+     * @param pos      The position of the chunk
+     * @param newState The new state of the chunk, states can only advance
+     * @return The chunks which are now ready to move on from their current state. Empty if the chunk is not tracked,
+     *         as it has been removed since its state changed.
+     */
+    public synchronized List<Vector3i> stateChanged(Vector3i pos, Chunk.State newState) {
+        List<Vector3i> result = Lists.newArrayList();
+        Entry entry = entries.get(pos);
+        if (entry == null || entry.state == null || newState.ordinal() <= entry.state.ordinal()) {
+            return result;
+        }
+        int oldOrdinal = entry.state.ordinal();
+        entry.state = newState;
+
+        for (Vector3i adjPos : neighbours(pos)) {
+            Entry adjEntry = getOrCreateEntry(adjPos);
+            for (int i = oldOrdinal + 1; i <= newState.ordinal(); ++i) {
+                adjEntry.neighboursAtLeast[i]++;
+            }
+            checkReady(adjPos, adjEntry, result);
+        }
+        checkReady(pos, entry, result);
+        return result;
+    }
+
+    /**
+     * Reports a chunk again once the task started for its state has given up without changing it, for instance because
+     * a neighbour was replaced while the task was queued.
+     *
+     * @param pos   The position of the chunk
+     * @param state The state the task was started for
+     * @return The chunk itself if it is still in the given state and its neighbourhood is still ready for it
+     */
+    public synchronized List<Vector3i> stageAbandoned(Vector3i pos, Chunk.State state) {
+        List<Vector3i> result = Lists.newArrayList();
+        Entry entry = entries.get(pos);
+        if (entry == null || entry.state != state) {
+            return result;
+        }
+        entry.reported = state.ordinal() - 1;
+        checkReady(pos, entry, result);
+        return result;
+    }
+
+    /**
+     * @param pos The position of the removed chunk
+     */
+    public synchronized void chunkRemoved(Vector3i pos) {
+        Entry entry = entries.get(pos);
+        if (entry == null || entry.state == null) {
+            return;
+        }
+        int ordinal = entry.state.ordinal();
+        entry.state = null;
+        entry.reported = -1;
+        removeIfUnused(pos, entry);
+
+        for (Vector3i adjPos : neighbours(pos)) {
+            Entry adjEntry = entries.get(adjPos);
+            if (adjEntry == null) {
+                continue;
+            }
+            for (int i = 0; i <= ordinal; ++i) {
+                adjEntry.neighboursAtLeast[i]--;
+            }
+            if (adjEntry.state != null && adjEntry.reported >= adjEntry.state.ordinal()) {
+                // Any task started for the current state will not be able to complete, so report the chunk again once ready
+                adjEntry.reported = adjEntry.state.ordinal() - 1;
+            }
+            removeIfUnused(adjPos, adjEntry);
+        }
+    }
+
+    /**
+     * @param pos   The position of a chunk
+     * @param state A chunk state
+     * @return The number of neighbours of the chunk which have at least reached the given state
+     */
+    public synchronized int getNeighboursAtLeast(Vector3i pos, Chunk.State state) {
+        Entry entry = entries.get(pos);
+        return (entry == null) ? 0 : entry.neighboursAtLeast[state.ordinal()];
+    }
+
+    /**
+     * @return The number of positions tracked, including positions of unloaded chunks next to loaded ones
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    private void checkReady(Vector3i pos, Entry entry, List<Vector3i> result) {
+        if (entry.state != null && entry.reported < entry.state.ordinal() && entry.neighboursAtLeast[entry.state.ordinal()] == NEIGHBOURS) {
+            entry.reported = entry.state.ordinal();
+            result.add(pos);
+        }
+    }
+
+    private Entry getOrCreateEntry(Vector3i pos) {
+        Entry entry = entries.get(pos);
+        if (entry == null) {
+            entry = new Entry();
+            entries.put(new Vector3i(pos), entry);
+        }
+        return entry;
+    }
+
+    private void removeIfUnused(Vector3i pos, Entry entry) {
+        if (entry.state == null && entry.neighboursAtLeast[0] == 0) {
+            entries.remove(pos);
+        }
+    }
+
+    private static Vector3i[] neighbours(Vector3i pos) {
+        Vector3i[] result = new Vector3i[NEIGHBOURS];
+        int i = 0;
+        for (int x = -1; x <= 1; ++x) {
+            for (int z = -1; z <= 1; ++z) {
+                if (x != 0 || z != 0) {
+                    result[i++] = new Vector3i(pos.x + x, pos.y, pos.z + z);
+                }
+            }
+        }
+        return result;
+    }
+
+    private static final class Entry {
+        private Chunk.State state;
+        private final int[] neighboursAtLeast = new int[STATES.length];
+        private int reported = -1;
+    }
+}
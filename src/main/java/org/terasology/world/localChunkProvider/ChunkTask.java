@@ -31,4 +31,19 @@ public interface ChunkTask {
     Vector3i getPosition();
 
     ChunkProvider getProvider();
+
+    /**
+     * @return The name of the task, used to collect metrics
+     */
+    String getName();
+
+    /**
+     * @return The id of the performance monitor activity the task is run as
+     */
+    int getActivity();
+
+    /**
+     * @return The time the task was created at, as returned by {@link System#nanoTime()}
+     */
+    long getCreationTime();
 }
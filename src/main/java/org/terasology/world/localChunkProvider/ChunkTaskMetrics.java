@@ -0,0 +1,126 @@
+/*
+ * Copyright 2012 Benjamin Glatzel <benjamin.glatzel@me.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terasology.world.localChunkProvider;
+
+import java.util.SortedSet;
+import java.util.concurrent.ConcurrentMap;
+
+import com.google.common.collect.ImmutableSortedSet;
+import com.google.common.collect.Maps;
+
+/**
+ * Collects thread safe metrics about the chunk tasks processed by a chunk provider: for each kind of task the number of
+ * completed tasks, the time tasks waited in the queue and the time spent running them, as well as the depth of the
+ * task queue.
+ */
+public class ChunkTaskMetrics {
+
+    private static final double NANOS_PER_MILLI = 1000000.0;
+
+    private final ConcurrentMap<String, TaskStatistics> statistics = Maps.newConcurrentMap();
+    private volatile int queueDepth;
+    private volatile int peakQueueDepth;
+
+    /**
+     * Records a completed task.
+     *
+     * @param name      The name of the task
+     * @param waitNanos The time between creating and starting the task
+     * @param runNanos  The time spent running the task
+     */
+    public void taskCompleted(String name, long waitNanos, long runNanos) {
+        TaskStatistics stats = statistics.get(name);
+        if (stats == null) {
+            TaskStatistics newStats = new TaskStatistics();
+            stats = statistics.putIfAbsent(name, newStats);
+            if (stats == null) {
+                stats = newStats;
+            }
+        }
+        stats.record(waitNanos, runNanos);
+    }
+
+    public void sampleQueueDepth(int depth) {
+        queueDepth = depth;
+        if (depth > peakQueueDepth) {
+            peakQueueDepth = depth;
+        }
+    }
+
+    public int getQueueDepth() {
+        return queueDepth;
+    }
+
+    public int getPeakQueueDepth() {
+        return peakQueueDepth;
+    }
+
+    public SortedSet<String> getTaskNames() {
+        return ImmutableSortedSet.copyOf(statistics.keySet());
+    }
+
+    /**
+     * @param name The name of a task
+     * @return The statistics of the task, or null if no such task completed yet
+     */
+    public TaskStatistics getStatistics(String name) {
+        return statistics.get(name);
+    }
+
+    public void reset() {
+        statistics.clear();
+        peakQueueDepth = queueDepth;
+    }
+
+    public static final class TaskStatistics {
+        private long count;
+        private long totalWaitNanos;
+        private long totalRunNanos;
+        private long maxLatencyNanos;
+
+        private synchronized void record(long waitNanos, long runNanos) {
+            count++;
+            totalWaitNanos += waitNanos;
+            totalRunNanos += runNanos;
+            maxLatencyNanos = Math.max(maxLatencyNanos, waitNanos + runNanos);
+        }
+
+        public synchronized long getCount() {
+            return count;
+        }
+
+        /**
+         * @return The mean time tasks waited before running, in milliseconds
+         */
+        public synchronized double getMeanWaitMs() {
+            return (count == 0) ? 0 : totalWaitNanos / NANOS_PER_MILLI / count;
+        }
+
+        /**
+         * @return The mean time spent running tasks, in milliseconds
+         */
+        public synchronized double getMeanRunMs() {
+            return (count == 0) ? 0 : totalRunNanos / NANOS_PER_MILLI / count;
+        }
+
+        /**
+         * @return The longest time between creating and completing a task, in milliseconds
+         */
+        public synchronized double getMaxLatencyMs() {
+            return maxLatencyNanos / NANOS_PER_MILLI;
+        }
+    }
+}
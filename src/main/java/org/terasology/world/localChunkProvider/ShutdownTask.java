@@ -17,12 +17,14 @@
 package org.terasology.world.localChunkProvider;
 
 import org.terasology.math.Vector3i;
+import org.terasology.performanceMonitor.PerformanceMonitor;
 import org.terasology.world.chunks.ChunkProvider;
 
 /**
  * @author Immortius
  */
 public class ShutdownTask implements ChunkTask {
+    private static final int ACTIVITY = PerformanceMonitor.registerActivity("Chunk task: Shutdown");
 
     @Override
     public void enact() {
@@ -42,4 +44,19 @@ public class ShutdownTask implements ChunkTask {
     public ChunkProvider getProvider() {
         return null;
     }
+
+    @Override
+    public String getName() {
+        return "Shutdown";
+    }
+
+    @Override
+    public int getActivity() {
+        return ACTIVITY;
+    }
+
+    @Override
+    public long getCreationTime() {
+        return 0;
+    }
 }
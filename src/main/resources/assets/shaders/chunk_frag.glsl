@@ -68,6 +68,20 @@ void main(){
 
     vec4 texCoord = gl_TexCoord[0];
 
+    /* Merged faces of greedy meshes repeat a single tile, whose index is stored in the negative z coordinate */
+    bool repeatedTile = texCoord.z < 0.0;
+    vec2 tileGradX = vec2(0.0);
+    vec2 tileGradY = vec2(0.0);
+    if (repeatedTile) {
+        /* The mip level is chosen from the continuous tile coordinates, as the wrapped ones jump at each tile border */
+        tileGradX = dFdx(texCoord.xy) * TEXTURE_OFFSET_WIDTH;
+        tileGradY = dFdy(texCoord.xy) * TEXTURE_OFFSET_WIDTH;
+        float tileIndex = floor(-texCoord.z - 0.5);
+        float tilesPerDim = floor(1.0 / TEXTURE_OFFSET + 0.5);
+        vec2 tile = vec2(mod(tileIndex, tilesPerDim), floor(tileIndex / tilesPerDim)) * TEXTURE_OFFSET;
+        texCoord.xy = tile + fract(texCoord.xy) * TEXTURE_OFFSET_WIDTH;
+    }
+
     vec3 normalizedVPos = -normalize(vertexWorldPos.xyz);
     vec3 normalWater;
     bool isWater = false;
@@ -111,7 +125,15 @@ void main(){
         color = texture2D(textureLava, texCoord.xy);
     /* APPLY DEFAULT TEXTURE FROM ATLAS */
     } else {
+#ifdef GL_ARB_shader_texture_lod
+        if (repeatedTile) {
+            color = texture2DGradARB(textureAtlas, texCoord.xy, tileGradX, tileGradY);
+        } else {
+            color = texture2D(textureAtlas, texCoord.xy);
+        }
+#else
         color = texture2D(textureAtlas, texCoord.xy);
+#endif
     }
 
     if (color.a < 0.5)
@@ -37,6 +37,23 @@ uniform vec2 lavaCoordinate;
 uniform vec3 chunkOffset;
 
 uniform float animated;
+uniform float compactVertices = 0.0;
+
+// Normals of the sides in the order of org.terasology.math.Side
+const vec3 sideNormals[6] = vec3[6](vec3(0.0, 1.0, 0.0), vec3(-1.0, 0.0, 0.0), vec3(1.0, 0.0, 0.0), vec3(0.0, 0.0, -1.0), vec3(0.0, 0.0, 1.0), vec3(0.0, -1.0, 0.0));
+
+vec3 decodeCompactNormal(float code)
+{
+    if (code < 6.0) {
+        return sideNormals[int(code)];
+    }
+    float quantized = code - 6.0;
+    float z = mod(quantized, COMPACT_NORMAL_STEPS);
+    quantized = floor(quantized / COMPACT_NORMAL_STEPS);
+    float y = mod(quantized, COMPACT_NORMAL_STEPS);
+    float x = floor(quantized / COMPACT_NORMAL_STEPS);
+    return normalize(vec3(x, y, z) * (2.0 / (COMPACT_NORMAL_STEPS - 1.0)) - 1.0);
+}
 
 void main()
 {
@@ -44,11 +61,22 @@ void main()
     gl_TexCoord[1] = gl_MultiTexCoord1;
 
 	vertexWorldPosRaw = gl_Vertex;
+	vec3 vertexNormal = gl_Normal;
+
+    // Unpack the compact vertex format, see ChunkVertexFormat.COMPACT
+    if (compactVertices > 0.0) {
+        vertexWorldPosRaw = vec4(gl_Vertex.xyz / COMPACT_POSITION_SCALE, 1.0);
+        vertexNormal = decodeCompactNormal(gl_Vertex.w);
+        if (gl_TexCoord[0].z >= 0.0) {
+            gl_TexCoord[0].xy /= COMPACT_TEX_COORD_SCALE;
+        }
+        gl_TexCoord[1] = vec4(gl_SecondaryColor.rgb, 1.0);
+    }
 
 	vertexWorldPos = gl_ModelViewMatrix * vertexWorldPosRaw;
 	waterNormal = gl_NormalMatrix * vec3(0,1,0);
 
-	if (gl_Normal.y == 1.0) {
+	if (vertexNormal.y == 1.0) {
 	    isUpside = 1.0;
 	} else {
 	    isUpside = 0.0;
@@ -56,7 +84,7 @@ void main()
 
 	lightDir = gl_LightSource[0].position.xyz;
 
-    normal = gl_NormalMatrix * gl_Normal;
+    normal = gl_NormalMatrix * vertexNormal;
     gl_FrontColor = gl_Color;
 
 #ifdef FLICKERING_LIGHT
@@ -70,7 +98,8 @@ void main()
 #ifdef ANIMATED_WATER_AND_GRASS
     vec3 vertexChunkPos = vertexWorldPosRaw.xyz + chunkOffset.xyz;
 
-    if (animated > 0.0) {
+    // Merged faces of greedy meshes (negative z) do not use atlas coordinates and are never animated
+    if (animated > 0.0 && gl_TexCoord[0].z >= 0.0) {
         // GRASS ANIMATION
         for (int i=0; i < WAVING_COORDINATE_COUNT; i+=2) {
            if (gl_TexCoord[0].x >= wavingCoordinates[i] && gl_TexCoord[0].x < wavingCoordinates[i] + TEXTURE_OFFSET && gl_TexCoord[0].y >= wavingCoordinates[i+1] && gl_TexCoord[0].y < wavingCoordinates[i+1] + TEXTURE_OFFSET) {
@@ -82,7 +111,7 @@ void main()
         }
     }
 
-    if (gl_TexCoord[0].x >= waterCoordinate.x && gl_TexCoord[0].x < waterCoordinate.x + TEXTURE_OFFSET && gl_TexCoord[0].y >= waterCoordinate.y && gl_TexCoord[0].y < waterCoordinate.y + TEXTURE_OFFSET) {
+    if (gl_TexCoord[0].z >= 0.0 && gl_TexCoord[0].x >= waterCoordinate.x && gl_TexCoord[0].x < waterCoordinate.x + TEXTURE_OFFSET && gl_TexCoord[0].y >= waterCoordinate.y && gl_TexCoord[0].y < waterCoordinate.y + TEXTURE_OFFSET) {
        // Only animate blocks on sea level
        if (vertexWorldPosRaw.y < 32.5 && vertexWorldPosRaw.y > 31.5) {
             vertexWorldPos.y += (smoothTriangleWave(timeToTick(time, 0.1) + vertexChunkPos.x * 0.05 + vertexChunkPos.z * 0.05) * 2.0 - 1.0) * 0.1 * blockScale
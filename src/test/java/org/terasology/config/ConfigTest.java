@@ -0,0 +1,39 @@
+package org.terasology.config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+import org.terasology.world.chunks.blockdata.TeraDenseArray8Bit;
+import org.terasology.world.chunks.blockdata.TeraPaletteArray;
+
+public class ConfigTest {
+
+    @Test
+    public void defaultConfigCanBeCreated() {
+        Config config = new Config();
+        assertEquals(TeraPaletteArray.class.getName(), config.getAdvancedConfig().getBlocksFactoryName());
+        assertEquals(TeraDenseArray8Bit.class.getName(), config.getAdvancedConfig().getSunlightFactoryName());
+    }
+
+    @Test
+    public void entitiesAreFullySavedByDefault() {
+        assertFalse(new Config().getAdvancedConfig().isDeltaEntitySavesEnabled());
+    }
+
+    @Test
+    public void onlyFactoriesSupportingBlockIdsAreListedForBlocks() {
+        List<String> factories = Arrays.asList(AdvancedConfig.getTeraArrayFactories(AdvancedConfig.BLOCK_ID_BITS));
+        assertTrue(factories.contains(TeraPaletteArray.class.getName()));
+        assertFalse(factories.contains(TeraDenseArray8Bit.class.getName()));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void blocksFactoryRequiresBlockIdBits() {
+        AdvancedConfig.createDefault().setBlocksFactory(TeraDenseArray8Bit.class.getName());
+    }
+}
@@ -1,8 +1,14 @@
 package org.terasology.entitySystem;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -32,7 +38,8 @@ public class PojoEventSystemTests {
 
         compLibrary = new ComponentLibraryImpl();
         entityManager = new PojoEntityManager(compLibrary, new PojoPrefabManager(compLibrary));
-        eventSystem = new PojoEventSystem();
+        // A generous budget, so pauses of the test machine cannot leave events for a later call to process
+        eventSystem = new PojoEventSystem(TimeUnit.SECONDS.toNanos(10));
         entityManager.setEventSystem(eventSystem);
         entity = entityManager.create();
     }
@@ -146,6 +153,123 @@ public class PojoEventSystemTests {
         assertEquals(1, handler.receivedList.size());
     }
     
+    @Test
+    public void testReceiveEventAfterComponentAdded() {
+        entity.addComponent(new StringComponent());
+
+        TestEventHandler handler = new TestEventHandler();
+        eventSystem.registerEventHandler(handler);
+
+        eventSystem.send(entity, new TestEvent());
+        assertEquals(1, handler.receivedList.size());
+
+        entity.addComponent(new IntegerComponent());
+        eventSystem.send(entity, new TestEvent());
+        assertEquals(3, handler.receivedList.size());
+
+        entity.removeComponent(StringComponent.class);
+        eventSystem.send(entity, new TestEvent());
+        assertEquals(4, handler.receivedList.size());
+    }
+
+    @Test
+    public void testNoReceiveEventWhenComponentRemovedByEarlierHandler() {
+        entity.addComponent(new StringComponent());
+        entity.addComponent(new IntegerComponent());
+
+        TestEventHandler handlerNormal = new TestEventHandler();
+        TestRemoveComponentEventHandler handlerHigh = new TestRemoveComponentEventHandler();
+        eventSystem.registerEventHandler(handlerNormal);
+        eventSystem.registerEventHandler(handlerHigh);
+
+        eventSystem.send(entity, new TestEvent());
+        assertEquals(1, handlerNormal.receivedList.size());
+        assertNull(entity.getComponent(IntegerComponent.class));
+    }
+
+    @Test
+    public void testEventFromOtherThreadIsSentOnProcess() throws InterruptedException {
+        entity.addComponent(new StringComponent());
+        TestEventHandler handler = new TestEventHandler();
+        eventSystem.registerEventHandler(handler);
+
+        sendFromOtherThread(new TestEvent(), new TestEvent());
+        assertEquals(0, handler.receivedList.size());
+
+        eventSystem.process();
+        assertEquals(2, handler.receivedList.size());
+    }
+
+    @Test
+    public void testCoalescableEventsFromOtherThreadAreMerged() throws InterruptedException {
+        entity.addComponent(new StringComponent());
+        TestCoalescableEventHandler handler = new TestCoalescableEventHandler();
+        eventSystem.registerEventHandler(handler);
+
+        sendFromOtherThread(new TestCoalescableEvent(1), new TestCoalescableEvent(2), new TestCoalescableEvent(3));
+        eventSystem.process();
+
+        assertEquals(1, handler.received.size());
+        assertEquals(6, handler.received.get(0).value);
+    }
+
+    @Test
+    public void testThreadSafeHandlerRunsOnWorker() throws InterruptedException {
+        entity.addComponent(new StringComponent());
+        TestThreadSafeEventHandler handler = new TestThreadSafeEventHandler();
+        eventSystem.registerEventHandler(handler);
+
+        sendFromOtherThread(new TestEvent());
+        eventSystem.process();
+
+        assertTrue(handler.latch.await(10, TimeUnit.SECONDS));
+        assertNotSame(Thread.currentThread(), handler.thread);
+    }
+
+    @Test
+    public void testThreadSafeHandlerReceivesComponentCopies() throws InterruptedException {
+        compLibrary.registerComponentClass(StringComponent.class);
+        StringComponent component = entity.addComponent(new StringComponent("Test"));
+        TestThreadSafeEventHandler handler = new TestThreadSafeEventHandler();
+        eventSystem.registerEventHandler(handler);
+
+        sendFromOtherThread(new TestEvent());
+        eventSystem.process();
+
+        assertTrue(handler.latch.await(10, TimeUnit.SECONDS));
+        assertNotSame(component, handler.component);
+        assertEquals("Test", handler.component.value);
+        assertEquals(entity.getId(), handler.entityId);
+        assertTrue(handler.modificationRejected);
+    }
+
+    @Test
+    public void testDisposeStopsWorkers() throws InterruptedException {
+        entity.addComponent(new StringComponent());
+        TestThreadSafeEventHandler handler = new TestThreadSafeEventHandler();
+        eventSystem.registerEventHandler(handler);
+        sendFromOtherThread(new TestEvent());
+        eventSystem.process();
+        assertTrue(handler.latch.await(10, TimeUnit.SECONDS));
+
+        eventSystem.dispose();
+        handler.thread.join(10000);
+        assertFalse(handler.thread.isAlive());
+    }
+
+    private void sendFromOtherThread(final Event... events) throws InterruptedException {
+        Thread thread = new Thread() {
+            @Override
+            public void run() {
+                for (Event event : events) {
+                    eventSystem.send(entity, event);
+                }
+            }
+        };
+        thread.start();
+        thread.join();
+    }
+
     private static class TestEvent extends AbstractEvent {
         
     }
@@ -232,6 +356,88 @@ public class PojoEventSystemTests {
         }
     }
 
+    public static class TestRemoveComponentEventHandler implements EventHandlerSystem {
+
+        @ReceiveEvent(components = IntegerComponent.class, priority = EventPriority.PRIORITY_HIGH)
+        public void handleIntegerEvent(TestEvent event, EntityRef entity) {
+            entity.removeComponent(IntegerComponent.class);
+        }
+
+        public void initialise() {
+
+        }
+
+        @Override
+        public void shutdown() {
+        }
+    }
+
+    public static class TestCoalescableEvent extends AbstractEvent implements CoalescableEvent<TestCoalescableEvent> {
+        int value;
+
+        public TestCoalescableEvent(int value) {
+            this.value = value;
+        }
+
+        @Override
+        public Object getCoalescingKey() {
+            return "key";
+        }
+
+        @Override
+        public TestCoalescableEvent coalesce(TestCoalescableEvent later) {
+            return new TestCoalescableEvent(value + later.value);
+        }
+    }
+
+    public static class TestCoalescableEventHandler implements EventHandlerSystem {
+
+        List<TestCoalescableEvent> received = Lists.newArrayList();
+
+        @ReceiveEvent(components = StringComponent.class)
+        public void handleEvent(TestCoalescableEvent event, EntityRef entity) {
+            received.add(event);
+        }
+
+        public void initialise() {
+
+        }
+
+        @Override
+        public void shutdown() {
+        }
+    }
+
+    public static class TestThreadSafeEventHandler implements EventHandlerSystem {
+
+        CountDownLatch latch = new CountDownLatch(1);
+        volatile Thread thread;
+        volatile StringComponent component;
+        volatile int entityId;
+        volatile boolean modificationRejected;
+
+        @ReceiveEvent(components = StringComponent.class, threadSafe = true)
+        public void handleEvent(TestEvent event, EntityRef entity) {
+            thread = Thread.currentThread();
+            component = entity.getComponent(StringComponent.class);
+            entityId = entity.getId();
+            try {
+                entity.addComponent(new IntegerComponent());
+            } catch (UnsupportedOperationException e) {
+                modificationRejected = true;
+            }
+            latch.countDown();
+        }
+
+        public void initialise() {
+
+        }
+
+        @Override
+        public void shutdown() {
+        }
+    }
+
     public static class TestCompoundComponentEventHandler implements EventHandlerSystem {
 
         List<Received> receivedList = Lists.newArrayList();
@@ -16,9 +16,21 @@
 
 package org.terasology.entitySystem.metadata;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.Field;
+
+import javax.vecmath.Vector3f;
 
 import org.junit.Test;
+import org.terasology.entitySystem.metadata.extension.Vector3fTypeHandler;
+import org.terasology.entitySystem.stubs.GetterSetterComponent;
+import org.terasology.entitySystem.stubs.IntegerComponent;
 import org.terasology.entitySystem.stubs.StringComponent;
 import org.terasology.entitySystem.stubs.UnsupportedTypeComponent;
 
@@ -45,4 +57,75 @@ public class ComponentMetadataTest {
         assertNull(metadata.getField("value3"));
     }
 
+    @Test
+    public void copyCopiesFields() {
+        for (boolean generateAccessors : new boolean[] {true, false}) {
+            ComponentLibrary lib = new ComponentLibraryImpl(generateAccessors);
+            lib.registerComponentClass(IntegerComponent.class);
+            lib.registerComponentClass(StringComponent.class);
+
+            assertEquals(new IntegerComponent(3), lib.copy(new IntegerComponent(3)));
+            assertEquals(new StringComponent("Value"), lib.copy(new StringComponent("Value")));
+        }
+    }
+
+    @Test
+    public void copyUsesGetterAndSetter() {
+        for (boolean generateAccessors : new boolean[] {true, false}) {
+            ComponentLibrary lib = new ComponentLibraryImpl(generateAccessors);
+            lib.registerTypeHandler(Vector3f.class, new Vector3fTypeHandler());
+            lib.registerComponentClass(GetterSetterComponent.class);
+
+            GetterSetterComponent component = new GetterSetterComponent();
+            component.setValue(new Vector3f(1, 2, 3));
+            GetterSetterComponent copy = lib.copy(component);
+            assertTrue(component.getterUsed);
+            assertTrue(copy.setterUsed);
+            assertEquals(component.getValue(), copy.getValue());
+            assertNotSame(component.getValue(), copy.getValue());
+        }
+    }
+
+    @Test
+    public void fieldAccessUsesGetterAndSetter() throws Exception {
+        ComponentLibrary lib = new ComponentLibraryImpl();
+        lib.registerTypeHandler(Vector3f.class, new Vector3fTypeHandler());
+        lib.registerComponentClass(GetterSetterComponent.class);
+        FieldMetadata field = lib.getMetadata(GetterSetterComponent.class).getField("value");
+
+        GetterSetterComponent component = new GetterSetterComponent();
+        field.setValue(component, new Vector3f(1, 2, 3));
+        assertTrue(component.setterUsed);
+        assertEquals(new Vector3f(1, 2, 3), field.getValue(component));
+        assertTrue(component.getterUsed);
+    }
+
+    @Test
+    public void fieldAccessBoxesPrimitives() throws Exception {
+        ComponentLibrary lib = new ComponentLibraryImpl();
+        lib.registerComponentClass(IntegerComponent.class);
+        FieldMetadata field = lib.getMetadata(IntegerComponent.class).getField("value");
+
+        IntegerComponent component = new IntegerComponent(1);
+        field.setValue(component, 5);
+        assertEquals(5, field.getValue(component));
+    }
+
+    @Test
+    public void generatedClassesReusedAcrossLibraries() throws Exception {
+        ComponentLibrary lib = new ComponentLibraryImpl();
+        lib.registerTypeHandler(Vector3f.class, new Vector3fTypeHandler());
+        lib.registerComponentClass(GetterSetterComponent.class);
+        ComponentMetadata<GetterSetterComponent> metadata = lib.getMetadata(GetterSetterComponent.class);
+        Field field = GetterSetterComponent.class.getDeclaredField("value");
+
+        FieldAccessor accessor = AccessorGenerator.createFieldAccessor(field, GetterSetterComponent.class);
+        assertFalse(accessor instanceof ReflectionFieldAccessor);
+        assertSame(accessor.getClass(), AccessorGenerator.createFieldAccessor(field, GetterSetterComponent.class).getClass());
+
+        ComponentCopier<GetterSetterComponent> copier = AccessorGenerator.createCopier(metadata);
+        assertFalse(copier instanceof ReflectionComponentCopier);
+        assertSame(copier.getClass(), AccessorGenerator.createCopier(metadata).getClass());
+    }
+
 }
@@ -0,0 +1,124 @@
+package org.terasology.entitySystem.persistence;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.concurrent.Future;
+
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.terasology.entitySystem.EntityRef;
+import org.terasology.entitySystem.PersistableEntityManager;
+import org.terasology.entitySystem.Prefab;
+import org.terasology.entitySystem.stubs.IntegerComponent;
+import org.terasology.entitySystem.stubs.StringComponent;
+import org.terasology.game.bootstrap.EntitySystemBuilder;
+import org.terasology.logic.mod.ModManager;
+
+public class WorldPersisterTest {
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    private static ModManager modManager;
+    private PersistableEntityManager entityManager;
+    private WorldPersister worldPersister;
+    private File file;
+
+    @BeforeClass
+    public static void setupClass() {
+        modManager = new ModManager();
+    }
+
+    @Before
+    public void setup() {
+        EntitySystemBuilder builder = new EntitySystemBuilder();
+        entityManager = builder.build(modManager);
+        entityManager.getComponentLibrary().registerComponentClass(StringComponent.class);
+        entityManager.getComponentLibrary().registerComponentClass(IntegerComponent.class);
+        worldPersister = new WorldPersister(entityManager);
+        file = new File(tempFolder.getRoot(), "entities.dat");
+    }
+
+    @Test
+    public void streamRoundTrip() throws Exception {
+        Prefab prefab = entityManager.getPrefabManager().createPrefab("Test");
+        prefab.setComponent(new StringComponent("Prefab"));
+        EntityRef fromPrefab = entityManager.create(prefab);
+        fromPrefab.addComponent(new IntegerComponent(2));
+        EntityRef plain = entityManager.create(new StringComponent("Plain"));
+        EntityRef notPersisted = entityManager.create(new IntegerComponent(3));
+        notPersisted.setPersisted(false);
+
+        worldPersister.saveStream(file, false).get();
+        worldPersister.loadStream(file);
+
+        EntityRef loadedFromPrefab = entityManager.createEntityRefWithId(fromPrefab.getId());
+        assertEquals("Prefab", loadedFromPrefab.getComponent(StringComponent.class).value);
+        assertEquals(2, loadedFromPrefab.getComponent(IntegerComponent.class).value);
+        assertEquals("Plain", entityManager.createEntityRefWithId(plain.getId()).getComponent(StringComponent.class).value);
+        assertFalse(entityManager.createEntityRefWithId(notPersisted.getId()).exists());
+        assertTrue(entityManager.getFreedIds().contains(notPersisted.getId()));
+    }
+
+    @Test
+    public void streamSaveCopiesEntities() throws Exception {
+        EntityRef entity = entityManager.create(new StringComponent("Before"));
+
+        Future<?> save = worldPersister.saveStream(file, false);
+        StringComponent component = entity.getComponent(StringComponent.class);
+        component.value = "After";
+        entity.saveComponent(component);
+        save.get();
+
+        worldPersister.loadStream(file);
+        assertEquals("Before", entityManager.createEntityRefWithId(entity.getId()).getComponent(StringComponent.class).value);
+    }
+
+    @Test
+    public void deltaSaveKeepsUnchangedEntities() throws Exception {
+        EntityRef unchanged = entityManager.create(new StringComponent("Unchanged"));
+        EntityRef changed = entityManager.create(new StringComponent("Before"));
+        EntityRef destroyed = entityManager.create(new StringComponent("Destroyed"));
+        worldPersister.saveStream(file, false).get();
+
+        StringComponent component = changed.getComponent(StringComponent.class);
+        component.value = "After";
+        changed.saveComponent(component);
+        int destroyedId = destroyed.getId();
+        destroyed.destroy();
+        EntityRef created = entityManager.create(new IntegerComponent(4));
+        worldPersister.saveStream(file, true).get();
+
+        worldPersister.loadStream(file);
+        assertEquals("Unchanged", entityManager.createEntityRefWithId(unchanged.getId()).getComponent(StringComponent.class).value);
+        assertEquals("After", entityManager.createEntityRefWithId(changed.getId()).getComponent(StringComponent.class).value);
+        assertEquals(4, entityManager.createEntityRefWithId(created.getId()).getComponent(IntegerComponent.class).value);
+        if (created.getId() != destroyedId) {
+            assertFalse(entityManager.createEntityRefWithId(destroyedId).hasComponent(StringComponent.class));
+        }
+    }
+
+    @Test
+    public void deltaSaveAfterLoad() throws Exception {
+        EntityRef first = entityManager.create(new StringComponent("First"));
+        EntityRef second = entityManager.create(new StringComponent("Second"));
+        worldPersister.saveStream(file, false).get();
+        worldPersister.loadStream(file);
+
+        EntityRef loadedSecond = entityManager.createEntityRefWithId(second.getId());
+        StringComponent component = loadedSecond.getComponent(StringComponent.class);
+        component.value = "Changed";
+        loadedSecond.saveComponent(component);
+        worldPersister.saveStream(file, true).get();
+        worldPersister.loadStream(file);
+
+        assertEquals("First", entityManager.createEntityRefWithId(first.getId()).getComponent(StringComponent.class).value);
+        assertEquals("Changed", entityManager.createEntityRefWithId(second.getId()).getComponent(StringComponent.class).value);
+    }
+}
@@ -0,0 +1,153 @@
+package org.terasology.entitySystem.pojo;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import gnu.trove.iterator.TIntIterator;
+import gnu.trove.iterator.TIntObjectIterator;
+import gnu.trove.list.TIntList;
+
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.terasology.entitySystem.Component;
+import org.terasology.entitySystem.stubs.IntegerComponent;
+import org.terasology.entitySystem.stubs.StringComponent;
+
+import com.google.common.collect.Lists;
+
+public class ComponentTableTest {
+
+    private ComponentTable table;
+
+    @Before
+    public void setup() {
+        table = new ComponentTable();
+    }
+
+    @Test
+    public void putAndGetComponents() {
+        StringComponent string = new StringComponent("a");
+        IntegerComponent integer = new IntegerComponent();
+        table.put(1, string);
+        table.put(1, integer);
+
+        assertSame(string, table.get(1, StringComponent.class));
+        assertSame(integer, table.get(1, IntegerComponent.class));
+        assertNull(table.get(2, StringComponent.class));
+    }
+
+    @Test
+    public void replaceComponent() {
+        StringComponent first = new StringComponent("a");
+        StringComponent second = new StringComponent("b");
+        assertNull(table.put(1, first));
+        assertSame(first, table.put(1, second));
+        assertSame(second, table.get(1, StringComponent.class));
+        assertEquals(1, table.getComponentCount(StringComponent.class));
+    }
+
+    @Test
+    public void removeComponentKeepsOthers() {
+        StringComponent string = new StringComponent("a");
+        IntegerComponent integer = new IntegerComponent();
+        table.put(1, string);
+        table.put(1, integer);
+
+        assertSame(integer, table.remove(1, IntegerComponent.class));
+        assertNull(table.get(1, IntegerComponent.class));
+        assertSame(string, table.get(1, StringComponent.class));
+        assertEquals(1, table.numEntities());
+    }
+
+    @Test
+    public void entityWithoutComponentsIsRemoved() {
+        table.put(1, new StringComponent("a"));
+        table.remove(1, StringComponent.class);
+
+        assertEquals(0, table.numEntities());
+        assertFalse(table.entityIdIterator().hasNext());
+    }
+
+    @Test
+    public void removingEntityKeepsOtherEntitiesOfArchetype() {
+        for (int id = 1; id <= 3; ++id) {
+            table.put(id, new StringComponent(Integer.toString(id)));
+        }
+        table.remove(1);
+
+        assertEquals(2, table.numEntities());
+        assertNull(table.get(1, StringComponent.class));
+        assertEquals("2", table.get(2, StringComponent.class).value);
+        assertEquals("3", table.get(3, StringComponent.class).value);
+    }
+
+    @Test
+    public void iterateComponentsOfEntity() {
+        StringComponent string = new StringComponent("a");
+        IntegerComponent integer = new IntegerComponent();
+        table.put(1, string);
+        table.put(1, integer);
+        table.put(2, new StringComponent("b"));
+
+        List<Component> components = Lists.newArrayList(table.iterateComponents(1));
+        assertEquals(2, components.size());
+        assertTrue(components.contains(string));
+        assertTrue(components.contains(integer));
+    }
+
+    @Test
+    public void componentIteratorCoversAllArchetypes() {
+        table.put(1, new StringComponent("1"));
+        table.put(2, new StringComponent("2"));
+        table.put(2, new IntegerComponent());
+        table.put(3, new IntegerComponent());
+
+        TIntObjectIterator<StringComponent> iterator = table.componentIterator(StringComponent.class);
+        List<Integer> ids = Lists.newArrayList();
+        while (iterator.hasNext()) {
+            iterator.advance();
+            assertEquals(Integer.toString(iterator.key()), iterator.value().value);
+            ids.add(iterator.key());
+        }
+        assertEquals(2, ids.size());
+        assertTrue(ids.contains(1));
+        assertTrue(ids.contains(2));
+        assertEquals(2, table.getComponentCount(StringComponent.class));
+    }
+
+    @Test
+    public void entityIdsWithAllComponents() {
+        table.put(1, new StringComponent("1"));
+        table.put(2, new StringComponent("2"));
+        table.put(2, new IntegerComponent());
+        table.put(3, new IntegerComponent());
+        table.put(3, new StringComponent("3"));
+
+        TIntList ids = table.getEntityIdsWith(StringComponent.class, IntegerComponent.class);
+        assertEquals(2, ids.size());
+        assertTrue(ids.contains(2));
+        assertTrue(ids.contains(3));
+    }
+
+    @Test
+    public void entityIdIteratorListsEachEntityOnce() {
+        table.put(1, new StringComponent("1"));
+        table.put(1, new IntegerComponent());
+        table.put(5000, new IntegerComponent());
+
+        TIntIterator iterator = table.entityIdIterator();
+        List<Integer> ids = Lists.newArrayList();
+        while (iterator.hasNext()) {
+            ids.add(iterator.next());
+        }
+        assertEquals(2, ids.size());
+        assertTrue(ids.contains(1));
+        assertTrue(ids.contains(5000));
+        assertEquals(2, table.numEntities());
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright 2012 Benjamin Glatzel <benjamin.glatzel@me.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terasology.entitySystem.pojo;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.lang.reflect.Method;
+
+import org.junit.Test;
+import org.terasology.entitySystem.AbstractEvent;
+import org.terasology.entitySystem.EntityRef;
+import org.terasology.entitySystem.Event;
+import org.terasology.entitySystem.EventHandlerSystem;
+import org.terasology.entitySystem.EventReceiver;
+
+public class EventHandlerInvokerGeneratorTest {
+
+    @Test
+    public void invokerCallsHandlerMethod() throws Exception {
+        TestHandler handler = new TestHandler();
+        EventReceiver<Event> invoker = EventHandlerInvokerGenerator.createInvoker(handler, TestHandler.class.getMethod("onPublicEvent", PublicEvent.class, EntityRef.class));
+        assertNotNull(invoker);
+
+        PublicEvent event = new PublicEvent();
+        invoker.onEvent(event, EntityRef.NULL);
+        assertEquals(1, handler.received);
+        assertSame(event, handler.lastEvent);
+    }
+
+    @Test
+    public void invokerClassReusedForSameMethod() throws Exception {
+        Method method = TestHandler.class.getMethod("onPublicEvent", PublicEvent.class, EntityRef.class);
+        TestHandler first = new TestHandler();
+        TestHandler second = new TestHandler();
+        EventReceiver<Event> firstInvoker = EventHandlerInvokerGenerator.createInvoker(first, method);
+        EventReceiver<Event> secondInvoker = EventHandlerInvokerGenerator.createInvoker(second, method);
+        assertSame(firstInvoker.getClass(), secondInvoker.getClass());
+
+        secondInvoker.onEvent(new PublicEvent(), EntityRef.NULL);
+        assertEquals(0, first.received);
+        assertEquals(1, second.received);
+    }
+
+    @Test
+    public void noInvokerForInvisibleEvent() throws Exception {
+        TestHandler handler = new TestHandler();
+        assertNull(EventHandlerInvokerGenerator.createInvoker(handler, TestHandler.class.getMethod("onPrivateEvent", PrivateEvent.class, EntityRef.class)));
+    }
+
+    public static class PublicEvent extends AbstractEvent {
+    }
+
+    private static class PrivateEvent extends AbstractEvent {
+    }
+
+    public static class TestHandler implements EventHandlerSystem {
+        private int received;
+        private Event lastEvent;
+
+        public void onPublicEvent(PublicEvent event, EntityRef entity) {
+            received++;
+            lastEvent = event;
+        }
+
+        public void onPrivateEvent(PrivateEvent event, EntityRef entity) {
+            received++;
+        }
+
+        @Override
+        public void initialise() {
+        }
+
+        @Override
+        public void shutdown() {
+        }
+    }
+}
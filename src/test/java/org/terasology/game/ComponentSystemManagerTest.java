@@ -0,0 +1,85 @@
+/*
+ * Copyright 2012 Benjamin Glatzel <benjamin.glatzel@me.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terasology.game;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.Field;
+import java.util.Collections;
+import java.util.Set;
+
+import org.junit.Test;
+import org.terasology.entitySystem.ComponentSystem;
+import org.terasology.entitySystem.EntityManager;
+import org.terasology.entitySystem.In;
+import org.terasology.logic.mod.ModManager;
+
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.SetMultimap;
+import com.google.common.collect.Sets;
+
+public class ComponentSystemManagerTest {
+
+    @Test
+    public void unindexedSystemFieldsAreReflected() throws Exception {
+        Set<Class<?>> indexedSystems = Collections.emptySet();
+        SetMultimap<Class<?>, Field> indexedFields = HashMultimap.create();
+
+        Set<Field> fields = Sets.newHashSet(ComponentSystemManager.getInjectedFields(DerivedSystem.class, indexedSystems, indexedFields));
+        assertEquals(ImmutableSet.of(BaseSystem.class.getDeclaredField("entityManager"), DerivedSystem.class.getDeclaredField("modManager")), fields);
+    }
+
+    @Test
+    public void indexedSystemFieldsComeFromIndex() throws Exception {
+        Set<Class<?>> indexedSystems = ImmutableSet.<Class<?>>of(DerivedSystem.class);
+        SetMultimap<Class<?>, Field> indexedFields = HashMultimap.create();
+        indexedFields.put(BaseSystem.class, BaseSystem.class.getDeclaredField("entityManager"));
+
+        Set<Field> fields = Sets.newHashSet(ComponentSystemManager.getInjectedFields(DerivedSystem.class, indexedSystems, indexedFields));
+        // Only the fields in the index are used, including those of super classes
+        assertEquals(ImmutableSet.of(BaseSystem.class.getDeclaredField("entityManager")), fields);
+    }
+
+    @Test
+    public void indexedSystemWithoutFields() {
+        Set<Class<?>> indexedSystems = ImmutableSet.<Class<?>>of(DerivedSystem.class);
+        SetMultimap<Class<?>, Field> indexedFields = HashMultimap.create();
+
+        assertTrue(ComponentSystemManager.getInjectedFields(DerivedSystem.class, indexedSystems, indexedFields).isEmpty());
+    }
+
+    public static class BaseSystem implements ComponentSystem {
+        @In
+        private EntityManager entityManager;
+
+        private String notInjected;
+
+        @Override
+        public void initialise() {
+        }
+
+        @Override
+        public void shutdown() {
+        }
+    }
+
+    public static class DerivedSystem extends BaseSystem {
+        @In
+        private ModManager modManager;
+    }
+}
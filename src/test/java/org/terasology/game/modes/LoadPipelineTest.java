@@ -0,0 +1,196 @@
+/*
+ * Copyright 2012 Benjamin Glatzel <benjamin.glatzel@me.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terasology.game.modes;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+
+public class LoadPipelineTest {
+
+    private static final long TIMEOUT_MILLIS = 10000;
+
+    private LoadPipeline pipeline;
+    private List<String> log;
+
+    @Before
+    public void setup() {
+        pipeline = new LoadPipeline();
+        log = Collections.synchronizedList(Lists.<String>newArrayList());
+    }
+
+    @After
+    public void teardown() {
+        pipeline.dispose();
+    }
+
+    @Test
+    public void processesWithoutInfoRunInOrderOnCallingThread() {
+        First first = new First(log, 3);
+        Second second = new Second(log, 2);
+        pipeline.add(first);
+        pipeline.add(second);
+        runToCompletion();
+
+        assertEquals(Lists.newArrayList("First", "First", "First", "Second", "Second"), log);
+        assertSame(Thread.currentThread(), first.thread);
+        assertSame(Thread.currentThread(), second.thread);
+    }
+
+    @Test
+    public void workerProcessRunsOnOtherThread() {
+        pipeline.add(new First(log, 1));
+        Worker worker = new Worker(log, 5);
+        pipeline.add(worker);
+        GLAfterFirst gl = new GLAfterFirst(log, 5);
+        pipeline.add(gl);
+        Second second = new Second(log, 1);
+        pipeline.add(second);
+        runToCompletion();
+
+        assertNotSame(Thread.currentThread(), worker.thread);
+        assertSame(Thread.currentThread(), gl.thread);
+        assertEquals("First", log.get(0));
+        assertEquals("Second", log.get(log.size() - 1));
+        assertEquals(12, log.size());
+    }
+
+    @Test
+    public void dependenciesFinishBeforeDependentBegins() {
+        pipeline.add(new First(log, 1));
+        pipeline.add(new Worker(log, 3));
+        pipeline.add(new GLAfterWorker(log, 1));
+        runToCompletion();
+
+        assertEquals(Lists.newArrayList("First", "Worker", "Worker", "Worker", "GLAfterWorker"), log);
+    }
+
+    @Test
+    public void processWithoutStepsIsSkipped() {
+        First first = new First(log, 0);
+        pipeline.add(first);
+        pipeline.add(new Second(log, 1));
+        runToCompletion();
+
+        assertEquals(Lists.newArrayList("Second"), log);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void dependencyMustBeAddedFirst() {
+        pipeline.add(new Worker(log, 1));
+    }
+
+    @Test
+    public void workerFailureIsRethrown() {
+        pipeline.add(new First(log, 1));
+        pipeline.add(new Worker(log, -1));
+        try {
+            runToCompletion();
+            fail("Expected the failure of the worker process");
+        } catch (RuntimeException e) {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+        assertFalse(pipeline.isFinished());
+    }
+
+    private void runToCompletion() {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        while (!pipeline.isFinished()) {
+            if (System.currentTimeMillis() > deadline) {
+                fail("Load pipeline did not finish");
+            }
+            pipeline.update(5);
+        }
+    }
+
+    private abstract static class CountingProcess implements LoadProcess {
+        private final List<String> log;
+        private final int steps;
+        private int remaining;
+        volatile Thread thread;
+
+        CountingProcess(List<String> log, int steps) {
+            this.log = log;
+            this.steps = steps;
+        }
+
+        @Override
+        public String getMessage() {
+            return getClass().getSimpleName();
+        }
+
+        @Override
+        public int begin() {
+            thread = Thread.currentThread();
+            remaining = steps;
+            return steps;
+        }
+
+        @Override
+        public boolean step() {
+            if (remaining < 0) {
+                throw new IllegalStateException("Failed");
+            }
+            log.add(getMessage());
+            return --remaining == 0;
+        }
+    }
+
+    private static class First extends CountingProcess {
+        First(List<String> log, int steps) {
+            super(log, steps);
+        }
+    }
+
+    private static class Second extends CountingProcess {
+        Second(List<String> log, int steps) {
+            super(log, steps);
+        }
+    }
+
+    @LoadProcessInfo(dependsOn = First.class, requiresGLThread = false)
+    private static class Worker extends CountingProcess {
+        Worker(List<String> log, int steps) {
+            super(log, steps);
+        }
+    }
+
+    @LoadProcessInfo(dependsOn = First.class)
+    private static class GLAfterFirst extends CountingProcess {
+        GLAfterFirst(List<String> log, int steps) {
+            super(log, steps);
+        }
+    }
+
+    @LoadProcessInfo(dependsOn = Worker.class)
+    private static class GLAfterWorker extends CountingProcess {
+        GLAfterWorker(List<String> log, int steps) {
+            super(log, steps);
+        }
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright 2012 Benjamin Glatzel <benjamin.glatzel@me.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terasology.game.modes;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+import org.terasology.config.Config;
+import org.terasology.game.CoreRegistry;
+import org.terasology.game.GameEngine;
+import org.terasology.game.HeadlessEngine;
+import org.terasology.logic.manager.PathManager;
+import org.terasology.math.Vector3i;
+import org.terasology.world.WorldInfo;
+import org.terasology.world.chunks.Chunk;
+import org.terasology.world.chunks.ChunkListener;
+import org.terasology.world.generator.core.PerlinTerrainGenerator;
+
+/**
+ * Runs the headless world simulation for a few ticks.
+ */
+public class StateHeadlessTest {
+
+    private static final int TICKS = 100;
+    // Chunks are ready once their neighbours are complete, which takes chunks produced five deep around the player
+    private static final int VIEWING_DISTANCE = 6;
+    private static final long TIMEOUT_MS = 60000;
+
+    @Test
+    public void chunksBecomeReady() {
+        PathManager.getInstance().determineRootPath(true);
+        HeadlessEngine engine = new HeadlessEngine(16);
+        engine.init();
+        String[] chunkGenerators = {PerlinTerrainGenerator.class.getName()};
+        WorldInfo worldInfo = new WorldInfo("Headless", "Terasology", 0, chunkGenerators, null, CoreRegistry.get(Config.class).getDefaultModConfig());
+
+        TickingState state = new TickingState(new StateHeadless(worldInfo, VIEWING_DISTANCE));
+        engine.run(state);
+        engine.dispose();
+
+        assertTrue(engine.getTickCount() >= TICKS);
+        assertTrue(state.chunksReady.get() > 0);
+        assertEquals(0, engine.getActiveTaskCount());
+    }
+
+    /**
+     * Updates the world for the given number of ticks, and on until the first chunk is ready
+     */
+    private static class TickingState implements GameState, ChunkListener {
+        private final StateHeadless world;
+        private final AtomicInteger chunksReady = new AtomicInteger();
+
+        private GameEngine engine;
+        private int ticks;
+        private long deadline;
+
+        public TickingState(StateHeadless world) {
+            this.world = world;
+        }
+
+        @Override
+        public void init(GameEngine engine) {
+            this.engine = engine;
+            world.init(engine);
+            world.getChunkProvider().addChunkListener(this);
+            deadline = System.currentTimeMillis() + TIMEOUT_MS;
+        }
+
+        @Override
+        public void dispose() {
+            world.getChunkProvider().removeChunkListener(this);
+            world.dispose();
+        }
+
+        @Override
+        public void handleInput(float delta) {
+        }
+
+        @Override
+        public void update(float delta) {
+            world.update(delta);
+            ticks++;
+            if (ticks >= TICKS && (chunksReady.get() > 0 || System.currentTimeMillis() > deadline)) {
+                engine.shutdown();
+            }
+        }
+
+        @Override
+        public void render() {
+        }
+
+        @Override
+        public void onChunkReady(Vector3i pos, Chunk chunk) {
+            chunksReady.incrementAndGet();
+        }
+
+        @Override
+        public void onChunkUnloaded(Vector3i pos) {
+        }
+    }
+}
@@ -0,0 +1,177 @@
+/*
+ * Copyright 2012 Benjamin Glatzel <benjamin.glatzel@me.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terasology.logic.mod;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.Collections;
+import java.util.Set;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.reflections.Reflections;
+import org.terasology.entitySystem.ComponentSystem;
+import org.terasology.entitySystem.In;
+import org.terasology.entitySystem.RegisterComponentSystem;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.io.ByteStreams;
+import com.google.common.io.Files;
+
+public class ReflectionsIndexTest {
+
+    private File classesDir;
+    private URL root;
+
+    @Before
+    public void setup() throws IOException {
+        classesDir = Files.createTempDir();
+        root = classesDir.toURI().toURL();
+    }
+
+    @After
+    public void teardown() {
+        delete(classesDir);
+    }
+
+    @Test
+    public void missingIndexIsStale() throws IOException {
+        copyClass(FirstSystem.class);
+        assertTrue(ReflectionsIndex.isStale(root));
+    }
+
+    @Test
+    public void indexIsStaleWhenClassesAreNewer() throws IOException {
+        File classFile = copyClass(FirstSystem.class);
+        File indexFile = createIndex();
+        assertFalse(ReflectionsIndex.isStale(root));
+
+        assertTrue(classFile.setLastModified(indexFile.lastModified() + 2000));
+        assertTrue(ReflectionsIndex.isStale(root));
+    }
+
+    @Test
+    public void scansWithoutIndex() throws IOException {
+        copyClass(FirstSystem.class);
+        copyClass(SecondSystem.class);
+        assertEquals(ImmutableSet.of(FirstSystem.class, SecondSystem.class), getSystems());
+    }
+
+    @Test
+    public void readsUpToDateIndex() throws IOException {
+        File classFile = copyClass(FirstSystem.class);
+        createIndex();
+        // A scan would no longer find the system
+        assertTrue(classFile.delete());
+
+        assertEquals(ImmutableSet.of(FirstSystem.class), getSystems());
+        assertEquals(1, getReflections().getFieldsAnnotatedWith(In.class).size());
+    }
+
+    @Test
+    public void scansWhenIndexIsStale() throws IOException {
+        copyClass(FirstSystem.class);
+        File indexFile = createIndex();
+        File classFile = copyClass(SecondSystem.class);
+        assertTrue(classFile.setLastModified(indexFile.lastModified() + 2000));
+
+        assertEquals(ImmutableSet.of(FirstSystem.class, SecondSystem.class), getSystems());
+    }
+
+    @Test
+    public void scansWhenIndexIsInvalid() throws IOException {
+        copyClass(FirstSystem.class);
+        File indexFile = new File(classesDir, ReflectionsIndex.INDEX_FILE);
+        Files.createParentDirs(indexFile);
+        Files.write("not an index".getBytes("UTF-8"), indexFile);
+        assertTrue(indexFile.setLastModified(System.currentTimeMillis() + 2000));
+
+        assertEquals(ImmutableSet.of(FirstSystem.class), getSystems());
+    }
+
+    private Reflections getReflections() {
+        return ReflectionsIndex.forRoots(Collections.singleton(root), getClass().getClassLoader());
+    }
+
+    private Set<Class<?>> getSystems() {
+        return getReflections().getTypesAnnotatedWith(RegisterComponentSystem.class);
+    }
+
+    private File createIndex() throws IOException {
+        ReflectionsIndex.main(new String[]{classesDir.getPath()});
+        File indexFile = new File(classesDir, ReflectionsIndex.INDEX_FILE);
+        assertTrue(indexFile.isFile());
+        // File times may only have a resolution of seconds
+        assertTrue(indexFile.setLastModified(indexFile.lastModified() + 2000));
+        return indexFile;
+    }
+
+    private File copyClass(Class<?> type) throws IOException {
+        String path = type.getName().replace('.', '/') + ".class";
+        File classFile = new File(classesDir, path);
+        Files.createParentDirs(classFile);
+        InputStream in = type.getClassLoader().getResourceAsStream(path);
+        try {
+            Files.write(ByteStreams.toByteArray(in), classFile);
+        } finally {
+            in.close();
+        }
+        assertTrue(classFile.setLastModified(System.currentTimeMillis() - 60000));
+        return classFile;
+    }
+
+    private static void delete(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+
+    @RegisterComponentSystem
+    public static class FirstSystem implements ComponentSystem {
+        @In
+        private ModManager modManager;
+
+        @Override
+        public void initialise() {
+        }
+
+        @Override
+        public void shutdown() {
+        }
+    }
+
+    @RegisterComponentSystem
+    public static class SecondSystem implements ComponentSystem {
+        @Override
+        public void initialise() {
+        }
+
+        @Override
+        public void shutdown() {
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package org.terasology.performanceMonitor.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.StringWriter;
+
+import org.junit.Test;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+public class PerformanceMonitorImplTest {
+
+    private static final int OUTER = ActivityRegistry.register("PerformanceMonitorImplTest Outer");
+    private static final int INNER = ActivityRegistry.register("PerformanceMonitorImplTest Inner");
+    private static final int WORKER = ActivityRegistry.register("PerformanceMonitorImplTest Worker");
+
+    @Test
+    public void registeringIsIdempotent() {
+        assertEquals(OUTER, ActivityRegistry.register("PerformanceMonitorImplTest Outer"));
+        assertEquals("PerformanceMonitorImplTest Inner", ActivityRegistry.getName(INNER));
+    }
+
+    @Test
+    public void nestedActivityTimeIsNotAssignedToOuterActivity() throws InterruptedException {
+        PerformanceMonitorImpl monitor = new PerformanceMonitorImpl();
+        monitor.startActivity(OUTER);
+        monitor.startActivity(INNER);
+        Thread.sleep(50);
+        monitor.endActivity();
+        monitor.endActivity();
+        monitor.rollCycle();
+
+        double outer = monitor.getRunningMean().get("PerformanceMonitorImplTest Outer");
+        double inner = monitor.getRunningMean().get("PerformanceMonitorImplTest Inner");
+        assertTrue(inner >= 50);
+        assertTrue(outer < inner);
+        assertEquals(inner, monitor.getDecayingSpikes().get("PerformanceMonitorImplTest Inner"), 0.001);
+    }
+
+    @Test
+    public void activitiesOfOtherThreadsAreCollected() throws InterruptedException {
+        final PerformanceMonitorImpl monitor = new PerformanceMonitorImpl();
+        Thread worker = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                monitor.startActivity(WORKER);
+                monitor.endActivity();
+            }
+        });
+        worker.start();
+        worker.join();
+        monitor.rollCycle();
+
+        assertTrue(monitor.getRunningMean().containsKey("PerformanceMonitorImplTest Worker"));
+    }
+
+    @Test
+    public void unmatchedEndIsIgnored() {
+        PerformanceMonitorImpl monitor = new PerformanceMonitorImpl();
+        monitor.endActivity();
+        monitor.rollCycle();
+
+        assertTrue(monitor.getRunningMean().isEmpty());
+    }
+
+    @Test
+    public void traceContainsEventsOfEachThread() throws Exception {
+        final PerformanceMonitorImpl monitor = new PerformanceMonitorImpl();
+        monitor.startActivity(OUTER);
+        monitor.endActivity();
+        Thread worker = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                monitor.startThread("Worker Task");
+                monitor.startActivity(WORKER);
+                monitor.endActivity();
+                monitor.endThread("Worker Task");
+            }
+        }, "Worker");
+        worker.start();
+        worker.join();
+
+        StringWriter writer = new StringWriter();
+        monitor.writeTrace(writer);
+        JsonArray events = new JsonParser().parse(writer.toString()).getAsJsonObject().getAsJsonArray("traceEvents");
+
+        assertEquals(6, events.size());
+        boolean workerNamed = false;
+        int mainThreadBegins = 0;
+        for (JsonElement element : events) {
+            JsonObject event = element.getAsJsonObject();
+            String phase = event.get("ph").getAsString();
+            if (phase.equals("M")) {
+                workerNamed |= event.getAsJsonObject("args").get("name").getAsString().equals("Worker Task (Worker)");
+            } else if (phase.equals("B") && event.get("tid").getAsInt() == 1) {
+                assertEquals("PerformanceMonitorImplTest Outer", event.get("name").getAsString());
+                mainThreadBegins++;
+            } else {
+                assertFalse(event.get("ts").getAsDouble() < 0);
+            }
+        }
+        assertTrue(workerNamed);
+        assertEquals(1, mainThreadBegins);
+    }
+}
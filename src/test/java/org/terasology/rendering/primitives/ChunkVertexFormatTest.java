@@ -0,0 +1,82 @@
+package org.terasology.rendering.primitives;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import org.junit.Test;
+import org.terasology.math.Side;
+import org.terasology.math.Vector3i;
+
+public class ChunkVertexFormatTest {
+
+    @Test
+    public void vertexSizeMatchesWrittenBytes() {
+        for (ChunkVertexFormat format : ChunkVertexFormat.values()) {
+            ByteBuffer buffer = ByteBuffer.allocate(2 * format.getVertexSize());
+            putVertex(format, buffer, 1, 2, 3, 0.5f, 0.25f, 1, 0, 1, 0);
+            assertEquals(format.getVertexSize(), buffer.position());
+        }
+    }
+
+    @Test
+    public void compactPositionsAreFixedPoint() {
+        ByteBuffer buffer = ByteBuffer.allocate(ChunkVertexFormat.COMPACT.getVertexSize()).order(ByteOrder.nativeOrder());
+        putVertex(ChunkVertexFormat.COMPACT, buffer, 15.5f, 255.5f, -0.5f, 0, 0, 1, 0, 1, 0);
+        assertEquals(15.5f * ChunkVertexFormat.POSITION_SCALE, buffer.getShort(0), 0);
+        assertEquals(255.5f * ChunkVertexFormat.POSITION_SCALE, buffer.getShort(2), 0);
+        assertEquals(-0.5f * ChunkVertexFormat.POSITION_SCALE, buffer.getShort(4), 0);
+    }
+
+    @Test
+    public void compactAtlasTileCornersAreExact() {
+        ByteBuffer buffer = ByteBuffer.allocate(ChunkVertexFormat.COMPACT.getVertexSize()).order(ByteOrder.nativeOrder());
+        putVertex(ChunkVertexFormat.COMPACT, buffer, 0, 0, 0, 3 * 0.0625f, 15 * 0.0625f, 1, 0, 1, 0);
+        assertEquals(3 * 0.0625f, buffer.getShort(8) / ChunkVertexFormat.TEX_COORD_SCALE, 0);
+        assertEquals(15 * 0.0625f, buffer.getShort(10) / ChunkVertexFormat.TEX_COORD_SCALE, 0);
+        assertEquals(1, buffer.getShort(12));
+    }
+
+    @Test
+    public void compactMergedQuadTexCoordsAreKept() {
+        ByteBuffer buffer = ByteBuffer.allocate(ChunkVertexFormat.COMPACT.getVertexSize()).order(ByteOrder.nativeOrder());
+        putVertex(ChunkVertexFormat.COMPACT, buffer, 0, 0, 0, 12, 200, -42, 0, 1, 0);
+        assertEquals(12, buffer.getShort(8));
+        assertEquals(200, buffer.getShort(10));
+        assertEquals(-42, buffer.getShort(12));
+    }
+
+    @Test
+    public void sideNormalsAreEncodedAsSide() {
+        for (Side side : Side.values()) {
+            Vector3i normal = side.getVector3i();
+            assertEquals(side.ordinal(), ChunkVertexFormat.encodeNormal(normal.x, normal.y, normal.z));
+        }
+    }
+
+    @Test
+    public void otherNormalsAreQuantized() {
+        float[][] normals = {{0.7071f, 0, 0.7071f}, {-0.62f, 0.47f, 0.62f}, {0.19f, 0.13f, -0.97f}};
+        for (float[] normal : normals) {
+            int code = ChunkVertexFormat.encodeNormal(normal[0], normal[1], normal[2]);
+            assertTrue(code >= ChunkVertexFormat.FIRST_QUANTIZED_NORMAL);
+
+            // Decoded like the chunk shader does
+            int quantized = code - ChunkVertexFormat.FIRST_QUANTIZED_NORMAL;
+            float step = 2.0f / (ChunkVertexFormat.NORMAL_STEPS - 1);
+            float z = quantized % ChunkVertexFormat.NORMAL_STEPS * step - 1;
+            quantized /= ChunkVertexFormat.NORMAL_STEPS;
+            float y = quantized % ChunkVertexFormat.NORMAL_STEPS * step - 1;
+            float x = quantized / ChunkVertexFormat.NORMAL_STEPS * step - 1;
+            assertEquals(normal[0], x, step);
+            assertEquals(normal[1], y, step);
+            assertEquals(normal[2], z, step);
+        }
+    }
+
+    private void putVertex(ChunkVertexFormat format, ByteBuffer buffer, float x, float y, float z, float u, float v, float w, float normalX, float normalY, float normalZ) {
+        format.putVertex(buffer, x, y, z, u, v, w, 1, 0.5f, 0.25f, 1, 1, 1, 1, normalX, normalY, normalZ);
+    }
+}
@@ -0,0 +1,220 @@
+/*
+ * Copyright 2012 Benjamin Glatzel <benjamin.glatzel@me.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terasology.rendering.primitives;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.util.Map;
+
+import javax.vecmath.Vector2f;
+import javax.vecmath.Vector3f;
+import javax.vecmath.Vector4f;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.terasology.config.Config;
+import org.terasology.game.CoreRegistry;
+import org.terasology.math.Region3i;
+import org.terasology.math.Side;
+import org.terasology.math.Vector3i;
+import org.terasology.world.WorldView;
+import org.terasology.world.block.Block;
+import org.terasology.world.block.shapes.BlockMeshPart;
+import org.terasology.world.chunks.Chunk;
+
+import com.google.common.collect.Maps;
+
+public class GreedyMeshBuilderTest {
+
+    private static final Region3i CHUNK_REGION = Region3i.createFromCenterExtents(new Vector3i(0, 0, 0), new Vector3i(1, 0, 1));
+    private static final Vector3i OFFSET = new Vector3i(1, 0, 1);
+    private static final int SLAB_Y = 10;
+    private static final Vector4f WHITE = new Vector4f(1, 1, 1, 1);
+
+    private WorldView view;
+    private GreedyMeshBuilder builder;
+    private Map<Side, BlockMeshPart> stoneParts = Maps.newEnumMap(Side.class);
+    private Map<Side, BlockMeshPart> dirtParts = Maps.newEnumMap(Side.class);
+
+    @Before
+    public void setup() {
+        CoreRegistry.put(Config.class, new Config());
+        Chunk[] chunks = new Chunk[CHUNK_REGION.size().x * CHUNK_REGION.size().z];
+        for (Vector3i chunkPos : CHUNK_REGION) {
+            chunks[(chunkPos.x + OFFSET.x) + CHUNK_REGION.size().x * (chunkPos.z + OFFSET.z)] = new Chunk(chunkPos);
+        }
+        view = new WorldView(chunks, CHUNK_REGION, OFFSET);
+        for (Side side : Side.values()) {
+            stoneParts.put(side, createFacePart(side, 1));
+            dirtParts.put(side, createFacePart(side, 2));
+        }
+        builder = new GreedyMeshBuilder();
+        builder.begin(0, Chunk.SIZE_Y);
+    }
+
+    @Test
+    public void flatSlabGivesOneQuadPerSide() {
+        for (int z = 0; z < Chunk.SIZE_Z; ++z) {
+            for (int x = 0; x < Chunk.SIZE_X; ++x) {
+                addFace(stoneParts, Side.TOP, x, z);
+                addFace(stoneParts, Side.BOTTOM, x, z);
+            }
+        }
+        for (int i = 0; i < Chunk.SIZE_X; ++i) {
+            addFace(stoneParts, Side.LEFT, 0, i);
+            addFace(stoneParts, Side.RIGHT, Chunk.SIZE_X - 1, i);
+            addFace(stoneParts, Side.FRONT, i, 0);
+            addFace(stoneParts, Side.BACK, i, Chunk.SIZE_Z - 1);
+        }
+        builder.mergeFaces();
+        assertEquals(6, builder.getQuadCount(0));
+    }
+
+    @Test
+    public void mergedQuadCoversAllFaces() {
+        addTopLayer();
+        builder.mergeFaces();
+        assertEquals(1, builder.getQuadCount(0));
+
+        ChunkVertexFormat format = ChunkVertexFormat.FLOAT;
+        ByteBuffer vertices = ByteBuffer.allocate(4 * format.getVertexSize()).order(ByteOrder.nativeOrder());
+        IntBuffer indices = IntBuffer.allocate(6);
+        builder.writeQuads(0, 0, format, vertices, indices);
+        assertFalse(vertices.hasRemaining());
+        assertFalse(indices.hasRemaining());
+
+        for (int v = 0; v < 4; ++v) {
+            int offset = v * format.getVertexSize();
+            float x = vertices.getFloat(offset);
+            float y = vertices.getFloat(offset + 4);
+            float z = vertices.getFloat(offset + 8);
+            assertTrue(x == -0.5f || x == Chunk.SIZE_X - 0.5f);
+            assertEquals(SLAB_Y + 0.5f, y, 0.0001f);
+            assertTrue(z == -0.5f || z == Chunk.SIZE_Z - 0.5f);
+            // Merged quads repeat their tile, the tile coordinates count blocks
+            float u = vertices.getFloat(offset + 12);
+            float w = vertices.getFloat(offset + 20);
+            assertTrue(u == 0 || u == Chunk.SIZE_X);
+            assertTrue(w < 0);
+        }
+    }
+
+    @Test
+    public void holeSplitsQuad() {
+        for (int z = 0; z < Chunk.SIZE_Z; ++z) {
+            for (int x = 0; x < Chunk.SIZE_X; ++x) {
+                if (x != 5 || z != 5) {
+                    addFace(stoneParts, Side.TOP, x, z);
+                }
+            }
+        }
+        builder.mergeFaces();
+        // The rows before the hole, the faces before and after the hole down to the last row, and the faces below it
+        assertEquals(4, builder.getQuadCount(0));
+    }
+
+    @Test
+    public void differentBlocksAreNotMerged() {
+        for (int z = 0; z < Chunk.SIZE_Z; ++z) {
+            for (int x = 0; x < Chunk.SIZE_X; ++x) {
+                addFace((z % 2 == 0) ? stoneParts : dirtParts, Side.TOP, x, z);
+            }
+        }
+        builder.mergeFaces();
+        assertEquals(Chunk.SIZE_Z, builder.getQuadCount(0));
+    }
+
+    @Test
+    public void differentColorsAreNotMerged() {
+        Vector4f green = new Vector4f(0.5f, 1, 0.5f, 1);
+        for (int z = 0; z < Chunk.SIZE_Z; ++z) {
+            for (int x = 0; x < Chunk.SIZE_X; ++x) {
+                builder.addFace(view, stoneParts.get(Side.TOP), Side.TOP, x, SLAB_Y, z, ((x + z) % 2 == 0) ? WHITE : green, 0);
+            }
+        }
+        builder.mergeFaces();
+        assertEquals(Chunk.SIZE_X * Chunk.SIZE_Z, builder.getQuadCount(0));
+    }
+
+    @Test
+    public void differentLightIsNotMerged() {
+        for (int z = -1; z <= Chunk.SIZE_Z; ++z) {
+            for (int x = -1; x <= Chunk.SIZE_X; ++x) {
+                view.setSunlight(x, SLAB_Y + 1, z, (byte) 15);
+            }
+        }
+        view.setSunlight(5, SLAB_Y + 1, 5, (byte) 10);
+        addTopLayer();
+        builder.mergeFaces();
+        // The faces touching the dimmer block have varying corner light and stay single quads, the faces around them
+        // merge into the rows before, the columns left and right of and the columns below the dimmer faces
+        assertEquals(9 + 4, builder.getQuadCount(0));
+    }
+
+    @Test
+    public void meshBitsAreNotMerged() {
+        for (int z = 0; z < Chunk.SIZE_Z; ++z) {
+            for (int x = 0; x < Chunk.SIZE_X; ++x) {
+                builder.addFace(view, stoneParts.get(Side.TOP), Side.TOP, x, SLAB_Y, z, WHITE, (x < 8) ? 0 : 1);
+            }
+        }
+        builder.mergeFaces();
+        assertEquals(1, builder.getQuadCount(0));
+        assertEquals(1, builder.getQuadCount(1));
+    }
+
+    private void addTopLayer() {
+        for (int z = 0; z < Chunk.SIZE_Z; ++z) {
+            for (int x = 0; x < Chunk.SIZE_X; ++x) {
+                addFace(stoneParts, Side.TOP, x, z);
+            }
+        }
+    }
+
+    private void addFace(Map<Side, BlockMeshPart> parts, Side side, int x, int z) {
+        assertTrue(builder.addFace(view, parts.get(side), side, x, SLAB_Y, z, WHITE, 0));
+    }
+
+    /**
+     * @return A quad covering the given side of a block, textured with the given tile of the first row of the atlas
+     */
+    private static BlockMeshPart createFacePart(Side side, int tile) {
+        Vector3i normal = side.getVector3i();
+        int normalAxis = (normal.x != 0) ? 0 : ((normal.y != 0) ? 1 : 2);
+        int axisA = (normalAxis == 0) ? 1 : 0;
+        int axisB = (normalAxis == 2) ? 1 : 2;
+        float[][] corners = {{-0.5f, -0.5f}, {0.5f, -0.5f}, {0.5f, 0.5f}, {-0.5f, 0.5f}};
+
+        Vector3f[] vertices = new Vector3f[4];
+        Vector3f[] normals = new Vector3f[4];
+        Vector2f[] texCoords = new Vector2f[4];
+        for (int v = 0; v < 4; ++v) {
+            float[] coords = new float[3];
+            coords[normalAxis] = 0.5f * (normal.x + normal.y + normal.z);
+            coords[axisA] = corners[v][0];
+            coords[axisB] = corners[v][1];
+            vertices[v] = new Vector3f(coords);
+            normals[v] = new Vector3f(normal.x, normal.y, normal.z);
+            texCoords[v] = new Vector2f(tile * Block.TEXTURE_OFFSET + (corners[v][0] + 0.5f) * Block.TEXTURE_OFFSET_WIDTH, (corners[v][1] + 0.5f) * Block.TEXTURE_OFFSET_WIDTH);
+        }
+        return new BlockMeshPart(vertices, normals, texCoords, new int[]{0, 1, 2, 0, 2, 3});
+    }
+}
@@ -0,0 +1,96 @@
+package org.terasology.rendering.world;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.terasology.config.Config;
+import org.terasology.game.CoreRegistry;
+import org.terasology.math.Vector3i;
+import org.terasology.world.chunks.Chunk;
+
+public class ChunkProximityRingTest {
+
+    @Before
+    public void setup() {
+        CoreRegistry.put(Config.class, new Config());
+    }
+
+    @Test
+    public void chunksAreOrderedByDistance() {
+        ChunkProximityRing ring = new ChunkProximityRing(4, 0, 0);
+        Chunk far = ready(ring, -2, -2);
+        Chunk near = ready(ring, 0, 0);
+        Chunk middle = ready(ring, 1, 0);
+
+        List<Chunk> chunks = ring.getChunks();
+        assertEquals(3, chunks.size());
+        assertSame(near, chunks.get(0));
+        assertSame(middle, chunks.get(1));
+        assertSame(far, chunks.get(2));
+    }
+
+    @Test
+    public void chunksOutOfViewAreKeptUntilInView() {
+        ChunkProximityRing ring = new ChunkProximityRing(4, 0, 0);
+        Chunk outside = ready(ring, 5, 0);
+        assertTrue(ring.getChunks().isEmpty());
+
+        assertTrue(ring.setCenter(4, 0));
+        assertEquals(1, ring.getChunks().size());
+        assertSame(outside, ring.getChunks().get(0));
+
+        assertFalse(ring.setCenter(4, 0));
+    }
+
+    @Test
+    public void movingTheViewKeepsTheChunksStillInView() {
+        ChunkProximityRing ring = new ChunkProximityRing(4, 0, 0);
+        ready(ring, -2, 0);
+        Chunk kept = ready(ring, 1, 1);
+
+        ring.setCenter(1, 1);
+        assertEquals(1, ring.getChunks().size());
+        assertSame(kept, ring.getChunks().get(0));
+
+        ring.setCenter(-1, 0);
+        assertEquals(1, ring.getChunks().size());
+        assertFalse(ring.getChunks().contains(kept));
+    }
+
+    @Test
+    public void unloadingRemovesTheChunkAndItsNeighbours() {
+        ChunkProximityRing ring = new ChunkProximityRing(6, 0, 0);
+        ready(ring, 0, 0);
+        ready(ring, 1, 1);
+        Chunk kept = ready(ring, 2, 0);
+
+        ring.chunkUnloaded(new Vector3i(0, 0, 0));
+        assertEquals(1, ring.getChunks().size());
+        assertSame(kept, ring.getChunks().get(0));
+        assertEquals(1, ring.getReadyChunkCount());
+    }
+
+    @Test
+    public void changingTheViewingDistanceRefillsTheView() {
+        ChunkProximityRing ring = new ChunkProximityRing(2, 0, 0);
+        ready(ring, 0, 0);
+        ready(ring, 3, 3);
+        assertEquals(1, ring.getChunks().size());
+
+        assertTrue(ring.setViewingDistance(8));
+        assertEquals(2, ring.getChunks().size());
+        assertFalse(ring.setViewingDistance(8));
+    }
+
+    private Chunk ready(ChunkProximityRing ring, int x, int z) {
+        Chunk chunk = new Chunk(x, 0, z);
+        ring.chunkReady(chunk.getPos(), chunk);
+        return chunk;
+    }
+}
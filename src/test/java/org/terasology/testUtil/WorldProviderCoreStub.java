@@ -26,6 +26,7 @@ import org.terasology.world.WorldView;
 import org.terasology.world.block.Block;
 import org.terasology.world.liquid.LiquidData;
 
+import java.util.Arrays;
 import java.util.Map;
 
 /**
@@ -77,12 +78,24 @@ public class WorldProviderCoreStub implements WorldProviderCore {
 
     @Override
     public boolean setBlocks(BlockUpdate... updates) {
-        return false;  //To change body of implemented methods use File | Settings | File Templates.
+        return setBlocks(Arrays.asList(updates));
     }
 
     @Override
     public boolean setBlocks(Iterable<BlockUpdate> updates) {
-        return false;  //To change body of implemented methods use File | Settings | File Templates.
+        Map<Vector3i, Block> pending = Maps.newHashMap();
+        for (BlockUpdate update : updates) {
+            Block current = pending.get(update.getPosition());
+            if (current == null) {
+                current = getBlock(update.getPosition().x, update.getPosition().y, update.getPosition().z);
+            }
+            if (current != update.getOldType()) {
+                return false;
+            }
+            pending.put(update.getPosition(), update.getNewType());
+        }
+        blocks.putAll(pending);
+        return true;
     }
 
     @Override
@@ -0,0 +1,56 @@
+package org.terasology.utilities;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class PerlinNoiseTest {
+
+    private static final double[] XS = {-513.25, -3.5, 0, 0.004, 17.75, 1024.125};
+    private static final double[] YS = {0, 0.25, 4.5, 64.0625, 255.5};
+    private static final double[] ZS = {-0.75, 0, 12.5, 300.01};
+
+    @Test
+    public void latticeMatchesPointSamples() {
+        PerlinNoise noise = new PerlinNoise(42);
+        assertLatticeMatchesPoints(noise);
+    }
+
+    @Test
+    public void latticeUsesChangedOctaves() {
+        PerlinNoise noise = new PerlinNoise(42);
+        noise.setOctaves(3);
+        assertEquals(3, noise.getOctaves());
+        assertLatticeMatchesPoints(noise);
+    }
+
+    @Test
+    public void latticeOfSingleColumns() {
+        PerlinNoise noise = new PerlinNoise(7, 8);
+        double[] result = new double[XS.length * ZS.length];
+        noise.fBm(result, XS, new double[] {0}, ZS);
+        for (int i = 0; i < XS.length; i++) {
+            for (int k = 0; k < ZS.length; k++) {
+                assertEquals(noise.fBm(XS[i], 0, ZS[k]), result[i * ZS.length + k], 0.0);
+            }
+        }
+    }
+
+    @Test
+    public void epNoiseLatticeMatchesPointSamples() {
+        assertLatticeMatchesPoints(new EPNoise(42, 2, false));
+        assertLatticeMatchesPoints(new EPNoise(42, -2, false));
+    }
+
+    private void assertLatticeMatchesPoints(Noise noise) {
+        double[] result = new double[XS.length * YS.length * ZS.length];
+        noise.fBm(result, XS, YS, ZS);
+        for (int i = 0; i < XS.length; i++) {
+            for (int k = 0; k < ZS.length; k++) {
+                for (int j = 0; j < YS.length; j++) {
+                    assertEquals(noise.fBm(XS[i], YS[j], ZS[k]), result[(i * ZS.length + k) * YS.length + j], 0.0);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package org.terasology.utilities.concurrency;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.List;
+
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+
+public class CoalescingBatchQueueTest {
+
+    @Test
+    public void itemsAreOnlyPolledAfterCollect() {
+        CoalescingBatchQueue<String> queue = new CoalescingBatchQueue<String>();
+        queue.add("a");
+        assertNull(queue.poll());
+
+        queue.collect();
+        assertEquals("a", queue.poll());
+        assertNull(queue.poll());
+    }
+
+    @Test
+    public void itemsOfOneThreadKeepTheirOrder() {
+        CoalescingBatchQueue<String> queue = new CoalescingBatchQueue<String>();
+        queue.add("a");
+        queue.add("b");
+        queue.add("a");
+        queue.collect();
+
+        assertEquals(3, queue.size());
+        assertEquals("a", queue.poll());
+        assertEquals("b", queue.poll());
+        assertEquals("a", queue.poll());
+    }
+
+    @Test
+    public void itemsWithEqualKeysAreMerged() {
+        CoalescingBatchQueue<String> queue = new CoalescingBatchQueue<String>(new FirstLetterCoalescer());
+        queue.add("a1");
+        queue.add("b1");
+        queue.collect();
+        queue.add("a2");
+        queue.collect();
+
+        assertEquals(2, queue.size());
+        assertEquals("a1a2", queue.poll());
+        assertEquals("b1", queue.poll());
+    }
+
+    @Test
+    public void itemsOfAllThreadsAreMergedInTheOrderAdded() throws InterruptedException {
+        final CoalescingBatchQueue<String> queue = new CoalescingBatchQueue<String>(new FirstLetterCoalescer());
+        queue.add("b1");
+        queue.collect();
+        queue.poll();
+
+        Thread thread = new Thread() {
+            @Override
+            public void run() {
+                queue.add("a1");
+            }
+        };
+        thread.start();
+        thread.join();
+        queue.add("a2");
+        queue.collect();
+
+        assertEquals("a1a2", queue.poll());
+        assertNull(queue.poll());
+    }
+
+    @Test
+    public void itemsCancellingOutAreDropped() {
+        CoalescingBatchQueue<String> queue = new CoalescingBatchQueue<String>(new FirstLetterCoalescer());
+        queue.add("a1");
+        queue.add("b1");
+        queue.add("a-");
+        queue.collect();
+
+        assertEquals(1, queue.size());
+        assertEquals("b1", queue.poll());
+    }
+
+    @Test
+    public void itemsFromAllThreadsAreCollected() throws InterruptedException {
+        final CoalescingBatchQueue<Integer> queue = new CoalescingBatchQueue<Integer>();
+        List<Thread> threads = Lists.newArrayList();
+        for (int t = 0; t < 4; ++t) {
+            final int offset = t * 1000;
+            Thread thread = new Thread() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < 1000; ++i) {
+                        queue.add(offset + i);
+                    }
+                }
+            };
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        queue.collect();
+        boolean[] seen = new boolean[4000];
+        for (Integer value = queue.poll(); value != null; value = queue.poll()) {
+            seen[value] = true;
+        }
+        for (int i = 0; i < seen.length; ++i) {
+            assertEquals("Missing " + i, true, seen[i]);
+        }
+    }
+
+    private static class FirstLetterCoalescer implements CoalescingBatchQueue.Coalescer<String> {
+        @Override
+        public Object getKey(String item) {
+            return item.charAt(0);
+        }
+
+        @Override
+        public String merge(String earlier, String later) {
+            // A trailing minus undoes the earlier item
+            if (later.endsWith("-")) {
+                return null;
+            }
+            return earlier + later;
+        }
+    }
+}
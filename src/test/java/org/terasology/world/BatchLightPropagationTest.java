@@ -0,0 +1,314 @@
+/*
+ * Copyright 2012 Benjamin Glatzel <benjamin.glatzel@me.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terasology.world;
+
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.terasology.config.Config;
+import org.terasology.game.CoreRegistry;
+import org.terasology.math.Region3i;
+import org.terasology.math.Side;
+import org.terasology.math.Vector3i;
+import org.terasology.world.block.Block;
+import org.terasology.world.block.BlockUri;
+import org.terasology.world.block.family.SymmetricFamily;
+import org.terasology.world.block.management.BlockManager;
+import org.terasology.world.chunks.Chunk;
+import org.terasology.world.lighting.BatchLightPropagator;
+import org.terasology.world.lighting.InternalLightProcessor;
+import org.terasology.world.lighting.LightPropagator;
+import org.terasology.world.lighting.LightingUtil;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Checks the batched light propagator against the recursive chunk lighting and the wave based light propagator it
+ * replaces, on randomly generated worlds.
+ */
+public class BatchLightPropagationTest {
+
+    private static final Region3i CHUNK_REGION = Region3i.createFromCenterExtents(new Vector3i(0, 0, 0), new Vector3i(1, 0, 1));
+    private static final Vector3i OFFSET = new Vector3i(1, 0, 1);
+    private static final Vector3i WORLD_MIN = new Vector3i(-Chunk.SIZE_X, 0, -Chunk.SIZE_Z);
+    private static final Vector3i WORLD_MAX = new Vector3i(2 * Chunk.SIZE_X - 1, Chunk.SIZE_Y - 1, 2 * Chunk.SIZE_Z - 1);
+    private static final int SEEDS = 4;
+
+    private Block air;
+    private Block crystal;
+    private Block[] blocks;
+
+    @Before
+    public void setup() {
+        CoreRegistry.put(Config.class, new Config());
+        air = BlockManager.getInstance().getAir();
+        Block dirt = createBlock("engine:dirt", true, false, false, (byte) 0);
+        Block torch = createBlock("engine:torch", false, false, false, Chunk.MAX_LIGHT);
+        Block glass = createBlock("engine:glass", true, true, false, (byte) 0);
+        Block water = createBlock("engine:water", true, true, true, (byte) 0);
+        Block lamp = createBlock("engine:lamp", true, false, false, (byte) 9);
+        Block leaves = createBlock("engine:leaves", false, false, false, (byte) 0);
+        crystal = createBlock("engine:crystal", false, true, false, (byte) 12);
+        blocks = new Block[]{air, dirt, torch, glass, water, lamp, leaves, crystal};
+    }
+
+    @Test
+    public void generatedChunkLightingMatchesRecursiveLighting() {
+        for (int seed = 0; seed < SEEDS; seed++) {
+            Random random = new Random(seed);
+            Chunk chunk = new Chunk(new Vector3i(0, 0, 0));
+            Chunk reference = new Chunk(new Vector3i(0, 0, 0));
+            fillChunk(random, chunk, reference);
+
+            InternalLightProcessor.generateInternalLighting(chunk);
+            RecursiveLightProcessor.generateInternalLighting(reference);
+
+            for (int y = 0; y < Chunk.SIZE_Y; y++) {
+                for (int z = 0; z < Chunk.SIZE_Z; z++) {
+                    for (int x = 0; x < Chunk.SIZE_X; x++) {
+                        String message = "seed " + seed + " at " + new Vector3i(x, y, z);
+                        assertEquals(message, reference.getSunlight(x, y, z), chunk.getSunlight(x, y, z));
+                        assertEquals(message, reference.getLight(x, y, z), chunk.getLight(x, y, z));
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void batchUpdateMatchesFullRelighting() {
+        for (int seed = 0; seed < SEEDS; seed++) {
+            Random random = new Random(seed);
+            WorldView view = createView();
+            WorldView reference = createView();
+            fillView(random, view, reference);
+            new BatchLightPropagator(view).generateLighting();
+
+            BatchLightPropagator propagator = new BatchLightPropagator(view);
+            int changes = 1 + random.nextInt(64);
+            for (int i = 0; i < changes; i++) {
+                Vector3i pos = new Vector3i(random.nextInt(Chunk.SIZE_X), 20 + random.nextInt(Chunk.SIZE_Y - 20), random.nextInt(Chunk.SIZE_Z));
+                Block type = blocks[random.nextInt(blocks.length)];
+                Block oldType = view.getBlock(pos);
+                view.setBlock(pos, type, oldType);
+                reference.setBlock(pos, type, oldType);
+                propagator.addChange(pos.x, pos.y, pos.z, type, oldType);
+            }
+            propagator.process();
+            new BatchLightPropagator(reference).generateLighting();
+
+            assertSameLighting("seed " + seed, reference, view);
+        }
+    }
+
+    @Test
+    public void singleUpdatesMatchLightPropagator() {
+        for (int seed = 0; seed < SEEDS; seed++) {
+            Random random = new Random(seed);
+            WorldView view = createView();
+            WorldView reference = createView();
+            fillView(random, view, reference);
+            new BatchLightPropagator(view).generateLighting();
+            new BatchLightPropagator(reference).generateLighting();
+
+            for (int i = 0; i < 16; i++) {
+                // Adding translucent light sources only raises light, which the wave propagation handles exactly
+                Vector3i pos = new Vector3i(random.nextInt(Chunk.SIZE_X), 20 + random.nextInt(Chunk.SIZE_Y - 20), random.nextInt(Chunk.SIZE_Z));
+                Block oldType = view.getBlock(pos);
+                if (oldType != air) {
+                    continue;
+                }
+                Block type = crystal;
+                view.setBlock(pos, type, oldType);
+                reference.setBlock(pos, type, oldType);
+                new BatchLightPropagator(view).update(pos.x, pos.y, pos.z, type, oldType);
+                new LightPropagator(reference).update(pos.x, pos.y, pos.z, type, oldType);
+            }
+
+            assertSameLighting("seed " + seed, reference, view);
+        }
+    }
+
+    private void assertSameLighting(String message, WorldView expected, WorldView actual) {
+        for (Vector3i pos : Region3i.createFromMinMax(WORLD_MIN, WORLD_MAX)) {
+            assertEquals(message + " at " + pos, expected.getSunlight(pos), actual.getSunlight(pos));
+            assertEquals(message + " at " + pos, expected.getLight(pos), actual.getLight(pos));
+        }
+    }
+
+    private WorldView createView() {
+        Chunk[] chunks = new Chunk[CHUNK_REGION.size().x * CHUNK_REGION.size().z];
+        for (Vector3i chunkPos : CHUNK_REGION) {
+            chunks[(chunkPos.x + OFFSET.x) + CHUNK_REGION.size().x * (chunkPos.z + OFFSET.z)] = new Chunk(chunkPos);
+        }
+        return new WorldView(chunks, CHUNK_REGION, OFFSET);
+    }
+
+    private void fillView(Random random, WorldView view, WorldView copy) {
+        for (int x = WORLD_MIN.x; x <= WORLD_MAX.x; x++) {
+            for (int z = WORLD_MIN.z; z <= WORLD_MAX.z; z++) {
+                int height = 40 + random.nextInt(8);
+                for (int y = 0; y < Chunk.SIZE_Y; y++) {
+                    Block block = randomBlock(random, y, height);
+                    view.setBlock(x, y, z, block, air);
+                    copy.setBlock(x, y, z, block, air);
+                }
+            }
+        }
+    }
+
+    private void fillChunk(Random random, Chunk chunk, Chunk copy) {
+        for (int x = 0; x < Chunk.SIZE_X; x++) {
+            for (int z = 0; z < Chunk.SIZE_Z; z++) {
+                int height = 40 + random.nextInt(8);
+                for (int y = 0; y < Chunk.SIZE_Y; y++) {
+                    Block block = randomBlock(random, y, height);
+                    chunk.setBlock(x, y, z, block, air);
+                    copy.setBlock(x, y, z, block, air);
+                }
+            }
+        }
+    }
+
+    /**
+     * Solid ground with caves and light sources below the height, and mostly air with some scattered blocks above it.
+     */
+    private Block randomBlock(Random random, int y, int height) {
+        if (y < height) {
+            return (random.nextInt(4) == 0) ? blocks[random.nextInt(blocks.length)] : blocks[1];
+        }
+        return (random.nextInt(y - height + 8) == 0) ? blocks[random.nextInt(blocks.length)] : air;
+    }
+
+    private static Block createBlock(String uri, boolean fullSides, boolean translucent, boolean liquid, byte luminance) {
+        Block block = new Block();
+        block.setDisplayName(uri);
+        block.setUri(new BlockUri(uri));
+        for (Side side : Side.values()) {
+            block.setFullSide(side, fullSides);
+        }
+        block.setTranslucent(translucent);
+        block.setLiquid(liquid);
+        block.setLuminance(luminance);
+        BlockManager.getInstance().addBlockFamily(new SymmetricFamily(block.getURI(), block), true);
+        return block;
+    }
+
+    /**
+     * The recursive chunk lighting used before chunk lighting was done by {@link BatchLightPropagator}, except that
+     * light sources no longer darken blocks which already received brighter light from another source.
+     */
+    private static final class RecursiveLightProcessor {
+
+        static void generateInternalLighting(Chunk chunk) {
+            int top = Chunk.SIZE_Y - 1;
+            short[] tops = new short[Chunk.SIZE_X * Chunk.SIZE_Z];
+
+            for (int x = 0; x < Chunk.SIZE_X; x++) {
+                for (int z = 0; z < Chunk.SIZE_Z; z++) {
+                    Block lastBlock = BlockManager.getInstance().getAir();
+                    int y = top;
+                    for (; y >= 0; y--) {
+                        Block block = chunk.getBlock(x, y, z);
+                        if (LightingUtil.doesSunlightRetainsFullStrengthIn(block) && LightingUtil.canSpreadLightOutOf(lastBlock, Side.BOTTOM) && LightingUtil.canSpreadLightInto(block, Side.TOP)) {
+                            chunk.setSunlight(x, y, z, Chunk.MAX_LIGHT);
+                            lastBlock = block;
+                        } else {
+                            break;
+                        }
+                    }
+                    tops[x + Chunk.SIZE_X * z] = (short) y;
+                }
+            }
+
+            for (int x = 0; x < Chunk.SIZE_X; x++) {
+                for (int z = 0; z < Chunk.SIZE_Z; z++) {
+                    if (tops[x + Chunk.SIZE_X * z] < top) {
+                        Block block = chunk.getBlock(x, tops[x + Chunk.SIZE_X * z] + 1, z);
+                        spreadSunlight(chunk, x, tops[x + Chunk.SIZE_X * z] + 1, z, block);
+                    }
+                    for (int y = top; y >= 0; y--) {
+                        Block block = chunk.getBlock(x, y, z);
+                        if (y > tops[x + Chunk.SIZE_X * z] && ((x > 0 && tops[(x - 1) + Chunk.SIZE_X * z] >= y) ||
+                                (x < Chunk.SIZE_X - 1 && tops[(x + 1) + Chunk.SIZE_X * z] >= y) ||
+                                (z > 0 && tops[x + Chunk.SIZE_X * (z - 1)] >= y) ||
+                                (z < Chunk.SIZE_Z - 1 && tops[x + Chunk.SIZE_X * (z + 1)] >= y))) {
+                            spreadSunlight(chunk, x, y, z, block);
+                        }
+                        if (block.getLuminance() > chunk.getLight(x, y, z)) {
+                            chunk.setLight(x, y, z, block.getLuminance());
+                            spreadLight(chunk, x, y, z, block);
+                        }
+                    }
+                }
+            }
+        }
+
+        private static void spreadLight(Chunk chunk, int x, int y, int z, Block block) {
+            byte lightValue = chunk.getLight(x, y, z);
+            if (lightValue <= 1) {
+                return;
+            }
+            for (Side adjDir : Side.values()) {
+                int adjX = x + adjDir.getVector3i().x;
+                int adjY = y + adjDir.getVector3i().y;
+                int adjZ = z + adjDir.getVector3i().z;
+                if (chunk.isInBounds(adjX, adjY, adjZ)) {
+                    byte adjLightValue = chunk.getLight(adjX, adjY, adjZ);
+                    Block adjBlock = chunk.getBlock(adjX, adjY, adjZ);
+                    if (adjLightValue < lightValue - 1 && LightingUtil.canSpreadLightOutOf(block, adjDir) && LightingUtil.canSpreadLightInto(adjBlock, adjDir.reverse())) {
+                        chunk.setLight(adjX, adjY, adjZ, (byte) (lightValue - 1));
+                        spreadLight(chunk, adjX, adjY, adjZ, adjBlock);
+                    }
+                }
+            }
+        }
+
+        private static void spreadSunlight(Chunk chunk, int x, int y, int z, Block block) {
+            byte lightValue = chunk.getSunlight(x, y, z);
+            if (y > 0 && LightingUtil.canSpreadLightOutOf(block, Side.BOTTOM)) {
+                Block adjBlock = chunk.getBlock(x, y - 1, z);
+                if (chunk.getSunlight(x, y - 1, z) < lightValue - 1 && LightingUtil.canSpreadLightInto(adjBlock, Side.TOP)) {
+                    chunk.setSunlight(x, y - 1, z, (byte) (lightValue - 1));
+                    spreadSunlight(chunk, x, y - 1, z, adjBlock);
+                }
+            }
+            if (y < Chunk.SIZE_Y - 1 && lightValue < Chunk.MAX_LIGHT && LightingUtil.canSpreadLightOutOf(block, Side.TOP)) {
+                Block adjBlock = chunk.getBlock(x, y + 1, z);
+                if (chunk.getSunlight(x, y + 1, z) < lightValue - 1 && LightingUtil.canSpreadLightInto(adjBlock, Side.BOTTOM)) {
+                    chunk.setSunlight(x, y + 1, z, (byte) (lightValue - 1));
+                    spreadSunlight(chunk, x, y + 1, z, adjBlock);
+                }
+            }
+            if (lightValue <= 1) {
+                return;
+            }
+            for (Side adjDir : Side.horizontalSides()) {
+                int adjX = x + adjDir.getVector3i().x;
+                int adjZ = z + adjDir.getVector3i().z;
+                if (chunk.isInBounds(adjX, y, adjZ) && LightingUtil.canSpreadLightOutOf(block, adjDir)) {
+                    byte adjLightValue = chunk.getSunlight(adjX, y, adjZ);
+                    Block adjBlock = chunk.getBlock(adjX, y, adjZ);
+                    if (adjLightValue < lightValue - 1 && LightingUtil.canSpreadLightInto(adjBlock, adjDir.reverse())) {
+                        chunk.setSunlight(adjX, y, adjZ, (byte) (lightValue - 1));
+                        spreadSunlight(chunk, adjX, y, adjZ, adjBlock);
+                    }
+                }
+            }
+        }
+    }
+}
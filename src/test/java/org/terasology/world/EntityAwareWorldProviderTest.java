@@ -27,6 +27,7 @@ import org.terasology.entitySystem.PrefabManager;
 import org.terasology.entitySystem.stubs.StringComponent;
 import org.terasology.game.bootstrap.EntitySystemBuilder;
 import org.terasology.logic.mod.ModManager;
+import org.terasology.math.Vector3i;
 import org.terasology.testUtil.WorldProviderCoreStub;
 import org.terasology.world.block.Block;
 import org.terasology.world.block.BlockComponent;
@@ -132,6 +133,38 @@ public class EntityAwareWorldProviderTest {
         assertFalse(blockEntities.get(0).getComponent(BlockComponent.class).temporary);
     }
 
+    @Test
+    public void testSetBlocksCreatesEntityForEachBlock() {
+
+        Prefab prefab = prefabManager.createPrefab(PREFAB_URI);
+        prefab.setComponent(new StringComponent());
+
+        Block persistentEntityBlock = new Block();
+        persistentEntityBlock.setEntityMode(BlockEntityMode.PERSISTENT);
+        persistentEntityBlock.setEntityPrefab(PREFAB_URI);
+        BlockManager.getInstance().addBlockFamily(new SymmetricFamily(new BlockUri("unittest:block"), persistentEntityBlock));
+
+        Block air = BlockManager.getInstance().getAir();
+        assertTrue(worldProvider.setBlocks(new BlockUpdate(new Vector3i(0, 0, 0), persistentEntityBlock, air),
+                new BlockUpdate(new Vector3i(1, 0, 0), persistentEntityBlock, air)));
+        List<EntityRef> blockEntities = Lists.newArrayList(entityManager.iteratorEntities(BlockComponent.class));
+        assertEquals(2, blockEntities.size());
+        assertEquals(persistentEntityBlock, worldProvider.getBlock(1, 0, 0));
+    }
+
+    @Test
+    public void testSetBlocksWithWrongOldTypeChangesNothing() {
+
+        Block block = new Block();
+        BlockManager.getInstance().addBlockFamily(new SymmetricFamily(new BlockUri("unittest:block"), block));
+
+        Block air = BlockManager.getInstance().getAir();
+        assertFalse(worldProvider.setBlocks(new BlockUpdate(new Vector3i(0, 0, 0), block, air),
+                new BlockUpdate(new Vector3i(1, 0, 0), air, block)));
+        assertEquals(air, worldProvider.getBlock(0, 0, 0));
+        assertEquals(air, worldProvider.getBlock(1, 0, 0));
+    }
+
     @Test
     public void testAddBlockWithPreExistingEntity() {
 
@@ -0,0 +1,56 @@
+package org.terasology.world;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+import org.terasology.math.TeraMath;
+import org.terasology.utilities.PerlinNoise;
+import org.terasology.world.chunks.Chunk;
+
+public class WorldBiomeProviderImplTest {
+
+    private static final String SEED = "climate";
+    private static final int[] POSITIONS = {-40000, -1023, -17, -16, -1, 0, 1, 15, 16, 4711, 65535};
+
+    @Test
+    public void climateMatchesNoise() {
+        WorldBiomeProviderImpl biomeProvider = new WorldBiomeProviderImpl(SEED);
+        PerlinNoise temperatureNoise = new PerlinNoise(SEED.hashCode() + 5);
+        PerlinNoise humidityNoise = new PerlinNoise(SEED.hashCode() + 6);
+
+        for (int x : POSITIONS) {
+            for (int z : POSITIONS) {
+                float temperature = (float) TeraMath.clamp((temperatureNoise.fBm(x * 0.0005, 0, 0.0005 * z) + 1.0f) / 2.0f);
+                float humidity = (float) TeraMath.clamp((humidityNoise.fBm(x * 0.0005, 0, 0.0005 * z) + 1.0f) / 2.0f);
+                assertEquals(temperature, biomeProvider.getTemperatureAt(x, z), 0.0f);
+                assertEquals(humidity, biomeProvider.getHumidityAt(x, z), 0.0f);
+            }
+        }
+    }
+
+    @Test
+    public void chunkClimateMatchesPositions() {
+        WorldBiomeProviderImpl biomeProvider = new WorldBiomeProviderImpl(SEED);
+        for (int chunkX = -2; chunkX <= 1; chunkX++) {
+            for (int chunkZ = -1; chunkZ <= 1; chunkZ++) {
+                ChunkClimate climate = biomeProvider.getChunkClimate(chunkX, chunkZ);
+                for (int x = 0; x < Chunk.SIZE_X; x++) {
+                    for (int z = 0; z < Chunk.SIZE_Z; z++) {
+                        int worldX = chunkX * Chunk.SIZE_X + x;
+                        int worldZ = chunkZ * Chunk.SIZE_Z + z;
+                        assertEquals(climate.getTemperature(x, z), biomeProvider.getTemperatureAt(worldX, worldZ), 0.0f);
+                        assertEquals(climate.getHumidity(x, z), biomeProvider.getHumidityAt(worldX, worldZ), 0.0f);
+                        assertEquals(climate.getBiome(x, z), biomeProvider.getBiomeAt(worldX, worldZ));
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void chunkClimateIsCached() {
+        WorldBiomeProviderImpl biomeProvider = new WorldBiomeProviderImpl(SEED);
+        assertSame(biomeProvider.getChunkClimate(3, -7), biomeProvider.getChunkClimate(3, -7));
+    }
+}
@@ -38,7 +38,7 @@ public class WorldViewTest {
 
     @Before
     public void setup() {
-        airBlock = BlockManager.getInstance().getBlock((byte)0);
+        airBlock = BlockManager.getInstance().getBlock((short) 0);
         solidBlock = new Block();
         solidBlock.setDisplayName("Stone");
         solidBlock.setUri(new BlockUri("engine:stone"));
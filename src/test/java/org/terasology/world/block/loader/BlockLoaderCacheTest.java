@@ -0,0 +1,142 @@
+/*
+ * Copyright 2012 Benjamin Glatzel <benjamin.glatzel@me.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terasology.world.block.loader;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.terasology.asset.AssetType;
+import org.terasology.asset.AssetUri;
+
+import com.google.common.collect.Lists;
+
+public class BlockLoaderCacheTest {
+
+    private static final byte[] HASH = new byte[] {1, 2, 3, 4};
+
+    private File file;
+
+    @Before
+    public void setup() throws IOException {
+        file = File.createTempFile("test", BlockLoaderCache.class.getSimpleName());
+        file.delete();
+    }
+
+    @After
+    public void teardown() {
+        file.delete();
+    }
+
+    @Test
+    public void missingFile() {
+        assertNull(BlockLoaderCache.read(file, HASH));
+    }
+
+    @Test
+    public void writeAndRead() {
+        BlockLoaderCache cache = new BlockLoaderCache(HASH);
+        cache.addDefinition(new AssetUri(AssetType.BLOCK_DEFINITION, "engine:stone"), "{\"hardness\":4}");
+        cache.addDefinition(new AssetUri(AssetType.BLOCK_DEFINITION, "engine:dirt"), "{\"tile\":\"engine:dirt\"}");
+        cache.addAutoBlock(new AssetUri(AssetType.BLOCK_TILE, "engine:clay"));
+        cache.addTile(new AssetUri(AssetType.BLOCK_TILE, "engine:stone"));
+        cache.addTile(new AssetUri(AssetType.BLOCK_TILE, "engine:dirt"));
+        cache.setMipmaps(new ByteBuffer[] {createMipmap(16), createMipmap(4)});
+        cache.write(file);
+
+        BlockLoaderCache result = BlockLoaderCache.read(file, HASH);
+        assertNotNull(result);
+        assertEquals(cache.getDefinitions(), result.getDefinitions());
+        assertEquals(Lists.newArrayList("engine:stone", "engine:dirt"), Lists.newArrayList(result.getDefinitions().keySet()));
+        assertEquals(Lists.newArrayList("engine:clay"), result.getAutoBlocks());
+        assertEquals(Lists.newArrayList("engine:stone", "engine:dirt"), result.getTiles());
+        assertEquals(2, result.getMipmaps().length);
+        for (int i = 0; i < 2; ++i) {
+            assertEquals(cache.getMipmaps()[i], result.getMipmaps()[i]);
+        }
+    }
+
+    @Test
+    public void differentHashIsIgnored() {
+        new BlockLoaderCache(HASH).write(file);
+
+        assertNotNull(BlockLoaderCache.read(file, HASH));
+        assertNull(BlockLoaderCache.read(file, new byte[] {1, 2, 3, 5}));
+        assertNull(BlockLoaderCache.read(file, null));
+    }
+
+    @Test
+    public void rewriteReplacesCache() {
+        new BlockLoaderCache(HASH).write(file);
+        byte[] newHash = new byte[] {5, 6, 7, 8};
+        BlockLoaderCache cache = new BlockLoaderCache(newHash);
+        cache.addAutoBlock(new AssetUri(AssetType.BLOCK_TILE, "engine:clay"));
+        cache.write(file);
+
+        assertNull(BlockLoaderCache.read(file, HASH));
+        BlockLoaderCache result = BlockLoaderCache.read(file, newHash);
+        assertNotNull(result);
+        assertEquals(Lists.newArrayList("engine:clay"), result.getAutoBlocks());
+    }
+
+    @Test
+    public void corruptHashLengthIsIgnored() throws IOException {
+        new BlockLoaderCache(HASH).write(file);
+        corrupt(8, Integer.MAX_VALUE);
+
+        assertNull(BlockLoaderCache.read(file, HASH));
+    }
+
+    @Test
+    public void corruptStringLengthIsIgnored() throws IOException {
+        BlockLoaderCache cache = new BlockLoaderCache(HASH);
+        cache.addAutoBlock(new AssetUri(AssetType.BLOCK_TILE, "engine:clay"));
+        cache.write(file);
+        // The length of the auto block, after the header, the hash and the definition count
+        int lengthOffset = 12 + HASH.length + 4 + 4;
+        corrupt(lengthOffset, -1);
+        assertNull(BlockLoaderCache.read(file, HASH));
+        corrupt(lengthOffset, Integer.MAX_VALUE);
+        assertNull(BlockLoaderCache.read(file, HASH));
+    }
+
+    private void corrupt(int offset, int value) throws IOException {
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+        try {
+            randomAccessFile.seek(offset);
+            randomAccessFile.writeInt(value);
+        } finally {
+            randomAccessFile.close();
+        }
+    }
+
+    private ByteBuffer createMipmap(int size) {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(4 * size * size);
+        for (int i = 0; i < buffer.capacity(); ++i) {
+            buffer.put((byte) (i * 31));
+        }
+        buffer.flip();
+        return buffer;
+    }
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright 2012 Benjamin Glatzel <benjamin.glatzel@me.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.terasology.world.chunks;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.terasology.config.AdvancedConfig;
+import org.terasology.config.Config;
+import org.terasology.game.CoreRegistry;
+import org.terasology.math.Vector3i;
+import org.terasology.world.chunks.blockdata.TeraArray;
+import org.terasology.world.chunks.blockdata.TeraDenseArray4Bit;
+import org.terasology.world.chunks.blockdata.TeraDenseArray8Bit;
+import org.terasology.world.chunks.blockdata.TeraPaletteArray;
+import org.terasology.world.chunks.blockdata.TeraSparseArray4Bit;
+
+public class ChunkCodecTest {
+
+    private static final TeraArray.Factory PALETTE = AdvancedConfig.requireTeraArrayFactory(TeraPaletteArray.class.getName());
+    private static final TeraArray.Factory DENSE_8BIT = AdvancedConfig.requireTeraArrayFactory(TeraDenseArray8Bit.class.getName());
+    private static final TeraArray.Factory DENSE_4BIT = AdvancedConfig.requireTeraArrayFactory(TeraDenseArray4Bit.class.getName());
+    private static final TeraArray.Factory SPARSE_4BIT = AdvancedConfig.requireTeraArrayFactory(TeraSparseArray4Bit.class.getName());
+
+    @Before
+    public void setup() {
+        CoreRegistry.put(Config.class, new Config());
+    }
+
+    @Test
+    public void roundTripIntoDenseArrays() throws IOException {
+        Chunk chunk = createChunk(new Vector3i(3, 0, -7));
+        Chunk decoded = ChunkCodec.decode(new ChunkCodec().encode(chunk), PALETTE, DENSE_4BIT, DENSE_4BIT, DENSE_4BIT);
+        assertChunksEqual(chunk, decoded);
+    }
+
+    @Test
+    public void roundTripIntoSparseArrays() throws IOException {
+        Chunk chunk = createChunk(new Vector3i(-1, 0, 12));
+        Chunk decoded = ChunkCodec.decode(new ChunkCodec().encode(chunk), PALETTE, SPARSE_4BIT, SPARSE_4BIT, SPARSE_4BIT);
+        assertChunksEqual(chunk, decoded);
+    }
+
+    @Test
+    public void codecCanBeReused() throws IOException {
+        ChunkCodec codec = new ChunkCodec();
+        Chunk first = createChunk(new Vector3i(0, 0, 0));
+        Chunk second = createChunk(new Vector3i(1, 0, 0));
+        second.getBlockData().set(5, 5, 5, 40000);
+        assertChunksEqual(first, ChunkCodec.decode(codec.encode(first), PALETTE, DENSE_4BIT, DENSE_4BIT, DENSE_4BIT));
+        assertChunksEqual(second, ChunkCodec.decode(codec.encode(second), PALETTE, DENSE_4BIT, DENSE_4BIT, DENSE_4BIT));
+    }
+
+    @Test
+    public void version1BlocksAreUnsigned8Bit() throws IOException {
+        Chunk chunk = createChunk(new Vector3i(), DENSE_8BIT, 256);
+        ByteBuffer data = new ChunkCodec().encode(chunk);
+        data.put(4, (byte) 1);
+        Chunk decoded = ChunkCodec.decode(data, PALETTE, DENSE_4BIT, DENSE_4BIT, DENSE_4BIT);
+        TeraArray expected = chunk.getBlockData();
+        for (int y = 0; y < expected.getSizeY(); y++) {
+            for (int z = 0; z < expected.getSizeZ(); z++) {
+                for (int x = 0; x < expected.getSizeX(); x++) {
+                    assertEquals(expected.get(x, y, z) & 0xff, decoded.getBlockData().get(x, y, z));
+                }
+            }
+        }
+        assertArraysEqual(chunk.getLightData(), decoded.getLightData());
+    }
+
+    @Test
+    public void legacyDataIsNotEncoded() {
+        assertFalse(ChunkCodec.isEncoded(ByteBuffer.wrap(new byte[] {0x78, (byte) 0x9c, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0})));
+        assertTrue(ChunkCodec.isEncoded(new ChunkCodec().encode(createChunk(new Vector3i()))));
+    }
+
+    @Test(expected = IOException.class)
+    public void truncatedDataFails() throws IOException {
+        ByteBuffer data = new ChunkCodec().encode(createChunk(new Vector3i()));
+        data.limit(data.limit() / 2);
+        ChunkCodec.decode(data, PALETTE, DENSE_4BIT, DENSE_4BIT, DENSE_4BIT);
+    }
+
+    private Chunk createChunk(Vector3i pos) {
+        return createChunk(pos, PALETTE, 1 << 16);
+    }
+
+    private Chunk createChunk(Vector3i pos, TeraArray.Factory blocksFactory, int blockIds) {
+        Random random = new Random(pos.hashCode());
+        TeraArray blocks = blocksFactory.create(Chunk.SIZE_X, Chunk.SIZE_Y, Chunk.SIZE_Z);
+        TeraArray sunlight = DENSE_4BIT.create(Chunk.SIZE_X, Chunk.SIZE_Y, Chunk.SIZE_Z);
+        TeraArray light = DENSE_4BIT.create(Chunk.SIZE_X, Chunk.SIZE_Y, Chunk.SIZE_Z);
+        TeraArray liquid = DENSE_4BIT.create(Chunk.SIZE_X, Chunk.SIZE_Y, Chunk.SIZE_Z);
+        for (int y = 0; y < Chunk.SIZE_Y; y++) {
+            for (int z = 0; z < Chunk.SIZE_Z; z++) {
+                for (int x = 0; x < Chunk.SIZE_X; x++) {
+                    if (y < 64) {
+                        blocks.set(x, y, z, (random.nextInt(10) == 0) ? random.nextInt(blockIds) : 1);
+                        light.set(x, y, z, random.nextInt(Chunk.MAX_LIGHT + 1));
+                    } else {
+                        sunlight.set(x, y, z, Chunk.MAX_LIGHT);
+                    }
+                    if (y == 64 && x < 4) {
+                        liquid.set(x, y, z, random.nextInt(Chunk.MAX_LIQUID_DEPTH + 1));
+                    }
+                }
+            }
+        }
+        Chunk chunk = new Chunk(pos, blocks, sunlight, light, liquid);
+        chunk.setChunkState(Chunk.State.LIGHT_PROPAGATION_PENDING);
+        return chunk;
+    }
+
+    private void assertChunksEqual(Chunk expected, Chunk actual) {
+        assertEquals(expected.getPos(), actual.getPos());
+        assertEquals(expected.getChunkState(), actual.getChunkState());
+        assertArraysEqual(expected.getBlockData(), actual.getBlockData());
+        assertArraysEqual(expected.getSunlightData(), actual.getSunlightData());
+        assertArraysEqual(expected.getLightData(), actual.getLightData());
+        assertArraysEqual(expected.getLiquidData(), actual.getLiquidData());
+    }
+
+    private void assertArraysEqual(TeraArray expected, TeraArray actual) {
+        for (int y = 0; y < expected.getSizeY(); y++) {
+            for (int z = 0; z < expected.getSizeZ(); z++) {
+                for (int x = 0; x < expected.getSizeX(); x++) {
+                    assertEquals(expected.get(x, y, z), actual.get(x, y, z));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,174 @@
+/*
+ * Copyright 2012 Benjamin Glatzel <benjamin.glatzel@me.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.terasology.world.chunks.blockdata;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+public class TeraPaletteArrayTest {
+
+    private static final int SIZE_X = 16;
+    private static final int SIZE_Y = 32;
+    private static final int SIZE_Z = 16;
+
+    @Test
+    public void newArrayIsEmpty() {
+        TeraPaletteArray array = new TeraPaletteArray(SIZE_X, SIZE_Y, SIZE_Z);
+        assertEquals(0, array.get(3, 4, 5));
+        assertEquals(1, array.getBitsPerEntry());
+        assertEquals(1, array.getPaletteSize());
+    }
+
+    @Test
+    public void storesSixteenBitValues() {
+        TeraPaletteArray array = new TeraPaletteArray(SIZE_X, SIZE_Y, SIZE_Z);
+        assertEquals(0, array.set(1, 2, 3, 40000));
+        assertEquals(40000, array.get(1, 2, 3));
+        assertEquals(40000, array.set(1, 2, 3, 300));
+        assertEquals(300, array.get(1, 2, 3));
+    }
+
+    @Test
+    public void growsBitsPerEntryWithPalette() {
+        TeraPaletteArray array = new TeraPaletteArray(SIZE_X, SIZE_Y, SIZE_Z);
+        int[] expectedBits = {1, 2, 2, 4, 4, 4, 4, 4, 4, 4, 4, 4, 4, 4, 4, 8};
+        for (int i = 1; i <= expectedBits.length; i++) {
+            array.set(i, 0, 0, 1000 + i);
+            assertEquals(expectedBits[i - 1], array.getBitsPerEntry());
+        }
+        for (int i = 1; i <= expectedBits.length; i++) {
+            assertEquals(1000 + i, array.get(i, 0, 0));
+        }
+        assertEquals(0, array.get(0, 0, 0));
+    }
+
+    @Test
+    public void matchesDenseArrayOnRandomWrites() {
+        Random random = new Random(42);
+        TeraPaletteArray array = new TeraPaletteArray(SIZE_X, SIZE_Y, SIZE_Z);
+        int[][][] expected = new int[SIZE_X][SIZE_Y][SIZE_Z];
+        for (int i = 0; i < 20000; i++) {
+            int x = random.nextInt(SIZE_X);
+            int y = random.nextInt(SIZE_Y);
+            int z = random.nextInt(SIZE_Z);
+            int value = (random.nextBoolean()) ? random.nextInt(8) : random.nextInt(1 << 16);
+            assertEquals(expected[x][y][z], array.set(x, y, z, value));
+            expected[x][y][z] = value;
+        }
+        assertEquals(16, array.getBitsPerEntry());
+        for (int x = 0; x < SIZE_X; x++) {
+            for (int y = 0; y < SIZE_Y; y++) {
+                for (int z = 0; z < SIZE_Z; z++) {
+                    assertEquals(expected[x][y][z], array.get(x, y, z));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void compareAndSet() {
+        TeraPaletteArray array = new TeraPaletteArray(SIZE_X, SIZE_Y, SIZE_Z);
+        assertFalse(array.set(0, 0, 0, 5, 1));
+        assertTrue(array.set(0, 0, 0, 5, 0));
+        assertEquals(5, array.get(0, 0, 0));
+    }
+
+    @Test
+    public void copyIsIndependent() {
+        TeraPaletteArray array = new TeraPaletteArray(SIZE_X, SIZE_Y, SIZE_Z);
+        array.set(1, 1, 1, 7);
+        TeraArray copy = array.copy();
+        array.set(1, 1, 1, 8);
+        assertEquals(7, copy.get(1, 1, 1));
+        assertEquals(8, array.get(1, 1, 1));
+    }
+
+    @Test
+    public void deflateRemovesUnusedValues() {
+        TeraPaletteArray array = new TeraPaletteArray(SIZE_X, SIZE_Y, SIZE_Z);
+        for (int i = 0; i < 20; i++) {
+            array.set(0, 0, 0, 100 + i);
+        }
+        array.set(5, 5, 5, 3);
+        assertEquals(8, array.getBitsPerEntry());
+
+        TeraPaletteArray deflated = (TeraPaletteArray) array.deflate(null);
+        assertEquals(3, deflated.getPaletteSize());
+        assertEquals(2, deflated.getBitsPerEntry());
+        assertEquals(119, deflated.get(0, 0, 0));
+        assertEquals(3, deflated.get(5, 5, 5));
+        assertEquals(0, deflated.get(1, 0, 0));
+        assertNull(deflated.deflate(null));
+    }
+
+    @Test
+    public void readsDuringRepackingSeeOldOrNewValues() throws InterruptedException {
+        final TeraPaletteArray array = new TeraPaletteArray(SIZE_X, SIZE_Y, SIZE_Z);
+        final AtomicBoolean writing = new AtomicBoolean(true);
+        final AtomicReference<String> failure = new AtomicReference<String>();
+        Thread reader = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    while (writing.get() && failure.get() == null) {
+                        for (int x = 0; x < SIZE_X; x++) {
+                            for (int z = 0; z < SIZE_Z; z++) {
+                                int value = array.get(x, 1, z);
+                                if (value != 0 && value != expectedValue(x, z)) {
+                                    failure.set("Read " + value + " at " + x + ", " + z);
+                                }
+                            }
+                        }
+                    }
+                } catch (RuntimeException e) {
+                    failure.set(e.toString());
+                }
+            }
+        });
+        reader.start();
+        for (int x = 0; x < SIZE_X; x++) {
+            for (int z = 0; z < SIZE_Z; z++) {
+                array.set(x, 1, z, expectedValue(x, z));
+            }
+        }
+        writing.set(false);
+        reader.join();
+
+        assertNull(failure.get());
+        assertEquals(16, array.getBitsPerEntry());
+    }
+
+    private static int expectedValue(int x, int z) {
+        return 1000 + x * SIZE_Z + z;
+    }
+
+    @Test
+    public void convertsUnsignedFromByteArrays() {
+        TeraDenseArray8Bit in = new TeraDenseArray8Bit(SIZE_X, SIZE_Y, SIZE_Z);
+        in.set(2, 3, 4, (byte) 200);
+        TeraPaletteArray array = new TeraPaletteArray(in);
+        assertEquals(200, array.get(2, 3, 4));
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2012 Benjamin Glatzel <benjamin.glatzel@me.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terasology.world.chunks.store;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.terasology.config.Config;
+import org.terasology.game.CoreRegistry;
+import org.terasology.math.Vector3i;
+import org.terasology.world.chunks.Chunk;
+
+public class ChunkStoreRegionTest {
+
+    private File regionPath;
+
+    @Before
+    public void setup() throws IOException {
+        CoreRegistry.put(Config.class, new Config());
+        regionPath = File.createTempFile("test", ChunkStoreRegion.class.getSimpleName());
+        regionPath.delete();
+    }
+
+    @After
+    public void teardown() {
+        File[] files = regionPath.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        regionPath.delete();
+    }
+
+    @Test
+    public void writtenChunksAreOnDiskAfterFlush() throws IOException {
+        ChunkStoreRegion store = new ChunkStoreRegion(regionPath);
+        Chunk chunk = new Chunk(new Vector3i(3, 0, -40));
+        chunk.getBlockData().set(1, 2, 3, 17);
+        store.write(chunk);
+        store.flush();
+        assertTrue(store.contains(chunk.getPos()));
+
+        ChunkStoreRegion reopened = new ChunkStoreRegion(regionPath);
+        try {
+            Chunk loaded = reopened.get(chunk.getPos());
+            assertNotNull(loaded);
+            assertEquals(17, loaded.getBlockData().get(1, 2, 3));
+        } finally {
+            reopened.dispose();
+            store.dispose();
+        }
+    }
+}
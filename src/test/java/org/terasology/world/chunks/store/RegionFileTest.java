@@ -0,0 +1,115 @@
+/*
+ * Copyright 2012 Benjamin Glatzel <benjamin.glatzel@me.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.terasology.world.chunks.store;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class RegionFileTest {
+
+    private File file;
+    private RegionFile region;
+
+    @Before
+    public void setup() throws IOException {
+        file = File.createTempFile("test", RegionFile.class.getSimpleName());
+        region = new RegionFile(file);
+    }
+
+    @After
+    public void teardown() throws IOException {
+        region.close();
+        file.delete();
+    }
+
+    @Test
+    public void emptyRegion() throws IOException {
+        for (int i = 0; i < RegionFile.ENTRIES; ++i) {
+            assertFalse(region.contains(i));
+            assertNull(region.read(i));
+        }
+    }
+
+    @Test
+    public void indexWrapsNegativePositions() {
+        assertEquals(RegionFile.indexOf(0, 0), RegionFile.indexOf(-RegionFile.SIZE_X, -RegionFile.SIZE_Z));
+        assertEquals(RegionFile.ENTRIES - 1, RegionFile.indexOf(-1, -1));
+    }
+
+    @Test
+    public void writeAndRead() throws IOException {
+        region.write(5, createData(100, (byte) 1));
+        assertTrue(region.contains(5));
+        assertData(region.read(5), 100, (byte) 1);
+    }
+
+    @Test
+    public void rewriteInPlace() throws IOException {
+        region.write(5, createData(3 * RegionFile.SECTOR_SIZE, (byte) 1));
+        long size = region.size();
+        region.write(5, createData(100, (byte) 2));
+        region.write(6, createData(100, (byte) 3));
+        assertEquals(size, region.size());
+        assertData(region.read(5), 100, (byte) 2);
+        assertData(region.read(6), 100, (byte) 3);
+    }
+
+    @Test
+    public void growingEntryMovesToFreeSectors() throws IOException {
+        region.write(1, createData(100, (byte) 1));
+        region.write(2, createData(100, (byte) 2));
+        region.write(1, createData(2 * RegionFile.SECTOR_SIZE, (byte) 3));
+        assertData(region.read(1), 2 * RegionFile.SECTOR_SIZE, (byte) 3);
+        assertData(region.read(2), 100, (byte) 2);
+    }
+
+    @Test
+    public void persistsAcrossReopen() throws IOException {
+        region.write(7, createData(5000, (byte) 4));
+        region.close();
+        region = new RegionFile(file);
+        assertTrue(region.contains(7));
+        assertFalse(region.contains(8));
+        assertData(region.read(7), 5000, (byte) 4);
+    }
+
+    private ByteBuffer createData(int length, byte value) {
+        ByteBuffer data = ByteBuffer.allocate(length);
+        for (int i = 0; i < length; ++i) {
+            data.put(value);
+        }
+        data.flip();
+        return data;
+    }
+
+    private void assertData(ByteBuffer data, int expectedLength, byte expectedValue) {
+        assertEquals(expectedLength, data.remaining());
+        while (data.hasRemaining()) {
+            assertEquals(expectedValue, data.get());
+        }
+    }
+}
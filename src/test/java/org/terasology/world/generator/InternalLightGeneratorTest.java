@@ -41,11 +41,11 @@ public class InternalLightGeneratorTest {
 
     @Before
     public void setup() {
-        airBlock = BlockManager.getInstance().getBlock((byte)0);
+        airBlock = BlockManager.getInstance().getBlock((short) 0);
         solidBlock = new Block();
         solidBlock.setDisplayName("Stone");
         solidBlock.setUri(new BlockUri("engine:stone"));
-        solidBlock.setId((byte) 1);
+        solidBlock.setId((short) 1);
         for (Side side : Side.values()) {
             solidBlock.setFullSide(side, true);
         }
@@ -0,0 +1,173 @@
+/*
+ * Copyright 2012 Benjamin Glatzel <benjamin.glatzel@me.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.terasology.world.liquid;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import gnu.trove.list.TIntList;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.terasology.config.Config;
+import org.terasology.game.CoreRegistry;
+import org.terasology.math.Region3i;
+import org.terasology.math.Vector3i;
+import org.terasology.world.WorldView;
+import org.terasology.world.block.Block;
+import org.terasology.world.block.BlockUri;
+import org.terasology.world.block.family.SymmetricFamily;
+import org.terasology.world.block.management.BlockManager;
+import org.terasology.world.chunks.Chunk;
+
+import com.google.common.collect.Maps;
+
+/**
+ * Checks the cellular automaton against the per block liquid rules of {@link LiquidSimulator#calcStateFor}.
+ */
+public class LiquidAutomatonTest {
+
+    private static final Region3i CHUNK_REGION = Region3i.createFromCenterExtents(new Vector3i(0, 0, 0), new Vector3i(1, 0, 1));
+    private static final Vector3i OFFSET = new Vector3i(1, 0, 1);
+    private static final int SEEDS = 4;
+
+    private Block air;
+    private Block dirt;
+    private WorldView view;
+    private LiquidAutomaton automaton;
+
+    @Before
+    public void setup() {
+        CoreRegistry.put(Config.class, new Config());
+        air = BlockManager.getInstance().getAir();
+        dirt = new Block();
+        dirt.setDisplayName("Dirt");
+        dirt.setUri(new BlockUri("engine:dirt"));
+        BlockManager.getInstance().addBlockFamily(new SymmetricFamily(dirt.getURI(), dirt), true);
+
+        Chunk[] chunks = new Chunk[CHUNK_REGION.size().x * CHUNK_REGION.size().z];
+        for (Vector3i chunkPos : CHUNK_REGION) {
+            chunks[(chunkPos.x + OFFSET.x) + CHUNK_REGION.size().x * (chunkPos.z + OFFSET.z)] = new Chunk(chunkPos);
+        }
+        view = new WorldView(chunks, CHUNK_REGION, OFFSET);
+        automaton = new LiquidAutomaton();
+    }
+
+    @Test
+    public void quietChunksAreSkipped() {
+        assertTrue(automaton.takeDirtyLayers().isEmpty());
+
+        automaton.markDirty(3, 10, 3);
+        List<LiquidAutomaton.ChunkLayer> layers = automaton.takeDirtyLayers();
+        assertEquals(1, layers.size());
+        assertEquals(new Vector3i(0, 0, 0), layers.get(0).getChunkPos());
+        assertEquals(0, automaton.getDirtyCellCount());
+        assertTrue(automaton.takeDirtyLayers().isEmpty());
+    }
+
+    @Test
+    public void markingNearBorderMarksNeighbouringChunks() {
+        automaton.markDirty(0, 10, 0);
+
+        List<LiquidAutomaton.ChunkLayer> layers = automaton.takeDirtyLayers();
+        assertEquals(4, layers.size());
+        int cells = 0;
+        for (LiquidAutomaton.ChunkLayer layer : layers) {
+            cells += layer.getDirtyCellCount();
+        }
+        assertEquals(3 * 13, cells);
+    }
+
+    @Test
+    public void flowIntoDecaying() {
+        fillGround();
+        view.setLiquid(new Vector3i(1, 1, 0), new LiquidData(LiquidType.WATER, 7), new LiquidData());
+        automaton.markDirty(1, 1, 0);
+
+        Map<Vector3i, LiquidData> changes = step();
+        assertEquals(new LiquidData(LiquidType.WATER, 2), changes.get(new Vector3i(0, 1, 0)));
+        assertEquals(new LiquidData(LiquidType.WATER, 2), changes.get(new Vector3i(2, 1, 0)));
+    }
+
+    @Test
+    public void stepMatchesCalcStateFor() {
+        for (int seed = 0; seed < SEEDS; seed++) {
+            Random random = new Random(seed);
+            setup();
+            fillRandom(random);
+            automaton.markRegionDirty(-Chunk.SIZE_X, 0, -Chunk.SIZE_Z, 2 * Chunk.SIZE_X - 1, Chunk.SIZE_Y - 1, 2 * Chunk.SIZE_Z - 1);
+
+            Map<Vector3i, LiquidData> changes = step();
+            for (Vector3i pos : Region3i.createFromMinAndSize(new Vector3i(0, 0, 0), new Vector3i(Chunk.SIZE_X, 24, Chunk.SIZE_Z))) {
+                LiquidData expected = LiquidSimulator.calcStateFor(pos, view);
+                LiquidData actual = changes.containsKey(pos) ? changes.get(pos) : view.getLiquid(pos);
+                assertEquals("seed " + seed + " at " + pos, expected, actual);
+            }
+        }
+    }
+
+    /**
+     * Evaluates the center chunk, without writing the changes back.
+     */
+    private Map<Vector3i, LiquidData> step() {
+        Map<Vector3i, LiquidData> result = Maps.newHashMap();
+        for (LiquidAutomaton.ChunkLayer layer : automaton.takeDirtyLayers()) {
+            if (!layer.getChunkPos().equals(new Vector3i(0, 0, 0))) {
+                continue;
+            }
+            layer.evaluate(view);
+            TIntList changes = layer.getChanges();
+            for (int i = 0; i < changes.size(); ++i) {
+                int change = changes.get(i);
+                Vector3i pos = new Vector3i(LiquidAutomaton.getChangeX(change), LiquidAutomaton.getChangeY(change), LiquidAutomaton.getChangeZ(change));
+                assertEquals(view.getLiquid(pos), new LiquidData(LiquidAutomaton.getChangeOldState(change)));
+                result.put(pos, new LiquidData(LiquidAutomaton.getChangeNewState(change)));
+            }
+        }
+        return result;
+    }
+
+    private void fillGround() {
+        for (int x = -Chunk.SIZE_X; x < 2 * Chunk.SIZE_X; ++x) {
+            for (int z = -Chunk.SIZE_Z; z < 2 * Chunk.SIZE_Z; ++z) {
+                view.setBlock(x, 0, z, dirt, air);
+            }
+        }
+    }
+
+    /**
+     * Uneven ground with pools of water and lava of random depth above it.
+     */
+    private void fillRandom(Random random) {
+        for (int x = -Chunk.SIZE_X; x < 2 * Chunk.SIZE_X; ++x) {
+            for (int z = -Chunk.SIZE_Z; z < 2 * Chunk.SIZE_Z; ++z) {
+                int height = 4 + random.nextInt(4);
+                for (int y = 0; y < 20; ++y) {
+                    if (y < height || random.nextInt(16) == 0) {
+                        view.setBlock(x, y, z, dirt, air);
+                    } else if (random.nextInt(3) == 0) {
+                        LiquidType type = (random.nextInt(4) == 0) ? LiquidType.LAVA : LiquidType.WATER;
+                        view.setLiquid(x, y, z, new LiquidData(type, random.nextInt(Chunk.MAX_LIQUID_DEPTH + 1)), new LiquidData());
+                    }
+                }
+            }
+        }
+    }
+}
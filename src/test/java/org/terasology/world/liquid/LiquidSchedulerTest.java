@@ -0,0 +1,106 @@
+package org.terasology.world.liquid;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import gnu.trove.list.TLongList;
+import gnu.trove.list.array.TLongArrayList;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class LiquidSchedulerTest {
+
+    private LiquidScheduler scheduler;
+
+    @Before
+    public void setup() {
+        scheduler = new LiquidScheduler();
+    }
+
+    @Test
+    public void packAndUnpack() {
+        int[][] positions = new int[][]{{0, 0, 0}, {-1, 255, -1}, {33554431, 2047, -33554432}, {-33554432, -2048, 33554431}, {12345, 64, -678}};
+        for (int[] pos : positions) {
+            long packed = LiquidScheduler.pack(pos[0], pos[1], pos[2]);
+            assertEquals(pos[0], LiquidScheduler.unpackX(packed));
+            assertEquals(pos[1], LiquidScheduler.unpackY(packed));
+            assertEquals(pos[2], LiquidScheduler.unpackZ(packed));
+        }
+    }
+
+    @Test
+    public void positionIsDueAtItsTime() {
+        scheduler.advance(1000, new TLongArrayList());
+        scheduler.schedule(1, 2, 3, 1200);
+
+        TLongList due = new TLongArrayList();
+        scheduler.advance(1150, due);
+        assertEquals(0, due.size());
+        assertEquals(1, scheduler.size());
+
+        scheduler.advance(1200, due);
+        assertEquals(1, due.size());
+        assertEquals(LiquidScheduler.pack(1, 2, 3), due.get(0));
+        assertEquals(0, scheduler.size());
+    }
+
+    @Test
+    public void pendingPositionIsOnlyScheduledOnce() {
+        scheduler.advance(1000, new TLongArrayList());
+        scheduler.schedule(1, 2, 3, 1200);
+        scheduler.schedule(1, 2, 3, 1400);
+        scheduler.schedule(1, 2, 3, 1100);
+        assertEquals(1, scheduler.size());
+
+        TLongList due = new TLongArrayList();
+        scheduler.advance(1100, due);
+        assertEquals(1, due.size());
+
+        due.clear();
+        scheduler.advance(2000, due);
+        assertEquals(0, due.size());
+    }
+
+    @Test
+    public void timesInThePastAreDueNextTick() {
+        scheduler.advance(1000, new TLongArrayList());
+        scheduler.schedule(1, 2, 3, 0);
+
+        TLongList due = new TLongArrayList();
+        scheduler.advance(1000, due);
+        assertEquals(0, due.size());
+        scheduler.advance(1000 + LiquidScheduler.TICK_MS, due);
+        assertEquals(1, due.size());
+    }
+
+    @Test
+    public void positionsBeyondOneTurnOfTheWheelWait() {
+        scheduler.advance(0, new TLongArrayList());
+        scheduler.schedule(1, 2, 3, 100 * LiquidScheduler.TICK_MS);
+
+        TLongList due = new TLongArrayList();
+        for (long time = 0; time < 100 * LiquidScheduler.TICK_MS; time += LiquidScheduler.TICK_MS) {
+            scheduler.advance(time, due);
+        }
+        assertEquals(0, due.size());
+
+        scheduler.advance(100 * LiquidScheduler.TICK_MS, due);
+        assertEquals(1, due.size());
+    }
+
+    @Test
+    public void largeTimeStepReleasesAllDuePositions() {
+        scheduler.advance(0, new TLongArrayList());
+        for (int i = 0; i < 200; ++i) {
+            scheduler.schedule(i, 0, 0, i * LiquidScheduler.TICK_MS);
+        }
+
+        TLongList due = new TLongArrayList();
+        scheduler.advance(1000 * LiquidScheduler.TICK_MS, due);
+        assertEquals(200, due.size());
+        for (int i = 0; i < 200; ++i) {
+            assertTrue(due.contains(LiquidScheduler.pack(i, 0, 0)));
+        }
+    }
+}
@@ -46,11 +46,11 @@ public class LiquidSimulationTest {
 
         view = new WorldView(chunks, Region3i.createFromCenterExtents(new Vector3i(0, 0, 0), new Vector3i(1, 0, 1)), new Vector3i(1,1,1));
 
-        air = BlockManager.getInstance().getBlock((byte)0);
+        air = BlockManager.getInstance().getBlock((short) 0);
         dirt = new Block();
         dirt.setDisplayName("Dirt");
         dirt.setUri(new BlockUri("engine:dirt"));
-        dirt.setId((byte) 1);
+        dirt.setId((short) 1);
         BlockManager.getInstance().addBlockFamily(new SymmetricFamily(dirt.getURI(), dirt));
 
         for (int x = -Chunk.SIZE_X + 1; x < 2 * Chunk.SIZE_X; ++x) {
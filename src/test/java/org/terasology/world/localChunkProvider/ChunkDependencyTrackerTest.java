@@ -0,0 +1,150 @@
+/*
+ * Copyright 2012 Benjamin Glatzel <benjamin.glatzel@me.com>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.terasology.world.localChunkProvider;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.terasology.math.Vector3i;
+import org.terasology.world.chunks.Chunk;
+
+import com.google.common.collect.Lists;
+
+public class ChunkDependencyTrackerTest {
+
+    private ChunkDependencyTracker tracker;
+
+    @Before
+    public void setup() {
+        tracker = new ChunkDependencyTracker();
+    }
+
+    @Test
+    public void chunkIsReadyOnceAllNeighboursArePresent() {
+        Vector3i center = new Vector3i(0, 0, 0);
+        assertTrue(tracker.chunkAdded(center, Chunk.State.ADJACENCY_GENERATION_PENDING).isEmpty());
+        List<Vector3i> neighbours = neighbours(center);
+        for (int i = 0; i < neighbours.size() - 1; ++i) {
+            assertTrue(tracker.chunkAdded(neighbours.get(i), Chunk.State.ADJACENCY_GENERATION_PENDING).isEmpty());
+        }
+        assertEquals(Lists.newArrayList(center), tracker.chunkAdded(neighbours.get(neighbours.size() - 1), Chunk.State.ADJACENCY_GENERATION_PENDING));
+    }
+
+    @Test
+    public void chunkIsReadyOnceAllNeighboursReachItsState() {
+        Vector3i center = new Vector3i(3, 0, -2);
+        List<Vector3i> neighbours = neighbours(center);
+        for (Vector3i pos : neighbours) {
+            tracker.chunkAdded(pos, Chunk.State.ADJACENCY_GENERATION_PENDING);
+        }
+        assertEquals(Lists.newArrayList(center), tracker.chunkAdded(center, Chunk.State.ADJACENCY_GENERATION_PENDING));
+        assertTrue(tracker.stateChanged(center, Chunk.State.INTERNAL_LIGHT_GENERATION_PENDING).isEmpty());
+
+        for (int i = 0; i < neighbours.size() - 1; ++i) {
+            assertTrue(tracker.stateChanged(neighbours.get(i), Chunk.State.LIGHT_PROPAGATION_PENDING).isEmpty());
+        }
+        assertEquals(Lists.newArrayList(center), tracker.stateChanged(neighbours.get(neighbours.size() - 1), Chunk.State.INTERNAL_LIGHT_GENERATION_PENDING));
+        assertEquals(8, tracker.getNeighboursAtLeast(center, Chunk.State.INTERNAL_LIGHT_GENERATION_PENDING));
+        assertEquals(7, tracker.getNeighboursAtLeast(center, Chunk.State.LIGHT_PROPAGATION_PENDING));
+    }
+
+    @Test
+    public void chunkIsReportedOncePerState() {
+        Vector3i center = new Vector3i(0, 0, 0);
+        for (Vector3i pos : neighbours(center)) {
+            tracker.chunkAdded(pos, Chunk.State.COMPLETE);
+        }
+        assertEquals(Lists.newArrayList(center), tracker.chunkAdded(center, Chunk.State.LIGHT_PROPAGATION_PENDING));
+        assertTrue(tracker.stateChanged(center, Chunk.State.LIGHT_PROPAGATION_PENDING).isEmpty());
+        assertEquals(Lists.newArrayList(center), tracker.stateChanged(center, Chunk.State.FULL_LIGHT_CONNECTIVITY_PENDING));
+    }
+
+    @Test
+    public void chunkIsReportedAgainAfterNeighbourReturns() {
+        Vector3i center = new Vector3i(0, 0, 0);
+        List<Vector3i> neighbours = neighbours(center);
+        for (Vector3i pos : neighbours) {
+            tracker.chunkAdded(pos, Chunk.State.ADJACENCY_GENERATION_PENDING);
+        }
+        assertEquals(Lists.newArrayList(center), tracker.chunkAdded(center, Chunk.State.ADJACENCY_GENERATION_PENDING));
+
+        tracker.chunkRemoved(neighbours.get(0));
+        assertEquals(7, tracker.getNeighboursAtLeast(center, Chunk.State.ADJACENCY_GENERATION_PENDING));
+        assertEquals(Lists.newArrayList(center), tracker.chunkAdded(neighbours.get(0), Chunk.State.ADJACENCY_GENERATION_PENDING));
+    }
+
+    @Test
+    public void removedChunksAreForgotten() {
+        Vector3i pos = new Vector3i(5, 0, 5);
+        tracker.chunkAdded(pos, Chunk.State.COMPLETE);
+        assertEquals(9, tracker.size());
+        tracker.chunkRemoved(pos);
+        assertEquals(0, tracker.size());
+    }
+
+    @Test
+    public void stateChangesOfUnknownChunksAreIgnored() {
+        Vector3i center = new Vector3i(0, 0, 0);
+        for (Vector3i pos : neighbours(center)) {
+            tracker.chunkAdded(pos, Chunk.State.COMPLETE);
+        }
+        int size = tracker.size();
+        assertTrue(tracker.stateChanged(center, Chunk.State.COMPLETE).isEmpty());
+        assertEquals(size, tracker.size());
+        assertEquals(Lists.newArrayList(center), tracker.chunkAdded(center, Chunk.State.COMPLETE));
+    }
+
+    @Test
+    public void abandonedStageIsReportedAgain() {
+        Vector3i center = new Vector3i(0, 0, 0);
+        for (Vector3i pos : neighbours(center)) {
+            tracker.chunkAdded(pos, Chunk.State.COMPLETE);
+        }
+        assertEquals(Lists.newArrayList(center), tracker.chunkAdded(center, Chunk.State.LIGHT_PROPAGATION_PENDING));
+        assertTrue(tracker.stageAbandoned(center, Chunk.State.INTERNAL_LIGHT_GENERATION_PENDING).isEmpty());
+        assertEquals(Lists.newArrayList(center), tracker.stageAbandoned(center, Chunk.State.LIGHT_PROPAGATION_PENDING));
+    }
+
+    @Test
+    public void abandonedStageWaitsForNeighbours() {
+        Vector3i center = new Vector3i(0, 0, 0);
+        List<Vector3i> neighbours = neighbours(center);
+        for (Vector3i pos : neighbours) {
+            tracker.chunkAdded(pos, Chunk.State.ADJACENCY_GENERATION_PENDING);
+        }
+        assertEquals(Lists.newArrayList(center), tracker.chunkAdded(center, Chunk.State.ADJACENCY_GENERATION_PENDING));
+        tracker.chunkRemoved(neighbours.get(0));
+        assertTrue(tracker.stageAbandoned(center, Chunk.State.ADJACENCY_GENERATION_PENDING).isEmpty());
+        assertEquals(Lists.newArrayList(center), tracker.chunkAdded(neighbours.get(0), Chunk.State.ADJACENCY_GENERATION_PENDING));
+    }
+
+    private List<Vector3i> neighbours(Vector3i pos) {
+        List<Vector3i> result = Lists.newArrayList();
+        for (int x = -1; x <= 1; ++x) {
+            for (int z = -1; z <= 1; ++z) {
+                if (x != 0 || z != 0) {
+                    result.add(new Vector3i(pos.x + x, pos.y, pos.z + z));
+                }
+            }
+        }
+        return result;
+    }
+}